@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.yammer.collections.azure.serialization.Codecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of keys and values into entities and decoding them back. 64 KB values are stored in several chunks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AzureEntityUtilBenchmark {
+    @Param({"16", "1024", "65536"})
+    private int size;
+    private Bytes bytes;
+    private String encoded;
+    private AzureEntity entity;
+
+    @Setup
+    public void setUp() {
+        byte[] array = new byte[size];
+        new Random(size).nextBytes(array);
+        bytes = Bytes.of(array);
+        encoded = AzureEntityUtil.encode(bytes);
+        entity = new AzureEntity("row", "column", encoded);
+    }
+
+    @Benchmark
+    public String encode() {
+        return AzureEntityUtil.encode(bytes);
+    }
+
+    @Benchmark
+    public Bytes decode() {
+        return AzureEntityUtil.decode(encoded);
+    }
+
+    @Benchmark
+    public Bytes decodeValue() {
+        return AzureEntityUtil.decodeValue(entity);
+    }
+
+    @Benchmark
+    public byte[] decodeValueWithCodec() {
+        return AzureEntityUtil.decodeValue(entity, Codecs.BYTE_ARRAY);
+    }
+}
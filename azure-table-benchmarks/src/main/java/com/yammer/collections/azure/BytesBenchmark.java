@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Bytes} as a hash key. The hash code is cached, so {@code hashCode} measures it on a new instance, as when a key is looked up
+ * once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BytesBenchmark {
+    @Param({"16", "256"})
+    private int size;
+    private byte[] array;
+    private Bytes bytes;
+    private Bytes copy;
+    private Bytes slice;
+
+    @Setup
+    public void setUp() {
+        array = new byte[size];
+        new Random(size).nextBytes(array);
+        bytes = Bytes.of(array);
+        copy = Bytes.of(array.clone());
+        byte[] padded = new byte[size + 2];
+        System.arraycopy(array, 0, padded, 1, size);
+        slice = Bytes.of(padded).slice(1, size);
+    }
+
+    @Benchmark
+    public int hashCodeOfNewInstance() {
+        return Bytes.of(array).hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return bytes.equals(copy);
+    }
+
+    @Benchmark
+    public boolean equalsSlice() {
+        return bytes.equals(slice);
+    }
+
+    @Benchmark
+    public int compareToCopy() {
+        return bytes.compareTo(copy);
+    }
+}
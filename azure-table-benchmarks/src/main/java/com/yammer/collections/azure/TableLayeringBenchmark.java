@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.serialization.json.JsonSerializingTable;
+import com.yammer.collections.metrics.MeteredTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the layers stacked on the base table by the builder: the {@link MeteredTable} wrapper and the transforming table of the
+ * JSON serialization, alone and together, against the {@link InMemoryTables} of the core.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableLayeringBenchmark {
+    private static final int CELLS = 100;
+    @Param
+    private Layers layers;
+    private Table<Object, Object, Object> table;
+    private Object row;
+    private Object column;
+    private Object value;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setUp() {
+        BaseAzureTable baseTable = InMemoryTables.builder().build().table("benchmark", TableClientOptions.DEFAULT);
+        table = (Table<Object, Object, Object>) layers.stack(baseTable);
+        for (int i = 0; i < CELLS; i++) {
+            table.put(layers.key("row" + i % 10), layers.key("column" + i / 10), layers.key("value" + i));
+        }
+        row = layers.key("row5");
+        column = layers.key("column5");
+        value = layers.key("value55");
+    }
+
+    @Benchmark
+    public Object get() {
+        return table.get(row, column);
+    }
+
+    @Benchmark
+    public Object put() {
+        return table.put(row, column, value);
+    }
+
+    @Benchmark
+    public void cellSetIteration(Blackhole blackhole) {
+        for (Table.Cell<Object, Object, Object> cell : table.cellSet()) {
+            blackhole.consume(cell.getValue());
+        }
+    }
+
+    public enum Layers {
+        BASE(false, false),
+        METERED(true, false),
+        JSON(false, true),
+        METERED_JSON(true, true);
+        private final boolean metered;
+        private final boolean json;
+
+        Layers(boolean metered, boolean json) {
+            this.metered = metered;
+            this.json = json;
+        }
+
+        Object key(String string) {
+            return json ? string : Bytes.of(string.getBytes(Charsets.UTF_8));
+        }
+
+        Table<?, ?, ?> stack(BaseAzureTable baseTable) {
+            Table<?, ?, ?> stacked = json ? JsonSerializingTable.create(baseTable, String.class, String.class, String.class) : baseTable;
+            return metered ? MeteredTable.create(stacked, new MetricRegistry(), "benchmark") : stacked;
+        }
+    }
+}
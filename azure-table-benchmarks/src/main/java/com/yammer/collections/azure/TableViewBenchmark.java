@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point operations and view iterations of {@link BaseAzureTable} against the {@link InMemoryTables} of the core, without
+ * latency. The service copies entities as the SDK parses them, so its allocations are part of the results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableViewBenchmark {
+    private static final int COLUMNS = 10;
+    @Param({"10", "100"})
+    private int rows;
+    private BaseAzureTable table;
+    private Bytes row;
+    private Bytes column;
+    private Bytes value;
+
+    private static Bytes bytes(String string) {
+        return Bytes.of(string.getBytes(Charsets.UTF_8));
+    }
+
+    @Setup
+    public void setUp() {
+        table = InMemoryTables.builder().build().table("benchmark", TableClientOptions.DEFAULT);
+        value = bytes("a value of moderate length, as stored by most tables");
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < COLUMNS; j++) {
+                table.put(bytes("row" + i), bytes("column" + j), value);
+            }
+        }
+        row = bytes("row" + rows / 2);
+        column = bytes("column" + COLUMNS / 2);
+    }
+
+    @Benchmark
+    public Bytes get() {
+        return table.get(row, column);
+    }
+
+    @Benchmark
+    public Bytes put() {
+        return table.put(row, column, value);
+    }
+
+    @Benchmark
+    public void cellSetIteration(Blackhole blackhole) {
+        for (Table.Cell<Bytes, Bytes, Bytes> cell : table.cellSet()) {
+            blackhole.consume(cell);
+        }
+    }
+
+    /**
+     * Iterates the entities of all the columns of each row, deduplicating the row keys.
+     */
+    @Benchmark
+    public void rowKeySetIteration(Blackhole blackhole) {
+        for (Bytes rowKey : table.rowKeySet()) {
+            blackhole.consume(rowKey);
+        }
+    }
+
+    @Benchmark
+    public void rowIteration(Blackhole blackhole) {
+        for (Map.Entry<Bytes, Bytes> entry : table.row(row).entrySet()) {
+            blackhole.consume(entry);
+        }
+    }
+}
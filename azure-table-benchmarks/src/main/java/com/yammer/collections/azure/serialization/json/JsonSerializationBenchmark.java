@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yammer.collections.azure.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize/deserialize throughput of the pre-bound JSON functions against the generic
+ * {@link ObjectMapper#writeValueAsBytes(Object)} / {@link ObjectMapper#readValue(byte[], Class)} path they replaced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonSerializationFunction<ValuePojo> serializationFunction =
+            JsonSerializationFunction.forClass(objectMapper, ValuePojo.class);
+    private final JsonDeserializationFunction<ValuePojo> deserializationFunction =
+            new JsonDeserializationFunction<>(objectMapper, ValuePojo.class);
+    @Param({"4", "256"})
+    private int numbers;
+    private ValuePojo value;
+    private Bytes serialized;
+
+    @Setup
+    public void setUp() {
+        List<Integer> values = new ArrayList<>(numbers);
+        for (int i = 0; i < numbers; i++) {
+            values.add(i * 7919);
+        }
+        value = new ValuePojo("John Doe", values);
+        serialized = serializationFunction.apply(value);
+    }
+
+    @Benchmark
+    public byte[] mapperSerialize() throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Bytes functionSerialize() {
+        return serializationFunction.apply(value);
+    }
+
+    @Benchmark
+    public ValuePojo mapperDeserialize() throws IOException {
+        return objectMapper.readValue(serialized.getBytes(), ValuePojo.class);
+    }
+
+    @Benchmark
+    public ValuePojo functionDeserialize() {
+        return deserializationFunction.apply(serialized);
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class ValuePojo {
+        private final String name;
+        private final Collection<Integer> numbers;
+
+        public ValuePojo(
+                @JsonProperty("name") String name,
+                @JsonProperty("numbers") Collection<Integer> numbers) {
+            this.name = name;
+            this.numbers = numbers;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Collection<Integer> getNumbers() {
+            return numbers;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Function;
+import com.yammer.collections.azure.Bytes;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against Smile value serialization on a numeric-heavy payload. The serialization benchmarks report the serialized size of
+ * the sample as the {@code serializedBytes} secondary result.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationFormatBenchmark {
+    private final Function<Sample, Bytes> jsonSerialization =
+            JsonSerializationFunction.forClass(JsonSerializingTable.DEFAULT_OBJECT_MAPPER, Sample.class);
+    private final Function<Bytes, Sample> jsonDeserialization =
+            new JsonDeserializationFunction<>(JsonSerializingTable.DEFAULT_OBJECT_MAPPER, Sample.class);
+    private final Function<Sample, Bytes> smileSerialization =
+            JsonSerializationFunction.forClass(SmileSerializingTable.DEFAULT_SMILE_MAPPER, Sample.class);
+    private final Function<Bytes, Sample> smileDeserialization = new SmileOrJsonDeserializationFunction<>(
+            SmileSerializingTable.DEFAULT_SMILE_MAPPER, JsonSerializingTable.DEFAULT_OBJECT_MAPPER, Sample.class);
+    @Param({"16", "1024"})
+    private int points;
+    private Sample sample;
+    private Bytes json;
+    private Bytes smile;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(points);
+        long[] timestamps = new long[points];
+        double[] values = new double[points];
+        for (int i = 0; i < points; i++) {
+            timestamps[i] = 1390000000000L + i * 60000L;
+            values[i] = random.nextGaussian() * 1000;
+        }
+        sample = new Sample("cpu.load", timestamps, values);
+        json = jsonSerialization.apply(sample);
+        smile = smileSerialization.apply(sample);
+    }
+
+    @Benchmark
+    public Bytes jsonSerialize(SerializedSize size) {
+        Bytes serialized = jsonSerialization.apply(sample);
+        size.serializedBytes = serialized.length();
+        return serialized;
+    }
+
+    @Benchmark
+    public Bytes smileSerialize(SerializedSize size) {
+        Bytes serialized = smileSerialization.apply(sample);
+        size.serializedBytes = serialized.length();
+        return serialized;
+    }
+
+    @Benchmark
+    public Sample jsonDeserialize() {
+        return jsonDeserialization.apply(json);
+    }
+
+    @Benchmark
+    public Sample smileDeserialize() {
+        return smileDeserialization.apply(smile);
+    }
+
+    /**
+     * Not a rate: the counter holds the size of the last value serialized, which is the same for every invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SerializedSize {
+        public long serializedBytes;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static final class Sample {
+        private final String name;
+        private final long[] timestamps;
+        private final double[] values;
+
+        public Sample(
+                @JsonProperty("name") String name,
+                @JsonProperty("timestamps") long[] timestamps,
+                @JsonProperty("values") double[] values) {
+            this.name = name;
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+    }
+}
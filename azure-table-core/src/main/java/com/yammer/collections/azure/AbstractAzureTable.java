@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Table;
+import com.microsoft.windowsazure.services.core.storage.StorageErrorCode;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
+import com.microsoft.windowsazure.services.table.client.TableOperation;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.yammer.collections.azure.query.PropertyFilter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.yammer.collections.azure.AzureEntityUtil.checkValueSize;
+import static com.yammer.collections.azure.AzureEntityUtil.hasValue;
+
+/**
+ * Azure table backed implementation of the {@link Table} interface, the mapping of the keys and values to entity properties
+ * is left to an {@link EntityMapper}.
+ */
+@SuppressWarnings("ClassWithTooManyMethods")
+public abstract class AbstractAzureTable<R, C, V> implements Table<R, C, V> {
+    /**
+     * The largest value, in bytes, a table stores: values are stored Base64 encoded, in at most 15 properties of 32K characters.
+     */
+    public static final int MAX_VALUE_BYTES = AzureEntity.MAX_CHUNKS * AzureEntity.MAX_CHUNK_LENGTH / 4 * 3;
+    static final int MAX_BATCH_OPERATIONS = 100;
+    static final long MAX_BATCH_PAYLOAD_BYTES = 4 * 1024 * 1024;
+    // allowance for the markup around the properties of each entity of a batch
+    private static final int ENTITY_MARKUP_BYTES = 1024;
+    private final String tableName;
+    private final AzureTableCloudClient azureTableCloudClient;
+    private final AzureTableRequestFactory azureTableRequestFactory;
+    private final EntityMapper<R, C, V> entityMapper;
+
+    AbstractAzureTable(String tableName, AzureTableCloudClient azureTableCloudClient, AzureTableRequestFactory azureTableRequestFactory,
+                       EntityMapper<R, C, V> entityMapper) {
+        this.tableName = tableName;
+        this.azureTableCloudClient = azureTableCloudClient;
+        this.azureTableRequestFactory = azureTableRequestFactory;
+        this.entityMapper = entityMapper;
+    }
+
+    private static boolean notFound(StorageException e) {
+        return StorageErrorCode.RESOURCE_NOT_FOUND.toString().equals(e.getErrorCode())
+                || "ResourceNotFound".equals(e.getErrorCode());
+    }
+
+    EntityMapper<R, C, V> getEntityMapper() {
+        return entityMapper;
+    }
+
+    private V entityToValue(AzureEntity azureEntity) {
+        return azureEntity == null ? null : entityMapper.decodeValue(azureEntity);
+    }
+
+    @Override
+    public boolean contains(Object row, Object column) {
+        return get(row, column) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsRow(Object row) {
+        return entityMapper.encodeRow(row) != null && !row((R) row).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsColumn(Object column) {
+        return entityMapper.encodeColumn(column) != null && !column((C) column).isEmpty();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        String encodedValue = entityMapper.encodeValue(value);
+        if (encodedValue == null) {
+            return false;
+        }
+
+        TableQuery<AzureEntity> valueQuery = azureTableRequestFactory.containsValueQuery(tableName, encodedValue);
+        return Iterables.any(azureTableCloudClient.execute(valueQuery), hasValue(encodedValue));
+    }
+
+    @Override
+    public V get(Object row, Object column) {
+        return entityToValue(rawGet(row, column));
+    }
+
+    AzureEntity rawGet(Object row, Object column) {
+        String rowAsString = entityMapper.encodeRow(row);
+        String columnAsString = entityMapper.encodeColumn(column);
+        if (rowAsString == null || columnAsString == null) {
+            return null;
+        }
+
+        TableOperation retrieveEntityOperation = azureTableRequestFactory.retrieve(rowAsString, columnAsString);
+
+        try {
+            return azureTableCloudClient.execute(tableName, rowAsString, retrieveEntityOperation);
+        } catch (StorageException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cellSet().isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return cellSet().size();
+    }
+
+    @Override
+    public void clear() {
+        for (Cell<R, C, V> cell : cellSet()) {
+            remove(cell.getRowKey(), cell.getColumnKey());
+        }
+    }
+
+    @Override
+    public V put(R row, C column, V value) {
+        checkNotNull(row);
+        checkNotNull(column);
+        checkNotNull(value);
+        String encodedValue = entityMapper.encodeValue(value);
+        checkValueSize(encodedValue);
+        String rowAsString = entityMapper.encodeRow(row);
+        TableOperation putStringieOperation = putOperation(rowAsString, entityMapper.encodeColumn(column), encodedValue, value);
+
+        try {
+            return entityToValue(azureTableCloudClient.execute(tableName, rowAsString, putStringieOperation));
+        } catch (StorageException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private TableOperation putOperation(String rowAsString, String columnAsString, String encodedValue, V value) {
+        Map<String, EntityProperty> nativeProperties = entityMapper.nativeProperties(value);
+        return nativeProperties.isEmpty()
+                ? azureTableRequestFactory.put(rowAsString, columnAsString, encodedValue)
+                : azureTableRequestFactory.put(rowAsString, columnAsString, encodedValue, nativeProperties);
+    }
+
+    /**
+     * Puts the values in the columns of the row with as few requests as possible: batches of up to 100 cells and 4 MB, each of which is
+     * written atomically. The whole is not atomic, the batches written before one that fails stay written.
+     */
+    public void putAllInRow(R row, Map<? extends C, ? extends V> values) {
+        checkNotNull(row);
+        checkNotNull(values);
+        String rowAsString = entityMapper.encodeRow(row);
+        TableBatchOperation batch = new TableBatchOperation();
+        long batchPayload = 0;
+        for (Map.Entry<? extends C, ? extends V> cell : values.entrySet()) {
+            String columnAsString = entityMapper.encodeColumn(checkNotNull(cell.getKey()));
+            String encodedValue = entityMapper.encodeValue(checkNotNull(cell.getValue()));
+            checkValueSize(encodedValue);
+            long payload = rowAsString.length() + columnAsString.length() + encodedValue.length() + ENTITY_MARKUP_BYTES;
+            if (batch.size() == MAX_BATCH_OPERATIONS || !batch.isEmpty() && batchPayload + payload > MAX_BATCH_PAYLOAD_BYTES) {
+                executeBatch(rowAsString, batch);
+                batch = new TableBatchOperation();
+                batchPayload = 0;
+            }
+            batch.add(putOperation(rowAsString, columnAsString, encodedValue, cell.getValue()));
+            batchPayload += payload;
+        }
+        if (!batch.isEmpty()) {
+            executeBatch(rowAsString, batch);
+        }
+    }
+
+    private void executeBatch(String rowAsString, TableBatchOperation batch) {
+        try {
+            azureTableCloudClient.execute(tableName, rowAsString, batch);
+        } catch (StorageException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public void putAll(Table<? extends R, ? extends C, ? extends V> table) {
+        checkNotNull(table);
+        for (Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet()) {
+            put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+        }
+    }
+
+    @Override
+    public V remove(Object row, Object column) {
+        AzureEntity entityToBeDeleted = rawGet(row, column);
+
+        if (entityToBeDeleted == null) {
+            return null;
+        }
+
+        TableOperation deleteStringieOperation = azureTableRequestFactory.delete(entityToBeDeleted);
+
+        try {
+            return entityToValue(azureTableCloudClient.execute(tableName, entityToBeDeleted.getPartitionKey(), deleteStringieOperation));
+        } catch (StorageException e) {
+            if (notFound(e)) {
+                return null;
+            }
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public Map<C, V> row(R row) {
+        checkNotNull(row);
+        return new ColumnView<>(this, row, azureTableCloudClient, azureTableRequestFactory);
+    }
+
+    @Override
+    public Map<R, V> column(C column) {
+        checkNotNull(column);
+        return new RowView<>(this, column, azureTableCloudClient, azureTableRequestFactory);
+    }
+
+    @Override
+    public Set<Cell<R, C, V>> cellSet() {
+        return new CellSetMutableView<>(this, azureTableCloudClient, azureTableRequestFactory);
+    }
+
+    @Override
+    public Set<R> rowKeySet() {
+        return SetView.fromCollectionView(
+                new TableCollectionView<>(this, entityMapper.rowKeyExtractor(), azureTableCloudClient, azureTableRequestFactory)
+        );
+    }
+
+    @Override
+    public Set<C> columnKeySet() {
+        return SetView.fromCollectionView(
+                new TableCollectionView<>(this, entityMapper.columnKeyExtractor(), azureTableCloudClient, azureTableRequestFactory)
+        );
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new TableCollectionView<>(this, entityMapper.valueExtractor(), azureTableCloudClient, azureTableRequestFactory);
+    }
+
+    @Override
+    public Map<R, Map<C, V>> rowMap() {
+        return new RowMapView<>(this);
+    }
+
+    @Override
+    public Map<C, Map<R, V>> columnMap() {
+        return new ColumnMapView<>(this);
+    }
+
+    /**
+     * Starts a query for the cells of this table, with key, value and timestamp conditions evaluated by the table service where possible.
+     */
+    public CellQuery<R, C, V> query() {
+        return new CellQuery<>(tableName, entityMapper, azureTableCloudClient, azureTableRequestFactory);
+    }
+
+    /**
+     * Lazily queries the cells matching the filter, the filter is evaluated by the table service.
+     */
+    public Iterable<Cell<R, C, V>> cellsWhere(PropertyFilter filter) {
+        TableQuery<AzureEntity> query = azureTableRequestFactory.selectWhere(tableName, filter.getFilterString());
+        return Iterables.transform(azureTableCloudClient.execute(query), entityMapper.cellExtractor());
+    }
+
+    /**
+     * As {@link #cellsWhere(PropertyFilter)}, restricted to a single row, i.e. to a single partition.
+     */
+    public Iterable<Cell<R, C, V>> cellsInRowWhere(R row, PropertyFilter filter) {
+        checkNotNull(row);
+        TableQuery<AzureEntity> query = azureTableRequestFactory.selectForRowWhere(tableName, entityMapper.encodeRow(row), filter.getFilterString());
+        return Iterables.transform(azureTableCloudClient.execute(query), entityMapper.cellExtractor());
+    }
+
+    /**
+     * As {@link #cellsWhere(PropertyFilter)}, restricted to a single column. Still a scan of all partitions.
+     */
+    public Iterable<Cell<R, C, V>> cellsInColumnWhere(C column, PropertyFilter filter) {
+        checkNotNull(column);
+        TableQuery<AzureEntity> query = azureTableRequestFactory.selectForColumnWhere(tableName, entityMapper.encodeColumn(column),
+                filter.getFilterString());
+        return Iterables.transform(azureTableCloudClient.execute(query), entityMapper.cellExtractor());
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    private static final class TableCollectionView<E> extends AbstractCollectionView<E> {
+        private final AbstractAzureTable<?, ?, ?> azureTable;
+        private final AzureTableCloudClient azureTableCloudClient;
+        private final AzureTableRequestFactory azureTableRequestFactory;
+
+        public TableCollectionView(AbstractAzureTable<?, ?, ?> azureTable, Function<AzureEntity, E> typeExtractor,
+                                   AzureTableCloudClient azureTableCloudClient, AzureTableRequestFactory azureTableRequestFactory) {
+            super(typeExtractor);
+            this.azureTable = azureTable;
+            this.azureTableCloudClient = azureTableCloudClient;
+            this.azureTableRequestFactory = azureTableRequestFactory;
+        }
+
+        @Override
+        protected Iterable<AzureEntity> getBackingIterable() {
+            TableQuery<AzureEntity> query = azureTableRequestFactory.selectAll(azureTable.getTableName());
+            return azureTableCloudClient.execute(query);
+        }
+    }
+}
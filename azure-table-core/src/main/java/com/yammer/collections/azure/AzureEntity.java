@@ -15,16 +15,44 @@
  */
 package com.yammer.collections.azure;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
 import com.microsoft.windowsazure.services.table.client.TableServiceEntity;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Internal class, not to be used outside. Requires to be public with a public constructor due to the Azure library using reflection for
  * serialization/deserialization,
+ * <p>
+ * A value that does not fit a single property (64 KB, i.e. {@link #MAX_CHUNK_LENGTH} characters) is split into chunks stored in the
+ * properties Value, Value1, Value2, ... with the number of chunks stored in ValueChunks. Values that fit are stored exactly as before.
+ * <p>
+ * An entity can carry additional native properties, derived from the value so that the server can filter on them. They are only written,
+ * entities read from the table do not expose them.
  */
 public class AzureEntity extends TableServiceEntity {
     public static final String VALUE = "Value";
+    public static final String VALUE_CHUNKS = "ValueChunks";
+    private static final Pattern RESERVED_PROPERTY_NAMES = Pattern.compile("PartitionKey|RowKey|Timestamp|Etag|" + VALUE_CHUNKS + "|" + VALUE + "\\d*");
+    // a multiple of 4, so that each chunk is a valid Base64 string on its own
+    static final int MAX_CHUNK_LENGTH = 32 * 1024;
+    // leaves room for keys and system properties within the 1 MB entity limit
+    static final int MAX_CHUNKS = 15;
     @SuppressWarnings("InstanceVariableMayNotBeInitialized")
     private String value; // cannot be final
+    @SuppressWarnings("InstanceVariableMayNotBeInitialized")
+    private List<String> valueChunks; // only set when read in chunks, the value is then joined lazily
+    private Map<String, EntityProperty> nativeProperties = ImmutableMap.of();
 
     public AzureEntity() { // needed by azure java api
     }
@@ -35,11 +63,105 @@ public class AzureEntity extends TableServiceEntity {
         this.value = value;
     }
 
+    public AzureEntity(String rowKey, String columnKey, String value, Map<String, EntityProperty> nativeProperties) {
+        this(rowKey, columnKey, value);
+        for (String name : nativeProperties.keySet()) {
+            checkArgument(!isReservedPropertyName(name), "Property name %s is reserved", name);
+        }
+        this.nativeProperties = ImmutableMap.copyOf(nativeProperties);
+    }
+
+    static boolean isReservedPropertyName(String name) {
+        return RESERVED_PROPERTY_NAMES.matcher(name).matches();
+    }
+
+    // keys and value are Base64, so their length in characters is their length in bytes
+    private long payloadLength(String currentValue) {
+        return length(partitionKey) + length(rowKey) + length(currentValue);
+    }
+
+    private static long length(String string) {
+        return string == null ? 0 : string.length();
+    }
+
+    static int numberOfChunks(String value) {
+        return Math.max(1, (value.length() + MAX_CHUNK_LENGTH - 1) / MAX_CHUNK_LENGTH);
+    }
+
+    static String chunkPropertyName(int index) {
+        return index == 0 ? VALUE : VALUE + index;
+    }
+
     public String getValue() {
+        if (value == null && valueChunks != null) {
+            value = Joiner.on("").join(valueChunks);
+        }
         return value;
     }
 
     public void setValue(String value) {
         this.value = value;
+        valueChunks = null;
+    }
+
+    /**
+     * The value as stored, i.e. in chunks of at most {@link #MAX_CHUNK_LENGTH} characters, allows for decoding without joining them first.
+     */
+    List<String> getValueChunks() {
+        if (valueChunks != null) {
+            return valueChunks;
+        }
+        if (value == null) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<String> chunks = ImmutableList.builder();
+        for (int start = 0; start == 0 || start < value.length(); start += MAX_CHUNK_LENGTH) {
+            chunks.add(value.substring(start, Math.min(value.length(), start + MAX_CHUNK_LENGTH)));
+        }
+        return chunks.build();
+    }
+
+    @Override
+    public void readEntity(HashMap<String, EntityProperty> properties, OperationContext opContext) throws StorageException {
+        EntityProperty chunkCount = properties.get(VALUE_CHUNKS);
+        if (chunkCount == null) {
+            EntityProperty valueProperty = properties.get(VALUE);
+            setValue(valueProperty == null ? null : valueProperty.getValueAsString());
+            return;
+        }
+
+        ImmutableList.Builder<String> chunks = ImmutableList.builder();
+        for (int i = 0; i < chunkCount.getValueAsInteger(); i++) {
+            EntityProperty chunk = properties.get(chunkPropertyName(i));
+            if (chunk == null) {
+                throw new IllegalStateException("Missing value chunk " + i + " of entity " + partitionKey + "/" + rowKey);
+            }
+            chunks.add(chunk.getValueAsString());
+        }
+        value = null;
+        valueChunks = chunks.build();
+    }
+
+    @Override
+    public HashMap<String, EntityProperty> writeEntity(OperationContext opContext) throws StorageException {
+        HashMap<String, EntityProperty> properties = new HashMap<>(nativeProperties);
+        String currentValue = getValue();
+        if (opContext != null) {
+            opContext.setCurrentOperationByteCount(payloadLength(currentValue));
+        }
+        if (currentValue == null) {
+            return properties;
+        }
+        if (currentValue.length() <= MAX_CHUNK_LENGTH) {
+            properties.put(VALUE, new EntityProperty(currentValue));
+            return properties;
+        }
+
+        List<String> chunks = getValueChunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            properties.put(chunkPropertyName(i), new EntityProperty(chunks.get(i)));
+        }
+        properties.put(VALUE_CHUNKS, new EntityProperty(chunks.size()));
+        return properties;
     }
-}
\ No newline at end of file
+}
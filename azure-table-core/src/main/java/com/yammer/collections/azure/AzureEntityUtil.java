@@ -16,13 +16,28 @@
 package com.yammer.collections.azure;
 
 import com.google.common.base.Function;
-import com.microsoft.windowsazure.services.core.storage.utils.Base64;
+import com.google.common.base.Predicate;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 final class AzureEntityUtil {
     static final Function<AzureEntity, Bytes> EXTRACT_VALUE = new Function<AzureEntity, Bytes>() {
         @Override
         public Bytes apply(AzureEntity input) {
-            return decode(input.getValue());
+            return decodeValue(input);
+        }
+    };
+
+    // buffers above this size are not retained by the thread local, so that a single large value does not pin memory
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final ThreadLocal<byte[]> DECODING_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
         }
     };
 
@@ -30,11 +45,106 @@ final class AzureEntityUtil {
     }
 
     static String encode(Bytes bytesToBeEncoded) {
-        return Base64.encode(bytesToBeEncoded.getBytes());
+        return Base64Codec.encode(bytesToBeEncoded.getBackingArray(), bytesToBeEncoded.getOffset(), bytesToBeEncoded.length());
     }
 
     static Bytes decode(String stringToBeDecoded) {
-        return new Bytes(Base64.decode(stringToBeDecoded));
+        return new Bytes(Base64Codec.decode(stringToBeDecoded));
+    }
+
+    /**
+     * Decodes the string into a per thread buffer and hands it to the codec, so that only the decoded object is allocated.
+     */
+    static <T> T decode(String stringToBeDecoded, Codec<T> codec) {
+        int length = Base64Codec.decodedLength(stringToBeDecoded);
+        byte[] buffer = decodingBuffer(length);
+        Base64Codec.decodeInto(stringToBeDecoded, buffer, 0);
+        return codec.decode(buffer, 0, length);
+    }
+
+    static <T> T decodeValue(AzureEntity entity, Codec<T> codec) {
+        List<String> chunks = entity.getValueChunks();
+        if (chunks.size() == 1) {
+            return decode(chunks.get(0), codec);
+        }
+
+        int length = 0;
+        for (String chunk : chunks) {
+            length += Base64Codec.decodedLength(chunk);
+        }
+        byte[] buffer = decodingBuffer(length);
+        int position = 0;
+        for (String chunk : chunks) {
+            position += Base64Codec.decodeInto(chunk, buffer, position);
+        }
+        return codec.decode(buffer, 0, length);
+    }
+
+    /**
+     * Decodes the entity value straight from its chunks into an exact size array.
+     */
+    static Bytes decodeValue(AzureEntity entity) {
+        List<String> chunks = entity.getValueChunks();
+        if (chunks.size() == 1) {
+            return decode(chunks.get(0));
+        }
+
+        int length = 0;
+        for (String chunk : chunks) {
+            length += Base64Codec.decodedLength(chunk);
+        }
+        byte[] value = new byte[length];
+        int position = 0;
+        for (String chunk : chunks) {
+            position += Base64Codec.decodeInto(chunk, value, position);
+        }
+        return new Bytes(value);
     }
 
+    /**
+     * Decodes the entity value chunk by chunk into the output, so that the whole value is never materialized.
+     */
+    static void writeValue(AzureEntity entity, OutputStream output) throws IOException {
+        byte[] buffer = null;
+        for (String chunk : entity.getValueChunks()) {
+            int length = Base64Codec.decodedLength(chunk);
+            if (buffer == null || buffer.length < length) {
+                buffer = new byte[length];
+            }
+            Base64Codec.decodeInto(chunk, buffer, 0);
+            output.write(buffer, 0, length);
+        }
+    }
+
+    private static byte[] decodingBuffer(int size) {
+        byte[] buffer = DECODING_BUFFER.get();
+        if (buffer.length >= size) {
+            return buffer;
+        }
+        if (size > MAX_RETAINED_BUFFER_SIZE) {
+            return new byte[size];
+        }
+        buffer = new byte[Math.min(Math.max(size, buffer.length * 2), MAX_RETAINED_BUFFER_SIZE)];
+        DECODING_BUFFER.set(buffer);
+        return buffer;
+    }
+
+    static void checkValueSize(String encodedValue) {
+        if (AzureEntity.numberOfChunks(encodedValue) > AzureEntity.MAX_CHUNKS) {
+            throw new IllegalArgumentException("Value too large, encoded length " + encodedValue.length()
+                    + " exceeds the limit of " + AzureEntity.MAX_CHUNKS * AzureEntity.MAX_CHUNK_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Value queries can only filter on the first chunk of large values, this predicate verifies the whole value.
+     */
+    static Predicate<AzureEntity> hasValue(final String encodedValue) {
+        return new Predicate<AzureEntity>() {
+            @Override
+            public boolean apply(AzureEntity input) {
+                return encodedValue.equals(input.getValue());
+            }
+        };
+    }
 }
@@ -15,23 +15,215 @@
  */
 package com.yammer.collections.azure;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
 import com.microsoft.windowsazure.services.core.storage.StorageException;
 import com.microsoft.windowsazure.services.table.client.CloudTableClient;
+import com.microsoft.windowsazure.services.table.client.QueryTableOperation;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
 import com.microsoft.windowsazure.services.table.client.TableOperation;
 import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.microsoft.windowsazure.services.table.client.TableRequestOptions;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 class AzureTableCloudClient {
-    private final CloudTableClient delegate;
+    private final TableService delegate;
+    private final TableService scanDelegate;
+    private final TableClientOptions options;
+    private final boolean instrumented;
+    private final Optional<RetryPolicyFactory> retryPolicy;
+    private final Optional<RetryPolicyFactory> scanRetryPolicy;
+    private final Optional<CircuitBreaker> circuitBreaker;
+    private final Optional<HedgingPolicy> hedgingPolicy;
+    private final Optional<Bulkhead> bulkhead;
 
     AzureTableCloudClient(CloudTableClient delegateClient) {
-        delegate = delegateClient;
+        this(delegateClient, TableClientOptions.DEFAULT);
+    }
+
+    AzureTableCloudClient(CloudTableClient delegateClient, TableClientOptions options) {
+        this(new CloudTableService(delegateClient), options);
+    }
+
+    AzureTableCloudClient(TableService delegateService, TableClientOptions options) {
+        this(delegateService, options.getScanClient().isPresent() ? new CloudTableService(options.getScanClient().get()) : delegateService,
+                options);
+    }
+
+    AzureTableCloudClient(TableService delegateService, TableService scanService, TableClientOptions options) {
+        delegate = delegateService;
+        scanDelegate = scanService;
+        this.options = options;
+        instrumented = RequestInstrumentation.isEnabled(options);
+        retryPolicy = retryPolicy(delegateService, options.getRetryPolicy(), options);
+        // a separate scan client keeps its own retry policy
+        scanRetryPolicy = scanService == delegateService
+                ? retryPolicy
+                : retryPolicy(scanService, Optional.<RetryPolicyFactory>absent(), options);
+        circuitBreaker = options.getCircuitBreaker();
+        hedgingPolicy = options.getHedgingPolicy();
+        bulkhead = options.getBulkhead();
+    }
+
+    private static Optional<RetryPolicyFactory> retryPolicy(TableService service, Optional<RetryPolicyFactory> policy, TableClientOptions options) {
+        if (!options.getRetryBudget().isPresent()) {
+            return policy;
+        }
+        return Optional.of(options.getRetryBudget().get().limit(policy.or(service.getRetryPolicyFactory())));
+    }
+
+    private TableService service(Bulkhead.Compartment compartment) {
+        return compartment == Bulkhead.Compartment.SCAN ? scanDelegate : delegate;
+    }
+
+    // null leaves the defaults of the client of the service running the request in place
+    private TableRequestOptions requestOptions(String tableName, Bulkhead.Compartment compartment, Optional<Deadline> deadline) {
+        Optional<RetryPolicyFactory> policy = compartment == Bulkhead.Compartment.SCAN ? scanRetryPolicy : retryPolicy;
+        if (!deadline.isPresent()) {
+            if (!policy.isPresent()) {
+                return null;
+            }
+            TableRequestOptions requestOptions = new TableRequestOptions();
+            requestOptions.setRetryPolicyFactory(policy.get());
+            return requestOptions;
+        }
+        // fails fast before the circuit breaker is consulted; the timeouts of each request are limited by the instrumentation, as the
+        // server timeout of the request options is in whole seconds
+        deadline.get().checkRemainingMillis(tableName);
+        TableRequestOptions requestOptions = new TableRequestOptions();
+        requestOptions.setRetryPolicyFactory(deadline.get().limit(policy.or(service(compartment).getRetryPolicyFactory()), tableName));
+        return requestOptions;
+    }
+
+    /**
+     * Executes the operation on an entity of the partition, the key of which the rate limiter needs before the operation is sent.
+     */
+    AzureEntity execute(final String tableName, final String partitionKey, final TableOperation tableOperation) throws StorageException {
+        // the deadline is resolved on the calling thread, hedged attempts run on other threads
+        final Optional<Deadline> deadline = Deadline.current(options.getOperationTimeoutInNanos());
+        final ServiceCall<AzureEntity> call = new ServiceCall<AzureEntity>() {
+            @Override
+            public AzureEntity call(TableRequestOptions requestOptions, OperationContext operationContext) throws StorageException {
+                return delegate.execute(tableName, tableOperation, requestOptions, operationContext);
+            }
+        };
+        // point reads are the only operations hedged, a second write would not be idempotent
+        if (!hedgingPolicy.isPresent() || !(tableOperation instanceof QueryTableOperation)) {
+            return executeIsolated(tableName, partitionKey, 1, Bulkhead.Compartment.POINT, call, deadline);
+        }
+        try {
+            return hedgingPolicy.get().execute(new Callable<AzureEntity>() {
+                @Override
+                public AzureEntity call() throws StorageException {
+                    return executeIsolated(tableName, partitionKey, 1, Bulkhead.Compartment.POINT, call, deadline);
+                }
+            });
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwables.propagateIfInstanceOf(e, StorageException.class);
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Executes the operations of the batch, all in the same partition, as one atomic request. Isolated in the partition compartment
+     * of the bulkhead, as it is confined to a partition like a partition query.
+     *
+     * @return the entities of the operations, in order
+     */
+    List<AzureEntity> execute(final String tableName, String partitionKey, final TableBatchOperation batch) throws StorageException {
+        return executeIsolated(tableName, partitionKey, batch.size(), Bulkhead.Compartment.PARTITION, new ServiceCall<List<AzureEntity>>() {
+            @Override
+            public List<AzureEntity> call(TableRequestOptions requestOptions, OperationContext operationContext) throws StorageException {
+                return delegate.execute(tableName, batch, requestOptions, operationContext);
+            }
+        }, Deadline.current(options.getOperationTimeoutInNanos()));
+    }
+
+    // the entities are those each request writes, which the rate limiter counts
+    private <T> T executeIsolated(String tableName, String partitionKey, int entities, Bulkhead.Compartment compartment, ServiceCall<T> call,
+                                  Optional<Deadline> deadline) throws StorageException {
+        TableRequestOptions requestOptions = requestOptions(tableName, compartment, deadline);
+        if (!bulkhead.isPresent() || !bulkhead.get().acquire(compartment, tableName, deadline)) {
+            return executeGuarded(tableName, partitionKey, entities, call, requestOptions, deadline);
+        }
+        try {
+            return executeGuarded(tableName, partitionKey, entities, call, requestOptions, deadline);
+        } finally {
+            bulkhead.get().release(compartment);
+        }
+    }
+
+    private <T> T executeGuarded(String tableName, String partitionKey, int entities, ServiceCall<T> call, TableRequestOptions requestOptions,
+                                 Optional<Deadline> deadline) throws StorageException {
+        if (!circuitBreaker.isPresent()) {
+            return executeInstrumented(tableName, partitionKey, entities, call, requestOptions, deadline);
+        }
+        circuitBreaker.get().acquire(tableName);
+        try {
+            T result = executeInstrumented(tableName, partitionKey, entities, call, requestOptions, deadline);
+            circuitBreaker.get().recordSuccess();
+            return result;
+        } catch (StorageException | RuntimeException e) {
+            circuitBreaker.get().record(e);
+            throw e;
+        }
+    }
+
+    private <T> T executeInstrumented(String tableName, String partitionKey, int entities, ServiceCall<T> call,
+                                      TableRequestOptions requestOptions, Optional<Deadline> deadline) throws StorageException {
+        if (!instrumented && !deadline.isPresent()) {
+            return call.call(requestOptions, null);
+        }
+        RequestInstrumentation instrumentation = RequestInstrumentation.forOperation(tableName, options, deadline, entities);
+        // rejected by the rate limiter before the SDK, which would translate the rejection thrown from its request hooks
+        instrumentation.acquirePermit(Optional.of(partitionKey));
+        long start = System.nanoTime();
+        try {
+            return call.call(requestOptions, instrumentation.getOperationContext());
+        } finally {
+            instrumentation.operationCompleted(System.nanoTime() - start);
+        }
+    }
+
+    // each iteration gets its own operation context, so that its pages are counted together, and its own deadline
+    Iterable<AzureEntity> execute(final TableQuery<AzureEntity> query) {
+        return new Iterable<AzureEntity>() {
+            @Override
+            public Iterator<AzureEntity> iterator() {
+                String tableName = query.getSourceTableName();
+                Optional<Deadline> deadline = Deadline.current(options.getQueryTimeoutInNanos());
+                Bulkhead.Compartment compartment = Bulkhead.compartment(query);
+                TableRequestOptions requestOptions = requestOptions(tableName, compartment, deadline);
+                if (circuitBreaker.isPresent()) {
+                    circuitBreaker.get().acquire(tableName);
+                }
+                Iterator<AzureEntity> entities;
+                if (instrumented || deadline.isPresent()) {
+                    RequestInstrumentation instrumentation = RequestInstrumentation.forQuery(query, options, deadline);
+                    entities = instrumentation.meter(execute(query, compartment, requestOptions, instrumentation.getOperationContext(), deadline));
+                } else {
+                    entities = execute(query, compartment, requestOptions, null, deadline);
+                }
+                return circuitBreaker.isPresent() ? circuitBreaker.get().guard(entities) : entities;
+            }
+        };
     }
 
-    AzureEntity execute(String tableName, TableOperation tableOperation) throws StorageException {
-        return delegate.execute(tableName, tableOperation).getResultAsType();
+    private Iterator<AzureEntity> execute(TableQuery<AzureEntity> query, Bulkhead.Compartment compartment, TableRequestOptions requestOptions,
+                                          OperationContext operationContext, Optional<Deadline> deadline) {
+        Iterator<AzureEntity> entities = service(compartment).execute(query, requestOptions, operationContext).iterator();
+        return bulkhead.isPresent() ? bulkhead.get().guard(entities, compartment, query.getSourceTableName(), deadline) : entities;
     }
 
-    Iterable<AzureEntity> execute(TableQuery<AzureEntity> query) {
-        return delegate.execute(query);
+    private interface ServiceCall<T> {
+        T call(TableRequestOptions requestOptions, OperationContext operationContext) throws StorageException;
     }
 }
@@ -15,17 +15,26 @@
  */
 package com.yammer.collections.azure;
 
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
 import com.microsoft.windowsazure.services.table.client.TableConstants;
 import com.microsoft.windowsazure.services.table.client.TableOperation;
 import com.microsoft.windowsazure.services.table.client.TableQuery;
 
+import java.util.Map;
+
 @SuppressWarnings("MethodMayBeStatic")
 class AzureTableRequestFactory {
+    static final String[] KEY_PROPERTIES = {TableConstants.PARTITION_KEY, TableConstants.ROW_KEY};
+
     TableOperation put(String rowString, String columnString, String value) {
         AzureEntity secretieEntity = new AzureEntity(rowString, columnString, value);
         return TableOperation.insertOrReplace(secretieEntity);
     }
 
+    TableOperation put(String rowString, String columnString, String value, Map<String, EntityProperty> nativeProperties) {
+        return TableOperation.insertOrReplace(new AzureEntity(rowString, columnString, value, nativeProperties));
+    }
+
     TableOperation retrieve(String row, String column) {
         return TableOperation.retrieve(row, column, AzureEntity.class);
     }
@@ -42,6 +51,18 @@ class AzureTableRequestFactory {
         return selectAll(tableName).where(generateValueFilter(value));
     }
 
+    TableQuery<AzureEntity> selectWhere(String tableName, String filter) {
+        return selectAll(tableName).where(filter);
+    }
+
+    TableQuery<AzureEntity> selectForRowWhere(String tableName, String rowKey, String filter) {
+        return selectAll(tableName).where(TableQuery.combineFilters(generatePartitionFilter(rowKey), TableQuery.Operators.AND, filter));
+    }
+
+    TableQuery<AzureEntity> selectForColumnWhere(String tableName, String columnKey, String filter) {
+        return selectAll(tableName).where(TableQuery.combineFilters(generateColumnFilter(columnKey), TableQuery.Operators.AND, filter));
+    }
+
     TableQuery<AzureEntity> selectAllForRow(String tableName, String rowKey) {
         return selectAll(tableName).where(generatePartitionFilter(rowKey));
     }
@@ -69,25 +90,50 @@ class AzureTableRequestFactory {
         return selectAll(tableName).where(columnValueFilter);
     }
 
-    private static String generatePartitionFilter(String rowKey) {
+    static String generatePartitionFilter(String rowKey) {
         return TableQuery.generateFilterCondition(
                 TableConstants.PARTITION_KEY,
                 TableQuery.QueryComparisons.EQUAL,
                 rowKey);
     }
 
-    private static String generateColumnFilter(String columnKey) {
+    static String generateColumnFilter(String columnKey) {
         return TableQuery.generateFilterCondition(
                 TableConstants.ROW_KEY,
                 TableQuery.QueryComparisons.EQUAL,
                 columnKey);
     }
 
-    private static String generateValueFilter(String value) {
-        return TableQuery.generateFilterCondition(
-                AzureEntity.VALUE,
-                TableQuery.QueryComparisons.EQUAL,
-                value);
+    // keys starting with the encoded prefix sort between it and the prefix with its last character incremented
+    static String generateKeyPrefixFilter(String keyProperty, String encodedPrefix) {
+        char last = encodedPrefix.charAt(encodedPrefix.length() - 1);
+        String upperBound = encodedPrefix.substring(0, encodedPrefix.length() - 1) + (char) (last + 1);
+        return TableQuery.combineFilters(
+                TableQuery.generateFilterCondition(keyProperty, TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL, encodedPrefix),
+                TableQuery.Operators.AND,
+                TableQuery.generateFilterCondition(keyProperty, TableQuery.QueryComparisons.LESS_THAN, upperBound)
+        );
+    }
+
+    // chunked values can only be matched on their first chunk and number of chunks, the caller has to verify the whole value
+    static String generateValueFilter(String value) {
+        if (value.length() <= AzureEntity.MAX_CHUNK_LENGTH) {
+            return TableQuery.generateFilterCondition(
+                    AzureEntity.VALUE,
+                    TableQuery.QueryComparisons.EQUAL,
+                    value);
+        }
+        return TableQuery.combineFilters(
+                TableQuery.generateFilterCondition(
+                        AzureEntity.VALUE,
+                        TableQuery.QueryComparisons.EQUAL,
+                        value.substring(0, AzureEntity.MAX_CHUNK_LENGTH)),
+                TableQuery.Operators.AND,
+                TableQuery.generateFilterCondition(
+                        AzureEntity.VALUE_CHUNKS,
+                        TableQuery.QueryComparisons.EQUAL,
+                        AzureEntity.numberOfChunks(value))
+        );
     }
 
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import java.util.Arrays;
+
+/**
+ * Standard (RFC 4648, padded) Base64 codec, producing exactly the same output as the Azure SDK one.
+ * Encoding goes through a per thread char buffer, so the only allocation is the resulting String, decoding reads the
+ * String characters directly into an exact size array.
+ */
+final class Base64Codec {
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char PAD = '=';
+    private static final byte[] DECODING_TABLE = new byte[128];
+    // buffers above this size are not retained by the thread local, so that a single large value does not pin memory
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final ThreadLocal<char[]> ENCODING_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[INITIAL_BUFFER_SIZE];
+        }
+    };
+
+    static {
+        Arrays.fill(DECODING_TABLE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODING_TABLE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base64Codec() {
+    }
+
+    static int encodedLength(int numberOfBytes) {
+        return (numberOfBytes + 2) / 3 * 4;
+    }
+
+    static String encode(byte[] bytes) {
+        return encode(bytes, 0, bytes.length);
+    }
+
+    static String encode(byte[] bytes, int offset, int length) {
+        int encodedLength = encodedLength(length);
+        char[] buffer = encodingBuffer(encodedLength);
+        encodeInto(bytes, offset, length, buffer);
+        return new String(buffer, 0, encodedLength);
+    }
+
+    static int decodedLength(CharSequence encoded) {
+        int length = encoded.length();
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Invalid Base64 length: " + length);
+        }
+        int padding = 0;
+        if (length > 0 && encoded.charAt(length - 1) == PAD) {
+            padding++;
+            if (encoded.charAt(length - 2) == PAD) {
+                padding++;
+            }
+        }
+        return length / 4 * 3 - padding;
+    }
+
+    static byte[] decode(CharSequence encoded) {
+        byte[] decoded = new byte[decodedLength(encoded)];
+        decodeInto(encoded, decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Decodes the given string into the target array starting at the given offset.
+     *
+     * @return number of bytes written
+     */
+    static int decodeInto(CharSequence encoded, byte[] target, int targetOffset) {
+        int decodedLength = decodedLength(encoded);
+        if (target.length - targetOffset < decodedLength) {
+            throw new IndexOutOfBoundsException("Target array too small for " + decodedLength + " bytes");
+        }
+
+        int fullQuads = decodedLength / 3;
+        int position = targetOffset;
+        int charIndex = 0;
+        for (int i = 0; i < fullQuads; i++) {
+            int quad = sextet(encoded, charIndex) << 18
+                    | sextet(encoded, charIndex + 1) << 12
+                    | sextet(encoded, charIndex + 2) << 6
+                    | sextet(encoded, charIndex + 3);
+            target[position++] = (byte) (quad >> 16);
+            target[position++] = (byte) (quad >> 8);
+            target[position++] = (byte) quad;
+            charIndex += 4;
+        }
+
+        int remainder = decodedLength - fullQuads * 3;
+        if (remainder > 0) {
+            int quad = sextet(encoded, charIndex) << 18 | sextet(encoded, charIndex + 1) << 12;
+            if (remainder == 2) {
+                quad |= sextet(encoded, charIndex + 2) << 6;
+            }
+            target[position++] = (byte) (quad >> 16);
+            if (remainder == 2) {
+                target[position++] = (byte) (quad >> 8);
+            }
+        }
+
+        return decodedLength;
+    }
+
+    private static void encodeInto(byte[] bytes, int offset, int length, char[] target) {
+        int end = offset + length;
+        int fullTriplesEnd = offset + length / 3 * 3;
+        int position = 0;
+        int i = offset;
+        while (i < fullTriplesEnd) {
+            int triple = (bytes[i++] & 0xff) << 16 | (bytes[i++] & 0xff) << 8 | bytes[i++] & 0xff;
+            target[position++] = ALPHABET[triple >>> 18];
+            target[position++] = ALPHABET[triple >>> 12 & 0x3f];
+            target[position++] = ALPHABET[triple >>> 6 & 0x3f];
+            target[position++] = ALPHABET[triple & 0x3f];
+        }
+
+        int remainder = end - fullTriplesEnd;
+        if (remainder > 0) {
+            int triple = (bytes[i] & 0xff) << 16;
+            if (remainder == 2) {
+                triple |= (bytes[i + 1] & 0xff) << 8;
+            }
+            target[position++] = ALPHABET[triple >>> 18];
+            target[position++] = ALPHABET[triple >>> 12 & 0x3f];
+            target[position++] = remainder == 2 ? ALPHABET[triple >>> 6 & 0x3f] : PAD;
+            target[position] = PAD;
+        }
+    }
+
+    private static int sextet(CharSequence encoded, int index) {
+        char c = encoded.charAt(index);
+        byte value = c < DECODING_TABLE.length ? DECODING_TABLE[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid Base64 character at position " + index + ": " + c);
+        }
+        return value;
+    }
+
+    private static char[] encodingBuffer(int size) {
+        char[] buffer = ENCODING_BUFFER.get();
+        if (buffer.length >= size) {
+            return buffer;
+        }
+        if (size > MAX_RETAINED_BUFFER_SIZE) {
+            return new char[size];
+        }
+        buffer = new char[Math.min(Math.max(size, buffer.length * 2), MAX_RETAINED_BUFFER_SIZE)];
+        ENCODING_BUFFER.set(buffer);
+        return buffer;
+    }
+}
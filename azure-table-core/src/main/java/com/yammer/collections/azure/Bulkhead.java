@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the concurrency of each class of operation separately, so that scans over whole tables cannot take all the connections
+ * to the table service and starve point operations, as configured by {@link TableClientOptions.Builder#withBulkhead(Bulkhead)}.
+ * Share an instance between the tables sharing a {@code CloudTableClient}.
+ * <p>
+ * Entity operations hold a permit of the {@link Compartment#POINT} compartment while they execute, retries included. Iterations over
+ * queries hold a permit of the {@link Compartment#PARTITION} or {@link Compartment#SCAN} compartment, depending on whether the query
+ * is limited to a single partition, only while they advance, which is when pages are fetched, so that an iteration that is
+ * abandoned does not keep its permit. Compartments without a limit are not limited.
+ * <p>
+ * Requests wait for a permit up to a maximum, then fail with {@link BulkheadFullException}; the listener is told how long they waited.
+ */
+public final class Bulkhead {
+    private final Map<Compartment, Semaphore> permits;
+    private final long maxWaitNanos;
+    private final Optional<BulkheadListener> listener;
+
+    private Bulkhead(Builder builder) {
+        permits = new EnumMap<>(builder.permits);
+        maxWaitNanos = builder.maxWaitNanos;
+        listener = builder.listener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    static Compartment compartment(TableQuery<?> query) {
+        String filter = query.getFilterString();
+        return filter != null && RequestRateLimiter.partitionKey(filter).isPresent() ? Compartment.PARTITION : Compartment.SCAN;
+    }
+
+    /**
+     * @return the number of operations the compartment currently admits, or -1 if it is not limited
+     */
+    public int getAvailablePermits(Compartment compartment) {
+        Semaphore semaphore = permits.get(compartment);
+        return semaphore == null ? -1 : semaphore.availablePermits();
+    }
+
+    /**
+     * Waits for a permit of the compartment, up to the maximum wait and, if there is one, the deadline.
+     *
+     * @return whether a permit was taken, which has to be released, false if the compartment is not limited
+     * @throws BulkheadFullException if no permit is available in time
+     */
+    boolean acquire(Compartment compartment, String tableName, Optional<Deadline> deadline) {
+        Semaphore semaphore = permits.get(compartment);
+        if (semaphore == null) {
+            return false;
+        }
+        if (semaphore.tryAcquire()) {
+            if (listener.isPresent()) {
+                listener.get().admitted(compartment, 0);
+            }
+            return true;
+        }
+        long maxWait = deadline.isPresent() ? Math.min(maxWaitNanos, deadline.get().timeRemaining(TimeUnit.NANOSECONDS)) : maxWaitNanos;
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = semaphore.tryAcquire(maxWait, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long queueTime = System.nanoTime() - start;
+        if (listener.isPresent()) {
+            if (acquired) {
+                listener.get().admitted(compartment, queueTime);
+            } else {
+                listener.get().rejected(compartment, queueTime);
+            }
+        }
+        if (!acquired) {
+            throw new BulkheadFullException("No capacity left for " + compartment.name().toLowerCase(Locale.ENGLISH) + " operations on table " + tableName);
+        }
+        return true;
+    }
+
+    void release(Compartment compartment) {
+        permits.get(compartment).release();
+    }
+
+    /**
+     * @return an iterator holding a permit of the compartment while it advances
+     */
+    <T> Iterator<T> guard(final Iterator<T> iterator, final Compartment compartment, final String tableName, final Optional<Deadline> deadline) {
+        if (!permits.containsKey(compartment)) {
+            return iterator;
+        }
+        return new AbstractIterator<T>() {
+            @Override
+            protected T computeNext() {
+                acquire(compartment, tableName, deadline);
+                try {
+                    return iterator.hasNext() ? iterator.next() : endOfData();
+                } finally {
+                    release(compartment);
+                }
+            }
+        };
+    }
+
+    public enum Compartment {
+        /**
+         * Entity operations, e.g. get, put and remove.
+         */
+        POINT,
+        /**
+         * Queries limited to a single partition, i.e. row.
+         */
+        PARTITION,
+        /**
+         * Queries over several partitions or the whole table, e.g. columns and the cell set.
+         */
+        SCAN
+    }
+
+    public static final class Builder {
+        private final EnumMap<Compartment, Semaphore> permits = new EnumMap<>(Compartment.class);
+        private long maxWaitNanos = Long.MAX_VALUE;
+        private Optional<BulkheadListener> listener = Optional.absent();
+
+        private Builder() {
+        }
+
+        public Builder withMaxConcurrent(Compartment compartment, int maxConcurrentOperations) {
+            checkArgument(maxConcurrentOperations > 0, "The concurrency must be positive");
+            permits.put(checkNotNull(compartment), new Semaphore(maxConcurrentOperations, true));
+            return this;
+        }
+
+        /**
+         * Fails requests that would wait longer than the given time for a permit, instead of waiting.
+         */
+        public Builder waitingAtMost(long maxWait, TimeUnit unit) {
+            checkArgument(maxWait >= 0, "The wait cannot be negative");
+            maxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
+        public Builder withListener(BulkheadListener bulkheadListener) {
+            listener = Optional.of(checkNotNull(bulkheadListener));
+            return this;
+        }
+
+        public Bulkhead build() {
+            return new Bulkhead(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+/**
+ * Notified of the time requests wait for their compartment of a {@link Bulkhead}, as configured by
+ * {@link Bulkhead.Builder#withListener(BulkheadListener)}. Called on the waiting thread, so implementations must be quick and thread safe.
+ */
+public interface BulkheadListener {
+    void admitted(Bulkhead.Compartment compartment, long queueTimeInNanos);
+
+    void rejected(Bulkhead.Compartment compartment, long queueTimeInNanos);
+}
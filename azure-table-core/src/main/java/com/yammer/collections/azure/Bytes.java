@@ -18,45 +18,137 @@ package com.yammer.collections.azure;
 
 import java.util.Arrays;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
 /**
- * Non-copying wrapper around at byte array, which allows for the mentioned array to be used as a key in a map. The usual mutability caveats apply.
+ * Non-copying wrapper around at byte array, which allows for the mentioned array to be used as a key in a map. The usual mutability caveats apply,
+ * in particular the hash code is computed once and cached, so the wrapped array must not be modified once the instance is in use.
+ * <p>
+ * An instance may represent a region of a larger array (see {@link #slice(int, int)}), in which case equality, hashing and ordering
+ * only consider that region. Ordering is unsigned lexicographic, which is also the order of the big-endian encodings of unsigned numbers.
  */
-public class Bytes {
+public class Bytes implements Comparable<Bytes> {
     private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private int hash; // lazily computed, 0 also means not yet computed
 
     public static Bytes of(byte[] bytes) {
         return new Bytes(bytes);
     }
 
     public Bytes(byte[] bytes) {
+        this(checkNotNull(bytes), 0, bytes.length);
+    }
+
+    private Bytes(byte[] bytes, int offset, int length) {
         this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
     }
 
+    /**
+     * Returns the wrapped array. If this instance is a slice of a larger array then a copy of the slice is returned instead.
+     */
     public byte[] getBytes() {
+        if (offset == 0 && length == bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return bytes[offset + index];
+    }
+
+    /**
+     * Returns a view of a region of this instance. No bytes are copied.
+     */
+    public Bytes slice(int sliceOffset, int sliceLength) {
+        checkPositionIndexes(sliceOffset, sliceOffset + sliceLength, length);
+        if (sliceOffset == 0 && sliceLength == length) {
+            return this;
+        }
+        return new Bytes(bytes, offset + sliceOffset, sliceLength);
+    }
+
+    public boolean startsWith(Bytes prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix.bytes[prefix.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int compareTo(Bytes other) {
+        int commonLength = Math.min(length, other.length);
+        for (int i = 0; i < commonLength; i++) {
+            int difference = (bytes[offset + i] & 0xff) - (other.bytes[other.offset + i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - other.length;
+    }
+
+    /**
+     * The array this instance is a view of, to be read in the range [getOffset(), getOffset() + length()) without copying.
+     */
+    public byte[] getBackingArray() {
         return bytes;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
-        Bytes bytes1 = (Bytes) o;
+        Bytes other = (Bytes) o;
 
-        if (!Arrays.equals(bytes, bytes1.bytes)) return false;
+        if (length != other.length) return false;
+        if (hash != 0 && other.hash != 0 && hash != other.hash) return false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != other.bytes[other.offset + i]) return false;
+        }
 
         return true;
     }
 
+    // same value as Arrays.hashCode of the represented bytes
     @Override
     public int hashCode() {
-        return bytes != null ? Arrays.hashCode(bytes) : 0;
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = offset; i < offset + length; i++) {
+                result = 31 * result + bytes[i];
+            }
+            hash = result;
+        }
+        return result;
     }
 
     @Override
     public String toString() {
         return "Bytes{" +
-                "bytes=" + Arrays.toString(bytes) +
+                "bytes=" + Arrays.toString(getBytes()) +
                 '}';
     }
 }
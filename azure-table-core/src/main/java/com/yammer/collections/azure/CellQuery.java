@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Table;
+import com.microsoft.windowsazure.services.table.client.TableConstants;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.yammer.collections.azure.query.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.yammer.collections.azure.AzureEntityUtil.hasValue;
+
+/**
+ * Builds a query for the cells of a table, with as much of the conditions as possible evaluated by the table service.
+ * The results are fetched lazily, a page at a time, and every iteration runs the query again.
+ * <p>
+ * Keys are stored Base64 encoded, and the Base64 alphabet does not sort like the bytes it encodes. Key prefixes and ranges are
+ * therefore pushed down as the longest common prefix of whole 3 byte groups, and the rest of the condition is checked on the client.
+ * Both are only meaningful for keys whose encoded bytes sort like the keys, such as the ones of the built-in codecs.
+ */
+public final class CellQuery<R, C, V> {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int BASE64_GROUP_SIZE = 3;
+    private static final Function<AzureEntity, String> PARTITION_KEY = new Function<AzureEntity, String>() {
+        @Override
+        public String apply(AzureEntity input) {
+            return input.getPartitionKey();
+        }
+    };
+    private static final Function<AzureEntity, String> ROW_KEY = new Function<AzureEntity, String>() {
+        @Override
+        public String apply(AzureEntity input) {
+            return input.getRowKey();
+        }
+    };
+    private final String tableName;
+    private final EntityMapper<R, C, V> entityMapper;
+    private final AzureTableCloudClient azureTableCloudClient;
+    private final AzureTableRequestFactory azureTableRequestFactory;
+    private final List<String> filters = new ArrayList<>();
+    private final List<Predicate<AzureEntity>> clientSideConditions = new ArrayList<>();
+    private boolean rowConstrained;
+    private boolean columnConstrained;
+    private boolean valueCheckedOnClient;
+    private Optional<Integer> limit = Optional.absent();
+    private Optional<ScanSegment> segment = Optional.absent();
+
+    CellQuery(String tableName, EntityMapper<R, C, V> entityMapper, AzureTableCloudClient azureTableCloudClient,
+              AzureTableRequestFactory azureTableRequestFactory) {
+        this.tableName = tableName;
+        this.entityMapper = entityMapper;
+        this.azureTableCloudClient = azureTableCloudClient;
+        this.azureTableRequestFactory = azureTableRequestFactory;
+    }
+
+    private static int commonPrefixLength(byte[] first, byte[] second) {
+        int length = 0;
+        while (length < first.length && length < second.length && first[length] == second[length]) {
+            length++;
+        }
+        return length;
+    }
+
+    private static Predicate<AzureEntity> keyStartsWith(final Function<AzureEntity, String> key, final Bytes prefix) {
+        return new Predicate<AzureEntity>() {
+            @Override
+            public boolean apply(AzureEntity input) {
+                return AzureEntityUtil.decode(key.apply(input)).startsWith(prefix);
+            }
+        };
+    }
+
+    private static Predicate<AzureEntity> keyBetween(final Function<AzureEntity, String> key, final Bytes fromInclusive, final Bytes toExclusive) {
+        return new Predicate<AzureEntity>() {
+            @Override
+            public boolean apply(AzureEntity input) {
+                Bytes decodedKey = AzureEntityUtil.decode(key.apply(input));
+                return decodedKey.compareTo(fromInclusive) >= 0 && decodedKey.compareTo(toExclusive) < 0;
+            }
+        };
+    }
+
+    private static Iterable<AzureEntity> withinSegment(final Iterable<AzureEntity> entities, final ScanSegment scanSegment) {
+        return new Iterable<AzureEntity>() {
+            @Override
+            public Iterator<AzureEntity> iterator() {
+                final Iterator<AzureEntity> iterator = entities.iterator();
+                return new AbstractIterator<AzureEntity>() {
+                    @Override
+                    protected AzureEntity computeNext() {
+                        if (!iterator.hasNext()) {
+                            scanSegment.finish();
+                            return endOfData();
+                        }
+                        AzureEntity entity = iterator.next();
+                        return scanSegment.advanceTo(entity.getPartitionKey()) ? entity : endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    public CellQuery<R, C, V> inRow(R row) {
+        startRowConstraint();
+        filters.add(AzureTableRequestFactory.generatePartitionFilter(encodeRow(row)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> rowsWithPrefix(R prefix) {
+        startRowConstraint();
+        keyWithPrefix(TableConstants.PARTITION_KEY, PARTITION_KEY, Base64Codec.decode(encodeRow(prefix)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> rowsBetween(R fromInclusive, R toExclusive) {
+        startRowConstraint();
+        keyBetween(TableConstants.PARTITION_KEY, PARTITION_KEY, Base64Codec.decode(encodeRow(fromInclusive)), Base64Codec.decode(encodeRow(toExclusive)));
+        return this;
+    }
+
+    /**
+     * Restricts the query to the rows of a segment of the table, which stops the scan where the segment ends when it is split.
+     */
+    public CellQuery<R, C, V> inSegment(ScanSegment scanSegment) {
+        startRowConstraint();
+        if (!scanSegment.getFromInclusive().isEmpty()) {
+            filters.add(TableQuery.generateFilterCondition(TableConstants.PARTITION_KEY, TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL,
+                    scanSegment.getFromInclusive()));
+        }
+        Optional<String> toExclusive = scanSegment.getToExclusive();
+        if (toExclusive.isPresent()) {
+            filters.add(TableQuery.generateFilterCondition(TableConstants.PARTITION_KEY, TableQuery.QueryComparisons.LESS_THAN, toExclusive.get()));
+        }
+        segment = Optional.of(scanSegment);
+        return this;
+    }
+
+    public CellQuery<R, C, V> inColumn(C column) {
+        startColumnConstraint();
+        filters.add(AzureTableRequestFactory.generateColumnFilter(encodeColumn(column)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> columnsWithPrefix(C prefix) {
+        startColumnConstraint();
+        keyWithPrefix(TableConstants.ROW_KEY, ROW_KEY, Base64Codec.decode(encodeColumn(prefix)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> columnsBetween(C fromInclusive, C toExclusive) {
+        startColumnConstraint();
+        keyBetween(TableConstants.ROW_KEY, ROW_KEY, Base64Codec.decode(encodeColumn(fromInclusive)), Base64Codec.decode(encodeColumn(toExclusive)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> valueEqualTo(V value) {
+        String encodedValue = encodeValue(value);
+        filters.add(AzureTableRequestFactory.generateValueFilter(encodedValue));
+        // a value of a whole chunk also matches the first chunk of longer values, which is stored in the same property
+        if (encodedValue.length() >= AzureEntity.MAX_CHUNK_LENGTH) {
+            checkValueOnClient(hasValue(encodedValue));
+        }
+        return this;
+    }
+
+    // an entity with a chunked value differs from any value stored whole, but its first chunk is in the Value property and may be equal
+    public CellQuery<R, C, V> valueNotEqualTo(V value) {
+        String encodedValue = encodeValue(value);
+        if (encodedValue.length() <= AzureEntity.MAX_CHUNK_LENGTH) {
+            filters.add(TableQuery.combineFilters(
+                    TableQuery.generateFilterCondition(AzureEntity.VALUE, TableQuery.QueryComparisons.NOT_EQUAL, encodedValue),
+                    TableQuery.Operators.OR,
+                    TableQuery.generateFilterCondition(AzureEntity.VALUE_CHUNKS, TableQuery.QueryComparisons.GREATER_THAN, 0)
+            ));
+        } else {
+            checkValueOnClient(Predicates.not(hasValue(encodedValue)));
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the query to cells last written at or after the given time, as recorded by the table service.
+     */
+    public CellQuery<R, C, V> modifiedSince(Date time) {
+        filters.add(TableQuery.generateFilterCondition(TableConstants.TIMESTAMP, TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL, checkNotNull(time)));
+        return this;
+    }
+
+    /**
+     * Restricts the query to cells last written before the given time, as recorded by the table service.
+     */
+    public CellQuery<R, C, V> modifiedBefore(Date time) {
+        filters.add(TableQuery.generateFilterCondition(TableConstants.TIMESTAMP, TableQuery.QueryComparisons.LESS_THAN, checkNotNull(time)));
+        return this;
+    }
+
+    public CellQuery<R, C, V> where(PropertyFilter filter) {
+        filters.add(filter.getFilterString());
+        return this;
+    }
+
+    /**
+     * Returns at most the given number of cells, pages are not requested larger than needed.
+     */
+    public CellQuery<R, C, V> take(int maximumNumberOfCells) {
+        checkArgument(maximumNumberOfCells > 0, "The number of cells must be positive");
+        limit = Optional.of(maximumNumberOfCells);
+        return this;
+    }
+
+    public Iterable<Table.Cell<R, C, V>> cells() {
+        return Iterables.transform(execute(false), entityMapper.cellExtractor());
+    }
+
+    /**
+     * The row key of every matching cell, values are not transferred unless a condition on them has to be checked on the client.
+     */
+    public Iterable<R> rowKeys() {
+        return Iterables.transform(execute(!valueCheckedOnClient), entityMapper.rowKeyExtractor());
+    }
+
+    /**
+     * The column key of every matching cell, values are not transferred unless a condition on them has to be checked on the client.
+     */
+    public Iterable<C> columnKeys() {
+        return Iterables.transform(execute(!valueCheckedOnClient), entityMapper.columnKeyExtractor());
+    }
+
+    private Iterable<AzureEntity> execute(boolean keysOnly) {
+        TableQuery<AzureEntity> query = filters.isEmpty()
+                ? azureTableRequestFactory.selectAll(tableName)
+                : azureTableRequestFactory.selectWhere(tableName, combinedFilter());
+        if (keysOnly) {
+            query.select(AzureTableRequestFactory.KEY_PROPERTIES);
+        }
+        if (limit.isPresent()) {
+            query.take(Math.min(limit.get(), MAX_PAGE_SIZE));
+        }
+
+        Iterable<AzureEntity> entities = azureTableCloudClient.execute(query);
+        if (segment.isPresent()) {
+            entities = withinSegment(entities, segment.get());
+        }
+        if (!clientSideConditions.isEmpty()) {
+            entities = Iterables.filter(entities, Predicates.and(clientSideConditions));
+        }
+        return limit.isPresent() ? Iterables.limit(entities, limit.get()) : entities;
+    }
+
+    private String combinedFilter() {
+        String combined = filters.get(0);
+        for (String filter : filters.subList(1, filters.size())) {
+            combined = TableQuery.combineFilters(combined, TableQuery.Operators.AND, filter);
+        }
+        return combined;
+    }
+
+    private void keyWithPrefix(String keyProperty, Function<AzureEntity, String> key, byte[] prefix) {
+        int pushedDownLength = prefix.length - prefix.length % BASE64_GROUP_SIZE;
+        if (pushedDownLength > 0) {
+            filters.add(AzureTableRequestFactory.generateKeyPrefixFilter(keyProperty, Base64Codec.encode(prefix, 0, pushedDownLength)));
+        }
+        if (pushedDownLength < prefix.length) {
+            clientSideConditions.add(keyStartsWith(key, Bytes.of(prefix)));
+        }
+    }
+
+    // every key in the range starts with the common prefix of its bounds
+    private void keyBetween(String keyProperty, Function<AzureEntity, String> key, byte[] fromInclusive, byte[] toExclusive) {
+        checkArgument(Bytes.of(fromInclusive).compareTo(Bytes.of(toExclusive)) <= 0, "The lower bound of the range is above the upper one");
+        int commonPrefixLength = commonPrefixLength(fromInclusive, toExclusive);
+        int pushedDownLength = commonPrefixLength - commonPrefixLength % BASE64_GROUP_SIZE;
+        if (pushedDownLength > 0) {
+            filters.add(AzureTableRequestFactory.generateKeyPrefixFilter(keyProperty, Base64Codec.encode(fromInclusive, 0, pushedDownLength)));
+        }
+        clientSideConditions.add(keyBetween(key, Bytes.of(fromInclusive), Bytes.of(toExclusive)));
+    }
+
+    private void checkValueOnClient(Predicate<AzureEntity> condition) {
+        clientSideConditions.add(condition);
+        valueCheckedOnClient = true;
+    }
+
+    private void startRowConstraint() {
+        checkState(!rowConstrained, "The rows of the query are already constrained");
+        rowConstrained = true;
+    }
+
+    private void startColumnConstraint() {
+        checkState(!columnConstrained, "The columns of the query are already constrained");
+        columnConstrained = true;
+    }
+
+    private String encodeRow(R row) {
+        return entityMapper.encodeRow(checkNotNull(row));
+    }
+
+    private String encodeColumn(C column) {
+        return entityMapper.encodeColumn(checkNotNull(column));
+    }
+
+    private String encodeValue(V value) {
+        return entityMapper.encodeValue(checkNotNull(value));
+    }
+}
@@ -19,7 +19,6 @@ package com.yammer.collections.azure;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Table;
-import com.google.common.collect.Tables;
 import com.microsoft.windowsazure.services.table.client.TableQuery;
 
 import java.util.AbstractSet;
@@ -27,33 +26,24 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.yammer.collections.azure.AzureEntityUtil.decode;
 
 /**
  * This class implements the set interface, however it does not enforce it as it only a view.
  */
 /* package */
-class CellSetMutableView extends AbstractSet<Table.Cell<Bytes, Bytes, Bytes>> {
-    private static final Function<AzureEntity, Table.Cell<Bytes, Bytes, Bytes>> TABLE_CELL_CREATOR =
-            new Function<AzureEntity, Table.Cell<Bytes, Bytes, Bytes>>() {
-                @Override
-                public Table.Cell<Bytes, Bytes, Bytes> apply(AzureEntity input) {
-                    return Tables.immutableCell(
-                            decode(input.getPartitionKey()),
-                            decode(input.getRowKey()),
-                            decode(input.getValue()));
-                }
-            };
-    private final BaseAzureTable baseAzureTable;
+class CellSetMutableView<R, C, V> extends AbstractSet<Table.Cell<R, C, V>> {
+    private final Function<AzureEntity, Table.Cell<R, C, V>> tableCellCreator;
+    private final AbstractAzureTable<R, C, V> baseAzureTable;
     private final AzureTableCloudClient stringCloudTableClient;
     private final AzureTableRequestFactory azureTableRequestFactory;
 
-    CellSetMutableView(BaseAzureTable azureTable,
+    CellSetMutableView(AbstractAzureTable<R, C, V> azureTable,
                        AzureTableCloudClient stringCloudTableClient,
                        AzureTableRequestFactory azureTableRequestFactory) {
         baseAzureTable = azureTable;
         this.stringCloudTableClient = stringCloudTableClient;
         this.azureTableRequestFactory = azureTableRequestFactory;
+        tableCellCreator = azureTable.getEntityMapper().cellExtractor();
     }
 
     @Override
@@ -83,14 +73,14 @@ class CellSetMutableView extends AbstractSet<Table.Cell<Bytes, Bytes, Bytes>> {
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Iterator<Table.Cell<Bytes, Bytes, Bytes>> iterator() {
+    public Iterator<Table.Cell<R, C, V>> iterator() {
         return Iterables.transform(
                 getBackingIterable(),
-                TABLE_CELL_CREATOR).iterator();
+                tableCellCreator).iterator();
     }
 
     @Override
-    public boolean add(Table.Cell<Bytes, Bytes, Bytes> cell) {
+    public boolean add(Table.Cell<R, C, V> cell) {
         checkNotNull(cell);
         return baseAzureTable.put(
                 cell.getRowKey(),
@@ -128,10 +118,10 @@ class CellSetMutableView extends AbstractSet<Table.Cell<Bytes, Bytes, Bytes>> {
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public boolean addAll(Collection<? extends Table.Cell<Bytes, Bytes, Bytes>> c) {
+    public boolean addAll(Collection<? extends Table.Cell<R, C, V>> c) {
         checkNotNull(c);
         boolean change = false;
-        for (Table.Cell<Bytes, Bytes, Bytes> cell : c) {
+        for (Table.Cell<R, C, V> cell : c) {
             if (add(cell)) {
                 change = true;
             }
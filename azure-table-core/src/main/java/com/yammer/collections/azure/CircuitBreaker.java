@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.AbstractIterator;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fails operations fast, with {@link CircuitBreakerOpenException}, once the rate of failed operations crosses a threshold, as configured by
+ * {@link TableClientOptions.Builder#withCircuitBreaker(CircuitBreaker)}. Failures are counted over fixed windows, and only once a window
+ * has seen the minimum number of operations. After the open interval a single trial operation is let through, which closes the
+ * breaker if it succeeds and opens it again if it fails.
+ * <p>
+ * Failures are timeouts, server errors, throttling included, and errors without a response. Client errors such as 404 or 412 are
+ * the expected outcomes of some operations and count as successes. Operations rejected on the client, by the rate limiter, their deadline
+ * or a bulkhead, do not count at all. Each operation counts once, whatever its retries; a query counts once its first page arrives, and
+ * again for each page that fails.
+ */
+public final class CircuitBreaker {
+    public static final int DEFAULT_MINIMUM_OPERATIONS = 20;
+    public static final long DEFAULT_WINDOW_SECONDS = 10;
+    private final double failureRateThreshold;
+    private final int minimumOperations;
+    private final long windowNanos;
+    private final long openNanos;
+    private final Ticker ticker;
+    private State state = State.CLOSED;
+    private long windowStart;
+    private int operations;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(double failureRateThreshold, long openInterval, TimeUnit openIntervalUnit) {
+        this(failureRateThreshold, DEFAULT_MINIMUM_OPERATIONS, DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS, openInterval, openIntervalUnit);
+    }
+
+    public CircuitBreaker(double failureRateThreshold, int minimumOperations, long window, TimeUnit windowUnit, long openInterval,
+                          TimeUnit openIntervalUnit) {
+        this(failureRateThreshold, minimumOperations, windowUnit.toNanos(window), openIntervalUnit.toNanos(openInterval), Ticker.systemTicker());
+    }
+
+    CircuitBreaker(double failureRateThreshold, int minimumOperations, long windowNanos, long openNanos, Ticker ticker) {
+        checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1, "The failure rate threshold must be in (0, 1]");
+        checkArgument(minimumOperations > 0, "The minimum number of operations must be positive");
+        checkArgument(windowNanos > 0 && openNanos > 0, "The window and open interval must be positive");
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumOperations = minimumOperations;
+        this.windowNanos = windowNanos;
+        this.openNanos = openNanos;
+        this.ticker = checkNotNull(ticker);
+        windowStart = ticker.read();
+    }
+
+    /**
+     * @return whether the operation was rejected on the client, by the rate limiter, its deadline or a bulkhead, which says nothing of
+     * the health of the service
+     */
+    static boolean isRejection(Throwable throwable) {
+        for (Throwable cause : Throwables.getCausalChain(throwable)) {
+            if (cause instanceof RateLimitExceededException || cause instanceof DeadlineExceededException
+                    || cause instanceof BulkheadFullException || cause instanceof CircuitBreakerOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isFailure(Throwable throwable) {
+        for (Throwable cause : Throwables.getCausalChain(throwable)) {
+            if (cause instanceof StorageException) {
+                int statusCode = ((StorageException) cause).getHttpStatusCode();
+                return statusCode < 400 || ExponentialJitterRetryPolicy.isRetryable(statusCode);
+            }
+        }
+        return true;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @throws CircuitBreakerOpenException if the breaker is open, or half open with a trial operation under way
+     */
+    synchronized void acquire(String tableName) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long now = ticker.read();
+        if (now - openedAt < openNanos) {
+            throw new CircuitBreakerOpenException("Circuit breaker of table " + tableName + " is " + state);
+        }
+        // the trial operation may never report, e.g. a query that is not iterated, so another one is let through after the interval
+        state = State.HALF_OPEN;
+        openedAt = now;
+    }
+
+    synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        count(false);
+    }
+
+    synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        count(true);
+        if (state == State.CLOSED && operations >= minimumOperations && failures >= failureRateThreshold * operations) {
+            open();
+        }
+    }
+
+    void record(Throwable throwable) {
+        if (isRejection(throwable)) {
+            return;
+        }
+        if (isFailure(throwable)) {
+            recordFailure();
+        } else {
+            recordSuccess();
+        }
+    }
+
+    /**
+     * Records the outcome of an iteration over a query: a success when its first page arrives, a failure for every page that fails.
+     */
+    <T> Iterator<T> guard(final Iterator<T> queryIterator) {
+        return new AbstractIterator<T>() {
+            private boolean succeeded;
+
+            @Override
+            protected T computeNext() {
+                boolean hasNext;
+                try {
+                    hasNext = queryIterator.hasNext();
+                } catch (RuntimeException e) {
+                    record(e);
+                    throw e;
+                }
+                if (!succeeded) {
+                    succeeded = true;
+                    recordSuccess();
+                }
+                return hasNext ? queryIterator.next() : endOfData();
+            }
+        };
+    }
+
+    private void count(boolean failure) {
+        long now = ticker.read();
+        if (now - windowStart >= windowNanos) {
+            windowStart = now;
+            operations = 0;
+            failures = 0;
+        }
+        operations++;
+        if (failure) {
+            failures++;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = ticker.read();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowStart = ticker.read();
+        operations = 0;
+        failures = 0;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
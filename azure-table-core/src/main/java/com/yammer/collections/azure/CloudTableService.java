@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.CloudTableClient;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
+import com.microsoft.windowsazure.services.table.client.TableOperation;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.microsoft.windowsazure.services.table.client.TableRequestOptions;
+import com.microsoft.windowsazure.services.table.client.TableResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+final class CloudTableService implements TableService {
+    private final CloudTableClient client;
+
+    CloudTableService(CloudTableClient client) {
+        this.client = checkNotNull(client);
+    }
+
+    @Override
+    public AzureEntity execute(String tableName, TableOperation operation, TableRequestOptions requestOptions, OperationContext operationContext)
+            throws StorageException {
+        return client.execute(tableName, operation, requestOptions, operationContext).getResultAsType();
+    }
+
+    @Override
+    public List<AzureEntity> execute(String tableName, TableBatchOperation batch, TableRequestOptions requestOptions,
+                                     OperationContext operationContext) throws StorageException {
+        List<AzureEntity> entities = new ArrayList<>(batch.size());
+        for (TableResult result : client.execute(tableName, batch, requestOptions, operationContext)) {
+            entities.add(result.<AzureEntity>getResultAsType());
+        }
+        return entities;
+    }
+
+    @Override
+    public Iterable<AzureEntity> execute(TableQuery<AzureEntity> query, TableRequestOptions requestOptions, OperationContext operationContext) {
+        return client.execute(query, requestOptions, operationContext);
+    }
+
+    @Override
+    public RetryPolicyFactory getRetryPolicyFactory() {
+        return client.getRetryPolicyFactory();
+    }
+}
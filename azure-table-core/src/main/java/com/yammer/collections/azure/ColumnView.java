@@ -17,41 +17,36 @@ package com.yammer.collections.azure;
 
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.microsoft.windowsazure.services.table.client.TableQuery;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
-import static com.yammer.collections.azure.AzureEntityUtil.EXTRACT_VALUE;
-import static com.yammer.collections.azure.AzureEntityUtil.decode;
-import static com.yammer.collections.azure.AzureEntityUtil.encode;
+import static com.yammer.collections.azure.AzureEntityUtil.hasValue;
 
-class ColumnView implements Map<Bytes, Bytes> {
-    private static final Function<AzureEntity, Bytes> EXTRACT_COLUMN_KEY = new Function<AzureEntity, Bytes>() {
-        @Override
-        public Bytes apply(AzureEntity input) {
-            return decode(input.getRowKey());
-        }
-    };
-    private final Function<AzureEntity, Entry<Bytes, Bytes>> extractEntry;
-    private final BaseAzureTable baseAzureTable;
-    private final Bytes rowKey;
+class ColumnView<R, C, V> implements Map<C, V> {
+    private final Function<AzureEntity, Entry<C, V>> extractEntry;
+    private final AbstractAzureTable<R, C, V> baseAzureTable;
+    private final EntityMapper<R, C, V> entityMapper;
+    private final R rowKey;
     private final AzureTableCloudClient azureTableCloudClient;
     private final AzureTableRequestFactory azureTableRequestFactory;
 
-    public ColumnView(final BaseAzureTable baseAzureTable,
-                      final Bytes rowKey,
+    public ColumnView(final AbstractAzureTable<R, C, V> baseAzureTable,
+                      final R rowKey,
                       AzureTableCloudClient azureTableCloudClient,
                       AzureTableRequestFactory azureTableRequestFactory) {
         this.baseAzureTable = baseAzureTable;
         this.rowKey = rowKey;
         this.azureTableCloudClient = azureTableCloudClient;
         this.azureTableRequestFactory = azureTableRequestFactory;
-        extractEntry = new Function<AzureEntity, Entry<Bytes, Bytes>>() {
+        entityMapper = baseAzureTable.getEntityMapper();
+        extractEntry = new Function<AzureEntity, Entry<C, V>>() {
             @Override
-            public Entry<Bytes, Bytes> apply(AzureEntity input) {
-                return new ColumnMapEntry(rowKey, decode(input.getRowKey()), baseAzureTable);
+            public Entry<C, V> apply(AzureEntity input) {
+                return new ColumnMapEntry<>(rowKey, entityMapper.decodeColumn(input.getRowKey()), baseAzureTable);
             }
         };
     }
@@ -73,53 +68,54 @@ class ColumnView implements Map<Bytes, Bytes> {
 
     @Override
     public boolean containsValue(Object value) {
-        if (!(value instanceof Bytes)) {
+        String encodedValue = entityMapper.encodeValue(value);
+        if (encodedValue == null) {
             return false;
         }
 
-        TableQuery<AzureEntity> valueQuery = azureTableRequestFactory.containsValueForRowQuery(baseAzureTable.getTableName(), encode(rowKey),
-                encode((Bytes) value));
-        return azureTableCloudClient.execute(valueQuery).iterator().hasNext();
+        TableQuery<AzureEntity> valueQuery = azureTableRequestFactory.containsValueForRowQuery(baseAzureTable.getTableName(),
+                entityMapper.encodeRow(rowKey), encodedValue);
+        return Iterables.any(azureTableCloudClient.execute(valueQuery), hasValue(encodedValue));
     }
 
     @Override
-    public Bytes get(Object key) {
+    public V get(Object key) {
         return baseAzureTable.get(rowKey, key);
     }
 
     @Override
-    public Bytes put(Bytes key, Bytes value) {
+    public V put(C key, V value) {
         return baseAzureTable.put(rowKey, key, value);
     }
 
     @Override
-    public Bytes remove(Object key) {
+    public V remove(Object key) {
         return baseAzureTable.remove(rowKey, key);
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public void putAll(Map<? extends Bytes, ? extends Bytes> m) {
-        for (Entry<? extends Bytes, ? extends Bytes> entry : m.entrySet()) {
+    public void putAll(Map<? extends C, ? extends V> m) {
+        for (Entry<? extends C, ? extends V> entry : m.entrySet()) {
             put(entry.getKey(), entry.getValue());
         }
     }
 
     @Override
     public void clear() {
-        for (Bytes columnKey : keySet()) {
+        for (C columnKey : keySet()) {
             remove(columnKey);
         }
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Set<Bytes> keySet() {
+    public Set<C> keySet() {
         return SetView.fromSetCollectionView(
                 new ColumnMapSetView<>(
                         baseAzureTable,
                         rowKey,
-                        EXTRACT_COLUMN_KEY,
+                        entityMapper.columnKeyExtractor(),
                         azureTableCloudClient,
                         azureTableRequestFactory
                 )
@@ -128,54 +124,54 @@ class ColumnView implements Map<Bytes, Bytes> {
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Collection<Bytes> values() {
-        return new ColumnMapSetView<>(baseAzureTable, rowKey, EXTRACT_VALUE, azureTableCloudClient, azureTableRequestFactory);
+    public Collection<V> values() {
+        return new ColumnMapSetView<>(baseAzureTable, rowKey, entityMapper.valueExtractor(), azureTableCloudClient, azureTableRequestFactory);
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Set<Entry<Bytes, Bytes>> entrySet() {
+    public Set<Entry<C, V>> entrySet() {
         return SetView.fromSetCollectionView(
                 new ColumnMapSetView<>(baseAzureTable, rowKey, extractEntry, azureTableCloudClient, azureTableRequestFactory)
         );
     }
 
-    private static class ColumnMapEntry implements Entry<Bytes, Bytes> {
-        private final Bytes columnKey;
-        private final Bytes rowKey;
-        private final BaseAzureTable azureTable;
+    private static class ColumnMapEntry<R, C, V> implements Entry<C, V> {
+        private final C columnKey;
+        private final R rowKey;
+        private final AbstractAzureTable<R, C, V> azureTable;
 
-        private ColumnMapEntry(Bytes rowKey, Bytes columnKey, BaseAzureTable azureTable) {
+        private ColumnMapEntry(R rowKey, C columnKey, AbstractAzureTable<R, C, V> azureTable) {
             this.rowKey = rowKey;
             this.columnKey = columnKey;
             this.azureTable = azureTable;
         }
 
         @Override
-        public Bytes getKey() {
+        public C getKey() {
             return columnKey;
         }
 
         @Override
-        public Bytes getValue() {
+        public V getValue() {
             return azureTable.get(rowKey, columnKey);
         }
 
         @Override
-        public Bytes setValue(Bytes value) {
+        public V setValue(V value) {
             return azureTable.put(rowKey, columnKey, value);
         }
     }
 
     private static class ColumnMapSetView<E> extends AbstractCollectionView<E> {
-        private final BaseAzureTable baseAzureTable;
-        private final Bytes rowKey;
+        private final AbstractAzureTable<?, ?, ?> baseAzureTable;
+        private final Object rowKey;
         private final AzureTableCloudClient azureTableCloudClient;
         private final AzureTableRequestFactory azureTableRequestFactory;
 
         public ColumnMapSetView(
-                BaseAzureTable baseAzureTable,
-                Bytes rowKey,
+                AbstractAzureTable<?, ?, ?> baseAzureTable,
+                Object rowKey,
                 Function<AzureEntity, E> typeExtractor,
                 AzureTableCloudClient azureTableCloudClient,
                 AzureTableRequestFactory azureTableRequestFactory) {
@@ -188,7 +184,8 @@ class ColumnView implements Map<Bytes, Bytes> {
 
         @Override
         protected Iterable<AzureEntity> getBackingIterable() {
-            TableQuery<AzureEntity> selectAllForRowQuery = azureTableRequestFactory.selectAllForRow(baseAzureTable.getTableName(), encode(rowKey));
+            TableQuery<AzureEntity> selectAllForRowQuery = azureTableRequestFactory.selectAllForRow(baseAzureTable.getTableName(),
+                    baseAzureTable.getEntityMapper().encodeRow(rowKey));
             return azureTableCloudClient.execute(selectAllForRowQuery);
         }
     }
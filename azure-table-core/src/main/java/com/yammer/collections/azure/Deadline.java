@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which an operation on a table has to complete, retries and query pages included. A deadline entered on a thread
+ * applies to the operations the thread then calls on any table, and to the iterators of views it creates, until the returned scope is
+ * closed:
+ * <pre>
+ *     try (Deadline.Scope scope = Deadline.after(200, TimeUnit.MILLISECONDS).enter()) {
+ *         value = table.get(row, column);
+ *     }
+ * </pre>
+ * Operations without a deadline get the default timeout of the table, see {@link TableClientOptions.Builder#withOperationTimeout}.
+ * A request is not sent, nor retried, once the deadline has passed or would pass during the back off, and each request is given only
+ * the time remaining; the operation then fails with {@link DeadlineExceededException}.
+ */
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the deadline entered on this thread, if any
+     */
+    public static Optional<Deadline> current() {
+        return Optional.fromNullable(CURRENT.get());
+    }
+
+    /**
+     * @return the deadline entered on this thread or, if it is earlier or there is none, one after the default timeout
+     */
+    static Optional<Deadline> current(Optional<Long> defaultTimeoutNanos) {
+        Deadline current = CURRENT.get();
+        if (!defaultTimeoutNanos.isPresent()) {
+            return Optional.fromNullable(current);
+        }
+        Deadline byDefault = after(defaultTimeoutNanos.get(), TimeUnit.NANOSECONDS);
+        return Optional.of(current == null ? byDefault : current.earliest(byDefault));
+    }
+
+    private Deadline earliest(Deadline other) {
+        return deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /**
+     * Applies the deadline to the operations of this thread until the scope is closed. Within the scope of an earlier deadline,
+     * the earlier one still applies.
+     */
+    public Scope enter() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(previous == null ? this : previous.earliest(this));
+        return new Scope(previous);
+    }
+
+    public long timeRemaining(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return the milliseconds remaining, at least 1 so that they can be used as a timeout
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    int checkRemainingMillis(String tableName) {
+        long remaining = timeRemaining(TimeUnit.MILLISECONDS);
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded for an operation on table " + tableName);
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the milliseconds remaining, at least 1 so that they can be used as a timeout even once the deadline has passed
+     */
+    int remainingTimeoutMillis() {
+        return (int) Math.max(1, Math.min(timeRemaining(TimeUnit.MILLISECONDS), Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return a factory of policies that retry as the given ones do, unless the back off would take the operation past the deadline
+     */
+    RetryPolicyFactory limit(final RetryPolicyFactory retryPolicyFactory, final String tableName) {
+        return new RetryPolicyFactory() {
+            @Override
+            public RetryPolicy createInstance(OperationContext opContext) {
+                final RetryPolicy retryPolicy = retryPolicyFactory.createInstance(opContext);
+                return new RetryPolicy() {
+                    @Override
+                    public RetryResult shouldRetry(int currentRetryCount, int statusCode, Exception lastException, OperationContext opContext) {
+                        RetryResult result = retryPolicy.shouldRetry(currentRetryCount, statusCode, lastException, opContext);
+                        if (result.isShouldRetry() && result.getBackOffIntervalInMs() >= timeRemaining(TimeUnit.MILLISECONDS)) {
+                            throw new DeadlineExceededException("Deadline exceeded for an operation on table " + tableName + " after "
+                                    + (currentRetryCount + 1) + " attempts, the last with status " + statusCode);
+                        }
+                        return result;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Restores the deadline that applied before the scope was entered.
+     */
+    public static final class Scope implements Closeable {
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
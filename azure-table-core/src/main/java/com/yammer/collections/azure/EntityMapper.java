@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Maps row keys, column keys and values to and from the encoded properties of {@link AzureEntity}.
+ * The encode methods take any object and return null for objects of the wrong type, the way the {@link java.util.Map} lookups treat them.
+ */
+/* package */
+abstract class EntityMapper<R, C, V> {
+    static final EntityMapper<Bytes, Bytes, Bytes> BYTES = new BytesEntityMapper();
+    private final Function<AzureEntity, R> rowKeyExtractor = new Function<AzureEntity, R>() {
+        @Override
+        public R apply(AzureEntity input) {
+            return decodeRow(input.getPartitionKey());
+        }
+    };
+    private final Function<AzureEntity, C> columnKeyExtractor = new Function<AzureEntity, C>() {
+        @Override
+        public C apply(AzureEntity input) {
+            return decodeColumn(input.getRowKey());
+        }
+    };
+    private final Function<AzureEntity, V> valueExtractor = new Function<AzureEntity, V>() {
+        @Override
+        public V apply(AzureEntity input) {
+            return decodeValue(input);
+        }
+    };
+    private final Function<AzureEntity, Table.Cell<R, C, V>> cellExtractor = new Function<AzureEntity, Table.Cell<R, C, V>>() {
+        @Override
+        public Table.Cell<R, C, V> apply(AzureEntity input) {
+            return Tables.immutableCell(
+                    decodeRow(input.getPartitionKey()),
+                    decodeColumn(input.getRowKey()),
+                    decodeValue(input));
+        }
+    };
+
+    /**
+     * The classes tell which objects are keys or values of the table, i.e. can be encoded, as {@link Table} accepts any object.
+     */
+    static <R, C, V> EntityMapper<R, C, V> usingCodecs(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                       Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec,
+                                                       Optional<PropertyExtractor<V>> propertyExtractor) {
+        return new CodecEntityMapper<>(new TypedCodec<>(rowClass, rowCodec), new TypedCodec<>(columnClass, columnCodec),
+                new TypedCodec<>(valueClass, valueCodec), propertyExtractor);
+    }
+
+    abstract String encodeRow(Object row);
+
+    abstract String encodeColumn(Object column);
+
+    abstract String encodeValue(Object value);
+
+    abstract R decodeRow(String encodedRow);
+
+    abstract C decodeColumn(String encodedColumn);
+
+    abstract V decodeValue(AzureEntity entity);
+
+    Map<String, EntityProperty> nativeProperties(V value) {
+        return ImmutableMap.of();
+    }
+
+    Function<AzureEntity, R> rowKeyExtractor() {
+        return rowKeyExtractor;
+    }
+
+    Function<AzureEntity, C> columnKeyExtractor() {
+        return columnKeyExtractor;
+    }
+
+    Function<AzureEntity, V> valueExtractor() {
+        return valueExtractor;
+    }
+
+    Function<AzureEntity, Table.Cell<R, C, V>> cellExtractor() {
+        return cellExtractor;
+    }
+
+    private static final class BytesEntityMapper extends EntityMapper<Bytes, Bytes, Bytes> {
+        private static String encodeIfBytes(Object object) {
+            return object instanceof Bytes ? AzureEntityUtil.encode((Bytes) object) : null;
+        }
+
+        @Override
+        String encodeRow(Object row) {
+            return encodeIfBytes(row);
+        }
+
+        @Override
+        String encodeColumn(Object column) {
+            return encodeIfBytes(column);
+        }
+
+        @Override
+        String encodeValue(Object value) {
+            return encodeIfBytes(value);
+        }
+
+        @Override
+        Bytes decodeRow(String encodedRow) {
+            return AzureEntityUtil.decode(encodedRow);
+        }
+
+        @Override
+        Bytes decodeColumn(String encodedColumn) {
+            return AzureEntityUtil.decode(encodedColumn);
+        }
+
+        @Override
+        Bytes decodeValue(AzureEntity entity) {
+            return AzureEntityUtil.decodeValue(entity);
+        }
+    }
+
+    private static final class TypedCodec<T> {
+        private final Class<T> type;
+        private final Codec<T> codec;
+
+        private TypedCodec(Class<T> type, Codec<T> codec) {
+            this.type = checkNotNull(type);
+            this.codec = checkNotNull(codec);
+        }
+
+        private String encodeIfOfType(Object object) {
+            return type.isInstance(object) ? Base64Codec.encode(codec.encode(type.cast(object))) : null;
+        }
+    }
+
+    private static final class CodecEntityMapper<R, C, V> extends EntityMapper<R, C, V> {
+        private final TypedCodec<R> rowCodec;
+        private final TypedCodec<C> columnCodec;
+        private final TypedCodec<V> valueCodec;
+        private final Optional<PropertyExtractor<V>> propertyExtractor;
+
+        private CodecEntityMapper(TypedCodec<R> rowCodec, TypedCodec<C> columnCodec, TypedCodec<V> valueCodec,
+                                  Optional<PropertyExtractor<V>> propertyExtractor) {
+            this.rowCodec = rowCodec;
+            this.columnCodec = columnCodec;
+            this.valueCodec = valueCodec;
+            this.propertyExtractor = propertyExtractor;
+        }
+
+        @Override
+        String encodeRow(Object row) {
+            return rowCodec.encodeIfOfType(row);
+        }
+
+        @Override
+        String encodeColumn(Object column) {
+            return columnCodec.encodeIfOfType(column);
+        }
+
+        @Override
+        String encodeValue(Object value) {
+            return valueCodec.encodeIfOfType(value);
+        }
+
+        @Override
+        R decodeRow(String encodedRow) {
+            return AzureEntityUtil.decode(encodedRow, rowCodec.codec);
+        }
+
+        @Override
+        C decodeColumn(String encodedColumn) {
+            return AzureEntityUtil.decode(encodedColumn, columnCodec.codec);
+        }
+
+        @Override
+        V decodeValue(AzureEntity entity) {
+            return AzureEntityUtil.decodeValue(entity, valueCodec.codec);
+        }
+
+        @Override
+        Map<String, EntityProperty> nativeProperties(V value) {
+            return propertyExtractor.isPresent() ? propertyExtractor.get().extract(value) : super.nativeProperties(value);
+        }
+    }
+}
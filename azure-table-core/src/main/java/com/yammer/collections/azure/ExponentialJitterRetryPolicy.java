@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Retries with exponential backoff and full jitter: the n-th retry waits a random time between zero and
+ * {@code min(maximum backoff, base backoff * 2^n)}. Unlike the linear policy of the SDK, clients throttled at the same time do not
+ * retry in lockstep. Retries timeouts and server errors, like the SDK policies, and also 408 Request Timeout.
+ */
+public final class ExponentialJitterRetryPolicy extends RetryPolicy implements RetryPolicyFactory {
+    private static final int REQUEST_TIMEOUT = 408;
+    private static final int NOT_IMPLEMENTED = 501;
+    private static final int VERSION_NOT_SUPPORTED = 505;
+    private static final int MAX_SHIFT = 30;
+    private final int maximumBackoffInMs;
+
+    public ExponentialJitterRetryPolicy(int baseBackoffInMs, int maximumBackoffInMs, int maximumAttempts) {
+        super(baseBackoffInMs, maximumAttempts);
+        checkArgument(baseBackoffInMs > 0, "The base backoff must be positive");
+        checkArgument(maximumBackoffInMs >= baseBackoffInMs, "The maximum backoff cannot be lower than the base backoff");
+        this.maximumBackoffInMs = maximumBackoffInMs;
+    }
+
+    static boolean isRetryable(int statusCode) {
+        if (statusCode >= 400 && statusCode < 500) {
+            return statusCode == REQUEST_TIMEOUT;
+        }
+        return statusCode != NOT_IMPLEMENTED && statusCode != VERSION_NOT_SUPPORTED;
+    }
+
+    @Override
+    public RetryPolicy createInstance(OperationContext opContext) {
+        return this;
+    }
+
+    @Override
+    public RetryResult shouldRetry(int currentRetryCount, int statusCode, Exception lastException, OperationContext opContext) {
+        if (currentRetryCount >= maximumAttempts || !isRetryable(statusCode)) {
+            return new RetryResult(0, false);
+        }
+        long ceiling = Math.min(maximumBackoffInMs, (long) deltaBackoffIntervalInMs << Math.min(currentRetryCount, MAX_SHIFT));
+        return new RetryResult(ThreadLocalRandom.current().nextInt((int) ceiling + 1), true);
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cuts the latency tail of point reads, as configured by {@link TableClientOptions.Builder#withHedging(HedgingPolicy)}. When a retrieve
+ * has not completed after a percentile of the latency of recent retrieves, an identical second retrieve is sent and whichever
+ * completes first is returned; the other is left to complete and ignored. The latency of the first retrieve is measured whether it
+ * wins or not, so that hedges do not lower the delay. Nothing is hedged until enough retrieves have been measured.
+ * <p>
+ * Hedges are limited to a ratio of the retrieves, with the same accounting as a {@link RetryBudget}, so that a slow service is not sent
+ * twice the load. The retrieves run on the executor of the policy; share a policy between tables to share its executor and limit.
+ * Once enough retrieves have been measured, every retrieve, not only those that end up hedged, is submitted to the executor while the
+ * calling thread waits for it, so the executor needs a thread per concurrent retrieve, and two per hedged one. The default executor
+ * has at most {@value #DEFAULT_MAX_THREADS} threads and does not queue: a retrieve it rejects runs on the calling thread without
+ * being hedged, and a hedge it rejects is not sent. An interrupted caller stops waiting, the retrieves it submitted still complete.
+ */
+public final class HedgingPolicy {
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+    public static final int DEFAULT_MAX_THREADS = 64;
+    static final int MIN_SAMPLES = 100;
+    private static final int WINDOW = 1024;
+    private static final int RECOMPUTE_INTERVAL = 64;
+    private final ListeningExecutorService executor;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final RetryBudget budget;
+    private final long[] latencies = new long[WINDOW];
+    private final AtomicLong retrieves = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private long samples;
+    private volatile long delayNanos = -1;
+
+    private HedgingPolicy(Builder builder) {
+        executor = builder.executor != null ? builder.executor : MoreExecutors.listeningDecorator(defaultExecutor(builder.maxThreads));
+        percentile = builder.percentile;
+        minDelayNanos = builder.minDelayNanos;
+        budget = new RetryBudget(builder.maxHedgeRatio);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // hands retrieves to idle threads or new ones up to the maximum, and rejects them when all are busy
+    private static ExecutorService defaultExecutor(int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-table-hedging-%d").build());
+    }
+
+    /**
+     * Runs the retrieve, hedging it if it is slow.
+     */
+    <T> T execute(Callable<T> retrieve) throws Exception {
+        retrieves.incrementAndGet();
+        budget.deposit();
+        long delay = delayNanos;
+        if (delay < 0) {
+            return callMeasured(retrieve);
+        }
+
+        ListenableFuture<T> first;
+        try {
+            first = submitMeasured(retrieve);
+        } catch (RejectedExecutionException e) {
+            return callMeasured(retrieve);
+        }
+        try {
+            return first.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!budget.tryWithdraw()) {
+                return unwrap(first);
+            }
+        } catch (ExecutionException e) {
+            throw cause(e);
+        }
+
+        ListenableFuture<T> second;
+        try {
+            second = executor.submit(retrieve);
+        } catch (RejectedExecutionException e) {
+            return unwrap(first);
+        }
+        hedges.incrementAndGet();
+        SettableFuture<T> winner = SettableFuture.create();
+        AtomicInteger failures = new AtomicInteger();
+        Futures.addCallback(first, completing(winner, failures, false));
+        Futures.addCallback(second, completing(winner, failures, true));
+        return unwrap(winner);
+    }
+
+    private <T> T callMeasured(Callable<T> retrieve) throws Exception {
+        long start = System.nanoTime();
+        T result = retrieve.call();
+        record(System.nanoTime() - start);
+        return result;
+    }
+
+    private <T> ListenableFuture<T> submitMeasured(final Callable<T> retrieve) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return callMeasured(retrieve);
+            }
+        });
+    }
+
+    private <T> FutureCallback<T> completing(final SettableFuture<T> winner, final AtomicInteger failures, final boolean hedge) {
+        return new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                if (winner.set(result) && hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // the result only fails when both retrieves do
+                if (failures.incrementAndGet() == 2) {
+                    winner.setException(t);
+                }
+            }
+        };
+    }
+
+    private static <T> T unwrap(ListenableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw cause(e);
+        }
+    }
+
+    private static Exception cause(ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), Error.class);
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    synchronized void record(long latencyNanos) {
+        latencies[(int) (samples % WINDOW)] = latencyNanos;
+        samples++;
+        if (samples >= MIN_SAMPLES && samples % RECOMPUTE_INTERVAL == 0) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+            Arrays.sort(sorted);
+            delayNanos = Math.max(minDelayNanos, sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))]);
+        }
+    }
+
+    /**
+     * @return the delay after which retrieves are currently hedged, or -1 while there are too few measurements
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        long delay = delayNanos;
+        return delay < 0 ? -1 : unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+
+    public long getRetrieveCount() {
+        return retrieves.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * @return the number of hedges that completed before the retrieve they hedged
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    public static final class Builder {
+        private ListeningExecutorService executor;
+        private double percentile = DEFAULT_PERCENTILE;
+        private double maxHedgeRatio = DEFAULT_MAX_HEDGE_RATIO;
+        private long minDelayNanos;
+        private int maxThreads = DEFAULT_MAX_THREADS;
+
+        private Builder() {
+        }
+
+        /**
+         * Retrieves not completed after this percentile of the latency of recent retrieves are hedged, 0.95 by default.
+         */
+        public Builder afterPercentile(double latencyPercentile) {
+            checkArgument(latencyPercentile > 0 && latencyPercentile < 1, "The percentile must be between 0 and 1");
+            percentile = latencyPercentile;
+            return this;
+        }
+
+        /**
+         * Limits the hedges to a ratio of the retrieves, 0.05 by default.
+         */
+        public Builder withMaxHedgeRatio(double ratio) {
+            checkArgument(ratio >= 0, "The hedge ratio cannot be negative");
+            maxHedgeRatio = ratio;
+            return this;
+        }
+
+        /**
+         * Retrieves are never hedged sooner than this, whatever the recent latency.
+         */
+        public Builder withMinDelay(long minDelay, TimeUnit unit) {
+            checkArgument(minDelay >= 0, "The delay cannot be negative");
+            minDelayNanos = unit.toNanos(minDelay);
+            return this;
+        }
+
+        /**
+         * Limits the threads of the default executor, {@value #DEFAULT_MAX_THREADS} by default.
+         */
+        public Builder withMaxThreads(int threads) {
+            checkArgument(threads > 0, "The number of threads must be positive");
+            maxThreads = threads;
+            return this;
+        }
+
+        /**
+         * Runs the retrieves on the given executor instead of a bounded pool of daemon threads. It needs at least two threads per
+         * concurrent hedged retrieve; retrieves and hedges it rejects are handled as by the default executor.
+         */
+        public Builder withExecutor(ExecutorService executorService) {
+            executor = MoreExecutors.listeningDecorator(checkNotNull(executorService));
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            return new HedgingPolicy(this);
+        }
+    }
+}
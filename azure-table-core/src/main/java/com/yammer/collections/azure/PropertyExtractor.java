@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+
+import java.util.Map;
+
+/**
+ * Derives native entity properties from a value, they are stored alongside it so that queries can filter on them on the server.
+ * The names must be valid property names and must not clash with the ones used by the table: PartitionKey, RowKey, Timestamp,
+ * Etag, ValueChunks and Value followed by digits.
+ */
+public interface PropertyExtractor<V> {
+    Map<String, EntityProperty> extract(V value);
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.ResponseReceivedEvent;
+import com.microsoft.windowsazure.services.core.storage.SendingRequestEvent;
+import com.microsoft.windowsazure.services.core.storage.StorageEvent;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.Iterator;
+
+/**
+ * Instruments one operation, i.e. the attempts of an entity operation or the pages of one iteration over a query: takes the permits
+ * of each request from the rate limiter, ahead of the SDK but for retries, limits the timeouts of the request to the time remaining before
+ * the deadline, reports each request to the listener and records the operation in the slow operation log if it took too long.
+ */
+/* package */
+final class RequestInstrumentation {
+    private static final int REQUEST_TIMEOUT = 408;
+    private static final int SERVER_ERROR = 500;
+    private final String tableName;
+    private final Optional<String> queryFilter;
+    private final Optional<TableRequestListener> listener;
+    private final Optional<SlowOperationLog> slowOperationLog;
+    private final Optional<RequestRateLimiter> rateLimiter;
+    private final Optional<Deadline> deadline;
+    // the entities each request of an operation writes, one for a point operation or queries
+    private final int requestPermits;
+    private final OperationContext operationContext = new OperationContext();
+    private long sendingTick;
+    private boolean previousFailed;
+    private boolean permitTaken;
+    // the entities of a query returned since its last request
+    private int pageEntities;
+    private RequestType requestType = RequestType.RETRIEVE;
+    private String resource = "";
+    private int requests;
+    private long requestPayloadBytes;
+    private long responseBytes;
+
+    private RequestInstrumentation(String tableName, Optional<String> queryFilter, TableClientOptions options, Optional<Deadline> deadline,
+                                   int requestPermits) {
+        this.tableName = tableName;
+        this.queryFilter = queryFilter;
+        this.deadline = deadline;
+        this.requestPermits = requestPermits;
+        listener = options.getRequestListener();
+        slowOperationLog = options.getSlowOperationLog();
+        rateLimiter = options.getRateLimiter();
+        attachTo(operationContext);
+    }
+
+    static boolean isEnabled(TableClientOptions options) {
+        return options.getRequestListener().isPresent() || options.getSlowOperationLog().isPresent() || options.getRateLimiter().isPresent();
+    }
+
+    static RequestInstrumentation forOperation(String tableName, TableClientOptions options) {
+        return forOperation(tableName, options, Optional.<Deadline>absent());
+    }
+
+    static RequestInstrumentation forOperation(String tableName, TableClientOptions options, Optional<Deadline> deadline) {
+        return forOperation(tableName, options, deadline, 1);
+    }
+
+    /**
+     * @param entities the entities each request of the operation writes, i.e. the operations of a batch
+     */
+    static RequestInstrumentation forOperation(String tableName, TableClientOptions options, Optional<Deadline> deadline, int entities) {
+        return new RequestInstrumentation(tableName, Optional.<String>absent(), options, deadline, entities);
+    }
+
+    static RequestInstrumentation forQuery(TableQuery<?> query, TableClientOptions options) {
+        return forQuery(query, options, Optional.<Deadline>absent());
+    }
+
+    static RequestInstrumentation forQuery(TableQuery<?> query, TableClientOptions options, Optional<Deadline> deadline) {
+        return new RequestInstrumentation(query.getSourceTableName(), Optional.of(String.valueOf(query.getFilterString())), options, deadline,
+                1);
+    }
+
+    private static RequestType requestType(HttpURLConnection connection) {
+        switch (connection.getRequestMethod()) {
+            case "GET":
+                return RequestType.RETRIEVE;
+            case "DELETE":
+                return RequestType.DELETE;
+            default:
+                return RequestType.WRITE;
+        }
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == REQUEST_TIMEOUT || statusCode >= SERVER_ERROR;
+    }
+
+    OperationContext getOperationContext() {
+        return operationContext;
+    }
+
+    /**
+     * Takes the permits from the rate limiter for the next request of the operation before it is handed to the SDK; the requests sent
+     * without them, i.e. retries, wait for theirs.
+     *
+     * @throws RateLimitExceededException if the permits are not available within the maximum wait of the rate limiter
+     */
+    void acquirePermit(Optional<String> partitionKey) {
+        if (rateLimiter.isPresent() && !isPermitTaken()) {
+            rateLimiter.get().beforeRequest(tableName, partitionKey, requestPermits);
+            permitTaken();
+        }
+    }
+
+    /**
+     * Records an entity operation that took the given time, retries included.
+     */
+    void operationCompleted(long latencyInNanos) {
+        completed(latencyInNanos, 0);
+    }
+
+    /**
+     * Times the calls to the iterator of a query, which fetch its pages, and records the query once the iteration is exhausted or fails.
+     * Once the deadline has passed the iterator fails with {@link DeadlineExceededException} rather than fetching another page, and
+     * it takes the permit of the next page from the rate limiter before asking for it, failing with {@link RateLimitExceededException}.
+     * The entities of a page beyond the first are charged to the rate limiter once the page is consumed.
+     */
+    <T> Iterator<T> meter(final Iterator<T> queryIterator) {
+        return new AbstractIterator<T>() {
+            private long latencyInNanos;
+            private long entities;
+
+            @Override
+            protected T computeNext() {
+                if (deadline.isPresent()) {
+                    deadline.get().checkRemainingMillis(tableName);
+                }
+                acquirePermit(RequestRateLimiter.partitionKey(queryFilter.get()));
+                long start = System.nanoTime();
+                boolean exhausted = true;
+                try {
+                    exhausted = !queryIterator.hasNext();
+                    if (exhausted) {
+                        // the permit taken ahead of a page that was not requested covers an entity of the last page
+                        chargePage(usePermit() ? 2 : 1);
+                        return endOfData();
+                    }
+                    entities++;
+                    pageEntityReturned();
+                    return queryIterator.next();
+                } finally {
+                    latencyInNanos += System.nanoTime() - start;
+                    if (exhausted) {
+                        completed(latencyInNanos, entities);
+                    }
+                }
+            }
+        };
+    }
+
+    private void attachTo(OperationContext context) {
+        context.getSendingRequestEventHandler().addListener(new StorageEvent<SendingRequestEvent>() {
+            @Override
+            public void eventOccurred(SendingRequestEvent event) {
+                HttpURLConnection connection = (HttpURLConnection) event.getConnectionObject();
+                if (rateLimiter.isPresent()) {
+                    // the previous page has been consumed once the next is requested
+                    chargePage(1);
+                    if (!usePermit()) {
+                        rateLimiter.get().beforeRetry(partitionKey(connection), requestPermits);
+                    }
+                }
+                // the SDK translates what its listeners throw into a StorageException, and may still send the request, so a passed
+                // deadline is checked before the operation or page is handed to the SDK; here the request only gets the time remaining
+                if (deadline.isPresent()) {
+                    limitTimeouts(connection, deadline.get().remainingTimeoutMillis());
+                }
+                sending(connection);
+            }
+        });
+        context.getResponseReceivedEventHandler().addListener(new StorageEvent<ResponseReceivedEvent>() {
+            @Override
+            public void eventOccurred(ResponseReceivedEvent event) {
+                received((HttpURLConnection) event.getConnectionObject(), event.getRequestResult().getStatusCode(),
+                        event.getOpContext().getCurrentOperationByteCount());
+            }
+        });
+    }
+
+    private static void limitTimeouts(HttpURLConnection connection, int remainingMillis) {
+        if (connection.getReadTimeout() == 0 || connection.getReadTimeout() > remainingMillis) {
+            connection.setReadTimeout(remainingMillis);
+        }
+        if (connection.getConnectTimeout() == 0 || connection.getConnectTimeout() > remainingMillis) {
+            connection.setConnectTimeout(remainingMillis);
+        }
+    }
+
+    // queries name their partition in the filter, entity requests in the resource path
+    private Optional<String> partitionKey(HttpURLConnection connection) {
+        if (queryFilter.isPresent()) {
+            return RequestRateLimiter.partitionKey(queryFilter.get());
+        }
+        URL url = connection.getURL();
+        return url == null ? Optional.<String>absent() : RequestRateLimiter.partitionKey(decodePath(url.getPath()));
+    }
+
+    // the keys in the path are URL-encoded, e.g. the '/' and '=' of Base64, and must hash as the raw keys of first attempts do
+    static String decodePath(String path) {
+        try {
+            return URLDecoder.decode(path.replace("+", "%2B"), Charsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return path;
+        }
+    }
+
+    private synchronized void pageEntityReturned() {
+        pageEntities++;
+    }
+
+    // the first entity of a page is covered by the permit of its request
+    private synchronized void chargePage(int coveredEntities) {
+        if (rateLimiter.isPresent() && pageEntities > coveredEntities) {
+            rateLimiter.get().charge(RequestRateLimiter.partitionKey(queryFilter.get()), pageEntities - coveredEntities);
+        }
+        pageEntities = 0;
+    }
+
+    private synchronized boolean isPermitTaken() {
+        return permitTaken;
+    }
+
+    private synchronized void permitTaken() {
+        permitTaken = true;
+    }
+
+    // whether the request uses the permit taken ahead of it
+    private synchronized boolean usePermit() {
+        boolean taken = permitTaken;
+        permitTaken = false;
+        return taken;
+    }
+
+    private synchronized void sending(HttpURLConnection connection) {
+        sendingTick = System.nanoTime();
+        URL url = connection.getURL();
+        if (url != null) {
+            resource = url.getPath();
+        }
+    }
+
+    // the byte count is set by AzureEntity when it is written
+    private synchronized void received(HttpURLConnection connection, int statusCode, long payloadBytes) {
+        long latency = System.nanoTime() - sendingTick;
+        requestType = queryFilter.isPresent() ? RequestType.QUERY : requestType(connection);
+        long contentLength = connection.getContentLengthLong();
+        requests++;
+        requestPayloadBytes += payloadBytes;
+        responseBytes += Math.max(contentLength, 0);
+        TableRequestEvent event = new TableRequestEvent(tableName, requestType, statusCode, latency, payloadBytes, contentLength,
+                previousFailed);
+        previousFailed = isRetryable(statusCode);
+        if (listener.isPresent()) {
+            listener.get().requestCompleted(event);
+        }
+    }
+
+    private synchronized void completed(long latencyInNanos, long entities) {
+        if (slowOperationLog.isPresent() && slowOperationLog.get().isSlow(latencyInNanos)) {
+            slowOperationLog.get().record(new SlowOperation(System.currentTimeMillis(), tableName, requestType,
+                    queryFilter.or(resource), latencyInNanos, requests, entities, requestPayloadBytes, responseBytes));
+        }
+    }
+}
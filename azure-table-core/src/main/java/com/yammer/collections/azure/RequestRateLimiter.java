@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the rate of requests sent to the table service per partition and per table or account, so that load is smoothed on the client
+ * instead of being throttled by the service, which targets about {@value #PARTITION_TARGET} entities per second per partition and
+ * {@value #ACCOUNT_TARGET} per account. Configured by {@link TableClientOptions.Builder#withRateLimiter(RequestRateLimiter)}, permits are
+ * entities, as for the targets: every request of the table, retries included, takes a permit per entity it writes, i.e. one, or one per
+ * operation of a batch, before it is sent. An iteration over a query takes a permit for its next page ahead of the request, and is
+ * charged for the further entities of the page once they are returned, which delays the requests that follow.
+ * <p>
+ * Partitions are hashed onto a fixed number of stripes, each with its own bucket, so memory does not depend on the number of partitions;
+ * partitions sharing a stripe share its rate. Queries that are not limited to a single partition only take a permit from the table limits.
+ * <p>
+ * By default the table waits for permits; with a maximum wait it throws {@link RateLimitExceededException} instead of waiting longer,
+ * from the operation or from the iterator of the query. Retries always wait, they are only sent by the retry policy.
+ * {@link #tryAcquire(String)} and {@link #acquireAsync(String, ScheduledExecutorService)} let callers pace their own work, e.g. bulk loads.
+ */
+public final class RequestRateLimiter {
+    public static final int PARTITION_TARGET = 2000;
+    public static final int ACCOUNT_TARGET = 20000;
+    public static final int DEFAULT_STRIPES = 256;
+    private static final Pattern PARTITION_KEY = Pattern.compile("PartitionKey(?: eq |%20eq%20|=)(?:'|%27)(.*?)(?:'|%27)");
+    private final TokenBucket[] partitionBuckets;
+    private final List<TokenBucket> tableBuckets;
+    private final long maxWaitNanos;
+
+    private RequestRateLimiter(Builder builder) {
+        partitionBuckets = new TokenBucket[builder.partitionRate.isPresent() ? builder.stripes : 0];
+        for (int i = 0; i < partitionBuckets.length; i++) {
+            partitionBuckets[i] = new TokenBucket(builder.partitionRate.get());
+        }
+        tableBuckets = builder.tableBuckets.build();
+        maxWaitNanos = builder.maxWaitNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the partition key of a filter, or of the resource path of an entity request, if it names a single one
+     */
+    static Optional<String> partitionKey(String filterOrPath) {
+        Matcher matcher = PARTITION_KEY.matcher(filterOrPath);
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.<String>absent();
+    }
+
+    /**
+     * Waits until a request to the partition is permitted.
+     */
+    public void acquire(String partitionKey) {
+        Uninterruptibles.sleepUninterruptibly(reserve(Optional.of(partitionKey), 1, Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return whether a request to the partition is permitted right away, in which case the permit is taken
+     */
+    public boolean tryAcquire(String partitionKey) {
+        return reserve(Optional.of(partitionKey), 1, 0) == 0;
+    }
+
+    /**
+     * @return a future completed, on the scheduler, once a request to the partition is permitted
+     */
+    public ListenableFuture<Void> acquireAsync(String partitionKey, ScheduledExecutorService scheduler) {
+        long wait = reserve(Optional.of(partitionKey), 1, Long.MAX_VALUE);
+        if (wait == 0) {
+            return Futures.immediateFuture(null);
+        }
+        final SettableFuture<Void> permitted = SettableFuture.create();
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                permitted.set(null);
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+        return permitted;
+    }
+
+    /**
+     * Called before an operation or a page of a query is handed to the SDK, waits for a permit up to the maximum wait. The SDK translates
+     * what its request hooks throw, so requests are rejected before they reach it.
+     *
+     * @throws RateLimitExceededException if the permit is not available within the maximum wait
+     */
+    void beforeRequest(String tableName, Optional<String> partitionKey, int permits) {
+        long wait = reserve(partitionKey, permits, maxWaitNanos);
+        if (wait < 0) {
+            throw new RateLimitExceededException("Request rate limit of table " + tableName + " exceeded"
+                    + (partitionKey.isPresent() ? " for partition " + partitionKey.get() : ""));
+        }
+        Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called before a retry is sent, waits for a permit however long it takes, as the retry is already within the SDK.
+     */
+    void beforeRetry(Optional<String> partitionKey, int permits) {
+        Uninterruptibles.sleepUninterruptibly(reserve(partitionKey, permits, Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes the permits of entities returned by a request, without waiting; the requests that follow wait for them instead.
+     */
+    void charge(Optional<String> partitionKey, int permits) {
+        reserve(partitionKey, permits, Long.MAX_VALUE);
+    }
+
+    // reserves from every bucket concerned, releasing what was reserved if one of them cannot permit the request in time
+    private long reserve(Optional<String> partitionKey, int permits, long maxWait) {
+        List<TokenBucket> buckets = buckets(partitionKey);
+        List<TokenBucket.Reservation> reserved = new ArrayList<>(buckets.size());
+        long wait = 0;
+        for (TokenBucket bucket : buckets) {
+            Optional<TokenBucket.Reservation> reservation = bucket.reserve(permits, maxWait);
+            if (!reservation.isPresent()) {
+                for (int i = 0; i < reserved.size(); i++) {
+                    buckets.get(i).release(reserved.get(i));
+                }
+                return -1;
+            }
+            reserved.add(reservation.get());
+            wait = Math.max(wait, reservation.get().waitNanos());
+        }
+        return wait;
+    }
+
+    private List<TokenBucket> buckets(Optional<String> partitionKey) {
+        if (!partitionKey.isPresent() || partitionBuckets.length == 0) {
+            return tableBuckets;
+        }
+        TokenBucket partitionBucket = partitionBuckets[(partitionKey.get().hashCode() & Integer.MAX_VALUE) % partitionBuckets.length];
+        return ImmutableList.<TokenBucket>builder().add(partitionBucket).addAll(tableBuckets).build();
+    }
+
+    public static final class Builder {
+        private final ImmutableList.Builder<TokenBucket> tableBuckets = ImmutableList.builder();
+        private Optional<Double> partitionRate = Optional.absent();
+        private int stripes = DEFAULT_STRIPES;
+        private long maxWaitNanos = Long.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        public Builder withPartitionLimit(double requestsPerSecond) {
+            checkArgument(requestsPerSecond > 0, "The rate must be positive");
+            partitionRate = Optional.of(requestsPerSecond);
+            return this;
+        }
+
+        /**
+         * The number of buckets partitions are hashed onto, {@value RequestRateLimiter#DEFAULT_STRIPES} by default.
+         */
+        public Builder withPartitionStripes(int numberOfStripes) {
+            checkArgument(numberOfStripes > 0, "The number of stripes must be positive");
+            stripes = numberOfStripes;
+            return this;
+        }
+
+        public Builder withTableLimit(double requestsPerSecond) {
+            return withSharedLimit(new TokenBucket(requestsPerSecond));
+        }
+
+        /**
+         * A limit shared with the other tables given the same bucket, e.g. one for the whole account.
+         */
+        public Builder withSharedLimit(TokenBucket bucket) {
+            tableBuckets.add(checkNotNull(bucket));
+            return this;
+        }
+
+        /**
+         * Requests that cannot be permitted within the wait fail with {@link RateLimitExceededException}, a wait of 0 never waits.
+         */
+        public Builder waitingAtMost(long maxWait, TimeUnit unit) {
+            checkArgument(maxWait >= 0, "The maximum wait cannot be negative");
+            maxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
+        public RequestRateLimiter build() {
+            return new RequestRateLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits retries to a ratio of the requests made, so that when the service is overloaded retries do not multiply the load, as
+ * configured by {@link TableClientOptions.Builder#withRetryBudget(RetryBudget)}. Every operation, or query page, deposits the ratio
+ * into the budget and every retry withdraws one; a retry the budget cannot pay for is not made. The balance is capped at the reserve,
+ * which is also the initial balance, so that retries saved while the service was healthy cannot all be spent at once.
+ * <p>
+ * Share an instance between tables to give them a common budget.
+ */
+public final class RetryBudget {
+    public static final int DEFAULT_RESERVE = 10;
+    private static final long UNIT = 1000;
+    private final long deposit;
+    private final long cap;
+    private final AtomicLong balance;
+
+    public RetryBudget(double maxRetryRatio) {
+        this(maxRetryRatio, DEFAULT_RESERVE);
+    }
+
+    public RetryBudget(double maxRetryRatio, int reserve) {
+        checkArgument(maxRetryRatio >= 0, "The retry ratio cannot be negative");
+        checkArgument(reserve >= 0, "The reserve cannot be negative");
+        deposit = Math.round(maxRetryRatio * UNIT);
+        cap = Math.max(reserve * UNIT, UNIT);
+        balance = new AtomicLong(reserve * UNIT);
+    }
+
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+        } while (current < cap && !balance.compareAndSet(current, Math.min(cap, current + deposit)));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+
+    /**
+     * @return the number of retries the budget can currently pay for
+     */
+    public long getAvailableRetries() {
+        return balance.get() / UNIT;
+    }
+
+    /**
+     * @return a factory of policies that retry as the given ones do, as long as the budget allows
+     */
+    RetryPolicyFactory limit(final RetryPolicyFactory retryPolicyFactory) {
+        return new RetryPolicyFactory() {
+            @Override
+            public RetryPolicy createInstance(OperationContext opContext) {
+                deposit();
+                final RetryPolicy retryPolicy = retryPolicyFactory.createInstance(opContext);
+                return new RetryPolicy() {
+                    @Override
+                    public RetryResult shouldRetry(int currentRetryCount, int statusCode, Exception lastException, OperationContext opContext) {
+                        RetryResult result = retryPolicy.shouldRetry(currentRetryCount, statusCode, lastException, opContext);
+                        if (result.isShouldRetry() && !tryWithdraw()) {
+                            result.setShouldRetry(false);
+                        }
+                        return result;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -17,42 +17,37 @@ package com.yammer.collections.azure;
 
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.microsoft.windowsazure.services.table.client.TableQuery;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
-import static com.yammer.collections.azure.AzureEntityUtil.EXTRACT_VALUE;
-import static com.yammer.collections.azure.AzureEntityUtil.decode;
-import static com.yammer.collections.azure.AzureEntityUtil.encode;
+import static com.yammer.collections.azure.AzureEntityUtil.hasValue;
 
-class RowView implements Map<Bytes, Bytes> {
-    private static final Function<AzureEntity, Bytes> EXTRACT_ROW_KEY = new Function<AzureEntity, Bytes>() {
-        @Override
-        public Bytes apply(AzureEntity input) {
-            return decode(input.getPartitionKey());
-        }
-    };
-    private final BaseAzureTable baseAzureTable;
-    private final Bytes columnKey;
+class RowView<R, C, V> implements Map<R, V> {
+    private final AbstractAzureTable<R, C, V> baseAzureTable;
+    private final EntityMapper<R, C, V> entityMapper;
+    private final C columnKey;
     private final AzureTableCloudClient azureTableCloudClient;
     private final AzureTableRequestFactory azureTableRequestFactory;
-    private final Function<AzureEntity, Entry<Bytes, Bytes>> extractEntry;
+    private final Function<AzureEntity, Entry<R, V>> extractEntry;
 
     RowView(
-            final BaseAzureTable baseAzureTable,
-            final Bytes columnKey,
+            final AbstractAzureTable<R, C, V> baseAzureTable,
+            final C columnKey,
             AzureTableCloudClient azureTableCloudClient,
             AzureTableRequestFactory azureTableRequestFactory) {
         this.baseAzureTable = baseAzureTable;
         this.columnKey = columnKey;
         this.azureTableCloudClient = azureTableCloudClient;
         this.azureTableRequestFactory = azureTableRequestFactory;
-        extractEntry = new Function<AzureEntity, Entry<Bytes, Bytes>>() {
+        entityMapper = baseAzureTable.getEntityMapper();
+        extractEntry = new Function<AzureEntity, Entry<R, V>>() {
             @Override
-            public Entry<Bytes, Bytes> apply(AzureEntity input) {
-                return new RowMapEntry(decode(input.getPartitionKey()), columnKey, baseAzureTable);
+            public Entry<R, V> apply(AzureEntity input) {
+                return new RowMapEntry<>(entityMapper.decodeRow(input.getPartitionKey()), columnKey, baseAzureTable);
             }
         };
     }
@@ -74,103 +69,104 @@ class RowView implements Map<Bytes, Bytes> {
 
     @Override
     public boolean containsValue(Object value) {
-        if (!(value instanceof Bytes)) {
+        String encodedValue = entityMapper.encodeValue(value);
+        if (encodedValue == null) {
             return false;
         }
 
-        TableQuery<AzureEntity> valueQuery = azureTableRequestFactory.containsValueForColumnQuery(baseAzureTable.getTableName(), encode(columnKey),
-                encode((Bytes) value));
-        return azureTableCloudClient.execute(valueQuery).iterator().hasNext();
+        TableQuery<AzureEntity> valueQuery = azureTableRequestFactory.containsValueForColumnQuery(baseAzureTable.getTableName(),
+                entityMapper.encodeColumn(columnKey), encodedValue);
+        return Iterables.any(azureTableCloudClient.execute(valueQuery), hasValue(encodedValue));
     }
 
     @Override
-    public Bytes get(Object key) {
+    public V get(Object key) {
         return baseAzureTable.get(key, columnKey);
     }
 
     @Override
-    public Bytes put(Bytes key, Bytes value) {
+    public V put(R key, V value) {
         return baseAzureTable.put(key, columnKey, value);
     }
 
     @Override
-    public Bytes remove(Object key) {
+    public V remove(Object key) {
         return baseAzureTable.remove(key, columnKey);
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public void putAll(Map<? extends Bytes, ? extends Bytes> m) {
-        for (Entry<? extends Bytes, ? extends Bytes> entry : m.entrySet()) {
+    public void putAll(Map<? extends R, ? extends V> m) {
+        for (Entry<? extends R, ? extends V> entry : m.entrySet()) {
             put(entry.getKey(), entry.getValue());
         }
     }
 
     @Override
     public void clear() {
-        for (Bytes rowKey : keySet()) {
+        for (R rowKey : keySet()) {
             remove(rowKey);
         }
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Set<Bytes> keySet() {
+    public Set<R> keySet() {
         return SetView.fromSetCollectionView(
-                new RowMapSetView<>(baseAzureTable, columnKey, EXTRACT_ROW_KEY, azureTableCloudClient, azureTableRequestFactory)
+                new RowMapSetView<>(baseAzureTable, columnKey, entityMapper.rowKeyExtractor(), azureTableCloudClient, azureTableRequestFactory)
         );
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Collection<Bytes> values() {
-        return new RowMapSetView<>(baseAzureTable, columnKey, EXTRACT_VALUE, azureTableCloudClient, azureTableRequestFactory);
+    public Collection<V> values() {
+        return new RowMapSetView<>(baseAzureTable, columnKey, entityMapper.valueExtractor(), azureTableCloudClient, azureTableRequestFactory);
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
-    public Set<Entry<Bytes, Bytes>> entrySet() {
+    public Set<Entry<R, V>> entrySet() {
         return SetView.fromSetCollectionView(
                 new RowMapSetView<>(baseAzureTable, columnKey, extractEntry, azureTableCloudClient, azureTableRequestFactory)
         );
     }
 
-    private static class RowMapEntry implements Entry<Bytes, Bytes> {
-        private final Bytes columnKey;
-        private final Bytes rowKey;
-        private final BaseAzureTable azureTable;
+    private static class RowMapEntry<R, C, V> implements Entry<R, V> {
+        private final C columnKey;
+        private final R rowKey;
+        private final AbstractAzureTable<R, C, V> azureTable;
 
-        private RowMapEntry(Bytes rowKey, Bytes columnKey, BaseAzureTable azureTable) {
+        private RowMapEntry(R rowKey, C columnKey, AbstractAzureTable<R, C, V> azureTable) {
             this.rowKey = rowKey;
             this.columnKey = columnKey;
             this.azureTable = azureTable;
         }
 
         @Override
-        public Bytes getKey() {
+        public R getKey() {
             return rowKey;
         }
 
         @Override
-        public Bytes getValue() {
+        public V getValue() {
             return azureTable.get(rowKey, columnKey);
         }
 
         @Override
-        public Bytes setValue(Bytes value) {
+        public V setValue(V value) {
             return azureTable.put(rowKey, columnKey, value);
         }
     }
 
     private static class RowMapSetView<E> extends AbstractCollectionView<E> {
-        private final BaseAzureTable baseAzureTable;
-        private final Bytes columnKey;
+        private final AbstractAzureTable<?, ?, ?> baseAzureTable;
+        private final Object columnKey;
         private final AzureTableCloudClient azureTableCloudClient;
         private final AzureTableRequestFactory azureTableRequestFactory;
 
         public RowMapSetView(
-                BaseAzureTable baseAzureTable,
-                Bytes columnKey,
+                AbstractAzureTable<?, ?, ?> baseAzureTable,
+                Object columnKey,
                 Function<AzureEntity, E> typeExtractor,
                 AzureTableCloudClient azureTableCloudClient,
                 AzureTableRequestFactory azureTableRequestFactory) {
@@ -183,7 +179,8 @@ class RowView implements Map<Bytes, Bytes> {
 
         @Override
         protected Iterable<AzureEntity> getBackingIterable() {
-            TableQuery<AzureEntity> selectAllForRowQuery = azureTableRequestFactory.selectAllForColumn(baseAzureTable.getTableName(), encode(columnKey));
+            TableQuery<AzureEntity> selectAllForRowQuery = azureTableRequestFactory.selectAllForColumn(baseAzureTable.getTableName(),
+                    baseAzureTable.getEntityMapper().encodeColumn(columnKey));
             return azureTableCloudClient.execute(selectAllForRowQuery);
         }
     }
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A range of the rows of a table, by encoded row key, to scan in parallel with the other segments of the table with
+ * {@link CellQuery#inSegment}. The table service returns the entities of a range in order, so a segment knows how far its scan has
+ * gone, and the rest of it can be split off to another worker while it is being scanned, see {@link #splitRemaining()}.
+ * <p>
+ * The encoded keys of the rows are not spread evenly, e.g. all JSON strings start with the same character, so the segments of a
+ * table start even by encoded key rather than by size, and a parallel scan should keep splitting the remaining segments as workers
+ * become idle. A segment is meant to be scanned once.
+ */
+public final class ScanSegment {
+    // bounds are numbers in base 81 whose digits are the characters from '*' to 'z', which include the Base64 alphabets and padding
+    private static final char ZERO = '*';
+    private static final int BASE = 'z' - ZERO + 1;
+    private static final BigInteger BIG_BASE = BigInteger.valueOf(BASE);
+    private static final int INITIAL_BOUND_LENGTH = 3;
+    // splits this much finer than the keys scanned are not worth a worker
+    private static final int MAX_EXTRA_BOUND_LENGTH = 4;
+    private static final int REMAINING_PRECISION = 8;
+    private final String fromInclusive;
+    private Optional<String> toExclusive;
+    private String position;
+    private Optional<String> firstScanned = Optional.absent();
+    private boolean finished;
+
+    private ScanSegment(String fromInclusive, Optional<String> toExclusive) {
+        this.fromInclusive = fromInclusive;
+        this.toExclusive = toExclusive;
+        position = fromInclusive;
+    }
+
+    public static ScanSegment wholeTable() {
+        return new ScanSegment("", Optional.<String>absent());
+    }
+
+    /**
+     * Splits the whole table into segments of the same range of encoded row keys.
+     */
+    public static List<ScanSegment> wholeTable(int segments) {
+        checkArgument(segments > 0, "The number of segments must be positive");
+        BigInteger range = BIG_BASE.pow(INITIAL_BOUND_LENGTH);
+        List<ScanSegment> result = new ArrayList<>(segments);
+        String from = "";
+        for (int i = 1; i < segments; i++) {
+            String to = toBound(range.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(segments)), INITIAL_BOUND_LENGTH);
+            if (to.compareTo(from) > 0) {
+                result.add(new ScanSegment(from, Optional.of(to)));
+                from = to;
+            }
+        }
+        result.add(new ScanSegment(from, Optional.<String>absent()));
+        return result;
+    }
+
+    private static BigInteger toNumber(String bound, int length) {
+        BigInteger number = BigInteger.ZERO;
+        for (int i = 0; i < length; i++) {
+            number = number.multiply(BIG_BASE).add(BigInteger.valueOf(i < bound.length() ? digit(bound.charAt(i)) : 0));
+        }
+        return number;
+    }
+
+    // trailing zero digits are left out, so that bounds sort as strings like they do as numbers
+    private static String toBound(BigInteger number, int length) {
+        char[] digits = new char[length];
+        BigInteger remaining = number;
+        for (int i = length - 1; i >= 0; i--) {
+            BigInteger[] quotientAndDigit = remaining.divideAndRemainder(BIG_BASE);
+            digits[i] = (char) (ZERO + quotientAndDigit[1].intValue());
+            remaining = quotientAndDigit[0];
+        }
+        return withoutTrailingZeros(new String(digits));
+    }
+
+    private static String withoutTrailingZeros(String bound) {
+        int end = bound.length();
+        while (end > 0 && bound.charAt(end - 1) == ZERO) {
+            end--;
+        }
+        return bound.substring(0, end);
+    }
+
+    /**
+     * @return the shortest bound between the two, near the middle
+     */
+    private static String middle(String low, Optional<String> high) {
+        int length = Math.max(low.length(), high.isPresent() ? high.get().length() : 0) + 1;
+        BigInteger lowNumber = toNumber(low, length);
+        BigInteger highNumber = high.isPresent() ? toNumber(high.get(), length) : BIG_BASE.pow(length);
+        String middle = toBound(lowNumber.add(highNumber).shiftRight(1), length);
+        for (int prefixLength = 1; prefixLength < middle.length(); prefixLength++) {
+            String shorter = withoutTrailingZeros(middle.substring(0, prefixLength));
+            if (shorter.compareTo(low) > 0) {
+                return shorter;
+            }
+        }
+        return middle;
+    }
+
+    private static int commonPrefixLength(String first, String second) {
+        int length = 0;
+        while (length < first.length() && length < second.length() && first.charAt(length) == second.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int digit(char character) {
+        checkArgument(character >= ZERO && character < ZERO + BASE, "Unexpected character %s in an encoded key", character);
+        return character - ZERO;
+    }
+
+    private static double toFraction(String bound) {
+        double fraction = 0;
+        double scale = 1;
+        for (int i = 0; i < Math.min(bound.length(), REMAINING_PRECISION); i++) {
+            scale /= BASE;
+            fraction += digit(bound.charAt(i)) * scale;
+        }
+        return fraction;
+    }
+
+    /**
+     * Splits off about the second half, by encoded key, of the part of the segment not scanned yet, as estimated from the keys
+     * scanned so far. The scan of this segment then stops before the returned one, which is disjoint from it.
+     *
+     * @return the split off segment, or absent if the scan of this segment has not reached a row yet, which is left to its own worker,
+     * if it has completed or if what remains of it is too narrow
+     */
+    public synchronized Optional<ScanSegment> splitRemaining() {
+        if (finished || !firstScanned.isPresent()) {
+            return Optional.absent();
+        }
+        String middle = middle(position, estimatedEnd());
+        if (middle.length() > position.length() + MAX_EXTRA_BOUND_LENGTH) {
+            return Optional.absent();
+        }
+        ScanSegment split = new ScanSegment(middle, toExclusive);
+        toExclusive = Optional.of(middle);
+        return Optional.of(split);
+    }
+
+    /**
+     * Keys tend to share prefixes, so once the scan has moved past several partitions, the rest of the keys probably end before the
+     * common prefix of the keys scanned does. Otherwise the rest of the segment is split in the middle, finding where the keys are
+     * takes one split per halving.
+     */
+    private Optional<String> estimatedEnd() {
+        if (!firstScanned.isPresent() || firstScanned.get().equals(position)) {
+            return toExclusive;
+        }
+        int commonPrefixLength = commonPrefixLength(firstScanned.get(), position);
+        if (commonPrefixLength == 0 || position.charAt(commonPrefixLength - 1) == ZERO + BASE - 1) {
+            return toExclusive;
+        }
+        String prefixEnd = position.substring(0, commonPrefixLength - 1) + (char) (position.charAt(commonPrefixLength - 1) + 1);
+        return toExclusive.isPresent() && toExclusive.get().compareTo(prefixEnd) <= 0 ? toExclusive : Optional.of(prefixEnd);
+    }
+
+    /**
+     * @return an estimate of the fraction of the encoded key space left to scan in this segment, to pick the one to split
+     */
+    public synchronized double getRemainingKeySpace() {
+        return finished ? 0 : (toExclusive.isPresent() ? toFraction(toExclusive.get()) : 1) - toFraction(position);
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    String getFromInclusive() {
+        return fromInclusive;
+    }
+
+    synchronized Optional<String> getToExclusive() {
+        return toExclusive;
+    }
+
+    /**
+     * Moves the scan to an entity of the given partition.
+     *
+     * @return false if the partition is past the end of the segment, which may have been split since the query was sent
+     */
+    synchronized boolean advanceTo(String partitionKey) {
+        if (toExclusive.isPresent() && partitionKey.compareTo(toExclusive.get()) >= 0) {
+            finished = true;
+            return false;
+        }
+        if (!firstScanned.isPresent()) {
+            firstScanned = Optional.of(partitionKey);
+        }
+        position = partitionKey;
+        return true;
+    }
+
+    synchronized void finish() {
+        finished = true;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "[" + fromInclusive + ", " + (toExclusive.isPresent() ? toExclusive.get() : "end") + ")";
+    }
+}
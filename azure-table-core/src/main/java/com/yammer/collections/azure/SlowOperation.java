@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Objects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An operation of the client that took longer than the threshold of the {@link SlowOperationLog}: an entity operation with its retries,
+ * or a query with all the pages fetched while it was iterated.
+ */
+public final class SlowOperation {
+    private final long timestampMillis;
+    private final String tableName;
+    private final RequestType requestType;
+    private final String filter;
+    private final long latencyInNanos;
+    private final int requests;
+    private final long entities;
+    private final long requestPayloadBytes;
+    private final long responseBytes;
+
+    SlowOperation(long timestampMillis, String tableName, RequestType requestType, String filter, long latencyInNanos, int requests,
+                  long entities, long requestPayloadBytes, long responseBytes) {
+        this.timestampMillis = timestampMillis;
+        this.tableName = tableName;
+        this.requestType = requestType;
+        this.filter = filter;
+        this.latencyInNanos = latencyInNanos;
+        this.requests = requests;
+        this.entities = entities;
+        this.requestPayloadBytes = requestPayloadBytes;
+        this.responseBytes = responseBytes;
+    }
+
+    /**
+     * @return when the operation completed
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the type of the last request of the operation
+     */
+    public RequestType getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * @return the filter of a query, as generated by {@link AzureTableRequestFactory}, or the resource path of an entity operation,
+     * which includes the encoded keys of the entity
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the time spent in the client, for queries excluding the time the caller took between elements
+     */
+    public long getLatencyInNanos() {
+        return latencyInNanos;
+    }
+
+    /**
+     * @return the number of requests sent, i.e. the pages fetched by a query or the attempts of an entity operation
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the entities returned by a query, 0 for entity operations
+     */
+    public long getEntities() {
+        return entities;
+    }
+
+    public long getRequestPayloadBytes() {
+        return requestPayloadBytes;
+    }
+
+    /**
+     * @return the total declared content length of the responses, responses not declaring it are not counted
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("tableName", tableName)
+                .add("requestType", requestType)
+                .add("filter", filter)
+                .add("latencyInMillis", TimeUnit.NANOSECONDS.toMillis(latencyInNanos))
+                .add("requests", requests)
+                .add("entities", entities)
+                .add("requestPayloadBytes", requestPayloadBytes)
+                .add("responseBytes", responseBytes)
+                .add("timestampMillis", timestampMillis)
+                .toString();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps the last operations that took longer than a threshold in a ring buffer, which can be dumped on demand, and logs them
+ * at a limited rate, as configured by {@link TableClientOptions.Builder#withSlowOperationLog(SlowOperationLog)}. Queries are
+ * recorded when their iteration is exhausted or fails, queries abandoned before that are not.
+ */
+public final class SlowOperationLog {
+    public static final int DEFAULT_CAPACITY = 100;
+    public static final double DEFAULT_LOGS_PER_SECOND = 1;
+    private static final Logger LOG = LoggerFactory.getLogger(SlowOperationLog.class);
+    private final long thresholdInNanos;
+    private final SlowOperation[] operations;
+    private final RateLimiter logRateLimiter;
+    private long recorded;
+    private long notLogged;
+
+    public SlowOperationLog(long threshold, TimeUnit thresholdUnit) {
+        this(threshold, thresholdUnit, DEFAULT_CAPACITY, DEFAULT_LOGS_PER_SECOND);
+    }
+
+    public SlowOperationLog(long threshold, TimeUnit thresholdUnit, int capacity, double logsPerSecond) {
+        checkArgument(threshold >= 0, "The threshold cannot be negative");
+        checkArgument(capacity > 0, "The capacity must be positive");
+        thresholdInNanos = thresholdUnit.toNanos(threshold);
+        operations = new SlowOperation[capacity];
+        logRateLimiter = RateLimiter.create(logsPerSecond);
+    }
+
+    boolean isSlow(long latencyInNanos) {
+        return latencyInNanos >= thresholdInNanos;
+    }
+
+    void record(SlowOperation operation) {
+        long skipped;
+        synchronized (this) {
+            operations[(int) (recorded % operations.length)] = operation;
+            recorded++;
+            if (!logRateLimiter.tryAcquire()) {
+                notLogged++;
+                return;
+            }
+            skipped = notLogged;
+            notLogged = 0;
+        }
+        LOG.warn("Slow table operation {}, {} more not logged since the last one", operation, skipped);
+    }
+
+    /**
+     * @return the slow operations retained, oldest first
+     */
+    public synchronized List<SlowOperation> dump() {
+        ImmutableList.Builder<SlowOperation> dump = ImmutableList.builder();
+        long oldest = Math.max(0, recorded - operations.length);
+        for (long i = oldest; i < recorded; i++) {
+            dump.add(operations[(int) (i % operations.length)]);
+        }
+        return dump.build();
+    }
+
+    /**
+     * @return the number of slow operations recorded since the log was created, including those no longer retained
+     */
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.table.client.CloudTableClient;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Options of the client a table uses to talk to the table service.
+ */
+public final class TableClientOptions {
+    public static final TableClientOptions DEFAULT = builder().build();
+    private final Optional<TableRequestListener> requestListener;
+    private final Optional<SlowOperationLog> slowOperationLog;
+    private final Optional<RetryPolicyFactory> retryPolicy;
+    private final Optional<RetryBudget> retryBudget;
+    private final Optional<CircuitBreaker> circuitBreaker;
+    private final Optional<RequestRateLimiter> rateLimiter;
+    private final Optional<HedgingPolicy> hedgingPolicy;
+    private final Optional<Long> operationTimeoutInNanos;
+    private final Optional<Long> queryTimeoutInNanos;
+    private final Optional<Bulkhead> bulkhead;
+    private final Optional<CloudTableClient> scanClient;
+
+    private TableClientOptions(Builder builder) {
+        requestListener = builder.requestListener;
+        slowOperationLog = builder.slowOperationLog;
+        retryPolicy = builder.retryPolicy;
+        retryBudget = builder.retryBudget;
+        circuitBreaker = builder.circuitBreaker;
+        rateLimiter = builder.rateLimiter;
+        hedgingPolicy = builder.hedgingPolicy;
+        operationTimeoutInNanos = builder.operationTimeoutInNanos;
+        queryTimeoutInNanos = builder.queryTimeoutInNanos;
+        bulkhead = builder.bulkhead;
+        scanClient = builder.scanClient;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Optional<TableRequestListener> getRequestListener() {
+        return requestListener;
+    }
+
+    public Optional<SlowOperationLog> getSlowOperationLog() {
+        return slowOperationLog;
+    }
+
+    public Optional<RetryPolicyFactory> getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public Optional<RetryBudget> getRetryBudget() {
+        return retryBudget;
+    }
+
+    public Optional<CircuitBreaker> getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Optional<RequestRateLimiter> getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public Optional<HedgingPolicy> getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public Optional<Long> getOperationTimeoutInNanos() {
+        return operationTimeoutInNanos;
+    }
+
+    public Optional<Long> getQueryTimeoutInNanos() {
+        return queryTimeoutInNanos;
+    }
+
+    public Optional<Bulkhead> getBulkhead() {
+        return bulkhead;
+    }
+
+    public Optional<CloudTableClient> getScanClient() {
+        return scanClient;
+    }
+
+    public static final class Builder {
+        private Optional<TableRequestListener> requestListener = Optional.absent();
+        private Optional<SlowOperationLog> slowOperationLog = Optional.absent();
+        private Optional<RetryPolicyFactory> retryPolicy = Optional.absent();
+        private Optional<RetryBudget> retryBudget = Optional.absent();
+        private Optional<CircuitBreaker> circuitBreaker = Optional.absent();
+        private Optional<RequestRateLimiter> rateLimiter = Optional.absent();
+        private Optional<HedgingPolicy> hedgingPolicy = Optional.absent();
+        private Optional<Long> operationTimeoutInNanos = Optional.absent();
+        private Optional<Long> queryTimeoutInNanos = Optional.absent();
+        private Optional<Bulkhead> bulkhead = Optional.absent();
+        private Optional<CloudTableClient> scanClient = Optional.absent();
+
+        private Builder() {
+        }
+
+        public Builder withRequestListener(TableRequestListener listener) {
+            requestListener = Optional.of(checkNotNull(listener));
+            return this;
+        }
+
+        public Builder withSlowOperationLog(SlowOperationLog log) {
+            slowOperationLog = Optional.of(checkNotNull(log));
+            return this;
+        }
+
+        /**
+         * Overrides the retry policy of the {@code CloudTableClient} for the requests of this table, e.g. with an {@link ExponentialJitterRetryPolicy}.
+         */
+        public Builder withRetryPolicy(RetryPolicyFactory policy) {
+            retryPolicy = Optional.of(checkNotNull(policy));
+            return this;
+        }
+
+        public Builder withRetryBudget(RetryBudget budget) {
+            retryBudget = Optional.of(checkNotNull(budget));
+            return this;
+        }
+
+        public Builder withCircuitBreaker(CircuitBreaker breaker) {
+            circuitBreaker = Optional.of(checkNotNull(breaker));
+            return this;
+        }
+
+        public Builder withRateLimiter(RequestRateLimiter limiter) {
+            rateLimiter = Optional.of(checkNotNull(limiter));
+            return this;
+        }
+
+        /**
+         * Hedges slow point reads of the table, see {@link HedgingPolicy}.
+         */
+        public Builder withHedging(HedgingPolicy policy) {
+            hedgingPolicy = Optional.of(checkNotNull(policy));
+            return this;
+        }
+
+        /**
+         * Bounds every entity operation of the table, retries included, that is not called under an earlier {@link Deadline}.
+         */
+        public Builder withOperationTimeout(long timeout, TimeUnit unit) {
+            checkArgument(timeout > 0, "The timeout must be positive");
+            operationTimeoutInNanos = Optional.of(unit.toNanos(timeout));
+            return this;
+        }
+
+        /**
+         * Bounds every iteration over a query of the table, all its pages and their retries included, that is not started under
+         * an earlier {@link Deadline}.
+         */
+        public Builder withQueryTimeout(long timeout, TimeUnit unit) {
+            checkArgument(timeout > 0, "The timeout must be positive");
+            queryTimeoutInNanos = Optional.of(unit.toNanos(timeout));
+            return this;
+        }
+
+        public Builder withBulkhead(Bulkhead bulkheadToUse) {
+            bulkhead = Optional.of(checkNotNull(bulkheadToUse));
+            return this;
+        }
+
+        /**
+         * Sends the queries of the table that span several partitions through the given client, e.g. one with its own timeout and
+         * retry policy, instead of the client of the table.
+         */
+        public Builder withScanClient(CloudTableClient client) {
+            scanClient = Optional.of(checkNotNull(client));
+            return this;
+        }
+
+        public TableClientOptions build() {
+            return new TableClientOptions(this);
+        }
+    }
+}
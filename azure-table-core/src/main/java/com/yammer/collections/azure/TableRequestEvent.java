@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Objects;
+
+/**
+ * A request sent to the table service and the response it got.
+ */
+public final class TableRequestEvent {
+    static final int SERVER_BUSY = 503;
+    private final String tableName;
+    private final RequestType requestType;
+    private final int statusCode;
+    private final long latencyInNanos;
+    private final long requestPayloadBytes;
+    private final long responseBytes;
+    private final boolean retry;
+
+    public TableRequestEvent(String tableName, RequestType requestType, int statusCode, long latencyInNanos, long requestPayloadBytes,
+                      long responseBytes, boolean retry) {
+        this.tableName = tableName;
+        this.requestType = requestType;
+        this.statusCode = statusCode;
+        this.latencyInNanos = latencyInNanos;
+        this.requestPayloadBytes = requestPayloadBytes;
+        this.responseBytes = responseBytes;
+        this.retry = retry;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public RequestType getRequestType() {
+        return requestType;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the time from sending the request until the response status was received
+     */
+    public long getLatencyInNanos() {
+        return latencyInNanos;
+    }
+
+    /**
+     * @return the length of the encoded keys and value written, 0 for requests that do not write an entity; the Atom envelope is not included
+     */
+    public long getRequestPayloadBytes() {
+        return requestPayloadBytes;
+    }
+
+    /**
+     * @return the content length of the response, or -1 if the response does not declare it, as query responses usually do not
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return whether the request repeats one that failed with a retryable status, i.e. a timeout or a server error
+     */
+    public boolean isRetry() {
+        return retry;
+    }
+
+    /**
+     * @return whether the service rejected the request because it was too busy, which it does when a partition or the account is over its limits
+     */
+    public boolean isThrottled() {
+        return statusCode == SERVER_BUSY;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("tableName", tableName)
+                .add("requestType", requestType)
+                .add("statusCode", statusCode)
+                .add("latencyInNanos", latencyInNanos)
+                .add("requestPayloadBytes", requestPayloadBytes)
+                .add("responseBytes", responseBytes)
+                .add("retry", retry)
+                .toString();
+    }
+}
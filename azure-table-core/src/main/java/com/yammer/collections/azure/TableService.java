@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
+import com.microsoft.windowsazure.services.table.client.TableOperation;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.microsoft.windowsazure.services.table.client.TableRequestOptions;
+
+import java.util.List;
+
+/**
+ * The requests {@link AzureTableCloudClient} makes of the table service. {@code CloudTableClient} is final, this is where
+ * tests can put something else in its place.
+ */
+interface TableService {
+    AzureEntity execute(String tableName, TableOperation operation, TableRequestOptions requestOptions, OperationContext operationContext)
+            throws StorageException;
+
+    List<AzureEntity> execute(String tableName, TableBatchOperation batch, TableRequestOptions requestOptions, OperationContext operationContext)
+            throws StorageException;
+
+    Iterable<AzureEntity> execute(TableQuery<AzureEntity> query, TableRequestOptions requestOptions, OperationContext operationContext);
+
+    RetryPolicyFactory getRetryPolicyFactory();
+}
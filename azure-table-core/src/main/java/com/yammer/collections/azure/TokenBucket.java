@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Permits requests at a steady rate, allowing bursts of up to a second's worth of permits saved while idle. A permit that is not
+ * available yet is reserved in the future, so that callers wait in turn. Share an instance between the {@link RequestRateLimiter}s
+ * of several tables to limit them together, e.g. to the target of the storage account.
+ */
+public final class TokenBucket {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final double maxPermits;
+    private final double intervalNanos;
+    private final Ticker ticker;
+    private double storedPermits;
+    private long nextFreeNanos;
+
+    public TokenBucket(double permitsPerSecond) {
+        this(permitsPerSecond, Ticker.systemTicker());
+    }
+
+    TokenBucket(double permitsPerSecond, Ticker ticker) {
+        checkArgument(permitsPerSecond > 0, "The rate must be positive");
+        maxPermits = Math.max(permitsPerSecond, 1);
+        intervalNanos = SECOND / permitsPerSecond;
+        this.ticker = checkNotNull(ticker);
+        nextFreeNanos = ticker.read();
+        storedPermits = maxPermits;
+    }
+
+    private void resync(long now) {
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(maxPermits, storedPermits + (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+    }
+
+    /**
+     * Waits until the permits are available, e.g. for the entities of a batch, which count against the targets of the service one by one.
+     */
+    public void acquire(int permits) {
+        Uninterruptibles.sleepUninterruptibly(tryReserve(permits, Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+    }
+
+    long tryReserve(long maxWaitNanos) {
+        return tryReserve(1, maxWaitNanos);
+    }
+
+    /**
+     * Reserves the permits if they are available within the given time.
+     *
+     * @return the time to wait for the permits, or -1 if they are not reserved
+     */
+    long tryReserve(int permits, long maxWaitNanos) {
+        Optional<Reservation> reservation = reserve(permits, maxWaitNanos);
+        return reservation.isPresent() ? reservation.get().waitNanos : -1;
+    }
+
+    /**
+     * Reserves the permits if they are available within the given time, so that the reservation can be {@link #release released}.
+     */
+    synchronized Optional<Reservation> reserve(int permits, long maxWaitNanos) {
+        checkArgument(permits >= 0, "The permits cannot be negative");
+        long now = ticker.read();
+        resync(now);
+        double fromStored = Math.min(permits, storedPermits);
+        long futureNanos = (long) ((permits - fromStored) * intervalNanos);
+        long wait = Math.max(0, nextFreeNanos + futureNanos - now);
+        if (wait > maxWaitNanos) {
+            return Optional.absent();
+        }
+        storedPermits -= fromStored;
+        nextFreeNanos += futureNanos;
+        return Optional.of(new Reservation(wait, fromStored, futureNanos));
+    }
+
+    /**
+     * Undoes the reservation of a request that was not made after all: the permits taken from those stored are stored again, and the
+     * time reserved for the others is given back, so that the callers after it no longer wait for it.
+     */
+    synchronized void release(Reservation reservation) {
+        nextFreeNanos -= reservation.futureNanos;
+        resync(ticker.read());
+        storedPermits = Math.min(maxPermits, storedPermits + reservation.fromStored);
+    }
+
+    static final class Reservation {
+        private final long waitNanos;
+        private final double fromStored;
+        private final long futureNanos;
+
+        private Reservation(long waitNanos, double fromStored, long futureNanos) {
+            this.waitNanos = waitNanos;
+            this.fromStored = fromStored;
+            this.futureNanos = futureNanos;
+        }
+
+        long waitNanos() {
+            return waitNanos;
+        }
+    }
+}
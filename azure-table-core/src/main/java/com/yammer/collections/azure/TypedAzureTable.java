@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.microsoft.windowsazure.services.table.client.CloudTableClient;
+import com.yammer.collections.azure.serialization.Codec;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Table mapping its keys and values to entity properties with the given codecs, without going through {@link Bytes}
+ * and transforming views. The stored format is the same as the one of a {@link BaseAzureTable} decorated with
+ * serialization functions equivalent to the codecs. Keys and values are only encoded if they are instances of the classes given,
+ * other objects are treated as absent, e.g. {@link #get} returns null for them.
+ */
+public class TypedAzureTable<R, C, V> extends AbstractAzureTable<R, C, V> {
+    // internal and test use only
+    TypedAzureTable(String tableName, AzureTableCloudClient azureTableCloudClient, AzureTableRequestFactory azureTableRequestFactory,
+                    Class<R> rowClass, Class<C> columnClass, Class<V> valueClass, Codec<R> rowCodec, Codec<C> columnCodec,
+                    Codec<V> valueCodec, Optional<PropertyExtractor<V>> propertyExtractor) {
+        super(tableName, azureTableCloudClient, azureTableRequestFactory,
+                EntityMapper.usingCodecs(rowClass, columnClass, valueClass, rowCodec, columnCodec, valueCodec, propertyExtractor));
+    }
+
+    public static <R, C, V> TypedAzureTable<R, C, V> create(String tableName, CloudTableClient cloudTableClient,
+                                                            Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                            Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+        return create(tableName, cloudTableClient, TableClientOptions.DEFAULT, rowClass, columnClass, valueClass, rowCodec, columnCodec,
+                valueCodec);
+    }
+
+    public static <R, C, V> TypedAzureTable<R, C, V> create(String tableName, CloudTableClient cloudTableClient, TableClientOptions clientOptions,
+                                                            Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                            Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+        return create(tableName, cloudTableClient, clientOptions, rowClass, columnClass, valueClass, rowCodec, columnCodec, valueCodec,
+                Optional.<PropertyExtractor<V>>absent());
+    }
+
+    /**
+     * Every value put is also stored as the native properties returned by the extractor, which {@link #cellsWhere} and the like can filter on.
+     * Only values written with the extractor in place have the properties.
+     */
+    public static <R, C, V> TypedAzureTable<R, C, V> create(String tableName, CloudTableClient cloudTableClient,
+                                                            Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                            Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec,
+                                                            PropertyExtractor<V> propertyExtractor) {
+        return create(tableName, cloudTableClient, TableClientOptions.DEFAULT, rowClass, columnClass, valueClass, rowCodec, columnCodec,
+                valueCodec, propertyExtractor);
+    }
+
+    public static <R, C, V> TypedAzureTable<R, C, V> create(String tableName, CloudTableClient cloudTableClient, TableClientOptions clientOptions,
+                                                            Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                            Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec,
+                                                            PropertyExtractor<V> propertyExtractor) {
+        return create(tableName, cloudTableClient, clientOptions, rowClass, columnClass, valueClass, rowCodec, columnCodec, valueCodec,
+                Optional.of(propertyExtractor));
+    }
+
+    private static <R, C, V> TypedAzureTable<R, C, V> create(String tableName, CloudTableClient cloudTableClient, TableClientOptions clientOptions,
+                                                             Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                             Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec,
+                                                             Optional<PropertyExtractor<V>> propertyExtractor) {
+        return new TypedAzureTable<>(
+                checkNotNull(tableName),
+                new AzureTableCloudClient(checkNotNull(cloudTableClient), checkNotNull(clientOptions)),
+                new AzureTableRequestFactory(),
+                rowClass, columnClass, valueClass, rowCodec, columnCodec, valueCodec, propertyExtractor
+        );
+    }
+}
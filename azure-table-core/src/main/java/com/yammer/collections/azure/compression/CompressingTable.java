@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.transforming.TransformingTable;
+
+/**
+ * Decorates a table so that its values are transparently compressed. Row and column keys are left untouched.
+ * Compressed values start with a header of two magic bytes, which never start UTF-8 text, and a byte identifying the codec.
+ * Values below the threshold or that do not compress are stored raw, without a header unless they start with the magic bytes
+ * themselves (codec byte 0). Values without a header are read as they are, so compression can be turned on for a table with
+ * existing values, as long as none of them starts with the magic bytes.
+ */
+public final class CompressingTable {
+    private CompressingTable() {
+    }
+
+    public static Table<Bytes, Bytes, Bytes> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                    CompressionCodec codec, int thresholdInBytes) {
+        Function<Bytes, Bytes> identity = Functions.identity();
+        return TransformingTable.create(backingTable,
+                identity, identity,
+                identity, identity,
+                new CompressionFunction(codec, thresholdInBytes), new DecompressionFunction(codec)
+        );
+    }
+}
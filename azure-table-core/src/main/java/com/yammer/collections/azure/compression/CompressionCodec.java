@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.yammer.collections.azure.Bytes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A value compression algorithm. Each codec has an id, which is stored in the first byte of every value it compressed,
+ * so that it can be recognized on read. Id 0 is reserved for values stored uncompressed.
+ */
+public interface CompressionCodec {
+    byte getId();
+
+    void compress(Bytes input, OutputStream output) throws IOException;
+
+    Bytes decompress(Bytes compressed) throws IOException;
+}
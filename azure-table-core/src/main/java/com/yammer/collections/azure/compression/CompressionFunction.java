@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.yammer.collections.azure.Bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public class CompressionFunction implements Function<Bytes, Bytes> {
+    // bytes that never start UTF-8 text, and so neither JSON nor Smile values written before compression was turned on
+    static final Bytes MAGIC = Bytes.of(new byte[]{(byte) 0xC1, (byte) 0xFE});
+    static final byte RAW_ID = 0;
+    private final CompressionCodec codec;
+    private final int thresholdInBytes;
+
+    public CompressionFunction(CompressionCodec codec, int thresholdInBytes) {
+        this.codec = checkNotNull(codec);
+        checkArgument(codec.getId() != RAW_ID, "codec id %s is reserved for raw values", RAW_ID);
+        checkArgument(thresholdInBytes >= 0, "threshold cannot be negative");
+        this.thresholdInBytes = thresholdInBytes;
+    }
+
+    @Override
+    public Bytes apply(Bytes input) {
+        if (input.length() >= thresholdInBytes) {
+            HeaderOutputStream output = new HeaderOutputStream(input.length() / 2, codec.getId());
+            try {
+                codec.compress(input, output);
+            } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+                throw Throwables.propagate(e);
+            }
+            if (output.size() < input.length()) {
+                return output.toBytes();
+            }
+        }
+        return raw(input);
+    }
+
+    // raw values are stored as they are, unless they could be taken for a header
+    private static Bytes raw(Bytes input) {
+        if (!input.startsWith(MAGIC)) {
+            return input;
+        }
+        byte[] raw = new byte[MAGIC.length() + 1 + input.length()];
+        System.arraycopy(MAGIC.getBackingArray(), MAGIC.getOffset(), raw, 0, MAGIC.length());
+        raw[MAGIC.length()] = RAW_ID;
+        System.arraycopy(input.getBackingArray(), input.getOffset(), raw, MAGIC.length() + 1, input.length());
+        return Bytes.of(raw);
+    }
+
+    // exposes the internal buffer so that the result does not need to be copied
+    private static final class HeaderOutputStream extends ByteArrayOutputStream {
+        private HeaderOutputStream(int expectedSize, byte id) {
+            super(expectedSize + MAGIC.length() + 1);
+            write(MAGIC.getBackingArray(), MAGIC.getOffset(), MAGIC.length());
+            write(id);
+        }
+
+        private Bytes toBytes() {
+            return Bytes.of(buf).slice(0, count);
+        }
+    }
+}
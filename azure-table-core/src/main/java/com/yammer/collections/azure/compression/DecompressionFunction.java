@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.yammer.collections.azure.Bytes;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.yammer.collections.azure.compression.CompressionFunction.MAGIC;
+import static com.yammer.collections.azure.compression.CompressionFunction.RAW_ID;
+
+public class DecompressionFunction implements Function<Bytes, Bytes> {
+    private final CompressionCodec codec;
+
+    public DecompressionFunction(CompressionCodec codec) {
+        this.codec = checkNotNull(codec);
+    }
+
+    @Override
+    public Bytes apply(Bytes input) {
+        // values without a header are raw, e.g. the ones written before compression was turned on
+        int headerLength = MAGIC.length() + 1;
+        if (input.length() < headerLength || !input.startsWith(MAGIC)) {
+            return input;
+        }
+        byte id = input.byteAt(MAGIC.length());
+        Bytes payload = input.slice(headerLength, input.length() - headerLength);
+        if (id == RAW_ID) {
+            return payload;
+        }
+        if (id != codec.getId()) {
+            throw new IllegalArgumentException("Value compressed with unknown codec: " + id);
+        }
+        try {
+            return codec.decompress(payload);
+        } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
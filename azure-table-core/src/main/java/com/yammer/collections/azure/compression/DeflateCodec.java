@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.yammer.collections.azure.AbstractAzureTable;
+import com.yammer.collections.azure.Bytes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Deflate (zlib) codec. The compressed form is the uncompressed length as a big-endian int followed by the zlib stream,
+ * which allows decompressing into an exact size array. Deflaters and inflaters are kept per thread, as creating them is expensive.
+ * <p>
+ * Values are at most {@link #MAX_LENGTH} bytes uncompressed, the largest value a table stores, so that a corrupt or hostile length
+ * cannot make decompression allocate more.
+ */
+public class DeflateCodec implements CompressionCodec {
+    public static final byte ID = 1;
+    public static final int MAX_LENGTH = AbstractAzureTable.MAX_VALUE_BYTES;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int LENGTH_SIZE = 4;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+    private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    public DeflateCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public DeflateCodec(final int level) {
+        checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+                "invalid deflate level: %s", level);
+        deflaters = new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                return new Deflater(level);
+            }
+        };
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public void compress(Bytes input, OutputStream output) throws IOException {
+        int length = input.length();
+        checkArgument(length <= MAX_LENGTH, "Value too large, length %s exceeds the limit of %s bytes", length, MAX_LENGTH);
+        output.write(length >>> 24);
+        output.write(length >>> 16);
+        output.write(length >>> 8);
+        output.write(length);
+
+        Deflater deflater = deflaters.get();
+        byte[] buffer = buffers.get();
+        deflater.reset();
+        deflater.setInput(input.getBackingArray(), input.getOffset(), input.length());
+        deflater.finish();
+        while (!deflater.finished()) {
+            int written = deflater.deflate(buffer);
+            output.write(buffer, 0, written);
+        }
+    }
+
+    @Override
+    public Bytes decompress(Bytes compressed) throws IOException {
+        if (compressed.length() < LENGTH_SIZE) {
+            throw new IOException("Truncated deflate value");
+        }
+        int length = (compressed.byteAt(0) & 0xff) << 24
+                | (compressed.byteAt(1) & 0xff) << 16
+                | (compressed.byteAt(2) & 0xff) << 8
+                | compressed.byteAt(3) & 0xff;
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid deflate value length: " + length);
+        }
+
+        byte[] result = new byte[length];
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed.getBackingArray(), compressed.getOffset() + LENGTH_SIZE, compressed.length() - LENGTH_SIZE);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                int read = inflater.inflate(result, inflated, length - inflated);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflate value, expected " + length + " bytes, got " + inflated);
+                }
+                inflated += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        return Bytes.of(result);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.query;
+
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+
+public enum Comparison {
+    EQUAL(TableQuery.QueryComparisons.EQUAL),
+    NOT_EQUAL(TableQuery.QueryComparisons.NOT_EQUAL),
+    GREATER_THAN(TableQuery.QueryComparisons.GREATER_THAN),
+    GREATER_THAN_OR_EQUAL(TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL),
+    LESS_THAN(TableQuery.QueryComparisons.LESS_THAN),
+    LESS_THAN_OR_EQUAL(TableQuery.QueryComparisons.LESS_THAN_OR_EQUAL);
+
+    private final String operator;
+
+    Comparison(String operator) {
+        this.operator = operator;
+    }
+
+    String getOperator() {
+        return operator;
+    }
+}
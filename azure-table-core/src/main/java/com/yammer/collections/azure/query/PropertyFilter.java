@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.query;
+
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A condition on entity properties, evaluated by the table service. Typically used on the native properties written by a
+ * {@link com.yammer.collections.azure.PropertyExtractor}; an entity without the property does not match any condition on it.
+ */
+public final class PropertyFilter {
+    private final String filterString;
+
+    private PropertyFilter(String filterString) {
+        this.filterString = filterString;
+    }
+
+    // the SDK neither escapes quotes nor marks the literal as Int64, so these two are generated here
+    public static PropertyFilter where(String property, Comparison comparison, String value) {
+        return condition(property, comparison, "'" + value.replace("'", "''") + "'");
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, int value) {
+        return new PropertyFilter(TableQuery.generateFilterCondition(checkNotNull(property), comparison.getOperator(), value));
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, long value) {
+        return condition(property, comparison, value + "L");
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, double value) {
+        return new PropertyFilter(TableQuery.generateFilterCondition(checkNotNull(property), comparison.getOperator(), value));
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, boolean value) {
+        return new PropertyFilter(TableQuery.generateFilterCondition(checkNotNull(property), comparison.getOperator(), value));
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, Date value) {
+        return new PropertyFilter(TableQuery.generateFilterCondition(checkNotNull(property), comparison.getOperator(), checkNotNull(value)));
+    }
+
+    public static PropertyFilter where(String property, Comparison comparison, UUID value) {
+        return new PropertyFilter(TableQuery.generateFilterCondition(checkNotNull(property), comparison.getOperator(), checkNotNull(value)));
+    }
+
+    private static PropertyFilter condition(String property, Comparison comparison, String literal) {
+        return new PropertyFilter(checkNotNull(property) + " " + comparison.getOperator() + " " + literal);
+    }
+
+    public PropertyFilter and(PropertyFilter other) {
+        return new PropertyFilter(TableQuery.combineFilters(filterString, TableQuery.Operators.AND, other.filterString));
+    }
+
+    public PropertyFilter or(PropertyFilter other) {
+        return new PropertyFilter(TableQuery.combineFilters(filterString, TableQuery.Operators.OR, other.filterString));
+    }
+
+    public PropertyFilter negate() {
+        return new PropertyFilter(TableQuery.Operators.NOT + " (" + filterString + ")");
+    }
+
+    /**
+     * @return the filter in the OData syntax of the table service
+     */
+    public String getFilterString() {
+        return filterString;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof PropertyFilter && filterString.equals(((PropertyFilter) o).filterString);
+    }
+
+    @Override
+    public int hashCode() {
+        return filterString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return filterString;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.yammer.collections.azure.Bytes;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact codecs for common key types. Numbers are stored big-endian with the sign bit flipped, so that the
+ * unsigned byte order of the encoded values, see {@link Bytes#compareTo(Bytes)}, is their numeric order.
+ * Strings are stored as UTF-8, whose byte order is the code point order.
+ */
+public final class Codecs {
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(Charsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, Charsets.UTF_8);
+        }
+    };
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public byte[] encode(Long value) {
+            byte[] bytes = new byte[Long.SIZE / Byte.SIZE];
+            writeLong(value ^ Long.MIN_VALUE, bytes, 0);
+            return bytes;
+        }
+
+        @Override
+        public Long decode(byte[] bytes, int offset, int length) {
+            checkLength(length, Long.SIZE / Byte.SIZE);
+            return readLong(bytes, offset) ^ Long.MIN_VALUE;
+        }
+    };
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public byte[] encode(Integer value) {
+            int flipped = value ^ Integer.MIN_VALUE;
+            return new byte[]{(byte) (flipped >>> 24), (byte) (flipped >>> 16), (byte) (flipped >>> 8), (byte) flipped};
+        }
+
+        @Override
+        public Integer decode(byte[] bytes, int offset, int length) {
+            checkLength(length, Integer.SIZE / Byte.SIZE);
+            int flipped = (bytes[offset] & 0xff) << 24
+                    | (bytes[offset + 1] & 0xff) << 16
+                    | (bytes[offset + 2] & 0xff) << 8
+                    | bytes[offset + 3] & 0xff;
+            return flipped ^ Integer.MIN_VALUE;
+        }
+    };
+    /**
+     * Most significant bits first. The encoded order is not the one of {@link UUID#compareTo(UUID)}, which compares signed longs.
+     */
+    public static final Codec<UUID> UUID_CODEC = new Codec<UUID>() {
+        private static final int UUID_LENGTH = 2 * Long.SIZE / Byte.SIZE;
+
+        @Override
+        public byte[] encode(UUID value) {
+            byte[] bytes = new byte[UUID_LENGTH];
+            writeLong(value.getMostSignificantBits(), bytes, 0);
+            writeLong(value.getLeastSignificantBits(), bytes, Long.SIZE / Byte.SIZE);
+            return bytes;
+        }
+
+        @Override
+        public UUID decode(byte[] bytes, int offset, int length) {
+            checkLength(length, UUID_LENGTH);
+            return new UUID(readLong(bytes, offset), readLong(bytes, offset + Long.SIZE / Byte.SIZE));
+        }
+    };
+    /**
+     * Encoding returns the given array itself, it must not be modified afterwards.
+     */
+    public static final Codec<byte[]> BYTE_ARRAY = new Codec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes, int offset, int length) {
+            return Arrays.copyOfRange(bytes, offset, offset + length);
+        }
+    };
+    /**
+     * Encoding returns the backing array itself unless the bytes are a slice of it, it must not be modified afterwards.
+     */
+    public static final Codec<Bytes> BYTES = new Codec<Bytes>() {
+        @Override
+        public byte[] encode(Bytes value) {
+            return value.getBytes();
+        }
+
+        @Override
+        public Bytes decode(byte[] bytes, int offset, int length) {
+            return new Bytes(Arrays.copyOfRange(bytes, offset, offset + length));
+        }
+    };
+    private static final Map<Class<?>, Codec<?>> CODECS_BY_CLASS = ImmutableMap.<Class<?>, Codec<?>>builder()
+            .put(String.class, STRING)
+            .put(Long.class, LONG)
+            .put(Integer.class, INTEGER)
+            .put(UUID.class, UUID_CODEC)
+            .put(byte[].class, BYTE_ARRAY)
+            .put(Bytes.class, BYTES)
+            .build();
+
+    private Codecs() {
+    }
+
+    /**
+     * @return the built-in codec for the class, if there is one
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Optional<Codec<T>> forClass(Class<T> clazz) {
+        return Optional.fromNullable((Codec<T>) CODECS_BY_CLASS.get(clazz));
+    }
+
+    public static <T> Function<T, Bytes> serializationFunction(final Codec<T> codec) {
+        checkNotNull(codec);
+        return new Function<T, Bytes>() {
+            @Override
+            public Bytes apply(T input) {
+                return new Bytes(codec.encode(input));
+            }
+        };
+    }
+
+    public static <T> Function<Bytes, T> deserializationFunction(final Codec<T> codec) {
+        checkNotNull(codec);
+        return new Function<Bytes, T>() {
+            @Override
+            public T apply(Bytes input) {
+                return codec.decode(input.getBackingArray(), input.getOffset(), input.length());
+            }
+        };
+    }
+
+    private static void checkLength(int length, int expectedLength) {
+        checkArgument(length == expectedLength, "Expected %s bytes, got %s", expectedLength, length);
+    }
+
+    private static void writeLong(long value, byte[] bytes, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | bytes[offset + i] & 0xff;
+        }
+        return value;
+    }
+}
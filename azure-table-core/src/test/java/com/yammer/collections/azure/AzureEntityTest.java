@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+public class AzureEntityTest {
+    private static final String ROW = "row";
+    private static final String COLUMN = "column";
+    private static final String SMALL_VALUE = "c21hbGw=";
+    private static final int LARGE_VALUE_SIZE = 100 * 1024;
+
+    @Test
+    public void small_value_written_as_single_property() throws StorageException {
+        HashMap<String, EntityProperty> properties = new AzureEntity(ROW, COLUMN, SMALL_VALUE).writeEntity(null);
+
+        assertThat(properties.size(), is(equalTo(1)));
+        assertThat(properties.get(AzureEntity.VALUE).getValueAsString(), is(equalTo(SMALL_VALUE)));
+    }
+
+    @Test
+    public void large_value_written_in_chunks() throws StorageException {
+        String value = Strings.repeat("A", AzureEntity.MAX_CHUNK_LENGTH * 2 + 4);
+
+        HashMap<String, EntityProperty> properties = new AzureEntity(ROW, COLUMN, value).writeEntity(null);
+
+        assertThat(properties.get(AzureEntity.VALUE_CHUNKS).getValueAsInteger(), is(equalTo(3)));
+        assertThat(properties.get(AzureEntity.VALUE).getValueAsString().length(), is(equalTo(AzureEntity.MAX_CHUNK_LENGTH)));
+        assertThat(properties.get("Value2").getValueAsString().length(), is(equalTo(4)));
+        assertThat(properties, not(hasKey("Value3")));
+    }
+
+    @Test
+    public void chunked_value_read_back() throws StorageException {
+        String value = Base64Codec.encode(randomBytes(LARGE_VALUE_SIZE));
+
+        AzureEntity read = roundTrip(new AzureEntity(ROW, COLUMN, value));
+
+        assertThat(read.getValue(), is(equalTo(value)));
+    }
+
+    @Test
+    public void chunked_value_decoded_without_joining() throws StorageException {
+        byte[] bytes = randomBytes(LARGE_VALUE_SIZE);
+
+        AzureEntity read = roundTrip(new AzureEntity(ROW, COLUMN, Base64Codec.encode(bytes)));
+
+        assertThat(AzureEntityUtil.decodeValue(read), is(equalTo(new Bytes(bytes))));
+    }
+
+    @Test
+    public void chunked_value_streamed() throws StorageException, IOException {
+        byte[] bytes = randomBytes(LARGE_VALUE_SIZE);
+        AzureEntity read = roundTrip(new AzureEntity(ROW, COLUMN, Base64Codec.encode(bytes)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        AzureEntityUtil.writeValue(read, output);
+
+        assertThat(output.toByteArray(), is(equalTo(bytes)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missing_chunk_detected() throws StorageException {
+        HashMap<String, EntityProperty> properties = new HashMap<>();
+        properties.put(AzureEntity.VALUE, new EntityProperty(SMALL_VALUE));
+        properties.put(AzureEntity.VALUE_CHUNKS, new EntityProperty(2));
+
+        new AzureEntity().readEntity(properties, null);
+    }
+
+    private static AzureEntity roundTrip(AzureEntity entity) throws StorageException {
+        AzureEntity read = new AzureEntity();
+        read.readEntity(entity.writeEntity(null), null);
+        return read;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void native_properties_written_alongside_value() throws StorageException {
+        HashMap<String, EntityProperty> properties = new AzureEntity(ROW, COLUMN, SMALL_VALUE,
+                ImmutableMap.of("age", new EntityProperty(42))).writeEntity(null);
+
+        assertThat(properties.get("age").getValueAsInteger(), is(equalTo(42)));
+        assertThat(properties.get(AzureEntity.VALUE).getValueAsString(), is(equalTo(SMALL_VALUE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void native_properties_cannot_use_value_chunk_names() {
+        new AzureEntity(ROW, COLUMN, SMALL_VALUE, ImmutableMap.of("Value3", new EntityProperty(42)));
+    }
+}
@@ -95,7 +95,7 @@ public final class AzureTestUtil {
             Table.Cell<Bytes, Bytes, Bytes> cell) throws StorageException {
         TableOperation retriveTableOperationMock = mock(TableOperation.class);
         when(azureTableRequestFactoryMock.retrieve(encode(cell.getRowKey()), encode(cell.getColumnKey()))).thenReturn(retriveTableOperationMock);
-        when(azureTableCloudClientMock.execute(tableName, retriveTableOperationMock)).thenReturn(encodedEntity(cell));
+        when(azureTableCloudClientMock.execute(tableName, encode(cell.getRowKey()), retriveTableOperationMock)).thenReturn(encodedEntity(cell));
     }
 
     @SafeVarargs
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.utils.Base64;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class Base64CodecTest {
+    private static final int MAX_TESTED_LENGTH = 300;
+    private static final String ENCODED = "YXp1cmUtdGFibGU=";
+    private static final byte[] DECODED = "azure-table".getBytes();
+
+    @Test
+    public void encodes_like_the_sdk_for_all_remainders() {
+        Random random = new Random(1L);
+        for (int length = 0; length < MAX_TESTED_LENGTH; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+
+            assertThat(Base64Codec.encode(bytes), is(equalTo(Base64.encode(bytes))));
+        }
+    }
+
+    @Test
+    public void decodes_like_the_sdk_for_all_remainders() {
+        Random random = new Random(2L);
+        for (int length = 0; length < MAX_TESTED_LENGTH; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = Base64.encode(bytes);
+
+            assertThat(Base64Codec.decode(encoded), is(equalTo(bytes)));
+        }
+    }
+
+    @Test
+    public void encodes_a_region_of_an_array() {
+        byte[] padded = new byte[DECODED.length + 4];
+        System.arraycopy(DECODED, 0, padded, 2, DECODED.length);
+
+        assertThat(Base64Codec.encode(padded, 2, DECODED.length), is(equalTo(ENCODED)));
+    }
+
+    @Test
+    public void encodes_values_larger_than_the_retained_buffer() {
+        byte[] bytes = new byte[200 * 1024];
+        new Random(3L).nextBytes(bytes);
+
+        assertThat(Base64Codec.encode(bytes), is(equalTo(Base64.encode(bytes))));
+    }
+
+    @Test
+    public void decodes_into_target_at_offset() {
+        byte[] target = new byte[DECODED.length + 3];
+
+        int written = Base64Codec.decodeInto(ENCODED, target, 3);
+
+        assertThat(written, is(equalTo(DECODED.length)));
+        assertThat(new String(target, 3, written), is(equalTo("azure-table")));
+    }
+
+    @Test
+    public void decoded_length_accounts_for_padding() {
+        assertThat(Base64Codec.decodedLength(ENCODED), is(equalTo(DECODED.length)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_length_rejected() {
+        Base64Codec.decode("YXp");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_character_rejected() {
+        Base64Codec.decode("YX!1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_ascii_character_rejected() {
+        Base64Codec.decode("YXé1");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void too_small_target_rejected() {
+        Base64Codec.decodeInto(ENCODED, new byte[DECODED.length - 1], 0);
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -150,7 +151,7 @@ public class BaseAzureTableTest {
 
         baseAzureTable.put(ROW_KEY_2, COLUMN_KEY_2, VALUE_2);
 
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, putTableOperationMock);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_2), putTableOperationMock);
     }
 
     @Test(expected = NullPointerException.class)
@@ -171,7 +172,7 @@ public class BaseAzureTableTest {
     @Test(expected = RuntimeException.class)
     public void when_table_client_throws_storage_exception_during_put_then_exception_rethrown() throws StorageException {
         TableOperation putTableOperationMock = mockPutTableOperation(CELL_1);
-        setupThrowStorageExceptionOnTableOperation(putTableOperationMock);
+        setupThrowStorageExceptionOnTableOperation(ROW_KEY_1, putTableOperationMock);
 
         baseAzureTable.put(ROW_KEY_1, COLUMN_KEY_1, VALUE_1);
     }
@@ -183,7 +184,7 @@ public class BaseAzureTableTest {
 
         baseAzureTable.remove(ROW_KEY_1, COLUMN_KEY_1);
 
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, deleteTableOperationMock);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_1), deleteTableOperationMock);
     }
 
     @Test
@@ -205,7 +206,7 @@ public class BaseAzureTableTest {
     public void when_table_client_throws_storage_exception_during_delete_then_exception_rethrown() throws StorageException {
         setAzureTableToContain(CELL_1);
         TableOperation deleteTableOperationMock = mockDeleteTableOperation(CELL_1);
-        setupThrowStorageExceptionOnTableOperation(deleteTableOperationMock);
+        setupThrowStorageExceptionOnTableOperation(ROW_KEY_1, deleteTableOperationMock);
 
         baseAzureTable.remove(ROW_KEY_1, COLUMN_KEY_1);
     }
@@ -344,8 +345,8 @@ public class BaseAzureTableTest {
 
         baseAzureTable.clear();
 
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, deleteTableOperationMock1);
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, deleteTableOperationMock2);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_1), deleteTableOperationMock1);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_2), deleteTableOperationMock2);
     }
 
     @Test
@@ -358,8 +359,8 @@ public class BaseAzureTableTest {
 
         baseAzureTable.putAll(sourceTable);
 
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, putTableOperationMock1);
-        verify(azureTableCloudClientMock).execute(TABLE_NAME, putTableOperationMock2);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_1), putTableOperationMock1);
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, encode(ROW_KEY_2), putTableOperationMock2);
     }
 
     @Test(expected = NullPointerException.class)
@@ -420,6 +421,29 @@ public class BaseAzureTableTest {
         assertThat(rowKey2Map.get(COLUMN_KEY_2), is(equalTo(VALUE_2)));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void when_put_value_larger_than_entity_limit_then_error() {
+        baseAzureTable.put(ROW_KEY_1, COLUMN_KEY_1, new Bytes(new byte[AzureEntity.MAX_CHUNKS * AzureEntity.MAX_CHUNK_LENGTH]));
+    }
+
+    @Test
+    public void writeValueTo_writes_existing_value() throws IOException, StorageException {
+        setAzureTableToContain(CELL_1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThat(baseAzureTable.writeValueTo(ROW_KEY_1, COLUMN_KEY_1, output), is(equalTo(true)));
+        assertThat(new Bytes(output.toByteArray()), is(equalTo(VALUE_1)));
+    }
+
+    @Test
+    public void writeValueTo_of_non_existing_entry_returns_false() throws IOException, StorageException {
+        setAzureTableToContain(CELL_1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThat(baseAzureTable.writeValueTo(ROW_KEY_2, COLUMN_KEY_2, output), is(equalTo(false)));
+        assertThat(output.size(), is(equalTo(0)));
+    }
+
     //
     // Utility methods
     //
@@ -449,7 +473,7 @@ public class BaseAzureTableTest {
     private void setToThrowStorageExceptionOnRetrievalOf(Table.Cell<Bytes, Bytes, Bytes> cell) throws StorageException {
         TableOperation retriveTableOperationMock = mock(TableOperation.class);
         when(azureTableRequestFactoryMock.retrieve(encode(cell.getRowKey()), encode(cell.getColumnKey()))).thenReturn(retriveTableOperationMock);
-        setupThrowStorageExceptionOnTableOperation(retriveTableOperationMock);
+        setupThrowStorageExceptionOnTableOperation(cell.getRowKey(), retriveTableOperationMock);
     }
 
     private TableOperation mockPutTableOperation(Table.Cell<Bytes, Bytes, Bytes> cell) {
@@ -458,14 +482,14 @@ public class BaseAzureTableTest {
         return putTableOperationMock;
     }
 
-    private void setupThrowStorageExceptionOnTableOperation(TableOperation tableOperationMock) throws StorageException {
+    private void setupThrowStorageExceptionOnTableOperation(Bytes row, TableOperation tableOperationMock) throws StorageException {
         StorageException storageExceptionMock = mock(StorageException.class);
-        when(azureTableCloudClientMock.execute(TABLE_NAME, tableOperationMock)).thenThrow(storageExceptionMock);
+        when(azureTableCloudClientMock.execute(TABLE_NAME, encode(row), tableOperationMock)).thenThrow(storageExceptionMock);
     }
 
     private TableOperation mockDeleteTableOperation(Table.Cell<Bytes, Bytes, Bytes> cell) throws StorageException {
         TableOperation retrieveOperation = azureTableRequestFactoryMock.retrieve(encode(cell.getRowKey()), encode(cell.getColumnKey()));
-        AzureEntity result = azureTableCloudClientMock.execute(TABLE_NAME, retrieveOperation);
+        AzureEntity result = azureTableCloudClientMock.execute(TABLE_NAME, encode(cell.getRowKey()), retrieveOperation);
         TableOperation deleteTableOperationMock = mock(TableOperation.class);
         when(azureTableRequestFactoryMock.delete(result)).thenReturn(deleteTableOperationMock);
         return deleteTableOperationMock;
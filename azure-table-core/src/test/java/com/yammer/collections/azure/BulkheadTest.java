@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+
+@SuppressWarnings("InstanceVariableMayNotBeInitialized")
+@RunWith(MockitoJUnitRunner.class)
+public class BulkheadTest {
+    private static final String TABLE_NAME = "table";
+    private static final Optional<Deadline> NO_DEADLINE = Optional.absent();
+    @Mock
+    private BulkheadListener listenerMock;
+
+    @Test
+    public void compartments_are_limited_separately() {
+        Bulkhead bulkhead = Bulkhead.builder()
+                .withMaxConcurrent(Bulkhead.Compartment.SCAN, 1)
+                .waitingAtMost(0, TimeUnit.SECONDS)
+                .withListener(listenerMock)
+                .build();
+
+        assertThat(bulkhead.acquire(Bulkhead.Compartment.SCAN, TABLE_NAME, NO_DEADLINE), is(true));
+        try {
+            bulkhead.acquire(Bulkhead.Compartment.SCAN, TABLE_NAME, NO_DEADLINE);
+            fail("The scan compartment should be full");
+        } catch (BulkheadFullException expected) {
+            verify(listenerMock).rejected(eq(Bulkhead.Compartment.SCAN), anyLong());
+        }
+        assertThat(bulkhead.acquire(Bulkhead.Compartment.POINT, TABLE_NAME, NO_DEADLINE), is(false));
+        assertThat(bulkhead.getAvailablePermits(Bulkhead.Compartment.POINT), is(equalTo(-1)));
+
+        bulkhead.release(Bulkhead.Compartment.SCAN);
+        assertThat(bulkhead.getAvailablePermits(Bulkhead.Compartment.SCAN), is(equalTo(1)));
+    }
+
+    @Test
+    public void iteration_holds_a_permit_only_while_advancing() {
+        Bulkhead bulkhead = Bulkhead.builder().withMaxConcurrent(Bulkhead.Compartment.PARTITION, 1).withListener(listenerMock).build();
+
+        Iterator<String> iterator = bulkhead.guard(ImmutableList.of("a", "b").iterator(), Bulkhead.Compartment.PARTITION, TABLE_NAME,
+                NO_DEADLINE);
+
+        assertThat(iterator.next(), is(equalTo("a")));
+        assertThat(bulkhead.getAvailablePermits(Bulkhead.Compartment.PARTITION), is(equalTo(1)));
+        verify(listenerMock).admitted(Bulkhead.Compartment.PARTITION, 0);
+    }
+
+    @Test
+    public void queries_of_a_single_partition_are_not_scans() {
+        TableQuery<AzureEntity> query = TableQuery.from(TABLE_NAME, AzureEntity.class);
+
+        assertThat(Bulkhead.compartment(query), is(equalTo(Bulkhead.Compartment.SCAN)));
+        assertThat(Bulkhead.compartment(query.where("PartitionKey eq 'cm93'")), is(equalTo(Bulkhead.Compartment.PARTITION)));
+        assertThat(Bulkhead.compartment(query.where("RowKey eq 'Y29s'")), is(equalTo(Bulkhead.Compartment.SCAN)));
+    }
+}
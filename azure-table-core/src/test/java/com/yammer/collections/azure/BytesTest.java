@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class BytesTest {
+    private static final byte[] ARRAY = "prefix-key-suffix".getBytes();
+    private static final Bytes WHOLE = Bytes.of(ARRAY);
+    private static final Bytes KEY = Bytes.of("key".getBytes());
+    private static final Bytes PREFIX = Bytes.of("prefix".getBytes());
+
+    @Test
+    public void hash_code_is_the_array_hash_code() {
+        assertThat(WHOLE.hashCode(), is(equalTo(Arrays.hashCode(ARRAY))));
+    }
+
+    @Test
+    public void slice_equals_and_hashes_like_copy_of_region() {
+        Bytes slice = WHOLE.slice(7, 3);
+
+        assertThat(slice, is(equalTo(KEY)));
+        assertThat(KEY, is(equalTo(slice)));
+        assertThat(slice.hashCode(), is(equalTo(KEY.hashCode())));
+    }
+
+    @Test
+    public void get_bytes_of_slice_returns_region_only() {
+        assertThat(WHOLE.slice(7, 3).getBytes(), is(equalTo("key".getBytes())));
+    }
+
+    @Test
+    public void get_bytes_of_whole_array_does_not_copy() {
+        assertThat(WHOLE.getBytes(), is(sameInstance(ARRAY)));
+    }
+
+    @Test
+    public void slice_of_slice_is_relative() {
+        assertThat(WHOLE.slice(7, 10).slice(0, 3), is(equalTo(KEY)));
+    }
+
+    @Test
+    public void full_slice_returns_same_instance() {
+        assertThat(WHOLE.slice(0, ARRAY.length), is(sameInstance(WHOLE)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void slice_out_of_bounds_rejected() {
+        WHOLE.slice(10, ARRAY.length);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void byte_at_outside_slice_rejected() {
+        WHOLE.slice(7, 3).byteAt(3);
+    }
+
+    @Test
+    public void starts_with_prefix() {
+        assertThat(WHOLE.startsWith(PREFIX), is(true));
+        assertThat(WHOLE.slice(7, 3).startsWith(PREFIX), is(false));
+        assertThat(PREFIX.startsWith(WHOLE), is(false));
+    }
+
+    @Test
+    public void ordering_is_unsigned() {
+        Bytes low = Bytes.of(new byte[]{0x7f});
+        Bytes high = Bytes.of(new byte[]{(byte) 0x80});
+
+        assertThat(low.compareTo(high), is(lessThan(0)));
+        assertThat(high.compareTo(low), is(greaterThan(0)));
+    }
+
+    @Test
+    public void shorter_prefix_orders_first() {
+        assertThat(PREFIX.compareTo(WHOLE), is(lessThan(0)));
+        assertThat(WHOLE.compareTo(WHOLE.slice(0, ARRAY.length - 1)), is(greaterThan(0)));
+        assertThat(WHOLE.compareTo(Bytes.of(ARRAY.clone())), is(equalTo(0)));
+    }
+
+    @Test
+    public void different_lengths_are_not_equal() {
+        assertThat(WHOLE, is(not(equalTo(PREFIX))));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_array_rejected() {
+        new Bytes(null);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.yammer.collections.azure.serialization.Codecs;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings({"InstanceVariableMayNotBeInitialized", "unchecked"})
+@RunWith(MockitoJUnitRunner.class)
+public class CellQueryTest {
+    private static final String TABLE_NAME = "query_table";
+    private static final String VALUE = "value";
+    @Mock
+    private AzureTableCloudClient azureTableCloudClientMock;
+    private TypedAzureTable<String, Long, String> typedAzureTable;
+
+    private static Bytes string(String string) {
+        return new Bytes(string.getBytes(Charsets.UTF_8));
+    }
+
+    private static Bytes number(Long number) {
+        return new Bytes(Codecs.LONG.encode(number));
+    }
+
+    private void setTableToReturn(Table.Cell<String, Long, String>... cells) {
+        List<AzureEntity> entities = new ArrayList<>();
+        for (Table.Cell<String, Long, String> cell : cells) {
+            entities.add(AzureTestUtil.encodedEntity(
+                    Tables.immutableCell(string(cell.getRowKey()), number(cell.getColumnKey()), string(cell.getValue()))));
+        }
+        when(azureTableCloudClientMock.execute(any(TableQuery.class))).thenReturn(entities);
+    }
+
+    private TableQuery<AzureEntity> executedQuery() {
+        ArgumentCaptor<TableQuery> queryCaptor = ArgumentCaptor.forClass(TableQuery.class);
+        verify(azureTableCloudClientMock).execute(queryCaptor.capture());
+        return queryCaptor.getValue();
+    }
+
+    @Before
+    public void setUp() {
+        typedAzureTable = new TypedAzureTable<>(TABLE_NAME, azureTableCloudClientMock, new AzureTableRequestFactory(),
+                String.class, Long.class, String.class, Codecs.STRING, Codecs.LONG, Codecs.STRING, Optional.<PropertyExtractor<String>>absent());
+    }
+
+    @Test
+    public void aligned_row_prefix_is_evaluated_by_the_service() {
+        Table.Cell<String, Long, String> cell = Tables.immutableCell("abc_1", 1L, VALUE);
+        setTableToReturn(cell);
+
+        assertThat(typedAzureTable.query().rowsWithPrefix("abc").cells(), contains(cell));
+        assertThat(executedQuery().getFilterString(), is(equalTo("(PartitionKey ge 'YWJj') and (PartitionKey lt 'YWJk')")));
+    }
+
+    @Test
+    public void rest_of_unaligned_row_prefix_is_checked_on_the_client() {
+        Table.Cell<String, Long, String> matching = Tables.immutableCell("abcd", 1L, VALUE);
+        setTableToReturn(matching, Tables.immutableCell("abcx", 1L, VALUE));
+
+        assertThat(typedAzureTable.query().rowsWithPrefix("abcd").cells(), contains(matching));
+        assertThat(executedQuery().getFilterString(), is(equalTo("(PartitionKey ge 'YWJj') and (PartitionKey lt 'YWJk')")));
+    }
+
+    @Test
+    public void column_range_is_pushed_down_as_common_prefix_and_checked_on_the_client() {
+        setTableToReturn(
+                Tables.immutableCell("row", 0L, VALUE),
+                Tables.immutableCell("row", 1L, VALUE),
+                Tables.immutableCell("row", 4L, VALUE),
+                Tables.immutableCell("row", 5L, VALUE));
+
+        assertThat(typedAzureTable.query().columnsBetween(1L, 5L).columnKeys(), contains(1L, 4L));
+        String commonPrefix = Base64Codec.encode(Codecs.LONG.encode(1L), 0, 6);
+        assertThat(executedQuery().getFilterString(), is(equalTo(
+                AzureTableRequestFactory.generateKeyPrefixFilter("RowKey", commonPrefix))));
+    }
+
+    @Test
+    public void key_projection_fetches_only_keys_and_takes_at_most_the_limit() {
+        setTableToReturn(
+                Tables.immutableCell("row", 1L, VALUE),
+                Tables.immutableCell("row", 2L, VALUE),
+                Tables.immutableCell("row", 3L, VALUE));
+
+        assertThat(typedAzureTable.query().inRow("row").valueNotEqualTo("other").take(2).columnKeys(), contains(1L, 2L));
+        TableQuery<AzureEntity> query = executedQuery();
+        assertThat(query.getFilterString(), is(equalTo("(PartitionKey eq 'cm93') and ((Value ne 'b3RoZXI=') or (ValueChunks gt 0))")));
+        assertThat(query.getColumns(), is(equalTo(new String[]{"PartitionKey", "RowKey"})));
+        assertThat(query.getTakeCount(), is(equalTo(2)));
+    }
+
+    @Test
+    public void value_of_a_whole_chunk_is_checked_on_the_client() {
+        String chunk = Strings.repeat("v", AzureEntity.MAX_CHUNK_LENGTH / 4 * 3);
+        Table.Cell<String, Long, String> matching = Tables.immutableCell("row", 1L, chunk);
+        setTableToReturn(matching, Tables.immutableCell("row", 2L, chunk + "more"));
+
+        assertThat(typedAzureTable.query().valueEqualTo(chunk).cells(), contains(matching));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void second_row_constraint_rejected() {
+        typedAzureTable.query().inRow("row").rowsWithPrefix("r");
+    }
+}
@@ -53,12 +53,13 @@ public class CellSetMutableViewTest {
     private AzureTableCloudClient azureTableCloudClientMock;
     @Mock
     private AzureTableRequestFactory azureTableRequestFactoryMock;
-    private CellSetMutableView set;
+    private CellSetMutableView<Bytes, Bytes, Bytes> set;
 
     @Before
     public void setUp() {
         when(baseAzureTable.getTableName()).thenReturn(TABLE_NAME);
-        set = new CellSetMutableView(baseAzureTable, azureTableCloudClientMock, azureTableRequestFactoryMock);
+        when(baseAzureTable.getEntityMapper()).thenReturn(EntityMapper.BYTES);
+        set = new CellSetMutableView<>(baseAzureTable, azureTableCloudClientMock, azureTableRequestFactoryMock);
     }
 
     @Test
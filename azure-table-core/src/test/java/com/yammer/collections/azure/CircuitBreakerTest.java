@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Ticker;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CircuitBreakerTest {
+    private static final String TABLE_NAME = "table";
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private ManualTicker ticker;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        ticker = new ManualTicker();
+        breaker = new CircuitBreaker(0.5, 4, 10 * SECOND, SECOND, ticker);
+    }
+
+    private static StorageException storageException(int statusCode) {
+        return new StorageException("error", "message", statusCode, null, null);
+    }
+
+    @Test
+    public void opens_once_failure_rate_crosses_threshold_with_enough_operations() {
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.CLOSED)));
+
+        breaker.recordFailure();
+
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.OPEN)));
+    }
+
+    @Test(expected = CircuitBreakerOpenException.class)
+    public void open_breaker_fails_fast() {
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+
+        breaker.acquire(TABLE_NAME);
+    }
+
+    @Test
+    public void trial_operation_after_open_interval_closes_breaker_on_success() {
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        ticker.advance(SECOND);
+
+        breaker.acquire(TABLE_NAME);
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.HALF_OPEN)));
+        breaker.recordSuccess();
+
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.CLOSED)));
+    }
+
+    @Test
+    public void failures_of_old_windows_are_forgotten() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        ticker.advance(10 * SECOND);
+
+        breaker.recordFailure();
+
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.CLOSED)));
+    }
+
+    @Test
+    public void client_errors_are_not_failures() {
+        assertThat(CircuitBreaker.isFailure(storageException(404)), is(false));
+        assertThat(CircuitBreaker.isFailure(storageException(503)), is(true));
+        assertThat(CircuitBreaker.isFailure(new RuntimeException(storageException(412))), is(false));
+        assertThat(CircuitBreaker.isFailure(new IllegalStateException()), is(true));
+    }
+
+    @Test
+    public void client_side_rejections_are_not_counted() {
+        StorageException translatedRejection = new StorageException("Client error", "message", 306, null,
+                new RateLimitExceededException("rate limit exceeded"));
+        breaker.recordSuccess();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.record(new RateLimitExceededException("rate limit exceeded"));
+            breaker.record(new DeadlineExceededException("deadline exceeded"));
+            breaker.record(translatedRejection);
+        }
+
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.CLOSED)));
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertThat(breaker.getState(), is(equalTo(CircuitBreaker.State.CLOSED)));
+    }
+
+    private static final class ManualTicker extends Ticker {
+        private long nanos;
+
+        void advance(long nanosToAdvance) {
+            nanos += nanosToAdvance;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
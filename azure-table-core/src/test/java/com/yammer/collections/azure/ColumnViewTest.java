@@ -65,12 +65,13 @@ public class ColumnViewTest {
     private AzureTableRequestFactory azureTableRequestFactoryMock;
     @Mock
     private BaseAzureTable baseAzureTable;
-    private ColumnView columnView;
+    private ColumnView<Bytes, Bytes, Bytes> columnView;
 
     @Before
     public void setUp() {
         when(baseAzureTable.getTableName()).thenReturn(TABLE_NAME);
-        columnView = new ColumnView(baseAzureTable, ROW_KEY, azureTableCloudClientMock, azureTableRequestFactoryMock);
+        when(baseAzureTable.getEntityMapper()).thenReturn(EntityMapper.BYTES);
+        columnView = new ColumnView<>(baseAzureTable, ROW_KEY, azureTableCloudClientMock, azureTableRequestFactoryMock);
     }
 
     @Test
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DeadlineTest {
+    private static final String TABLE_NAME = "table";
+
+    private static RetryPolicyFactory backingOff(final int backOffInMs) {
+        return new RetryPolicyFactory() {
+            @Override
+            public RetryPolicy createInstance(OperationContext opContext) {
+                return new RetryPolicy() {
+                    @Override
+                    public RetryResult shouldRetry(int currentRetryCount, int statusCode, Exception lastException, OperationContext opContext) {
+                        return new RetryResult(backOffInMs, true);
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void earlier_deadline_applies_within_its_scope() {
+        Deadline later = Deadline.after(1, TimeUnit.MINUTES);
+        Deadline earlier = Deadline.after(1, TimeUnit.SECONDS);
+
+        try (Deadline.Scope outer = earlier.enter()) {
+            try (Deadline.Scope inner = later.enter()) {
+                assertThat(Deadline.current().get(), is(sameInstance(earlier)));
+            }
+            assertThat(Deadline.current().get(), is(sameInstance(earlier)));
+        }
+
+        assertThat(Deadline.current(), is(equalTo(Optional.<Deadline>absent())));
+    }
+
+    @Test
+    public void default_timeout_applies_when_earlier_than_the_current_deadline() {
+        try (Deadline.Scope scope = Deadline.after(1, TimeUnit.MINUTES).enter()) {
+            Deadline deadline = Deadline.current(Optional.of(TimeUnit.SECONDS.toNanos(1))).get();
+
+            assertThat(deadline.timeRemaining(TimeUnit.SECONDS) <= 1, is(true));
+        }
+        assertThat(Deadline.current(Optional.<Long>absent()), is(equalTo(Optional.<Deadline>absent())));
+    }
+
+    @Test
+    public void retries_are_made_within_the_deadline() {
+        RetryPolicy policy = Deadline.after(1, TimeUnit.MINUTES).limit(backingOff(10), TABLE_NAME).createInstance(new OperationContext());
+
+        assertThat(policy.shouldRetry(0, 503, null, new OperationContext()).isShouldRetry(), is(true));
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void retry_backing_off_past_the_deadline_fails_the_operation() {
+        RetryPolicy policy = Deadline.after(1, TimeUnit.SECONDS).limit(backingOff(1000), TABLE_NAME).createInstance(new OperationContext());
+
+        policy.shouldRetry(0, 503, null, new OperationContext());
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void expired_deadline_fails_the_check() {
+        Deadline deadline = Deadline.after(0, TimeUnit.MILLISECONDS);
+
+        assertThat(deadline.isExpired(), is(true));
+        deadline.checkRemainingMillis(TABLE_NAME);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ExponentialJitterRetryPolicyTest {
+    private final ExponentialJitterRetryPolicy policy = new ExponentialJitterRetryPolicy(100, 1000, 5);
+
+    private RetryResult shouldRetry(int retryCount, int statusCode) {
+        return policy.createInstance(new OperationContext()).shouldRetry(retryCount, statusCode, null, new OperationContext());
+    }
+
+    @Test
+    public void backoff_grows_exponentially_up_to_the_maximum() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(shouldRetry(0, 503).getBackOffIntervalInMs(), is(lessThanOrEqualTo(100)));
+            assertThat(shouldRetry(2, 503).getBackOffIntervalInMs(), is(lessThanOrEqualTo(400)));
+            assertThat(shouldRetry(4, 503).getBackOffIntervalInMs(), is(lessThanOrEqualTo(1000)));
+        }
+    }
+
+    @Test
+    public void retries_server_errors_and_timeouts_only() {
+        assertThat(shouldRetry(0, 500).isShouldRetry(), is(true));
+        assertThat(shouldRetry(0, 408).isShouldRetry(), is(true));
+        assertThat(shouldRetry(0, 404).isShouldRetry(), is(false));
+        assertThat(shouldRetry(0, 501).isShouldRetry(), is(false));
+    }
+
+    @Test
+    public void stops_after_maximum_attempts() {
+        assertThat(shouldRetry(4, 503).isShouldRetry(), is(true));
+        assertThat(shouldRetry(5, 503).isShouldRetry(), is(false));
+    }
+}
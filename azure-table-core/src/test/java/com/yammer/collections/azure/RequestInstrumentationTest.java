@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RequestResult;
+import com.microsoft.windowsazure.services.core.storage.ResponseReceivedEvent;
+import com.microsoft.windowsazure.services.core.storage.SendingRequestEvent;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("InstanceVariableMayNotBeInitialized")
+@RunWith(MockitoJUnitRunner.class)
+public class RequestInstrumentationTest {
+    private static final String TABLE_NAME = "instrumented_table";
+    @Mock
+    private TableRequestListener listenerMock;
+    private static final TableQuery<AzureEntity> QUERY = TableQuery.from(TABLE_NAME, AzureEntity.class).where("PartitionKey eq 'cm93'");
+    @Mock
+    private HttpURLConnection connectionMock;
+    private SlowOperationLog slowOperationLog;
+    private TableClientOptions options;
+
+    private static void respond(OperationContext operationContext, HttpURLConnection connection, int statusCode) {
+        RequestResult result = new RequestResult();
+        result.setStatusCode(statusCode);
+        operationContext.getSendingRequestEventHandler().fireEvent(new SendingRequestEvent(operationContext, connection, result));
+        operationContext.getResponseReceivedEventHandler().fireEvent(new ResponseReceivedEvent(operationContext, connection, result));
+    }
+
+    private List<TableRequestEvent> reportedEvents(int count) {
+        ArgumentCaptor<TableRequestEvent> eventCaptor = ArgumentCaptor.forClass(TableRequestEvent.class);
+        verify(listenerMock, times(count)).requestCompleted(eventCaptor.capture());
+        return eventCaptor.getAllValues();
+    }
+
+    @Before
+    public void setUp() {
+        when(connectionMock.getContentLengthLong()).thenReturn(-1L);
+        slowOperationLog = new SlowOperationLog(0, TimeUnit.NANOSECONDS);
+        options = TableClientOptions.builder().withRequestListener(listenerMock).withSlowOperationLog(slowOperationLog).build();
+    }
+
+    @Test
+    public void retry_after_throttling_is_reported() {
+        when(connectionMock.getRequestMethod()).thenReturn("PUT");
+        OperationContext operationContext = RequestInstrumentation.forOperation(TABLE_NAME, options).getOperationContext();
+
+        respond(operationContext, connectionMock, 503);
+        respond(operationContext, connectionMock, 204);
+
+        List<TableRequestEvent> events = reportedEvents(2);
+        assertThat(events.get(0).isThrottled(), is(true));
+        assertThat(events.get(0).isRetry(), is(false));
+        assertThat(events.get(1).isThrottled(), is(false));
+        assertThat(events.get(1).isRetry(), is(true));
+        assertThat(events.get(1).getRequestType(), is(equalTo(RequestType.WRITE)));
+        assertThat(events.get(1).getTableName(), is(equalTo(TABLE_NAME)));
+    }
+
+    @Test
+    public void written_entity_sets_request_payload_size() throws Exception {
+        when(connectionMock.getRequestMethod()).thenReturn("PUT");
+        OperationContext operationContext = RequestInstrumentation.forOperation(TABLE_NAME, options).getOperationContext();
+
+        new AzureEntity("row", "column", "value").writeEntity(operationContext);
+        respond(operationContext, connectionMock, 204);
+
+        assertThat(reportedEvents(1).get(0).getRequestPayloadBytes(), is(equalTo(14L)));
+    }
+
+    @Test
+    public void query_pages_are_reported_as_queries() {
+        when(connectionMock.getRequestMethod()).thenReturn("GET");
+        when(connectionMock.getContentLengthLong()).thenReturn(512L);
+        OperationContext operationContext = RequestInstrumentation.forQuery(QUERY, options).getOperationContext();
+
+        respond(operationContext, connectionMock, 200);
+
+        TableRequestEvent event = reportedEvents(1).get(0);
+        assertThat(event.getRequestType(), is(equalTo(RequestType.QUERY)));
+        assertThat(event.getResponseBytes(), is(equalTo(512L)));
+    }
+
+    @Test
+    public void slow_operation_is_recorded_with_its_resource_and_attempts() throws Exception {
+        when(connectionMock.getRequestMethod()).thenReturn("PUT");
+        when(connectionMock.getURL()).thenReturn(new URL("https://account.table.core.windows.net/table(PartitionKey='cm93',RowKey='Y29s')"));
+        RequestInstrumentation instrumentation = RequestInstrumentation.forOperation(TABLE_NAME, options);
+
+        new AzureEntity("row", "column", "value").writeEntity(instrumentation.getOperationContext());
+        respond(instrumentation.getOperationContext(), connectionMock, 503);
+        respond(instrumentation.getOperationContext(), connectionMock, 204);
+        instrumentation.operationCompleted(1000);
+
+        SlowOperation operation = slowOperationLog.dump().get(0);
+        assertThat(operation.getFilter(), is(equalTo("/table(PartitionKey='cm93',RowKey='Y29s')")));
+        assertThat(operation.getRequestType(), is(equalTo(RequestType.WRITE)));
+        assertThat(operation.getRequests(), is(equalTo(2)));
+        assertThat(operation.getRequestPayloadBytes(), is(equalTo(28L)));
+        assertThat(operation.getLatencyInNanos(), is(equalTo(1000L)));
+    }
+
+    @Test
+    public void query_is_recorded_with_its_filter_pages_and_entities_once_exhausted() {
+        when(connectionMock.getContentLengthLong()).thenReturn(512L);
+        final RequestInstrumentation instrumentation = RequestInstrumentation.forQuery(QUERY, options);
+        Iterator<String> pages = instrumentation.meter(new AbstractIterator<String>() {
+            private int fetched;
+
+            @Override
+            protected String computeNext() {
+                if (fetched == 2) {
+                    return endOfData();
+                }
+                fetched++;
+                respond(instrumentation.getOperationContext(), connectionMock, 200);
+                return "entity";
+            }
+        });
+
+        pages.next();
+        assertThat(slowOperationLog.dump(), is(empty()));
+        pages.next();
+        pages.hasNext();
+
+        SlowOperation operation = slowOperationLog.dump().get(0);
+        assertThat(operation.getFilter(), is(equalTo("PartitionKey eq 'cm93'")));
+        assertThat(operation.getRequestType(), is(equalTo(RequestType.QUERY)));
+        assertThat(operation.getRequests(), is(equalTo(2)));
+        assertThat(operation.getEntities(), is(equalTo(2L)));
+        assertThat(operation.getResponseBytes(), is(equalTo(1024L)));
+    }
+
+    @Test
+    public void request_timeouts_are_limited_to_the_time_remaining_before_the_deadline() {
+        when(connectionMock.getRequestMethod()).thenReturn("GET");
+        when(connectionMock.getReadTimeout()).thenReturn(0);
+        when(connectionMock.getConnectTimeout()).thenReturn(0);
+        OperationContext operationContext = RequestInstrumentation.forOperation(TABLE_NAME, options,
+                Optional.of(Deadline.after(10, TimeUnit.SECONDS))).getOperationContext();
+
+        respond(operationContext, connectionMock, 200);
+
+        ArgumentCaptor<Integer> readTimeout = ArgumentCaptor.forClass(Integer.class);
+        verify(connectionMock).setReadTimeout(readTimeout.capture());
+        verify(connectionMock).setConnectTimeout(readTimeout.getValue());
+        assertThat(readTimeout.getValue() > 9000 && readTimeout.getValue() <= 10000, is(true));
+    }
+
+    @Test
+    public void request_after_the_deadline_is_given_the_shortest_timeouts_rather_than_failing_in_the_sdk() {
+        when(connectionMock.getRequestMethod()).thenReturn("GET");
+        OperationContext operationContext = RequestInstrumentation.forOperation(TABLE_NAME, options,
+                Optional.of(Deadline.after(0, TimeUnit.SECONDS))).getOperationContext();
+
+        respond(operationContext, connectionMock, 200);
+
+        verify(connectionMock).setReadTimeout(1);
+        verify(connectionMock).setConnectTimeout(1);
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void query_page_is_not_fetched_after_the_deadline() {
+        Iterator<AzureEntity> pages = RequestInstrumentation.forQuery(QUERY, options, Optional.of(Deadline.after(0, TimeUnit.SECONDS)))
+                .meter(Collections.<AzureEntity>emptyIterator());
+
+        pages.hasNext();
+    }
+
+    @Test
+    public void operations_faster_than_the_threshold_are_not_recorded() {
+        SlowOperationLog log = new SlowOperationLog(1, TimeUnit.SECONDS);
+
+        RequestInstrumentation.forOperation(TABLE_NAME, TableClientOptions.builder().withSlowOperationLog(log).build())
+                .operationCompleted(TimeUnit.MILLISECONDS.toNanos(999));
+
+        assertThat(log.dump(), is(empty()));
+        assertThat(log.getRecordedCount(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RetryBudgetTest {
+    private static final RetryPolicyFactory ALWAYS_RETRY = new ExponentialJitterRetryPolicy(1, 1, Integer.MAX_VALUE);
+
+    private static boolean retried(RetryPolicyFactory factory) {
+        RetryPolicy policy = factory.createInstance(new OperationContext());
+        return policy.shouldRetry(0, 503, null, new OperationContext()).isShouldRetry();
+    }
+
+    @Test
+    public void retries_are_limited_to_the_reserve_and_the_ratio_of_operations() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+        RetryPolicyFactory limited = budget.limit(ALWAYS_RETRY);
+
+        int retries = 0;
+        for (int i = 0; i < 100; i++) {
+            if (retried(limited)) {
+                retries++;
+            }
+        }
+
+        assertThat(retries, is(equalTo(11)));
+        assertThat(budget.getAvailableRetries(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void balance_is_capped_at_the_reserve() {
+        RetryBudget budget = new RetryBudget(0.5, 3);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertThat(budget.getAvailableRetries(), is(equalTo(3L)));
+    }
+}
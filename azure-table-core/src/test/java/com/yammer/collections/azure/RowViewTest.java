@@ -65,12 +65,13 @@ public class RowViewTest {
     private AzureTableRequestFactory azureTableRequestFactoryMock;
     @Mock
     private BaseAzureTable baseAzureTable;
-    private RowView rowView;
+    private RowView<Bytes, Bytes, Bytes> rowView;
 
     @Before
     public void setUp() {
         when(baseAzureTable.getTableName()).thenReturn(TABLE_NAME);
-        rowView = new RowView(baseAzureTable, COLUMN_KEY, azureTableCloudClientMock, azureTableRequestFactoryMock);
+        when(baseAzureTable.getEntityMapper()).thenReturn(EntityMapper.BYTES);
+        rowView = new RowView<>(baseAzureTable, COLUMN_KEY, azureTableCloudClientMock, azureTableRequestFactoryMock);
     }
 
     @Test
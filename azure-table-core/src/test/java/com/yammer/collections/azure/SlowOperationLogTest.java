@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SlowOperationLogTest {
+    private static SlowOperation operation(long latencyInNanos) {
+        return new SlowOperation(0, "table", RequestType.QUERY, "", latencyInNanos, 1, 0, 0, 0);
+    }
+
+    @Test
+    public void dump_returns_the_latest_operations_oldest_first() {
+        SlowOperationLog log = new SlowOperationLog(0, TimeUnit.NANOSECONDS, 2, 1);
+
+        for (int i = 1; i <= 3; i++) {
+            log.record(operation(i));
+        }
+        List<SlowOperation> dump = log.dump();
+
+        assertThat(dump.size(), is(equalTo(2)));
+        assertThat(dump.get(0).getLatencyInNanos(), is(equalTo(2L)));
+        assertThat(dump.get(1).getLatencyInNanos(), is(equalTo(3L)));
+        assertThat(log.getRecordedCount(), is(equalTo(3L)));
+    }
+
+    @Test
+    public void threshold_is_inclusive() {
+        SlowOperationLog log = new SlowOperationLog(5, TimeUnit.MILLISECONDS);
+
+        assertThat(log.isSlow(TimeUnit.MILLISECONDS.toNanos(5)), is(true));
+        assertThat(log.isSlow(TimeUnit.MILLISECONDS.toNanos(5) - 1), is(false));
+    }
+}
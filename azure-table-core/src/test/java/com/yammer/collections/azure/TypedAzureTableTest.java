@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.microsoft.windowsazure.services.table.client.TableOperation;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.yammer.collections.azure.query.Comparison;
+import com.yammer.collections.azure.query.PropertyFilter;
+import com.yammer.collections.azure.serialization.Codec;
+import com.yammer.collections.azure.serialization.Codecs;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings({"InstanceVariableMayNotBeInitialized", "unchecked"})
+@RunWith(MockitoJUnitRunner.class)
+public class TypedAzureTableTest {
+    private static final String TABLE_NAME = "typed_table";
+    private static final String ROW_KEY_1 = "row_1";
+    private static final String ROW_KEY_2 = "row_2";
+    private static final Long COLUMN_KEY_1 = 1L;
+    private static final Long COLUMN_KEY_2 = -2L;
+    private static final String VALUE_1 = "value_1";
+    private static final String VALUE_2 = "value_2";
+    @Mock
+    private AzureTableCloudClient azureTableCloudClientMock;
+    @Mock
+    private AzureTableRequestFactory azureTableRequestFactoryMock;
+    private TypedAzureTable<String, Long, String> typedAzureTable;
+
+    private static Bytes string(String string) {
+        return new Bytes(string.getBytes(Charsets.UTF_8));
+    }
+
+    private static Bytes number(Long number) {
+        return new Bytes(Codecs.LONG.encode(number));
+    }
+
+    private static Table.Cell<Bytes, Bytes, Bytes> encodedCell(String row, Long column, String value) {
+        return Tables.immutableCell(string(row), number(column), string(value));
+    }
+
+    @Before
+    public void setUp() throws StorageException {
+        typedAzureTable = new TypedAzureTable<>(TABLE_NAME, azureTableCloudClientMock, azureTableRequestFactoryMock,
+                String.class, Long.class, String.class, Codecs.STRING, Codecs.LONG, Codecs.STRING, Optional.<PropertyExtractor<String>>absent());
+        AzureTestUtil.setAzureTableToContain(TABLE_NAME, azureTableRequestFactoryMock, azureTableCloudClientMock,
+                encodedCell(ROW_KEY_1, COLUMN_KEY_1, VALUE_1),
+                encodedCell(ROW_KEY_2, COLUMN_KEY_2, VALUE_2));
+    }
+
+    @Test
+    public void get_decodes_value_with_codec() {
+        assertThat(typedAzureTable.get(ROW_KEY_1, COLUMN_KEY_1), is(equalTo(VALUE_1)));
+    }
+
+    @Test
+    public void get_of_keys_of_other_types_returns_null() {
+        assertThat(typedAzureTable.get(ROW_KEY_1, "1"), is(nullValue()));
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void class_cast_exception_of_a_codec_is_not_taken_for_a_key_of_another_type() {
+        Codec<String> failingCodec = new Codec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                throw new ClassCastException("codec bug");
+            }
+
+            @Override
+            public String decode(byte[] bytes, int offset, int length) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        TypedAzureTable<String, Long, String> table = new TypedAzureTable<>(TABLE_NAME, azureTableCloudClientMock,
+                azureTableRequestFactoryMock, String.class, Long.class, String.class, failingCodec, Codecs.LONG, Codecs.STRING,
+                Optional.<PropertyExtractor<String>>absent());
+
+        table.get(ROW_KEY_1, COLUMN_KEY_1);
+    }
+
+    @Test
+    public void put_encodes_keys_and_value_with_codecs() throws StorageException {
+        TableOperation putTableOperationMock = mock(TableOperation.class);
+        when(azureTableRequestFactoryMock.put(
+                AzureTestUtil.encode(string(ROW_KEY_2)), AzureTestUtil.encode(number(COLUMN_KEY_1)), AzureTestUtil.encode(string(VALUE_1)))
+        ).thenReturn(putTableOperationMock);
+
+        typedAzureTable.put(ROW_KEY_2, COLUMN_KEY_1, VALUE_1);
+
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, AzureTestUtil.encode(string(ROW_KEY_2)), putTableOperationMock);
+    }
+
+    @Test
+    public void key_sets_are_decoded() {
+        assertThat(typedAzureTable.rowKeySet(), containsInAnyOrder(ROW_KEY_1, ROW_KEY_2));
+        assertThat(typedAzureTable.columnKeySet(), containsInAnyOrder(COLUMN_KEY_1, COLUMN_KEY_2));
+    }
+
+    @Test
+    public void cell_set_is_decoded() {
+        assertThat(typedAzureTable.cellSet(), containsInAnyOrder(
+                Tables.immutableCell(ROW_KEY_1, COLUMN_KEY_1, VALUE_1),
+                Tables.immutableCell(ROW_KEY_2, COLUMN_KEY_2, VALUE_2)));
+    }
+
+    @Test
+    public void row_view_is_typed() {
+        assertThat(typedAzureTable.row(ROW_KEY_2).get(COLUMN_KEY_2), is(equalTo(VALUE_2)));
+        assertThat(typedAzureTable.row(ROW_KEY_2).containsValue(VALUE_2), is(true));
+        assertThat(typedAzureTable.column(COLUMN_KEY_1).keySet(), containsInAnyOrder(ROW_KEY_1));
+    }
+
+    @Test
+    public void put_stores_extracted_properties() throws StorageException {
+        final Map<String, EntityProperty> properties = ImmutableMap.of("length", new EntityProperty(VALUE_1.length()));
+        TypedAzureTable<String, Long, String> extractingTable = new TypedAzureTable<>(TABLE_NAME, azureTableCloudClientMock,
+                azureTableRequestFactoryMock, String.class, Long.class, String.class, Codecs.STRING, Codecs.LONG, Codecs.STRING,
+                Optional.<PropertyExtractor<String>>of(
+                new PropertyExtractor<String>() {
+                    @Override
+                    public Map<String, EntityProperty> extract(String value) {
+                        return properties;
+                    }
+                }));
+        TableOperation putTableOperationMock = mock(TableOperation.class);
+        when(azureTableRequestFactoryMock.put(
+                AzureTestUtil.encode(string(ROW_KEY_2)), AzureTestUtil.encode(number(COLUMN_KEY_1)), AzureTestUtil.encode(string(VALUE_1)),
+                properties)
+        ).thenReturn(putTableOperationMock);
+
+        extractingTable.put(ROW_KEY_2, COLUMN_KEY_1, VALUE_1);
+
+        verify(azureTableCloudClientMock).execute(TABLE_NAME, AzureTestUtil.encode(string(ROW_KEY_2)), putTableOperationMock);
+    }
+
+    @Test
+    public void cells_in_row_where_queries_with_filter() {
+        PropertyFilter filter = PropertyFilter.where("length", Comparison.GREATER_THAN, 3);
+        TableQuery<AzureEntity> filteredQuery = mock(TableQuery.class);
+        when(azureTableRequestFactoryMock.selectForRowWhere(TABLE_NAME, AzureTestUtil.encode(string(ROW_KEY_1)), filter.getFilterString()))
+                .thenReturn(filteredQuery);
+        when(azureTableCloudClientMock.execute(filteredQuery)).thenReturn(
+                Collections.singletonList(AzureTestUtil.encodedEntity(encodedCell(ROW_KEY_1, COLUMN_KEY_1, VALUE_1))));
+
+        assertThat(typedAzureTable.cellsInRowWhere(ROW_KEY_1, filter),
+                contains(Tables.immutableCell(ROW_KEY_1, COLUMN_KEY_1, VALUE_1)));
+    }
+}
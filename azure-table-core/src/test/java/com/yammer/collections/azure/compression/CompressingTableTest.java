@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings("InstanceVariableMayNotBeInitialized")
+public class CompressingTableTest {
+    private static final int THRESHOLD = 64;
+    private static final Bytes ROW = Bytes.of("row".getBytes());
+    private static final Bytes COLUMN = Bytes.of("column".getBytes());
+    private static final Bytes SMALL_VALUE = Bytes.of("small".getBytes());
+    private static final Bytes LARGE_VALUE = Bytes.of(Strings.repeat("compressible ", 50).getBytes());
+    private Table<Bytes, Bytes, Bytes> backingTable;
+    private Table<Bytes, Bytes, Bytes> compressingTable;
+
+    @Before
+    public void setUp() {
+        backingTable = HashBasedTable.create();
+        compressingTable = CompressingTable.create(backingTable, new DeflateCodec(), THRESHOLD);
+    }
+
+    @Test
+    public void values_below_threshold_stored_raw_without_header() {
+        compressingTable.put(ROW, COLUMN, SMALL_VALUE);
+
+        assertThat(backingTable.get(ROW, COLUMN), is(equalTo(SMALL_VALUE)));
+    }
+
+    @Test
+    public void raw_values_starting_with_the_magic_bytes_get_a_header() {
+        Bytes value = Bytes.of(new byte[]{(byte) 0xC1, (byte) 0xFE, DeflateCodec.ID, 0});
+        compressingTable.put(ROW, COLUMN, value);
+
+        Bytes stored = backingTable.get(ROW, COLUMN);
+        assertThat(stored.startsWith(CompressionFunction.MAGIC), is(true));
+        assertThat(stored.byteAt(2), is(equalTo(CompressionFunction.RAW_ID)));
+        assertThat(compressingTable.get(ROW, COLUMN), is(equalTo(value)));
+    }
+
+    @Test
+    public void values_above_threshold_stored_compressed() {
+        compressingTable.put(ROW, COLUMN, LARGE_VALUE);
+
+        Bytes stored = backingTable.get(ROW, COLUMN);
+        assertThat(stored.startsWith(CompressionFunction.MAGIC), is(true));
+        assertThat(stored.byteAt(2), is(equalTo(DeflateCodec.ID)));
+        assertThat(stored.length(), is(lessThan(LARGE_VALUE.length())));
+    }
+
+    @Test
+    public void incompressible_values_stored_raw() {
+        Bytes incompressible = Bytes.of(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        CompressingTable.create(backingTable, new DeflateCodec(), 0).put(ROW, COLUMN, incompressible);
+
+        assertThat(backingTable.get(ROW, COLUMN), is(equalTo(incompressible)));
+    }
+
+    @Test
+    public void get_returns_original_values() {
+        compressingTable.put(ROW, COLUMN, SMALL_VALUE);
+        compressingTable.put(COLUMN, ROW, LARGE_VALUE);
+
+        assertThat(compressingTable.get(ROW, COLUMN), is(equalTo(SMALL_VALUE)));
+        assertThat(compressingTable.get(COLUMN, ROW), is(equalTo(LARGE_VALUE)));
+    }
+
+    @Test
+    public void keys_are_not_transformed() {
+        compressingTable.put(ROW, COLUMN, LARGE_VALUE);
+
+        assertThat(backingTable.contains(ROW, COLUMN), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void value_with_unknown_codec_rejected() {
+        backingTable.put(ROW, COLUMN, Bytes.of(new byte[]{(byte) 0xC1, (byte) 0xFE, 42, 1, 2}));
+
+        compressingTable.get(ROW, COLUMN);
+    }
+
+    @Test
+    public void values_written_before_compression_read_as_they_are() {
+        Bytes json = Bytes.of("{\"a\":1}".getBytes());
+        Bytes binary = Bytes.of(new byte[]{0, 1, 2});
+        backingTable.put(ROW, COLUMN, json);
+        backingTable.put(COLUMN, ROW, binary);
+        backingTable.put(ROW, ROW, Bytes.of(new byte[0]));
+
+        assertThat(compressingTable.get(ROW, COLUMN), is(equalTo(json)));
+        assertThat(compressingTable.get(COLUMN, ROW), is(equalTo(binary)));
+        assertThat(compressingTable.get(ROW, ROW).length(), is(equalTo(0)));
+    }
+}
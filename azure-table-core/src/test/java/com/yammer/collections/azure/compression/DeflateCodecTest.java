@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.compression;
+
+import com.google.common.base.Strings;
+import com.yammer.collections.azure.Bytes;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DeflateCodecTest {
+    private static final Bytes VALUE = Bytes.of(Strings.repeat("{\"name\":\"John Doe\",\"numbers\":[1,2,1900]}", 100).getBytes());
+    private final DeflateCodec codec = new DeflateCodec();
+
+    @Test
+    public void compresses_and_decompresses() throws IOException {
+        Bytes compressed = compress(VALUE);
+
+        assertThat(compressed.length(), is(lessThan(VALUE.length())));
+        assertThat(codec.decompress(compressed), is(equalTo(VALUE)));
+    }
+
+    @Test
+    public void compresses_slices() throws IOException {
+        Bytes slice = VALUE.slice(10, 500);
+
+        assertThat(codec.decompress(compress(slice)), is(equalTo(slice)));
+    }
+
+    @Test
+    public void decompresses_slices() throws IOException {
+        byte[] compressed = compress(VALUE).getBytes();
+        byte[] padded = new byte[compressed.length + 2];
+        System.arraycopy(compressed, 0, padded, 1, compressed.length);
+
+        assertThat(codec.decompress(Bytes.of(padded).slice(1, compressed.length)), is(equalTo(VALUE)));
+    }
+
+    @Test
+    public void compresses_empty_value() throws IOException {
+        Bytes empty = Bytes.of(new byte[0]);
+
+        assertThat(codec.decompress(compress(empty)), is(equalTo(empty)));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated_value_rejected() throws IOException {
+        byte[] compressed = compress(VALUE).getBytes();
+
+        codec.decompress(Bytes.of(Arrays.copyOf(compressed, compressed.length / 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void length_above_the_maximum_value_size_rejected_before_allocating() throws IOException {
+        byte[] compressed = compress(VALUE).getBytes();
+        int length = Integer.MAX_VALUE - 8;
+        compressed[0] = (byte) (length >>> 24);
+        compressed[1] = (byte) (length >>> 16);
+        compressed[2] = (byte) (length >>> 8);
+        compressed[3] = (byte) length;
+
+        codec.decompress(Bytes.of(compressed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void value_above_the_maximum_value_size_not_compressed() throws IOException {
+        compress(Bytes.of(new byte[DeflateCodec.MAX_LENGTH + 1]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid_level_rejected() {
+        new DeflateCodec(10);
+    }
+
+    private Bytes compress(Bytes input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.compress(input, output);
+        return Bytes.of(output.toByteArray());
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.query;
+
+import org.junit.Test;
+
+import static com.yammer.collections.azure.query.PropertyFilter.where;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PropertyFilterTest {
+    @Test
+    public void generates_typed_conditions() {
+        assertThat(where("name", Comparison.EQUAL, "Ala").getFilterString(), is(equalTo("name eq 'Ala'")));
+        assertThat(where("age", Comparison.GREATER_THAN, 30).getFilterString(), is(equalTo("age gt 30")));
+        assertThat(where("id", Comparison.LESS_THAN_OR_EQUAL, 5L).getFilterString(), is(equalTo("id le 5L")));
+        assertThat(where("active", Comparison.NOT_EQUAL, true).getFilterString(), is(equalTo("active ne true")));
+    }
+
+    @Test
+    public void escapes_quotes_in_strings() {
+        assertThat(where("name", Comparison.EQUAL, "O'Hara").getFilterString(), is(equalTo("name eq 'O''Hara'")));
+    }
+
+    @Test
+    public void combines_conditions() {
+        PropertyFilter filter = where("age", Comparison.GREATER_THAN_OR_EQUAL, 18)
+                .and(where("name", Comparison.EQUAL, "Ala").or(where("name", Comparison.EQUAL, "Ola")).negate());
+
+        assertThat(filter.getFilterString(), is(equalTo("(age ge 18) and (not ((name eq 'Ala') or (name eq 'Ola')))")));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization;
+
+import com.google.common.base.Charsets;
+import com.yammer.collections.azure.Bytes;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CodecsTest {
+    private static final long[] ORDERED_LONGS = {Long.MIN_VALUE, -1000L, -1L, 0L, 1L, 255L, 256L, Long.MAX_VALUE};
+    private static final int[] ORDERED_INTEGERS = {Integer.MIN_VALUE, -70000, -1, 0, 1, 128, 70000, Integer.MAX_VALUE};
+
+    @Test
+    public void longs_round_trip_and_keep_order() {
+        for (int i = 0; i < ORDERED_LONGS.length; i++) {
+            assertThat(roundTrip(Codecs.LONG, ORDERED_LONGS[i]), is(equalTo(ORDERED_LONGS[i])));
+            if (i > 0) {
+                assertThat(encoded(Codecs.LONG, ORDERED_LONGS[i - 1]).compareTo(encoded(Codecs.LONG, ORDERED_LONGS[i])), is(lessThan(0)));
+            }
+        }
+    }
+
+    @Test
+    public void integers_round_trip_and_keep_order() {
+        for (int i = 0; i < ORDERED_INTEGERS.length; i++) {
+            assertThat(roundTrip(Codecs.INTEGER, ORDERED_INTEGERS[i]), is(equalTo(ORDERED_INTEGERS[i])));
+            if (i > 0) {
+                assertThat(encoded(Codecs.INTEGER, ORDERED_INTEGERS[i - 1]).compareTo(encoded(Codecs.INTEGER, ORDERED_INTEGERS[i])), is(lessThan(0)));
+            }
+        }
+    }
+
+    @Test
+    public void strings_are_utf8() {
+        assertThat(Codecs.STRING.encode("zażółć"), is(equalTo("zażółć".getBytes(Charsets.UTF_8))));
+        assertThat(roundTrip(Codecs.STRING, "zażółć"), is(equalTo("zażółć")));
+    }
+
+    @Test
+    public void uuids_round_trip() {
+        UUID uuid = UUID.randomUUID();
+
+        assertThat(roundTrip(Codecs.UUID_CODEC, uuid), is(equalTo(uuid)));
+    }
+
+    @Test
+    public void decodes_a_region_of_an_array() {
+        Bytes padded = new Bytes(new byte[]{9, (byte) 0x80, 0, 0, 5, 9});
+
+        assertThat(Codecs.deserializationFunction(Codecs.INTEGER).apply(padded.slice(1, 4)), is(equalTo(5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrong_length_rejected() {
+        Codecs.LONG.decode(new byte[4], 0, 4);
+    }
+
+    @Test
+    public void codecs_are_found_by_class() {
+        assertThat(Codecs.forClass(Long.class).get(), is(sameInstance(Codecs.LONG)));
+        assertThat(Codecs.forClass(byte[].class).get(), is(sameInstance(Codecs.BYTE_ARRAY)));
+        assertThat(Codecs.forClass(Double.class).isPresent(), is(false));
+    }
+
+    private static <T> T roundTrip(Codec<T> codec, T value) {
+        byte[] bytes = codec.encode(value);
+        return codec.decode(bytes, 0, bytes.length);
+    }
+
+    private static <T> Bytes encoded(Codec<T> codec, T value) {
+        return new Bytes(codec.encode(value));
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Throwables;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Codec} with the same format as {@link JsonSerializationFunction} and {@link JsonDeserializationFunction}.
+ */
+public class JsonCodec<T> implements Codec<T> {
+    private final ObjectWriter objectWriter;
+    private final ObjectReader objectReader;
+
+    public JsonCodec(ObjectWriter objectWriter, ObjectReader objectReader) {
+        this.objectWriter = checkNotNull(objectWriter);
+        this.objectReader = checkNotNull(objectReader);
+    }
+
+    public static <T> JsonCodec<T> forClass(Class<T> codedClass) {
+        return forClass(JsonSerializingTable.DEFAULT_OBJECT_MAPPER, codedClass);
+    }
+
+    public static <T> JsonCodec<T> forClass(ObjectMapper objectMapper, Class<T> codedClass) {
+        return new JsonCodec<>(
+                Modifier.isFinal(codedClass.getModifiers()) ? objectMapper.writerWithType(codedClass) : objectMapper.writer(),
+                objectMapper.reader(codedClass)
+        );
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            return objectWriter.writeValueAsBytes(value);
+        } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        try {
+            return objectReader.readValue(bytes, offset, length);
+        } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
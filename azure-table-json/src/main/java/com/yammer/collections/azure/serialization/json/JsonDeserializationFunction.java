@@ -16,25 +16,37 @@
 package com.yammer.collections.azure.serialization.json;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.yammer.collections.azure.Bytes;
 
 import java.io.IOException;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 public class JsonDeserializationFunction<T> implements Function<Bytes, T> {
-    private final ObjectMapper objectMapper;
-    private final Class<T> deserializedClass;
+    private final ObjectReader objectReader;
 
     public JsonDeserializationFunction(Class<T> deserializedClass) {
-        this.deserializedClass = deserializedClass;
-        objectMapper = new ObjectMapper();
+        this(JsonSerializingTable.DEFAULT_OBJECT_MAPPER, deserializedClass);
+    }
+
+    public JsonDeserializationFunction(ObjectMapper objectMapper, Class<T> deserializedClass) {
+        this(objectMapper.reader(deserializedClass));
+    }
+
+    /**
+     * @param objectReader a reader bound to the deserialized type
+     */
+    public JsonDeserializationFunction(ObjectReader objectReader) {
+        this.objectReader = checkNotNull(objectReader);
     }
 
     @Override
     public T apply(Bytes input) {
         try {
-            return objectMapper.readValue(input.getBytes(), deserializedClass);
+            return objectReader.readValue(input.getBackingArray(), input.getOffset(), input.length());
         } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
             throw Throwables.propagate(e);
         }
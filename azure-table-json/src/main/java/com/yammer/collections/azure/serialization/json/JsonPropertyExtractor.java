@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.yammer.collections.azure.PropertyExtractor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores the given top level fields of values, as mapped by jackson, as native properties of the same name.
+ * Strings, numbers and booleans are supported; null and absent fields are skipped, other field types are rejected.
+ * Numbers are stored as Int32, Int64 or Double, depending on what jackson maps them to.
+ */
+public class JsonPropertyExtractor<V> implements PropertyExtractor<V> {
+    private final ObjectMapper objectMapper;
+    private final List<String> fieldNames;
+
+    public JsonPropertyExtractor(ObjectMapper objectMapper, String... fieldNames) {
+        this.objectMapper = checkNotNull(objectMapper);
+        this.fieldNames = ImmutableList.copyOf(fieldNames);
+    }
+
+    public static <V> JsonPropertyExtractor<V> forFields(String... fieldNames) {
+        return new JsonPropertyExtractor<>(JsonSerializingTable.DEFAULT_OBJECT_MAPPER, fieldNames);
+    }
+
+    private static EntityProperty toProperty(String fieldName, JsonNode node) {
+        if (node.isTextual()) {
+            return new EntityProperty(node.textValue());
+        }
+        if (node.isInt()) {
+            return new EntityProperty(node.intValue());
+        }
+        if (node.isIntegralNumber() && node.canConvertToLong()) {
+            return new EntityProperty(node.longValue());
+        }
+        if (node.isNumber()) {
+            return new EntityProperty(node.doubleValue());
+        }
+        if (node.isBoolean()) {
+            return new EntityProperty(node.booleanValue());
+        }
+        throw new IllegalArgumentException("Field " + fieldName + " of type " + node.getNodeType() + " cannot be stored as a property");
+    }
+
+    @Override
+    public Map<String, EntityProperty> extract(V value) {
+        JsonNode tree = objectMapper.valueToTree(value);
+        checkArgument(tree.isObject(), "Only values mapped to JSON objects have fields");
+        Map<String, EntityProperty> properties = new HashMap<>();
+        for (String fieldName : fieldNames) {
+            JsonNode field = tree.get(fieldName);
+            if (field != null && !field.isNull()) {
+                properties.put(fieldName, toProperty(fieldName, field));
+            }
+        }
+        return properties;
+    }
+}
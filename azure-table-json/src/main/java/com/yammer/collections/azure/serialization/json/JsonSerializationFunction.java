@@ -16,23 +16,42 @@
 package com.yammer.collections.azure.serialization.json;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.yammer.collections.azure.Bytes;
 
 import java.io.IOException;
+import java.lang.reflect.Modifier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 public class JsonSerializationFunction<T> implements Function<T, Bytes> {
-    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
 
     public JsonSerializationFunction() {
-        objectMapper = new ObjectMapper();
+        this(JsonSerializingTable.DEFAULT_OBJECT_MAPPER.writer());
+    }
+
+    public JsonSerializationFunction(ObjectWriter objectWriter) {
+        this.objectWriter = checkNotNull(objectWriter);
+    }
+
+    /**
+     * The writer is bound to the serialized class when it is final, otherwise subclass instances would lose their additional properties.
+     */
+    public static <T> JsonSerializationFunction<T> forClass(ObjectMapper objectMapper, Class<T> serializedClass) {
+        return new JsonSerializationFunction<>(
+                Modifier.isFinal(serializedClass.getModifiers())
+                        ? objectMapper.writerWithType(serializedClass)
+                        : objectMapper.writer()
+        );
     }
 
     @Override
     public Bytes apply(T input) {
         try {
-            return new Bytes(objectMapper.writeValueAsBytes(input));
+            return new Bytes(objectWriter.writeValueAsBytes(input));
         } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
             throw Throwables.propagate(e);
         }
@@ -15,23 +15,48 @@
  */
 package com.yammer.collections.azure.serialization.json;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
 import com.google.common.collect.Table;
 import com.yammer.collections.azure.Bytes;
 import com.yammer.collections.transforming.TransformingTable;
 
 public final class JsonSerializingTable {
+    // shared by all the tables created without a mapper of their own, the mapper is thread safe once configured
+    static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper();
+
     private JsonSerializingTable() {
     }
 
     public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
                                                   Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
-        Function<R, Bytes> toRowFunction = new JsonSerializationFunction<>();
-        Function<Bytes, R> fromRowFunction = new JsonDeserializationFunction<>(rowClass);
-        Function<C, Bytes> toColumnFunction = new JsonSerializationFunction<>();
-        Function<Bytes, C> fromColumnFunction = new JsonDeserializationFunction<>(columnClass);
-        Function<V, Bytes> toValueFunction = new JsonSerializationFunction<>();
-        Function<Bytes, V> fromValueFunction = new JsonDeserializationFunction<>(valueClass);
+        return create(backingTable, rowClass, columnClass, valueClass, DEFAULT_OBJECT_MAPPER);
+    }
+
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  KeyEncoding keyEncoding) {
+        return create(backingTable, rowClass, columnClass, valueClass, DEFAULT_OBJECT_MAPPER, keyEncoding);
+    }
+
+    /**
+     * @param objectMapper a configured mapper, it must not be reconfigured afterwards
+     */
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  ObjectMapper objectMapper) {
+        return create(backingTable, rowClass, columnClass, valueClass, objectMapper, KeyEncoding.JSON);
+    }
+
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  ObjectMapper objectMapper, KeyEncoding keyEncoding) {
+        Function<R, Bytes> toRowFunction = keyEncoding.serializationFunction(objectMapper, rowClass);
+        Function<Bytes, R> fromRowFunction = keyEncoding.deserializationFunction(objectMapper, rowClass);
+        Function<C, Bytes> toColumnFunction = keyEncoding.serializationFunction(objectMapper, columnClass);
+        Function<Bytes, C> fromColumnFunction = keyEncoding.deserializationFunction(objectMapper, columnClass);
+        Function<V, Bytes> toValueFunction = JsonSerializationFunction.forClass(objectMapper, valueClass);
+        Function<Bytes, V> fromValueFunction = new JsonDeserializationFunction<>(objectMapper, valueClass);
 
         return TransformingTable.create(backingTable,
                 toRowFunction, fromRowFunction,
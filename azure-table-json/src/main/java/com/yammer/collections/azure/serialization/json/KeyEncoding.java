@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.azure.serialization.Codec;
+import com.yammer.collections.azure.serialization.Codecs;
+
+/**
+ * How row and column keys are serialized. The two encodings are not compatible, a table has to be read with the one it was written with.
+ */
+public enum KeyEncoding {
+    /**
+     * All keys as JSON text.
+     */
+    JSON,
+    /**
+     * String, Long, Integer, UUID and byte[] keys with the compact, order preserving, {@link Codecs}, other keys as JSON text.
+     */
+    NATIVE;
+
+    <K> Function<K, Bytes> serializationFunction(ObjectMapper objectMapper, Class<K> keyClass) {
+        Optional<Codec<K>> codec = nativeCodec(keyClass);
+        if (codec.isPresent()) {
+            return Codecs.serializationFunction(codec.get());
+        }
+        return JsonSerializationFunction.forClass(objectMapper, keyClass);
+    }
+
+    <K> Function<Bytes, K> deserializationFunction(ObjectMapper objectMapper, Class<K> keyClass) {
+        Optional<Codec<K>> codec = nativeCodec(keyClass);
+        if (codec.isPresent()) {
+            return Codecs.deserializationFunction(codec.get());
+        }
+        return new JsonDeserializationFunction<>(objectMapper, keyClass);
+    }
+
+    private <K> Optional<Codec<K>> nativeCodec(Class<K> keyClass) {
+        return this == NATIVE ? Codecs.forClass(keyClass) : Optional.<Codec<K>>absent();
+    }
+}
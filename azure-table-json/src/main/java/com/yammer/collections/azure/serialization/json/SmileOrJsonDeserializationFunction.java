@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.yammer.collections.azure.Bytes;
+
+import java.io.IOException;
+
+/**
+ * Reads values written either as Smile, recognised by its header, or as JSON text, so that a table can be migrated
+ * from JSON to Smile without rewriting the existing values.
+ */
+public class SmileOrJsonDeserializationFunction<T> implements Function<Bytes, T> {
+    private final ObjectReader smileReader;
+    private final ObjectReader jsonReader;
+
+    public SmileOrJsonDeserializationFunction(ObjectMapper smileMapper, ObjectMapper jsonMapper, Class<T> deserializedClass) {
+        smileReader = smileMapper.reader(deserializedClass);
+        jsonReader = jsonMapper.reader(deserializedClass);
+    }
+
+    static boolean hasSmileHeader(Bytes bytes) {
+        return bytes.length() >= 3
+                && bytes.byteAt(0) == SmileConstants.HEADER_BYTE_1
+                && bytes.byteAt(1) == SmileConstants.HEADER_BYTE_2
+                && bytes.byteAt(2) == SmileConstants.HEADER_BYTE_3;
+    }
+
+    @Override
+    public T apply(Bytes input) {
+        ObjectReader reader = hasSmileHeader(input) ? smileReader : jsonReader;
+        try {
+            return reader.readValue(input.getBackingArray(), input.getOffset(), input.length());
+        } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.google.common.base.Function;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.transforming.TransformingTable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Like {@link JsonSerializingTable}, but writes values in the binary Smile format. Values are read in either format,
+ * so existing JSON tables can be switched over. Row and column keys are not migrated, as they are matched by their serialized form.
+ */
+public final class SmileSerializingTable {
+    static final ObjectMapper DEFAULT_SMILE_MAPPER =
+            new ObjectMapper(new SmileFactory().configure(SmileGenerator.Feature.WRITE_HEADER, true));
+
+    private SmileSerializingTable() {
+    }
+
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
+        return create(backingTable, rowClass, columnClass, valueClass, KeyEncoding.JSON);
+    }
+
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  KeyEncoding keyEncoding) {
+        return create(backingTable, rowClass, columnClass, valueClass,
+                JsonSerializingTable.DEFAULT_OBJECT_MAPPER, DEFAULT_SMILE_MAPPER, keyEncoding);
+    }
+
+    /**
+     * @param jsonMapper  mapper for the keys and for values still stored as JSON
+     * @param smileMapper mapper backed by a {@link SmileFactory} writing headers, configured like the json one
+     */
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  ObjectMapper jsonMapper, ObjectMapper smileMapper) {
+        return create(backingTable, rowClass, columnClass, valueClass, jsonMapper, smileMapper, KeyEncoding.JSON);
+    }
+
+    public static <R, C, V> Table<R, C, V> create(Table<Bytes, Bytes, Bytes> backingTable,
+                                                  Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                  ObjectMapper jsonMapper, ObjectMapper smileMapper, KeyEncoding keyEncoding) {
+        checkArgument(smileMapper.getFactory() instanceof SmileFactory, "Smile mapper must use a SmileFactory");
+        checkArgument(((SmileFactory) smileMapper.getFactory()).isEnabled(SmileGenerator.Feature.WRITE_HEADER),
+                "Smile mapper must write headers, values cannot be told apart from JSON otherwise");
+
+        Function<R, Bytes> toRowFunction = keyEncoding.serializationFunction(jsonMapper, rowClass);
+        Function<Bytes, R> fromRowFunction = keyEncoding.deserializationFunction(jsonMapper, rowClass);
+        Function<C, Bytes> toColumnFunction = keyEncoding.serializationFunction(jsonMapper, columnClass);
+        Function<Bytes, C> fromColumnFunction = keyEncoding.deserializationFunction(jsonMapper, columnClass);
+        Function<V, Bytes> toValueFunction = JsonSerializationFunction.forClass(smileMapper, valueClass);
+        Function<Bytes, V> fromValueFunction = new SmileOrJsonDeserializationFunction<>(smileMapper, jsonMapper, valueClass);
+
+        return TransformingTable.create(backingTable,
+                toRowFunction, fromRowFunction,
+                toColumnFunction, fromColumnFunction,
+                toValueFunction, fromValueFunction
+        );
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.yammer.collections.azure.Bytes;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JsonCodecTest {
+    private static final TestValuePojo POJO_VALUE = new TestValuePojo("John Doe", Arrays.asList(1, 2, 1900));
+
+    @Test
+    public void encodes_like_the_serialization_function() {
+        JsonCodec<TestValuePojo> codec = JsonCodec.forClass(TestValuePojo.class);
+
+        assertThat(new Bytes(codec.encode(POJO_VALUE)), is(equalTo(new JsonSerializationFunction<TestValuePojo>().apply(POJO_VALUE))));
+    }
+
+    @Test
+    public void decodes_a_region_of_an_array() {
+        byte[] padded = "xx{\"name\":\"John Doe\",\"numbers\":[1,2,1900]}yy".getBytes();
+
+        assertThat(JsonCodec.forClass(TestValuePojo.class).decode(padded, 2, padded.length - 4), is(equalTo(POJO_VALUE)));
+    }
+}
@@ -15,9 +15,12 @@
  */
 package com.yammer.collections.azure.serialization.json;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yammer.collections.azure.Bytes;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -41,4 +44,20 @@ public class JsonDeserializationFunctionTest {
         JsonDeserializationFunction<TestValuePojo> pojoDeserializingFunction = new JsonDeserializationFunction<>(TestValuePojo.class);
         assertThat(pojoDeserializingFunction.apply(SERIALIZED_POJO_VALUE), is(equalTo(POJO_VALUE)));
     }
+
+    @Test
+    public void deserializes_slices() {
+        Bytes padded = new Bytes(("xx" + PRIMITIVE_VALUE + "yy").getBytes());
+        JsonDeserializationFunction<Long> primitiveDeserializingFunction = new JsonDeserializationFunction<>(Long.class);
+
+        assertThat(primitiveDeserializingFunction.apply(padded.slice(2, 3)), is(equalTo(PRIMITIVE_VALUE)));
+    }
+
+    @Test
+    public void uses_supplied_mapper() {
+        ObjectMapper decimalMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        JsonDeserializationFunction<Object> deserializingFunction = new JsonDeserializationFunction<>(decimalMapper, Object.class);
+
+        assertThat(deserializingFunction.apply(new Bytes("1.5".getBytes())), is(equalTo((Object) new BigDecimal("1.5"))));
+    }
 }
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.microsoft.windowsazure.services.table.client.EdmType;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JsonPropertyExtractorTest {
+    private static final TestValuePojo POJO_VALUE = new TestValuePojo("John Doe", Arrays.asList(1, 2, 1900));
+
+    @Test
+    public void extracts_scalar_fields_as_typed_properties() {
+        Map<String, EntityProperty> properties = JsonPropertyExtractor.<TestValuePojo>forFields("name").extract(POJO_VALUE);
+
+        assertThat(properties.size(), is(equalTo(1)));
+        assertThat(properties.get("name").getEdmType(), is(equalTo(EdmType.STRING)));
+        assertThat(properties.get("name").getValueAsString(), is(equalTo("John Doe")));
+    }
+
+    @Test
+    public void skips_null_fields() {
+        Map<String, EntityProperty> properties = JsonPropertyExtractor.<TestValuePojo>forFields("name")
+                .extract(new TestValuePojo(null, Arrays.asList(1)));
+
+        assertThat(properties.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_non_scalar_fields() {
+        JsonPropertyExtractor.<TestValuePojo>forFields("numbers").extract(POJO_VALUE);
+    }
+}
@@ -16,6 +16,8 @@
 package com.yammer.collections.azure.serialization.json;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.yammer.collections.azure.Bytes;
 import org.junit.Test;
 
@@ -46,4 +48,12 @@ public class JsonSerializationFunctionTest {
         assertThat(pojoSerializingFunction.apply(POJO_VALUE), is(equalTo(SERIALIZED_POJO_VALUE)));
     }
 
+    @Test
+    public void serializes_with_supplied_mapper() {
+        ObjectMapper wrappingMapper = new ObjectMapper().enable(SerializationFeature.WRAP_ROOT_VALUE);
+        JsonSerializationFunction<TestValuePojo> pojoSerializingFunction = JsonSerializationFunction.forClass(wrappingMapper, TestValuePojo.class);
+
+        assertThat(new String(pojoSerializingFunction.apply(POJO_VALUE).getBytes()),
+                is(equalTo("{\"TestValuePojo\":{\"name\":\"John Doe\",\"numbers\":[1,2,1900]}}")));
+    }
 }
@@ -18,6 +18,7 @@ package com.yammer.collections.azure.serialization.json;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.azure.serialization.Codecs;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -59,5 +60,14 @@ public class JsonSerializingTableIntegrationTest {
         assertThat(jsonSerializingTable.get(ROW, COLUMN), is(equalTo(VALUE)));
     }
 
+    @Test
+    public void native_key_encoding_uses_codecs_for_supported_classes() {
+        Table<Float, Long, TestValuePojo> nativeKeysTable = JsonSerializingTable.create(
+                backingTable, Float.class, Long.class, TestValuePojo.class, KeyEncoding.NATIVE);
+
+        nativeKeysTable.put(ROW, COLUMN, VALUE);
 
+        assertThat(backingTable.get(SERIALIED_ROW, new Bytes(Codecs.LONG.encode(COLUMN))), is(equalTo(SERIALIZED_VALUE)));
+        assertThat(nativeKeysTable.get(ROW, COLUMN), is(equalTo(VALUE)));
+    }
 }
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.serialization.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"InstanceVariableMayNotBeInitialized", "ConstantNamingConvention"})
+public class SmileSerializingTableIntegrationTest {
+    private static final Float ROW = 11.34f;
+    private static final Long COLUMN = 123l;
+    private static final TestValuePojo VALUE = new TestValuePojo("Ala", Arrays.asList(15, 1, 1690));
+    private static final Bytes SERIALIED_ROW = new Bytes(ROW.toString().getBytes());
+    private static final Bytes SERIALIZED_COLUMN = new Bytes(COLUMN.toString().getBytes());
+    private static final Bytes JSON_SERIALIZED_VALUE = new Bytes("{\"name\":\"Ala\",\"numbers\":[15,1,1690]}".getBytes());
+    private Table<Bytes, Bytes, Bytes> backingTable;
+    private Table<Float, Long, TestValuePojo> smileSerializingTable;
+
+    @Before
+    public void setUp() {
+        backingTable = HashBasedTable.create();
+        smileSerializingTable = SmileSerializingTable.create(
+                backingTable, Float.class, Long.class, TestValuePojo.class);
+    }
+
+    @Test
+    public void put_serializes_keys_as_json_and_value_as_smile() {
+        smileSerializingTable.put(ROW, COLUMN, VALUE);
+
+        Bytes value = backingTable.get(SERIALIED_ROW, SERIALIZED_COLUMN);
+        assertThat(SmileOrJsonDeserializationFunction.hasSmileHeader(value), is(true));
+        assertThat(value.length() < JSON_SERIALIZED_VALUE.length(), is(true));
+    }
+
+    @Test
+    public void reads_back_smile_values() {
+        smileSerializingTable.put(ROW, COLUMN, VALUE);
+
+        assertThat(smileSerializingTable.get(ROW, COLUMN), is(equalTo(VALUE)));
+    }
+
+    @Test
+    public void reads_json_values() {
+        backingTable.put(SERIALIED_ROW, SERIALIZED_COLUMN, JSON_SERIALIZED_VALUE);
+
+        assertThat(smileSerializingTable.get(ROW, COLUMN), is(equalTo(VALUE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_non_smile_mapper() {
+        SmileSerializingTable.create(backingTable, Float.class, Long.class, TestValuePojo.class, new ObjectMapper(), new ObjectMapper());
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Chooses the records operations are made on, numbered from 0.
+ */
+abstract class KeyDistribution {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    abstract long next(Random random);
+
+    static KeyDistribution uniform(final long records) {
+        checkArgument(records > 0, "There must be records");
+        return new KeyDistribution() {
+            @Override
+            long next(Random random) {
+                return (long) (random.nextDouble() * records);
+            }
+        };
+    }
+
+    /**
+     * Zipfian popularity, as in YCSB: the record of rank i is chosen in proportion to 1 / i^theta, so with the usual theta of 0.99 a
+     * few records take most operations. The ranks are scattered across the records by a hash, so that the popular records are not
+     * neighbours, i.e. do not all fall in the same partitions.
+     */
+    static KeyDistribution zipfian(final long records, double theta) {
+        checkArgument(records > 0, "There must be records");
+        checkArgument(theta > 0 && theta < 1, "The Zipfian constant must be in (0, 1)");
+        final double zetaN = zeta(records, theta);
+        final double alpha = 1 / (1 - theta);
+        final double eta = (1 - Math.pow(2.0 / records, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        final double secondThreshold = 1 + Math.pow(0.5, theta);
+        return new KeyDistribution() {
+            @Override
+            long next(Random random) {
+                double u = random.nextDouble();
+                double uz = u * zetaN;
+                long rank;
+                if (uz < 1) {
+                    rank = 0;
+                } else if (uz < secondThreshold) {
+                    rank = 1;
+                } else {
+                    rank = Math.min(records - 1, (long) (records * Math.pow(eta * u - eta + 1, alpha)));
+                }
+                return scatter(rank, records);
+            }
+        };
+    }
+
+    private static double zeta(long count, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= count; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    // FNV-1a over the bytes of the rank
+    private static long scatter(long rank, long records) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < Long.SIZE / Byte.SIZE; i++) {
+            hash ^= (rank >>> (i * Byte.SIZE)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return (hash & Long.MAX_VALUE) % records;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Counts latencies in buckets of logarithmically increasing width, as HdrHistogram does, so that every percentile is exact to within
+ * 1/64 of its value, however long the tail, in a fixed 30 KB. Safe to record from several threads.
+ */
+final class LatencyHistogram {
+    // values below 128 have buckets of their own, above that each power of two is split in 64 buckets
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    void record(long latencyNanos) {
+        long value = Math.max(0, latencyNanos);
+        counts.incrementAndGet(bucket(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    long getCount() {
+        return totalCount.get();
+    }
+
+    double getMean(TimeUnit unit) {
+        long count = totalCount.get();
+        return count == 0 ? 0 : toUnit(totalNanos.get() / (double) count, unit);
+    }
+
+    double getMax(TimeUnit unit) {
+        return toUnit(maxNanos.get(), unit);
+    }
+
+    /**
+     * @return the highest latency of the bucket the percentile falls in, so at most 1/64 above the actual latency
+     */
+    double getPercentile(double percentile, TimeUnit unit) {
+        checkArgument(percentile > 0 && percentile <= 100, "The percentile must be in (0, 100]");
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return toUnit(Math.min(highestValueOf(bucket), maxNanos.get()), unit);
+            }
+        }
+        return getMax(unit);
+    }
+
+    private static double toUnit(double nanos, TimeUnit unit) {
+        return nanos / unit.toNanos(1);
+    }
+}
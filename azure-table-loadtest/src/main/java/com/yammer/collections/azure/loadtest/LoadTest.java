@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import com.google.common.collect.Table;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.yammer.collections.azure.ExponentialJitterRetryPolicy;
+import com.yammer.collections.azure.InMemoryTables;
+import com.yammer.collections.azure.TableClientOptions;
+import com.yammer.collections.azure.serialization.Codecs;
+import com.yammer.collections.azure.util.AzureTables;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a table with a mix of operations, in the manner of YCSB, and reports the throughput and latency percentiles of each
+ * operation. See {@link LoadTestOptions#USAGE} for the options.
+ */
+public final class LoadTest {
+    private static final int RETRY_INTERVAL_IN_MS = 100;
+    private static final int MAX_RETRY_INTERVAL_IN_MS = 5000;
+    private static final int RETRY_ATTEMPTS = 5;
+    private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException, StorageException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(LoadTestOptions.USAGE);
+            return;
+        }
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(1);
+            return;
+        }
+
+        System.out.println("Load test of the " + options);
+        final Workload workload = new Workload(createTable(options), options);
+        if (options.isLoad()) {
+            long start = System.nanoTime();
+            LatencyHistogram loadLatencies = workload.load();
+            System.out.println(report("LOAD", loadLatencies, workload.getLoadErrors(), System.nanoTime() - start));
+        }
+
+        final long start = System.nanoTime();
+        ScheduledExecutorService status = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loadtest-status");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (options.getStatusIntervalSeconds() > 0) {
+            status.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+                    System.out.println(String.format(Locale.ENGLISH, "%.0f s: %d operations, %.1f ops/s",
+                            seconds, workload.getCompleted(), workload.getCompleted() / seconds));
+                }
+            }, options.getStatusIntervalSeconds(), options.getStatusIntervalSeconds(), TimeUnit.SECONDS);
+        }
+        workload.run(start);
+        long elapsedNanos = System.nanoTime() - start;
+        status.shutdownNow();
+
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram latencies = workload.getLatencies(operation);
+            if (latencies.getCount() > 0 || workload.getErrors(operation) > 0) {
+                System.out.println(report(operation.name(), latencies, workload.getErrors(operation), elapsedNanos));
+            }
+        }
+    }
+
+    private static Table<String, String, byte[]> createTable(LoadTestOptions options) throws StorageException {
+        if (options.getBackend() == LoadTestOptions.Backend.MEMORY) {
+            TableClientOptions clientOptions = TableClientOptions.builder()
+                    .withRetryPolicy(new ExponentialJitterRetryPolicy(RETRY_INTERVAL_IN_MS, MAX_RETRY_INTERVAL_IN_MS, RETRY_ATTEMPTS))
+                    .build();
+            InMemoryTables.Builder tables = InMemoryTables.builder()
+                    .withLatency((long) (options.getMemoryLatencyMs() * 1000), TimeUnit.MICROSECONDS)
+                    .withSeed(System.nanoTime());
+            if (options.getMemoryPartitionRate() > 0) {
+                tables.throttlingPartitionsAbove(options.getMemoryPartitionRate());
+            }
+            return tables.build().typedTable(options.getTableName(), clientOptions, String.class, String.class, byte[].class,
+                    Codecs.STRING, Codecs.STRING, Codecs.BYTE_ARRAY);
+        }
+        return AzureTables.clientForAccount(options.getAccountName(), options.getAccountKey())
+                .withExponentialJitterRetryPolicy(RETRY_INTERVAL_IN_MS, MAX_RETRY_INTERVAL_IN_MS, RETRY_ATTEMPTS)
+                .tableWithName(options.getTableName())
+                .createIfDoesNotExist()
+                .buildUsingCodecs(String.class, String.class, byte[].class, Codecs.STRING, Codecs.STRING, Codecs.BYTE_ARRAY);
+    }
+
+    static String report(String name, LatencyHistogram latencies, long errors, long elapsedNanos) {
+        StringBuilder report = new StringBuilder(String.format(Locale.ENGLISH, "[%s] %d operations, %d errors, %.1f ops/s, latency ms: mean %.2f",
+                name, latencies.getCount(), errors, latencies.getCount() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)),
+                latencies.getMean(TimeUnit.MILLISECONDS)));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(Locale.ENGLISH, ", p%s %.2f", percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile),
+                    latencies.getPercentile(percentile, TimeUnit.MILLISECONDS)));
+        }
+        return report.append(String.format(Locale.ENGLISH, ", max %.2f", latencies.getMax(TimeUnit.MILLISECONDS))).toString();
+    }
+}
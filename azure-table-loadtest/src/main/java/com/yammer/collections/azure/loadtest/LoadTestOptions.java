@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The options of {@link LoadTest}, parsed from its command line.
+ */
+final class LoadTestOptions {
+    static final String USAGE = Joiner.on('\n').join(
+            "Usage: java -jar loadtest.jar [options]",
+            "",
+            "  --backend memory|azure       the in-memory stand-in (default) or a storage account",
+            "  --account NAME --key KEY     the storage account of the azure backend",
+            "  --table NAME                 the table, created if it does not exist (default loadtest)",
+            "  --records N                  the records loaded and operated on (default 10000)",
+            "  --columns-per-row N          the records stored in each row, i.e. partition (default 10)",
+            "  --skip-load                  operate on the records of a previous run instead of loading them",
+            "  --mix OP=WEIGHT,...          the weights of read, write, scan and delete (default read=0.95,write=0.05)",
+            "  --distribution zipfian|uniform  the popularity of the records (default zipfian)",
+            "  --zipfian-constant THETA     the skew of the zipfian distribution (default 0.99)",
+            "  --value-size BYTES|MIN-MAX   the size of the values written, fixed or uniform in a range (default 1024)",
+            "  --threads N                  the threads making operations (default 8)",
+            "  --target OPS                 the operations per second aimed at, or 0 for as many as possible (default 0)",
+            "  --duration SECONDS           how long the operations run (default 60)",
+            "  --operations N               the operations to make, or 0 to run for the duration (default 0)",
+            "  --status-interval SECONDS    how often progress is printed, or 0 not to (default 10)",
+            "  --memory-latency-ms MS       the median request latency of the memory backend (default 5)",
+            "  --memory-partition-rate RPS  the request rate above which the memory backend throttles a partition (default 0, none)",
+            "  --help                       prints this message"
+    );
+
+    enum Backend {
+        MEMORY, AZURE
+    }
+
+    private Backend backend = Backend.MEMORY;
+    private Optional<String> accountName = Optional.absent();
+    private Optional<String> accountKey = Optional.absent();
+    private String tableName = "loadtest";
+    private long records = 10000;
+    private int columnsPerRow = 10;
+    private boolean load = true;
+    private final double[] cumulativeMix = new double[Operation.values().length];
+    private String distribution = "zipfian";
+    private double zipfianConstant = 0.99;
+    private int minValueSize = 1024;
+    private int maxValueSize = 1024;
+    private int threads = 8;
+    private double targetThroughput;
+    private long durationSeconds = 60;
+    private long operations;
+    private long statusIntervalSeconds = 10;
+    private double memoryLatencyMs = 5;
+    private double memoryPartitionRate;
+
+    private LoadTestOptions() {
+        setMix("read=0.95,write=0.05");
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message for the user if the arguments are not valid
+     */
+    static LoadTestOptions parse(String... args) {
+        LoadTestOptions options = new LoadTestOptions();
+        Iterator<String> arguments = Arrays.asList(args).iterator();
+        while (arguments.hasNext()) {
+            String name = arguments.next();
+            if ("--skip-load".equals(name)) {
+                options.load = false;
+                continue;
+            }
+            checkArgument(name.startsWith("--"), "Unexpected argument %s", name);
+            checkArgument(arguments.hasNext(), "%s needs a value", name);
+            options.set(name, arguments.next());
+        }
+        options.validate();
+        return options;
+    }
+
+    private void set(String name, String value) {
+        try {
+            switch (name) {
+                case "--backend":
+                    backend = Backend.valueOf(value.toUpperCase(Locale.ENGLISH));
+                    break;
+                case "--account":
+                    accountName = Optional.of(value);
+                    break;
+                case "--key":
+                    accountKey = Optional.of(value);
+                    break;
+                case "--table":
+                    tableName = value;
+                    break;
+                case "--records":
+                    records = Long.parseLong(value);
+                    break;
+                case "--columns-per-row":
+                    columnsPerRow = Integer.parseInt(value);
+                    break;
+                case "--mix":
+                    setMix(value);
+                    break;
+                case "--distribution":
+                    distribution = value;
+                    break;
+                case "--zipfian-constant":
+                    zipfianConstant = Double.parseDouble(value);
+                    break;
+                case "--value-size":
+                    setValueSize(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--target":
+                    targetThroughput = Double.parseDouble(value);
+                    break;
+                case "--duration":
+                    durationSeconds = Long.parseLong(value);
+                    break;
+                case "--operations":
+                    operations = Long.parseLong(value);
+                    break;
+                case "--status-interval":
+                    statusIntervalSeconds = Long.parseLong(value);
+                    break;
+                case "--memory-latency-ms":
+                    memoryLatencyMs = Double.parseDouble(value);
+                    break;
+                case "--memory-partition-rate":
+                    memoryPartitionRate = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + name);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number " + value + " for " + name);
+        }
+    }
+
+    private void setMix(String value) {
+        Map<Operation, Double> weights = new EnumMap<>(Operation.class);
+        for (Map.Entry<String, String> weight : Splitter.on(',').trimResults().withKeyValueSeparator('=').split(value).entrySet()) {
+            double parsed = Double.parseDouble(weight.getValue());
+            checkArgument(parsed >= 0, "Negative weight for %s", weight.getKey());
+            weights.put(Operation.valueOf(weight.getKey().toUpperCase(Locale.ENGLISH)), parsed);
+        }
+        double total = 0;
+        for (double weight : weights.values()) {
+            total += weight;
+        }
+        checkArgument(total > 0, "The mix %s has no operations", value);
+        double cumulative = 0;
+        for (Operation operation : Operation.values()) {
+            cumulative += weights.containsKey(operation) ? weights.get(operation) / total : 0;
+            cumulativeMix[operation.ordinal()] = cumulative;
+        }
+    }
+
+    private void setValueSize(String value) {
+        List<String> range = Splitter.on('-').trimResults().splitToList(value);
+        checkArgument(range.size() <= 2, "Invalid value size %s", value);
+        minValueSize = Integer.parseInt(range.get(0));
+        maxValueSize = Integer.parseInt(range.get(range.size() - 1));
+    }
+
+    private void validate() {
+        checkArgument(backend == Backend.MEMORY || accountName.isPresent() && accountKey.isPresent(),
+                "The azure backend needs --account and --key");
+        checkArgument(records > 0 && columnsPerRow > 0 && threads > 0, "The records, columns per row and threads must be positive");
+        checkArgument(distribution.equals("zipfian") || distribution.equals("uniform"), "Unknown distribution %s", distribution);
+        checkArgument(zipfianConstant > 0 && zipfianConstant < 1, "The zipfian constant must be in (0, 1)");
+        checkArgument(0 <= minValueSize && minValueSize <= maxValueSize, "Invalid value size range");
+        checkArgument(targetThroughput >= 0 && durationSeconds > 0 && operations >= 0 && statusIntervalSeconds >= 0,
+                "The target, duration, operations and status interval must not be negative");
+        checkArgument(memoryLatencyMs >= 0 && memoryPartitionRate >= 0, "The memory backend options must not be negative");
+    }
+
+    Backend getBackend() {
+        return backend;
+    }
+
+    String getAccountName() {
+        return accountName.get();
+    }
+
+    String getAccountKey() {
+        return accountKey.get();
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    int getColumnsPerRow() {
+        return columnsPerRow;
+    }
+
+    boolean isLoad() {
+        return load;
+    }
+
+    Operation nextOperation(Random random) {
+        double u = random.nextDouble();
+        Operation[] operations = Operation.values();
+        for (Operation operation : operations) {
+            if (u < cumulativeMix[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        // rounding may leave the cumulative weight just below 1
+        for (int i = operations.length - 1; ; i--) {
+            if (i == 0 || cumulativeMix[i] > cumulativeMix[i - 1]) {
+                return operations[i];
+            }
+        }
+    }
+
+    KeyDistribution keyDistribution() {
+        return distribution.equals("zipfian") ? KeyDistribution.zipfian(records, zipfianConstant) : KeyDistribution.uniform(records);
+    }
+
+    int nextValueSize(Random random) {
+        return minValueSize + random.nextInt(maxValueSize - minValueSize + 1);
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    double getTargetThroughput() {
+        return targetThroughput;
+    }
+
+    long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    long getOperations() {
+        return operations;
+    }
+
+    long getStatusIntervalSeconds() {
+        return statusIntervalSeconds;
+    }
+
+    double getMemoryLatencyMs() {
+        return memoryLatencyMs;
+    }
+
+    double getMemoryPartitionRate() {
+        return memoryPartitionRate;
+    }
+
+    @Override
+    public String toString() {
+        return backend.name().toLowerCase(Locale.ENGLISH) + " table " + tableName + ", " + records + " records in rows of " + columnsPerRow
+                + ", " + distribution + " keys, values of " + minValueSize + (minValueSize == maxValueSize ? "" : "-" + maxValueSize)
+                + " bytes, " + threads + " threads" + (targetThroughput > 0 ? ", target " + targetThroughput + " ops/s" : "");
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+/**
+ * The operations of a workload, made on the record chosen by its key distribution.
+ */
+enum Operation {
+    /**
+     * Gets the value of the record.
+     */
+    READ,
+    /**
+     * Puts a new value, of a size drawn from the value sizes, in the record.
+     */
+    WRITE,
+    /**
+     * Reads the whole row of the record, a partition query.
+     */
+    SCAN,
+    /**
+     * Removes the record, which is read first to get its etag.
+     */
+    DELETE
+}
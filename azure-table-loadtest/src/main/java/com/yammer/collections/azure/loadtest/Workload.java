@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads the records of a table and runs the operation mix of the options against them from several threads, recording the latency
+ * of each operation. With a target throughput, each thread makes its operations on a fixed schedule and their latency is measured
+ * from the time they were due, so that a stall counts against all the operations it delayed rather than only the one it hit.
+ */
+final class Workload {
+    private final Table<String, String, byte[]> table;
+    private final LoadTestOptions options;
+    private final KeyDistribution keys;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AtomicLong loadErrors = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    Workload(Table<String, String, byte[]> table, LoadTestOptions options) {
+        this.table = checkNotNull(table);
+        this.options = checkNotNull(options);
+        keys = options.keyDistribution();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    String row(long record) {
+        return "row" + record / options.getColumnsPerRow();
+    }
+
+    String column(long record) {
+        return "column" + record % options.getColumnsPerRow();
+    }
+
+    private byte[] value(Random random) {
+        byte[] value = new byte[options.nextValueSize(random)];
+        random.nextBytes(value);
+        return value;
+    }
+
+    /**
+     * Writes every record once, splitting them between the threads.
+     *
+     * @return the latencies of the writes
+     */
+    LatencyHistogram load() throws InterruptedException {
+        final LatencyHistogram loadLatencies = new LatencyHistogram();
+        final long records = options.getRecords();
+        final int threads = options.getThreads();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final long first = records * i / threads;
+            final long last = records * (i + 1) / threads;
+            start("loader-" + i, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = ThreadLocalRandom.current();
+                        for (long record = first; record < last; record++) {
+                            long start = System.nanoTime();
+                            try {
+                                table.put(row(record), column(record), value(random));
+                                loadLatencies.record(System.nanoTime() - start);
+                            } catch (RuntimeException e) {
+                                loadErrors.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+        return loadLatencies;
+    }
+
+    /**
+     * Runs the mix until the duration or the number of operations of the options is reached.
+     */
+    void run(final long startNanos) throws InterruptedException {
+        final long endNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        final AtomicLong remaining = new AtomicLong(options.getOperations() == 0 ? Long.MAX_VALUE : options.getOperations());
+        final long intervalNanos = options.getTargetThroughput() == 0 ? 0
+                : (long) (TimeUnit.SECONDS.toNanos(options.getThreads()) / options.getTargetThroughput());
+        final CountDownLatch done = new CountDownLatch(options.getThreads());
+        for (int i = 0; i < options.getThreads(); i++) {
+            // the schedules of the threads are staggered, so that they do not all send at once
+            final long firstDueNanos = startNanos + intervalNanos * i / options.getThreads();
+            start("worker-" + i, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Random random = ThreadLocalRandom.current();
+                        long dueNanos = firstDueNanos;
+                        while (remaining.getAndDecrement() > 0) {
+                            long now = System.nanoTime();
+                            if (intervalNanos > 0) {
+                                if (dueNanos > now) {
+                                    Uninterruptibles.sleepUninterruptibly(dueNanos - now, TimeUnit.NANOSECONDS);
+                                }
+                            } else {
+                                dueNanos = now;
+                            }
+                            // threads behind their schedule stop at the end of the run as well
+                            if (dueNanos >= endNanos || now >= endNanos) {
+                                return;
+                            }
+                            perform(options.nextOperation(random), keys.next(random), dueNanos, random);
+                            dueNanos += intervalNanos;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void perform(Operation operation, long record, long dueNanos, Random random) {
+        String row = row(record);
+        String column = column(record);
+        try {
+            switch (operation) {
+                case READ:
+                    table.get(row, column);
+                    break;
+                case WRITE:
+                    table.put(row, column, value(random));
+                    break;
+                case SCAN:
+                    for (Map.Entry<String, byte[]> cell : table.row(row).entrySet()) {
+                        cell.getValue();
+                    }
+                    break;
+                case DELETE:
+                    table.remove(row, column);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+            latencies.get(operation).record(System.nanoTime() - dueNanos);
+        } catch (RuntimeException e) {
+            errors.get(operation).incrementAndGet();
+        }
+        completed.incrementAndGet();
+    }
+
+    private static void start(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, "loadtest-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    long getLoadErrors() {
+        return loadErrors.get();
+    }
+
+    long getCompleted() {
+        return completed.get();
+    }
+
+    LatencyHistogram getLatencies(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    long getErrors(Operation operation) {
+        return errors.get(operation).get();
+    }
+}
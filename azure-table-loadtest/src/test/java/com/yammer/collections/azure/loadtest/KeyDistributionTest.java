@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class KeyDistributionTest {
+    private static final int RECORDS = 1000;
+    private static final int SAMPLES = 100000;
+
+    private static long[] sortedCounts(KeyDistribution distribution) {
+        Random random = new Random(1);
+        long[] counts = new long[RECORDS];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[(int) distribution.next(random)]++;
+        }
+        Arrays.sort(counts);
+        return counts;
+    }
+
+    @Test
+    public void zipfian_keys_are_skewed_towards_a_few_records() {
+        long[] counts = sortedCounts(KeyDistribution.zipfian(RECORDS, 0.99));
+        long topTen = 0;
+        for (int i = RECORDS - 10; i < RECORDS; i++) {
+            topTen += counts[i];
+        }
+
+        // about 39% of 1 / i^0.99 over 1000 records falls on the first 10
+        assertThat(topTen, is(greaterThan(SAMPLES * 30L / 100)));
+    }
+
+    @Test
+    public void uniform_keys_are_spread_evenly() {
+        long[] counts = sortedCounts(KeyDistribution.uniform(RECORDS));
+
+        assertThat(counts[0], is(greaterThan(SAMPLES / RECORDS / 2L)));
+        assertThat(counts[RECORDS - 1], is(lessThan(SAMPLES / RECORDS * 2L)));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+    @Test
+    public void buckets_hold_the_values_up_to_their_highest_value() {
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertThat(LatencyHistogram.highestValueOf(bucket), is(greaterThanOrEqualTo(value)));
+            assertThat(LatencyHistogram.highestValueOf(bucket) - value, is(lessThanOrEqualTo(value / 64)));
+            if (bucket > 0) {
+                assertThat(LatencyHistogram.highestValueOf(bucket - 1), is(lessThanOrEqualTo(value - 1)));
+            }
+        }
+        assertThat(LatencyHistogram.highestValueOf(LatencyHistogram.bucket(Long.MAX_VALUE)), is(equalTo(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentiles_are_within_the_precision_of_the_buckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertThat(histogram.getCount(), is(equalTo(1000L)));
+        assertThat(histogram.getPercentile(50, TimeUnit.MILLISECONDS), is(closeTo(500, 500 / 64.0)));
+        assertThat(histogram.getPercentile(99, TimeUnit.MILLISECONDS), is(closeTo(990, 990 / 64.0)));
+        assertThat(histogram.getPercentile(100, TimeUnit.MILLISECONDS), is(equalTo(1000.0)));
+        assertThat(histogram.getMean(TimeUnit.MILLISECONDS), is(closeTo(500.5, 0.001)));
+    }
+
+    @Test
+    public void empty_histogram_reports_zero() {
+        assertThat(new LatencyHistogram().getPercentile(99, TimeUnit.MILLISECONDS), is(equalTo(0.0)));
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.loadtest;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LoadTestOptionsTest {
+    @Test
+    public void operations_are_chosen_in_proportion_to_their_weights() {
+        LoadTestOptions options = LoadTestOptions.parse("--mix", "read=3,scan=1");
+        Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            counts.put(operation, 0);
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            Operation operation = options.nextOperation(random);
+            counts.put(operation, counts.get(operation) + 1);
+        }
+
+        assertThat(counts.get(Operation.READ) / 10000.0, is(closeTo(0.75, 0.02)));
+        assertThat(counts.get(Operation.SCAN) / 10000.0, is(closeTo(0.25, 0.02)));
+        assertThat(counts.get(Operation.WRITE) + counts.get(Operation.DELETE), is(equalTo(0)));
+    }
+
+    @Test
+    public void value_sizes_are_drawn_from_the_range() {
+        LoadTestOptions options = LoadTestOptions.parse("--value-size", "10-12");
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            int size = options.nextValueSize(random);
+            assertThat(size >= 10 && size <= 12, is(true));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void azure_backend_needs_an_account() {
+        LoadTestOptions.parse("--backend", "azure");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown_option_rejected() {
+        LoadTestOptions.parse("--reads", "10");
+    }
+}
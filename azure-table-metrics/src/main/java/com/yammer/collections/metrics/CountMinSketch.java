@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Estimates the counts of arbitrarily many keys in fixed memory. Estimates never undercount, and overcount by at most
+ * {@code e / width} of the total count with probability {@code 1 - e^-depth}. Thread safe without locking.
+ */
+final class CountMinSketch {
+    private static final int GOLDEN_RATIO = 0x9e3779b9;
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    CountMinSketch(int width, int depth) {
+        checkArgument(width > 0 && Integer.bitCount(width) == 1, "The width must be a power of two");
+        checkArgument(depth > 0, "The depth must be positive");
+        this.width = width;
+        this.depth = depth;
+        counters = new AtomicLongArray(width * depth);
+    }
+
+    // murmur3 finalizer, so that each row spreads the same hash code differently
+    private static int hash(int hashCode, int row) {
+        int hash = hashCode + row * GOLDEN_RATIO;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * @return the estimated count of the key, including the added count
+     */
+    long add(Object key, long count) {
+        int hashCode = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + (hash(hashCode, row) & (width - 1));
+            estimate = Math.min(estimate, counters.addAndGet(index, count));
+        }
+        return estimate;
+    }
+}
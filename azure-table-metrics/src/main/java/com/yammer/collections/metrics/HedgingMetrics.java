@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.collect.ImmutableMap;
+import com.yammer.collections.azure.HedgingPolicy;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reports how often a {@link HedgingPolicy} hedges point reads and how often the hedge wins: the counts of retrieves, hedges and
+ * hedges completing first, the ratios of hedges to retrieves and of wins to hedges, and the current hedge delay in milliseconds
+ * (-1 until enough retrieves have been measured).
+ */
+public class HedgingMetrics implements MetricSet {
+    private final HedgingPolicy policy;
+
+    public HedgingMetrics(HedgingPolicy policy) {
+        this.policy = checkNotNull(policy);
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return ImmutableMap.<String, Metric>builder()
+                .put("retrieves", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return policy.getRetrieveCount();
+                    }
+                })
+                .put("hedges", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return policy.getHedgeCount();
+                    }
+                })
+                .put("hedge-wins", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return policy.getHedgeWinCount();
+                    }
+                })
+                .put("hedge-ratio", new RatioGauge() {
+                    @Override
+                    protected Ratio getRatio() {
+                        return Ratio.of(policy.getHedgeCount(), policy.getRetrieveCount());
+                    }
+                })
+                .put("hedge-win-ratio", new RatioGauge() {
+                    @Override
+                    protected Ratio getRatio() {
+                        return Ratio.of(policy.getHedgeWinCount(), policy.getHedgeCount());
+                    }
+                })
+                .put("hedge-delay-ms", new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return policy.getHedgeDelay(TimeUnit.MILLISECONDS);
+                    }
+                })
+                .build();
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Finds the hottest row (partition) and column keys of a table, by number of requests and by bytes transferred, in memory that does
+ * not depend on the number of distinct keys. Every key is counted in a {@link CountMinSketch} and the k keys with the highest estimates
+ * are retained. Counting starts over every window, so that the rates reported are those of the last complete window, or of the current
+ * one until a window completes.
+ * <p>
+ * Bytes are only counted for the values a metered table is able to size, see {@link MeteredTable#create(com.google.common.collect.Table,
+ * com.codahale.metrics.MetricRegistry, String, com.google.common.base.Function, HotKeyTracker)}.
+ */
+public final class HotKeyTracker implements MetricSet {
+    public static final int DEFAULT_K = 10;
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+    private static final int SKETCH_WIDTH = 1024;
+    private static final int SKETCH_DEPTH = 4;
+    private final int k;
+    private final long windowNanos;
+    private final Clock clock;
+    private volatile Window current;
+    private volatile Window completed;
+
+    public HotKeyTracker() {
+        this(DEFAULT_K, DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public HotKeyTracker(int k, long window, TimeUnit windowUnit) {
+        this(k, window, windowUnit, Clock.defaultClock());
+    }
+
+    HotKeyTracker(int k, long window, TimeUnit windowUnit, Clock clock) {
+        checkArgument(k > 0, "k must be positive");
+        checkArgument(window > 0, "The window must be positive");
+        this.k = k;
+        windowNanos = windowUnit.toNanos(window);
+        this.clock = checkNotNull(clock);
+        current = new Window(clock.getTick());
+    }
+
+    public void record(Object row, Object column, int bytes) {
+        Window window = currentWindow();
+        window.rowRequests.add(row, 1);
+        window.columnRequests.add(column, 1);
+        if (bytes > 0) {
+            window.rowBytes.add(row, bytes);
+            window.columnBytes.add(column, bytes);
+        }
+    }
+
+    public HotKeys snapshot() {
+        Window window = currentWindow();
+        Window last = completed;
+        return last == null ? window.snapshot(clock.getTick()) : last.snapshot(last.end);
+    }
+
+    /**
+     * Gauges of the hottest keys and their rates per second, named {@code hot-rows-by-requests}, {@code hot-rows-by-bytes},
+     * {@code hot-columns-by-requests} and {@code hot-columns-by-bytes}.
+     */
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return ImmutableMap.<String, Metric>of(
+                "hot-rows-by-requests", new HotKeysGauge() {
+                    @Override
+                    List<HotKeys.HotKey> hotKeys(HotKeys snapshot) {
+                        return snapshot.getRowsByRequests();
+                    }
+                },
+                "hot-rows-by-bytes", new HotKeysGauge() {
+                    @Override
+                    List<HotKeys.HotKey> hotKeys(HotKeys snapshot) {
+                        return snapshot.getRowsByBytes();
+                    }
+                },
+                "hot-columns-by-requests", new HotKeysGauge() {
+                    @Override
+                    List<HotKeys.HotKey> hotKeys(HotKeys snapshot) {
+                        return snapshot.getColumnsByRequests();
+                    }
+                },
+                "hot-columns-by-bytes", new HotKeysGauge() {
+                    @Override
+                    List<HotKeys.HotKey> hotKeys(HotKeys snapshot) {
+                        return snapshot.getColumnsByBytes();
+                    }
+                });
+    }
+
+    Recorder forRow(final Object row) {
+        return new Recorder() {
+            @Override
+            public void record(Object column, int bytes) {
+                HotKeyTracker.this.record(row, column, bytes);
+            }
+        };
+    }
+
+    Recorder forColumn(final Object column) {
+        return new Recorder() {
+            @Override
+            public void record(Object row, int bytes) {
+                HotKeyTracker.this.record(row, column, bytes);
+            }
+        };
+    }
+
+    private Window currentWindow() {
+        long now = clock.getTick();
+        Window window = current;
+        if (now - window.start < windowNanos) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (now - window.start >= windowNanos) {
+                window.end = now;
+                completed = window;
+                window = new Window(now);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    /**
+     * Records the keys accessed through a row or a column view, whose other key is fixed.
+     */
+    interface Recorder {
+        Recorder NONE = new Recorder() {
+            @Override
+            public void record(Object key, int bytes) {
+            }
+        };
+
+        void record(Object key, int bytes);
+    }
+
+    private final class Window {
+        private final long start;
+        private final KeyCounter rowRequests = new KeyCounter();
+        private final KeyCounter rowBytes = new KeyCounter();
+        private final KeyCounter columnRequests = new KeyCounter();
+        private final KeyCounter columnBytes = new KeyCounter();
+        private long end;
+
+        private Window(long start) {
+            this.start = start;
+        }
+
+        private HotKeys snapshot(long until) {
+            double seconds = Math.max(until - start, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+            return new HotKeys(rowRequests.hotKeys(seconds), rowBytes.hotKeys(seconds),
+                    columnRequests.hotKeys(seconds), columnBytes.hotKeys(seconds));
+        }
+    }
+
+    private final class KeyCounter {
+        private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        private final TopK topK = new TopK(k);
+
+        // a null key, e.g. of get(null, column), names no entity and cannot be hot
+        private void add(Object key, long count) {
+            if (key == null) {
+                return;
+            }
+            topK.offer(key, sketch.add(key, count));
+        }
+
+        private List<HotKeys.HotKey> hotKeys(double seconds) {
+            ImmutableList.Builder<HotKeys.HotKey> hotKeys = ImmutableList.builder();
+            for (Map.Entry<Object, Long> entry : topK.descending()) {
+                hotKeys.add(new HotKeys.HotKey(entry.getKey(), entry.getValue(), entry.getValue() / seconds));
+            }
+            return hotKeys.build();
+        }
+    }
+
+    private abstract class HotKeysGauge implements Gauge<Map<String, Double>> {
+        abstract List<HotKeys.HotKey> hotKeys(HotKeys snapshot);
+
+        @Override
+        public Map<String, Double> getValue() {
+            Map<String, Double> rates = new LinkedHashMap<>();
+            for (HotKeys.HotKey hotKey : hotKeys(snapshot())) {
+                rates.put(String.valueOf(hotKey.getKey()), hotKey.getRatePerSecond());
+            }
+            return rates;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import java.util.List;
+
+/**
+ * A snapshot of the hottest keys of a table, see {@link HotKeyTracker}, each list in descending order.
+ */
+public final class HotKeys {
+    private final List<HotKey> rowsByRequests;
+    private final List<HotKey> rowsByBytes;
+    private final List<HotKey> columnsByRequests;
+    private final List<HotKey> columnsByBytes;
+
+    HotKeys(List<HotKey> rowsByRequests, List<HotKey> rowsByBytes, List<HotKey> columnsByRequests, List<HotKey> columnsByBytes) {
+        this.rowsByRequests = rowsByRequests;
+        this.rowsByBytes = rowsByBytes;
+        this.columnsByRequests = columnsByRequests;
+        this.columnsByBytes = columnsByBytes;
+    }
+
+    public List<HotKey> getRowsByRequests() {
+        return rowsByRequests;
+    }
+
+    public List<HotKey> getRowsByBytes() {
+        return rowsByBytes;
+    }
+
+    public List<HotKey> getColumnsByRequests() {
+        return columnsByRequests;
+    }
+
+    public List<HotKey> getColumnsByBytes() {
+        return columnsByBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKeys{rowsByRequests=" + rowsByRequests + ", rowsByBytes=" + rowsByBytes
+                + ", columnsByRequests=" + columnsByRequests + ", columnsByBytes=" + columnsByBytes + '}';
+    }
+
+    /**
+     * A key with its estimated count, of requests or bytes, which may be overestimated but never underestimated.
+     */
+    public static final class HotKey {
+        private final Object key;
+        private final long count;
+        private final double ratePerSecond;
+
+        HotKey(Object key, long count, double ratePerSecond) {
+            this.key = key;
+            this.count = count;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + count;
+        }
+    }
+}
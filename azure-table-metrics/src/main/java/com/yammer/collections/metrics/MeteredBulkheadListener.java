@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.yammer.collections.azure.Bulkhead;
+import com.yammer.collections.azure.BulkheadListener;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records the time operations wait for their compartment of a {@link Bulkhead}, and the operations rejected, under names of the form
+ * {@code <prefix>-bulkhead-<compartment>-<metric>}, the prefix being {@link MeteredRequestListener#DEFAULT_PREFIX} by default.
+ */
+public class MeteredBulkheadListener implements BulkheadListener {
+    private final Map<Bulkhead.Compartment, Timer> queueTimes = new EnumMap<>(Bulkhead.Compartment.class);
+    private final Map<Bulkhead.Compartment, Meter> rejections = new EnumMap<>(Bulkhead.Compartment.class);
+
+    public MeteredBulkheadListener(MetricRegistry metricRegistry) {
+        this(metricRegistry, MeteredRequestListener.DEFAULT_PREFIX);
+    }
+
+    public MeteredBulkheadListener(MetricRegistry metricRegistry, String prefix) {
+        checkNotNull(metricRegistry);
+        checkNotNull(prefix);
+        for (Bulkhead.Compartment compartment : Bulkhead.Compartment.values()) {
+            String compartmentPrefix = prefix + "-bulkhead-" + compartment.name().toLowerCase(Locale.ENGLISH);
+            queueTimes.put(compartment, metricRegistry.timer(compartmentPrefix + "-queue-time"));
+            rejections.put(compartment, metricRegistry.meter(compartmentPrefix + "-rejected"));
+        }
+    }
+
+    @Override
+    public void admitted(Bulkhead.Compartment compartment, long queueTimeInNanos) {
+        queueTimes.get(compartment).update(queueTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void rejected(Bulkhead.Compartment compartment, long queueTimeInNanos) {
+        rejections.get(compartment).mark();
+    }
+}
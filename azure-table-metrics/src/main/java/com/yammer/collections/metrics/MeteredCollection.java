@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ForwardingCollection;
+import com.yammer.collections.metrics.ScanMetrics.Operation;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+class MeteredCollection<E> extends ForwardingCollection<E> {
+    private final Collection<E> backingCollection;
+    private final ScanMetrics scanMetrics;
+
+    MeteredCollection(Collection<E> backingCollection, ScanMetrics scanMetrics) {
+        this.backingCollection = backingCollection;
+        this.scanMetrics = scanMetrics;
+    }
+
+    @Override
+    protected Collection<E> delegate() {
+        return backingCollection;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return scanMetrics.meter(backingCollection.iterator());
+    }
+
+    @Override
+    public int size() {
+        Timer.Context ctx = scanMetrics.time(Operation.SIZE);
+        try {
+            return backingCollection.size();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Timer.Context ctx = scanMetrics.time(Operation.IS_EMPTY);
+        try {
+            return backingCollection.isEmpty();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        Timer.Context ctx = scanMetrics.time(Operation.CONTAINS);
+        try {
+            return backingCollection.contains(object);
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        Timer.Context ctx = scanMetrics.time(Operation.CONTAINS);
+        try {
+            return backingCollection.containsAll(collection);
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Timer.Context ctx = scanMetrics.time(Operation.CLEAR);
+        try {
+            backingCollection.clear();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    // through the metered iterator
+    @Override
+    public Object[] toArray() {
+        return standardToArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] array) {
+        return standardToArray(array);
+    }
+}
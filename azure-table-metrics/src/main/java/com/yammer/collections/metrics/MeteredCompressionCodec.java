@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.azure.compression.CompressionCodec;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Times compression and decompression (both are CPU bound, so the wall clock time approximates the CPU time) and records
+ * the size of every compressed value as a percentage of its uncompressed size. The metrics are named {@code <prefix>-<metric>}, like
+ * those of {@link TableMetrics}, so that the codec of each table has its own.
+ */
+public class MeteredCompressionCodec implements CompressionCodec {
+    static final String COMPRESS_TIMER_NAME = "compress";
+    static final String DECOMPRESS_TIMER_NAME = "decompress";
+    static final String COMPRESSION_RATIO_HISTOGRAM_NAME = "compression-ratio-percent";
+    private static final int PERCENT = 100;
+    private final CompressionCodec delegate;
+    private final Timer compressTimer;
+    private final Timer decompressTimer;
+    private final Histogram compressionRatio;
+
+    public MeteredCompressionCodec(CompressionCodec delegate, MetricRegistry metricRegistry) {
+        this(delegate, metricRegistry, TableMetrics.DEFAULT_PREFIX);
+    }
+
+    /**
+     * @param prefix the prefix of the metrics of the table, e.g. {@code metered-table-<table name>}
+     */
+    public MeteredCompressionCodec(CompressionCodec delegate, MetricRegistry metricRegistry, String prefix) {
+        this.delegate = checkNotNull(delegate);
+        checkNotNull(prefix);
+        compressTimer = metricRegistry.timer(prefix + "-" + COMPRESS_TIMER_NAME);
+        decompressTimer = metricRegistry.timer(prefix + "-" + DECOMPRESS_TIMER_NAME);
+        compressionRatio = metricRegistry.histogram(prefix + "-" + COMPRESSION_RATIO_HISTOGRAM_NAME);
+    }
+
+    @Override
+    public byte getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public void compress(Bytes input, OutputStream output) throws IOException {
+        CountingOutputStream countingOutput = new CountingOutputStream(output);
+        Timer.Context ctx = compressTimer.time();
+        try {
+            delegate.compress(input, countingOutput);
+        } finally {
+            ctx.stop();
+        }
+        if (input.length() > 0) {
+            compressionRatio.update(countingOutput.count * PERCENT / input.length());
+        }
+    }
+
+    @Override
+    public Bytes decompress(Bytes compressed) throws IOException {
+        Timer.Context ctx = decompressTimer.time();
+        try {
+            return delegate.decompress(compressed);
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
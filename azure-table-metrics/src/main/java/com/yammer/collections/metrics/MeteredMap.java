@@ -15,19 +15,35 @@
  */
 package com.yammer.collections.metrics;
 
-import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.ForwardingMap;
+import com.yammer.collections.metrics.ScanMetrics.Operation;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Times the single entry operations like the table does, and the operations on the whole map and its views under the given scope.
+ */
 class MeteredMap<K, V> extends ForwardingMap<K, V> {
     private final Map<K, V> backingMap;
-    private final MetricRegistry metricRegistry;
+    private final TableMetrics tableMetrics;
+    private final ScanMetrics scanMetrics;
+    private final ScanMetrics pointMetrics;
+    private final Optional<Function<? super V, Integer>> valueSize;
+    private final HotKeyTracker.Recorder hotKeys;
 
-    MeteredMap(Map<K, V> backingMap, MetricRegistry metricRegistry) {
+    MeteredMap(Map<K, V> backingMap, TableMetrics tableMetrics, QueryScope scope, Optional<Function<? super V, Integer>> valueSize,
+               HotKeyTracker.Recorder hotKeys) {
         this.backingMap = backingMap;
-        this.metricRegistry = metricRegistry;
+        this.tableMetrics = tableMetrics;
+        this.valueSize = valueSize;
+        this.hotKeys = hotKeys;
+        scanMetrics = tableMetrics.scan(scope);
+        pointMetrics = tableMetrics.scan(QueryScope.POINT);
     }
 
     @Override
@@ -35,11 +51,24 @@ class MeteredMap<K, V> extends ForwardingMap<K, V> {
         return backingMap;
     }
 
+    private void recordAccess(OperationMetrics operationMetrics, Object key, V value) {
+        int size = 0;
+        if (value != null && valueSize.isPresent()) {
+            size = valueSize.get().apply(value);
+            operationMetrics.valueSize(size);
+        }
+        hotKeys.record(key, size);
+    }
+
     @Override
     public V remove(Object object) {
-        Timer.Context ctx = metricRegistry.timer(Timers.REMOVE_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.remove().time();
         try {
+            hotKeys.record(object, 0);
             return backingMap.remove(object);
+        } catch (RuntimeException e) {
+            tableMetrics.remove().error();
+            throw e;
         } finally {
             ctx.stop();
         }
@@ -47,9 +76,14 @@ class MeteredMap<K, V> extends ForwardingMap<K, V> {
 
     @Override
     public V get(Object key) {
-        Timer.Context ctx = metricRegistry.timer(Timers.GET_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.get().time();
         try {
-            return backingMap.get(key);
+            V value = backingMap.get(key);
+            recordAccess(tableMetrics.get(), key, value);
+            return value;
+        } catch (RuntimeException e) {
+            tableMetrics.get().error();
+            throw e;
         } finally {
             ctx.stop();
         }
@@ -57,11 +91,96 @@ class MeteredMap<K, V> extends ForwardingMap<K, V> {
 
     @Override
     public V put(K key, V value) {
-        Timer.Context ctx = metricRegistry.timer(Timers.PUT_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.put().time();
         try {
+            recordAccess(tableMetrics.put(), key, value);
             return backingMap.put(key, value);
+        } catch (RuntimeException e) {
+            tableMetrics.put().error();
+            throw e;
         } finally {
             ctx.stop();
         }
     }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Timer.Context ctx = pointMetrics.time(Operation.CONTAINS);
+        try {
+            hotKeys.record(key, 0);
+            return backingMap.containsKey(key);
+        } catch (RuntimeException e) {
+            pointMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Timer.Context ctx = scanMetrics.time(Operation.CONTAINS_VALUE);
+        try {
+            return backingMap.containsValue(value);
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public int size() {
+        Timer.Context ctx = scanMetrics.time(Operation.SIZE);
+        try {
+            return backingMap.size();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Timer.Context ctx = scanMetrics.time(Operation.IS_EMPTY);
+        try {
+            return backingMap.isEmpty();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Timer.Context ctx = scanMetrics.time(Operation.CLEAR);
+        try {
+            backingMap.clear();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new MeteredSet<>(backingMap.keySet(), scanMetrics);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new MeteredCollection<>(backingMap.values(), scanMetrics);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new MeteredSet<>(backingMap.entrySet(), scanMetrics);
+    }
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.yammer.collections.azure.RequestType;
+import com.yammer.collections.azure.TableRequestEvent;
+import com.yammer.collections.azure.TableRequestListener;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records the requests a table client sends to the table service, under names of the form
+ * {@code <prefix>-<table name>-<request type>-<metric>}: the latency, payload and response sizes, a meter per HTTP status,
+ * and meters of retries and of requests throttled by the service. The metrics of a table are resolved the first time it sends a
+ * request, for every request type, and those of a status the first time it is returned.
+ */
+public class MeteredRequestListener implements TableRequestListener {
+    public static final String DEFAULT_PREFIX = "azure-table";
+    private final ConcurrentMap<String, Map<RequestType, RequestMetrics>> tableMetrics = new ConcurrentHashMap<>();
+    private final MetricRegistry metricRegistry;
+    private final String prefix;
+
+    public MeteredRequestListener(MetricRegistry metricRegistry) {
+        this(metricRegistry, DEFAULT_PREFIX);
+    }
+
+    public MeteredRequestListener(MetricRegistry metricRegistry, String prefix) {
+        this.metricRegistry = checkNotNull(metricRegistry);
+        this.prefix = checkNotNull(prefix);
+    }
+
+    @Override
+    public void requestCompleted(TableRequestEvent event) {
+        RequestMetrics metrics = metrics(event.getTableName()).get(event.getRequestType());
+        metrics.latency.update(event.getLatencyInNanos(), TimeUnit.NANOSECONDS);
+        metrics.status(event.getStatusCode()).mark();
+        if (event.getRequestPayloadBytes() > 0) {
+            metrics.requestPayloadBytes.update(event.getRequestPayloadBytes());
+        }
+        if (event.getResponseBytes() >= 0) {
+            metrics.responseBytes.update(event.getResponseBytes());
+        }
+        if (event.isRetry()) {
+            metrics.retries.mark();
+        }
+        if (event.isThrottled()) {
+            metrics.throttled.mark();
+        }
+    }
+
+    private Map<RequestType, RequestMetrics> metrics(String tableName) {
+        Map<RequestType, RequestMetrics> metrics = tableMetrics.get(tableName);
+        if (metrics == null) {
+            metrics = new EnumMap<>(RequestType.class);
+            for (RequestType requestType : RequestType.values()) {
+                metrics.put(requestType, new RequestMetrics(prefix + "-" + tableName + "-" + requestType.name().toLowerCase(Locale.ENGLISH)));
+            }
+            Map<RequestType, RequestMetrics> existing = tableMetrics.putIfAbsent(tableName, metrics);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return metrics;
+    }
+
+    private final class RequestMetrics {
+        private final ConcurrentMap<Integer, Meter> statuses = new ConcurrentHashMap<>();
+        private final String namePrefix;
+        private final Timer latency;
+        private final Histogram requestPayloadBytes;
+        private final Histogram responseBytes;
+        private final Meter retries;
+        private final Meter throttled;
+
+        private RequestMetrics(String namePrefix) {
+            this.namePrefix = namePrefix;
+            latency = metricRegistry.timer(namePrefix + "-latency");
+            requestPayloadBytes = metricRegistry.histogram(namePrefix + "-request-payload-bytes");
+            responseBytes = metricRegistry.histogram(namePrefix + "-response-bytes");
+            retries = metricRegistry.meter(namePrefix + "-retries");
+            throttled = metricRegistry.meter(namePrefix + "-throttled");
+        }
+
+        // the registry returns the same meter to threads racing to resolve a status
+        private Meter status(int statusCode) {
+            Meter status = statuses.get(statusCode);
+            if (status == null) {
+                status = metricRegistry.meter(namePrefix + "-status-" + statusCode);
+                statuses.put(statusCode, status);
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ForwardingSet;
+import com.yammer.collections.metrics.ScanMetrics.Operation;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+class MeteredSet<E> extends ForwardingSet<E> {
+    private final Set<E> backingSet;
+    private final ScanMetrics scanMetrics;
+
+    MeteredSet(Set<E> backingSet, ScanMetrics scanMetrics) {
+        this.backingSet = backingSet;
+        this.scanMetrics = scanMetrics;
+    }
+
+    @Override
+    protected Set<E> delegate() {
+        return backingSet;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return scanMetrics.meter(backingSet.iterator());
+    }
+
+    @Override
+    public int size() {
+        Timer.Context ctx = scanMetrics.time(Operation.SIZE);
+        try {
+            return backingSet.size();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Timer.Context ctx = scanMetrics.time(Operation.IS_EMPTY);
+        try {
+            return backingSet.isEmpty();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        Timer.Context ctx = scanMetrics.time(Operation.CONTAINS);
+        try {
+            return backingSet.contains(object);
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        Timer.Context ctx = scanMetrics.time(Operation.CONTAINS);
+        try {
+            return backingSet.containsAll(collection);
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Timer.Context ctx = scanMetrics.time(Operation.CLEAR);
+        try {
+            backingSet.clear();
+        } catch (RuntimeException e) {
+            scanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    // through the metered iterator
+    @Override
+    public Object[] toArray() {
+        return standardToArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] array) {
+        return standardToArray(array);
+    }
+}
@@ -17,16 +17,23 @@ package com.yammer.collections.metrics;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.collect.ForwardingTable;
 import com.google.common.collect.Table;
+import com.yammer.collections.metrics.ScanMetrics.Operation;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Provides metrics for the core operations, but not for the collections view operations.
- * Operations include: get, put, remove, size, clear
+ * Provides metrics for the core operations and for the collection views, see {@link TableMetrics}.
+ * Operations include: get, put, remove, size, clear, containsValue, and the iterations over every view,
+ * recorded under the extent of the query behind them: a single entity, a partition (a row) or the whole table.
+ * Given a {@link HotKeyTracker}, the keys of the single entry operations of the table and its row and column views are also counted.
  *
  * @param <R>
  * @param <C>
@@ -35,22 +42,96 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @SuppressWarnings("ClassWithTooManyMethods")
 public class MeteredTable<R, C, V> extends ForwardingTable<R, C, V> {
     private final Table<R, C, V> backingTable;
-    private final MetricRegistry metricRegistry;
+    private final TableMetrics tableMetrics;
+    private final ScanMetrics tableScanMetrics;
+    private final ScanMetrics partitionMetrics;
+    private final ScanMetrics pointMetrics;
+    private final Optional<Function<? super V, Integer>> valueSize;
+    private final Optional<HotKeyTracker> hotKeys;
 
-    private MeteredTable(Table<R, C, V> backingTable, MetricRegistry metricRegistry) {
-        this.metricRegistry = metricRegistry;
+    private MeteredTable(Table<R, C, V> backingTable, TableMetrics tableMetrics, Optional<Function<? super V, Integer>> valueSize,
+                         Optional<HotKeyTracker> hotKeys) {
         this.backingTable = checkNotNull(backingTable);
+        this.tableMetrics = tableMetrics;
+        this.valueSize = valueSize;
+        this.hotKeys = hotKeys;
+        if (hotKeys.isPresent()) {
+            tableMetrics.registerGauges(hotKeys.get());
+        }
+        tableScanMetrics = tableMetrics.scan(QueryScope.TABLE);
+        partitionMetrics = tableMetrics.scan(QueryScope.PARTITION);
+        pointMetrics = tableMetrics.scan(QueryScope.POINT);
     }
 
+    /**
+     * Metrics are named with the {@link TableMetrics#DEFAULT_PREFIX}, and shared with all the other tables metered this way.
+     */
     public static <R, C, V> Table<R, C, V> create(Table<R, C, V> backingTable, MetricRegistry metricRegistry) {
-        return new MeteredTable<>(backingTable, metricRegistry);
+        return create(backingTable, metricRegistry, TableMetrics.DEFAULT_PREFIX);
+    }
+
+    public static <R, C, V> MeteredTable<R, C, V> create(Table<R, C, V> backingTable, MetricRegistry metricRegistry, String metricNamePrefix) {
+        return new MeteredTable<>(backingTable, new TableMetrics(metricRegistry, metricNamePrefix), Optional.<Function<? super V, Integer>>absent(),
+                Optional.<HotKeyTracker>absent());
+    }
+
+    /**
+     * As {@link #create(Table, MetricRegistry, String)}, also counting the requests to every row and column key in the tracker.
+     */
+    public static <R, C, V> MeteredTable<R, C, V> create(Table<R, C, V> backingTable, MetricRegistry metricRegistry, String metricNamePrefix,
+                                                         HotKeyTracker hotKeys) {
+        return new MeteredTable<>(backingTable, new TableMetrics(metricRegistry, metricNamePrefix), Optional.<Function<? super V, Integer>>absent(),
+                Optional.of(hotKeys));
+    }
+
+    /**
+     * As {@link #create(Table, MetricRegistry, String)}, also recording the sizes of the values got and put, as given by the function.
+     */
+    public static <R, C, V> MeteredTable<R, C, V> create(Table<R, C, V> backingTable, MetricRegistry metricRegistry, String metricNamePrefix,
+                                                         Function<? super V, Integer> valueSize) {
+        return new MeteredTable<>(backingTable, new TableMetrics(metricRegistry, metricNamePrefix),
+                Optional.<Function<? super V, Integer>>of(checkNotNull(valueSize)), Optional.<HotKeyTracker>absent());
+    }
+
+    /**
+     * As {@link #create(Table, MetricRegistry, String, Function)}, also counting the requests to, and the bytes of the values got from
+     * and put to, every row and column key in the tracker.
+     */
+    public static <R, C, V> MeteredTable<R, C, V> create(Table<R, C, V> backingTable, MetricRegistry metricRegistry, String metricNamePrefix,
+                                                         Function<? super V, Integer> valueSize, HotKeyTracker hotKeys) {
+        return new MeteredTable<>(backingTable, new TableMetrics(metricRegistry, metricNamePrefix),
+                Optional.<Function<? super V, Integer>>of(checkNotNull(valueSize)), Optional.of(hotKeys));
+    }
+
+    public TableMetrics getTableMetrics() {
+        return tableMetrics;
+    }
+
+    public Optional<HotKeyTracker> getHotKeyTracker() {
+        return hotKeys;
+    }
+
+    private void recordAccess(OperationMetrics operationMetrics, Object row, Object column, V value) {
+        int size = 0;
+        if (value != null && valueSize.isPresent()) {
+            size = valueSize.get().apply(value);
+            operationMetrics.valueSize(size);
+        }
+        if (hotKeys.isPresent()) {
+            hotKeys.get().record(row, column, size);
+        }
     }
 
     @Override
     public V get(Object o, Object o2) {
-        Timer.Context ctx = metricRegistry.timer(Timers.GET_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.get().time();
         try {
-            return backingTable.get(o, o2);
+            V value = backingTable.get(o, o2);
+            recordAccess(tableMetrics.get(), o, o2, value);
+            return value;
+        } catch (RuntimeException e) {
+            tableMetrics.get().error();
+            throw e;
         } finally {
             ctx.stop();
         }
@@ -58,9 +139,13 @@ public class MeteredTable<R, C, V> extends ForwardingTable<R, C, V> {
 
     @Override
     public V put(R r, C c, V v) {
-        Timer.Context ctx = metricRegistry.timer(Timers.PUT_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.put().time();
         try {
+            recordAccess(tableMetrics.put(), r, c, v);
             return backingTable.put(r, c, v);
+        } catch (RuntimeException e) {
+            tableMetrics.put().error();
+            throw e;
         } finally {
             ctx.stop();
         }
@@ -68,9 +153,107 @@ public class MeteredTable<R, C, V> extends ForwardingTable<R, C, V> {
 
     @Override
     public V remove(Object o, Object o2) {
-        Timer.Context ctx = metricRegistry.timer(Timers.REMOVE_TIMER_NAME).time();
+        Timer.Context ctx = tableMetrics.remove().time();
         try {
+            recordAccess(tableMetrics.remove(), o, o2, null);
             return backingTable.remove(o, o2);
+        } catch (RuntimeException e) {
+            tableMetrics.remove().error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o, Object o2) {
+        Timer.Context ctx = pointMetrics.time(Operation.CONTAINS);
+        try {
+            if (hotKeys.isPresent()) {
+                hotKeys.get().record(o, o2, 0);
+            }
+            return backingTable.contains(o, o2);
+        } catch (RuntimeException e) {
+            pointMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsRow(Object o) {
+        Timer.Context ctx = partitionMetrics.time(Operation.CONTAINS);
+        try {
+            return backingTable.containsRow(o);
+        } catch (RuntimeException e) {
+            partitionMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsColumn(Object o) {
+        Timer.Context ctx = tableScanMetrics.time(Operation.CONTAINS);
+        try {
+            return backingTable.containsColumn(o);
+        } catch (RuntimeException e) {
+            tableScanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object o) {
+        Timer.Context ctx = tableScanMetrics.time(Operation.CONTAINS_VALUE);
+        try {
+            return backingTable.containsValue(o);
+        } catch (RuntimeException e) {
+            tableScanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public int size() {
+        Timer.Context ctx = tableScanMetrics.time(Operation.SIZE);
+        try {
+            return backingTable.size();
+        } catch (RuntimeException e) {
+            tableScanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Timer.Context ctx = tableScanMetrics.time(Operation.IS_EMPTY);
+        try {
+            return backingTable.isEmpty();
+        } catch (RuntimeException e) {
+            tableScanMetrics.error();
+            throw e;
+        } finally {
+            ctx.stop();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Timer.Context ctx = tableScanMetrics.time(Operation.CLEAR);
+        try {
+            backingTable.clear();
+        } catch (RuntimeException e) {
+            tableScanMetrics.error();
+            throw e;
         } finally {
             ctx.stop();
         }
@@ -78,16 +261,88 @@ public class MeteredTable<R, C, V> extends ForwardingTable<R, C, V> {
 
     @Override
     public Map<C, V> row(R r) {
-        return new MeteredMap<>(backingTable.row(r), metricRegistry);
+        return new MeteredMap<>(backingTable.row(r), tableMetrics, QueryScope.PARTITION, valueSize, rowRecorder(r));
     }
 
+    // a column spans all partitions
     @Override
     public Map<R, V> column(C c) {
-        return new MeteredMap<>(backingTable.column(c), metricRegistry);
+        return new MeteredMap<>(backingTable.column(c), tableMetrics, QueryScope.TABLE, valueSize, columnRecorder(c));
+    }
+
+    private HotKeyTracker.Recorder rowRecorder(Object row) {
+        return hotKeys.isPresent() ? hotKeys.get().forRow(row) : HotKeyTracker.Recorder.NONE;
+    }
+
+    private HotKeyTracker.Recorder columnRecorder(Object column) {
+        return hotKeys.isPresent() ? hotKeys.get().forColumn(column) : HotKeyTracker.Recorder.NONE;
+    }
+
+    @Override
+    public Set<Cell<R, C, V>> cellSet() {
+        return new MeteredSet<>(backingTable.cellSet(), tableScanMetrics);
+    }
+
+    @Override
+    public Set<R> rowKeySet() {
+        return new MeteredSet<>(backingTable.rowKeySet(), tableScanMetrics);
+    }
+
+    @Override
+    public Set<C> columnKeySet() {
+        return new MeteredSet<>(backingTable.columnKeySet(), tableScanMetrics);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new MeteredCollection<>(backingTable.values(), tableScanMetrics);
+    }
+
+    @Override
+    public Map<R, Map<C, V>> rowMap() {
+        return new MeteredMapOfViews<R, C, V>(backingTable.rowMap(), tableMetrics, QueryScope.PARTITION, valueSize) {
+            @Override
+            HotKeyTracker.Recorder recorder(Object row) {
+                return rowRecorder(row);
+            }
+        };
+    }
+
+    @Override
+    public Map<C, Map<R, V>> columnMap() {
+        return new MeteredMapOfViews<C, R, V>(backingTable.columnMap(), tableMetrics, QueryScope.TABLE, valueSize) {
+            @Override
+            HotKeyTracker.Recorder recorder(Object column) {
+                return columnRecorder(column);
+            }
+        };
     }
 
     @Override
     protected Table<R, C, V> delegate() {
         return backingTable;
     }
+
+    // the views returned by get are metered like the ones returned by row and column
+    private abstract static class MeteredMapOfViews<K1, K2, V> extends MeteredMap<K1, Map<K2, V>> {
+        private final TableMetrics tableMetrics;
+        private final QueryScope viewScope;
+        private final Optional<Function<? super V, Integer>> valueSize;
+
+        private MeteredMapOfViews(Map<K1, Map<K2, V>> backingMap, TableMetrics tableMetrics, QueryScope viewScope,
+                                  Optional<Function<? super V, Integer>> valueSize) {
+            super(backingMap, tableMetrics, QueryScope.TABLE, Optional.<Function<? super Map<K2, V>, Integer>>absent(), HotKeyTracker.Recorder.NONE);
+            this.tableMetrics = tableMetrics;
+            this.viewScope = viewScope;
+            this.valueSize = valueSize;
+        }
+
+        abstract HotKeyTracker.Recorder recorder(Object key);
+
+        @Override
+        public Map<K2, V> get(Object key) {
+            Map<K2, V> view = super.get(key);
+            return view == null ? null : new MeteredMap<>(view, tableMetrics, viewScope, valueSize, recorder(key));
+        }
+    }
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+/**
+ * Timer, error meter and value size histogram of a single entry operation.
+ */
+class OperationMetrics {
+    private final Timer timer;
+    private final Meter errors;
+    private final Histogram valueSizes;
+
+    OperationMetrics(TableMetrics tableMetrics, String operation) {
+        timer = tableMetrics.timer(operation);
+        errors = tableMetrics.meter(operation + "-errors");
+        valueSizes = tableMetrics.histogram(operation + "-value-size");
+    }
+
+    Timer.Context time() {
+        return timer.time();
+    }
+
+    void error() {
+        errors.mark();
+    }
+
+    void valueSize(int size) {
+        valueSizes.update(size);
+    }
+}
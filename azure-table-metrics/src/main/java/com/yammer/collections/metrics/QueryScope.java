@@ -15,12 +15,17 @@
  */
 package com.yammer.collections.metrics;
 
-class Timers {
-    static final String GET_TIMER_NAME = createTimerFor("get");
-    static final String PUT_TIMER_NAME = createTimerFor("put");
-    static final String REMOVE_TIMER_NAME = createTimerFor("remove");
+import java.util.Locale;
 
-    private static String createTimerFor(String name) {
-        return String.format("metered-table-%s", name);
+/**
+ * The extent of the query behind an operation of the table or one of its views.
+ */
+enum QueryScope {
+    POINT, PARTITION, TABLE;
+
+    private final String metricNamePrefix = name().toLowerCase(Locale.ENGLISH) + "-query-";
+
+    String metricName(String metric) {
+        return metricNamePrefix + metric;
     }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ForwardingIterator;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the operations of the views of one {@link QueryScope} and the iterations over them. An iteration is timed from the
+ * creation of the iterator, until the first element and until the iterator is exhausted; iterations that are abandoned only record
+ * the time to their first element.
+ */
+class ScanMetrics {
+    static final String ITERATION = "iteration";
+    static final String TIME_TO_FIRST_ELEMENT = "time-to-first-element";
+    static final String ENTITIES_SCANNED = "entities-scanned";
+    static final String ERRORS = "errors";
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    private final Timer iteration;
+    private final Timer timeToFirstElement;
+    private final Histogram entitiesScanned;
+    private final Meter errors;
+    private final Clock clock = Clock.defaultClock();
+
+    ScanMetrics(TableMetrics tableMetrics, QueryScope scope) {
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, tableMetrics.timer(scope.metricName(operation.metricName)));
+        }
+        iteration = tableMetrics.timer(scope.metricName(ITERATION));
+        timeToFirstElement = tableMetrics.timer(scope.metricName(TIME_TO_FIRST_ELEMENT));
+        entitiesScanned = tableMetrics.histogram(scope.metricName(ENTITIES_SCANNED));
+        errors = tableMetrics.meter(scope.metricName(ERRORS));
+    }
+
+    Timer.Context time(Operation operation) {
+        return timers.get(operation).time();
+    }
+
+    void error() {
+        errors.mark();
+    }
+
+    <E> Iterator<E> meter(Iterator<E> iterator) {
+        return new MeteredIterator<>(iterator);
+    }
+
+    enum Operation {
+        SIZE, IS_EMPTY, CONTAINS, CONTAINS_VALUE, CLEAR;
+
+        private final String metricName = name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+    }
+
+    private final class MeteredIterator<E> extends ForwardingIterator<E> {
+        private final Iterator<E> backingIterator;
+        private final long startTick = clock.getTick();
+        private long elements;
+        private boolean exhausted;
+
+        private MeteredIterator(Iterator<E> backingIterator) {
+            this.backingIterator = backingIterator;
+        }
+
+        @Override
+        protected Iterator<E> delegate() {
+            return backingIterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext;
+            try {
+                hasNext = backingIterator.hasNext();
+            } catch (RuntimeException e) {
+                errors.mark();
+                throw e;
+            }
+            if (!hasNext && !exhausted) {
+                exhausted = true;
+                iteration.update(clock.getTick() - startTick, TimeUnit.NANOSECONDS);
+                entitiesScanned.update(elements);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public E next() {
+            E next;
+            try {
+                next = backingIterator.next();
+            } catch (RuntimeException e) {
+                errors.mark();
+                throw e;
+            }
+            if (elements++ == 0) {
+                timeToFirstElement.update(clock.getTick() - startTick, TimeUnit.NANOSECONDS);
+            }
+            return next;
+        }
+    }
+}
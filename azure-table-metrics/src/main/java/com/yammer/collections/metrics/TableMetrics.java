@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The metrics of a metered table, resolved once when the table is created and named {@code <prefix>-<metric>}, so that every table
+ * can have its own prefix. Metrics already in the registry under the same names are shared, as with {@link MetricRegistry#timer(String)}.
+ * <p>
+ * Each of get, put and remove has a timer, an error meter and, when the table is given a value size function, a histogram of value sizes.
+ * The other operations are recorded per {@link QueryScope}, as {@code <prefix>-<scope>-query-<metric>}. The gauges of a {@link HotKeyTracker}
+ * given to the table are named {@code <prefix>-hot-<keys>-by-<measure>}.
+ */
+public final class TableMetrics implements MetricSet {
+    public static final String DEFAULT_PREFIX = "metered-table";
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private final Map<QueryScope, ScanMetrics> scanMetrics = new EnumMap<>(QueryScope.class);
+    private final MetricRegistry metricRegistry;
+    private final String prefix;
+    private final OperationMetrics get;
+    private final OperationMetrics put;
+    private final OperationMetrics remove;
+
+    public TableMetrics(MetricRegistry metricRegistry, String prefix) {
+        this.metricRegistry = checkNotNull(metricRegistry);
+        this.prefix = checkNotNull(prefix);
+        get = new OperationMetrics(this, "get");
+        put = new OperationMetrics(this, "put");
+        remove = new OperationMetrics(this, "remove");
+        for (QueryScope scope : QueryScope.values()) {
+            scanMetrics.put(scope, new ScanMetrics(this, scope));
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    OperationMetrics get() {
+        return get;
+    }
+
+    OperationMetrics put() {
+        return put;
+    }
+
+    OperationMetrics remove() {
+        return remove;
+    }
+
+    ScanMetrics scan(QueryScope scope) {
+        return scanMetrics.get(scope);
+    }
+
+    Timer timer(String name) {
+        return register(name, metricRegistry.timer(fullName(name)));
+    }
+
+    Meter meter(String name) {
+        return register(name, metricRegistry.meter(fullName(name)));
+    }
+
+    Histogram histogram(String name) {
+        return register(name, metricRegistry.histogram(fullName(name)));
+    }
+
+    /**
+     * Gauges cannot be shared, those of a set registered by another table under the same name are replaced.
+     */
+    void registerGauges(MetricSet gauges) {
+        for (Map.Entry<String, Metric> gauge : gauges.getMetrics().entrySet()) {
+            metricRegistry.remove(fullName(gauge.getKey()));
+            register(gauge.getKey(), metricRegistry.register(fullName(gauge.getKey()), gauge.getValue()));
+        }
+    }
+
+    private String fullName(String name) {
+        return prefix + "-" + name;
+    }
+
+    private <T extends Metric> T register(String name, T metric) {
+        metrics.put(fullName(name), metric);
+        return metric;
+    }
+}
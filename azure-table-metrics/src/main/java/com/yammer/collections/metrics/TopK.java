@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Longs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The keys with the highest estimated counts seen so far, at most k of them. As the estimates of a key only grow, a key that is
+ * replaced was below all the retained ones when it was last seen. Finding the key to replace is linear in k, which is meant to be small.
+ */
+final class TopK {
+    private static final Comparator<Map.Entry<Object, Long>> BY_COUNT = new Comparator<Map.Entry<Object, Long>>() {
+        @Override
+        public int compare(Map.Entry<Object, Long> first, Map.Entry<Object, Long> second) {
+            return Longs.compare(first.getValue(), second.getValue());
+        }
+    };
+    private final int k;
+    private final Map<Object, Long> counts;
+
+    TopK(int k) {
+        this.k = k;
+        counts = new HashMap<>(k * 2);
+    }
+
+    synchronized void offer(Object key, long estimate) {
+        if (counts.containsKey(key) || counts.size() < k) {
+            counts.put(key, estimate);
+            return;
+        }
+        Map.Entry<Object, Long> smallest = Ordering.from(BY_COUNT).min(counts.entrySet());
+        if (smallest.getValue() < estimate) {
+            counts.remove(smallest.getKey());
+            counts.put(key, estimate);
+        }
+    }
+
+    synchronized List<Map.Entry<Object, Long>> descending() {
+        return Ordering.from(BY_COUNT).reverse().sortedCopy(new ArrayList<>(counts.entrySet()));
+    }
+}
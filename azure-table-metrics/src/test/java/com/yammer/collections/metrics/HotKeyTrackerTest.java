@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class HotKeyTrackerTest {
+    private static final String COLUMN = "column";
+    private ManualClock clock;
+    private HotKeyTracker tracker;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        tracker = new HotKeyTracker(3, 10, TimeUnit.SECONDS, clock);
+    }
+
+    @Test
+    public void heavy_hitters_are_found_among_many_distinct_keys() {
+        for (int i = 0; i < 100000; i++) {
+            tracker.record("row-" + i, COLUMN, 0);
+            if (i % 10 == 0) {
+                tracker.record("hot", COLUMN, 0);
+            }
+            if (i % 20 == 0) {
+                tracker.record("warm", COLUMN, 0);
+            }
+        }
+
+        HotKeys hotKeys = tracker.snapshot();
+
+        assertThat(hotKeys.getRowsByRequests().size(), is(equalTo(3)));
+        assertThat(hotKeys.getRowsByRequests().get(0).getKey(), is(equalTo((Object) "hot")));
+        assertThat(hotKeys.getRowsByRequests().get(1).getKey(), is(equalTo((Object) "warm")));
+        assertThat(hotKeys.getColumnsByRequests().get(0).getCount(), is(equalTo(115000L)));
+        assertThat(hotKeys.getRowsByBytes(), is(empty()));
+    }
+
+    @Test
+    public void rates_are_those_of_the_last_complete_window() {
+        tracker.record("old", COLUMN, 100);
+        clock.advance(10);
+        for (int i = 0; i < 50; i++) {
+            tracker.record("new", COLUMN, 10);
+        }
+        clock.advance(10);
+
+        HotKeys hotKeys = tracker.snapshot();
+
+        assertThat(hotKeys.getRowsByRequests().size(), is(equalTo(1)));
+        assertThat(hotKeys.getRowsByRequests().get(0).getRatePerSecond(), is(equalTo(5.0)));
+        assertThat(hotKeys.getRowsByBytes().get(0).getRatePerSecond(), is(equalTo(50.0)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void gauges_report_the_rate_of_each_hot_key() {
+        tracker.record("row", COLUMN, 0);
+        clock.advance(10);
+
+        Map<String, Double> rates = ((Gauge<Map<String, Double>>) tracker.getMetrics().get("hot-columns-by-requests")).getValue();
+
+        assertThat(rates.keySet(), contains(COLUMN));
+        assertThat(rates.get(COLUMN), is(equalTo(0.1)));
+    }
+
+    @Test
+    public void null_keys_are_not_tracked() {
+        tracker.record(null, COLUMN, 10);
+        tracker.record("row", null, 10);
+        clock.advance(10);
+
+        HotKeys hotKeys = tracker.snapshot();
+
+        assertThat(hotKeys.getRowsByRequests().size(), is(equalTo(1)));
+        assertThat(hotKeys.getColumnsByBytes().size(), is(equalTo(1)));
+    }
+
+    private static final class ManualClock extends Clock {
+        private long tick;
+
+        void advance(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+}
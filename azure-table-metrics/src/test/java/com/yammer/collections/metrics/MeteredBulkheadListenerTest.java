@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.yammer.collections.azure.Bulkhead;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MeteredBulkheadListenerTest {
+    @Test
+    public void queue_time_and_rejections_are_recorded_per_compartment() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        MeteredBulkheadListener listener = new MeteredBulkheadListener(metricRegistry);
+
+        listener.admitted(Bulkhead.Compartment.POINT, 1000L);
+        listener.admitted(Bulkhead.Compartment.SCAN, 2000L);
+        listener.rejected(Bulkhead.Compartment.SCAN, 3000L);
+
+        assertThat(metricRegistry.timer("azure-table-bulkhead-point-queue-time").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.timer("azure-table-bulkhead-scan-queue-time").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.meter("azure-table-bulkhead-scan-rejected").getCount(), is(equalTo(1L)));
+    }
+}
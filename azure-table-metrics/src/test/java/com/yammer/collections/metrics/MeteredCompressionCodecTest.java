@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.azure.compression.DeflateCodec;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings("InstanceVariableMayNotBeInitialized")
+public class MeteredCompressionCodecTest {
+    private static final Bytes VALUE = Bytes.of(Strings.repeat("abc", 1000).getBytes());
+    private MetricRegistry metricRegistry;
+    private MeteredCompressionCodec codec;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        codec = new MeteredCompressionCodec(new DeflateCodec(), metricRegistry);
+    }
+
+    @Test
+    public void id_delegates() {
+        assertThat(codec.getId(), is(equalTo(DeflateCodec.ID)));
+    }
+
+    @Test
+    public void compression_timed_and_ratio_recorded() throws IOException {
+        codec.compress(VALUE, new ByteArrayOutputStream());
+
+        assertThat(metricRegistry.timer("metered-table-compress").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.histogram("metered-table-compression-ratio-percent").getSnapshot().getMax(), is(lessThan(100L)));
+    }
+
+    @Test
+    public void decompression_timed() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.compress(VALUE, output);
+
+        assertThat(codec.decompress(Bytes.of(output.toByteArray())), is(equalTo(VALUE)));
+        assertThat(metricRegistry.timer("metered-table-decompress").getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void metrics_are_named_after_the_prefix_of_the_table() throws IOException {
+        MeteredCompressionCodec tableCodec = new MeteredCompressionCodec(new DeflateCodec(), metricRegistry, "metered-table-users");
+
+        tableCodec.compress(VALUE, new ByteArrayOutputStream());
+
+        assertThat(metricRegistry.timer("metered-table-users-compress").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.histogram("metered-table-users-compression-ratio-percent").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.timer("metered-table-compress").getCount(), is(equalTo(0L)));
+    }
+}
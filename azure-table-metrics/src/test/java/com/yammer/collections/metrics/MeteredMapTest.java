@@ -16,6 +16,8 @@
 package com.yammer.collections.metrics;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,7 +43,8 @@ public class MeteredMapTest {
 
     @Before
     public void setUp() {
-        meteredMap = new MeteredMap<>(backingMapMock, new MetricRegistry());
+        meteredMap = new MeteredMap<>(backingMapMock, new TableMetrics(new MetricRegistry(), TableMetrics.DEFAULT_PREFIX), QueryScope.PARTITION,
+                Optional.<Function<? super Integer, Integer>>absent(), HotKeyTracker.Recorder.NONE);
     }
 
     @Test
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.yammer.collections.azure.RequestType;
+import com.yammer.collections.azure.TableRequestEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MeteredRequestListenerTest {
+    private static final TableRequestEvent THROTTLED_WRITE = new TableRequestEvent("table", RequestType.WRITE, 503, 1000L, 100L, -1L, false);
+    private static final TableRequestEvent RETRIED_WRITE = new TableRequestEvent("table", RequestType.WRITE, 204, 2000L, 100L, 0L, true);
+    private MetricRegistry metricRegistry;
+    private MeteredRequestListener listener;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        listener = new MeteredRequestListener(metricRegistry);
+    }
+
+    @Test
+    public void requests_are_recorded_per_table_and_type() {
+        listener.requestCompleted(THROTTLED_WRITE);
+        listener.requestCompleted(RETRIED_WRITE);
+
+        assertThat(metricRegistry.timer("azure-table-table-write-latency").getCount(), is(equalTo(2L)));
+        assertThat(metricRegistry.histogram("azure-table-table-write-request-payload-bytes").getCount(), is(equalTo(2L)));
+        assertThat(metricRegistry.histogram("azure-table-table-write-response-bytes").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.meter("azure-table-table-write-status-503").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.meter("azure-table-table-write-throttled").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.meter("azure-table-table-write-retries").getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void metrics_of_a_table_are_resolved_for_every_request_type_under_the_prefix() {
+        new MeteredRequestListener(metricRegistry, "requests").requestCompleted(RETRIED_WRITE);
+
+        assertThat(metricRegistry.timer("requests-table-write-latency").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.getTimers().containsKey("requests-table-query-latency"), is(true));
+        assertThat(metricRegistry.meter("requests-table-write-status-204").getCount(), is(equalTo(1L)));
+    }
+}
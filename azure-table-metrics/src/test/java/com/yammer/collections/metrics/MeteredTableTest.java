@@ -16,9 +16,14 @@
 package com.yammer.collections.metrics;
 
 
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -29,6 +34,8 @@ import java.util.Map;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -41,10 +48,12 @@ public class MeteredTableTest {
     @Mock
     private Table<Float, Long, Integer> backingTableMock;
     private Table<Float, Long, Integer> meteredTable;
+    private MetricRegistry metricRegistry;
 
     @Before
     public void setUp() {
-        meteredTable = MeteredTable.create(backingTableMock, new MetricRegistry());
+        metricRegistry = new MetricRegistry();
+        meteredTable = MeteredTable.create(backingTableMock, metricRegistry);
     }
 
     @Test(expected = NullPointerException.class)
@@ -90,4 +99,98 @@ public class MeteredTableTest {
                 (Map<Float, Integer>) ImmutableMap.of(ROW_KEY_1, VALUE_1)
         )));
     }
+
+    @Test
+    public void iteration_over_cell_set_is_metered_as_table_query() {
+        Table.Cell<Float, Long, Integer> cell = Tables.immutableCell(ROW_KEY_1, COLUMN_KEY_1, VALUE_1);
+        when(backingTableMock.cellSet()).thenReturn(ImmutableSet.of(cell));
+
+        assertThat(Iterables.getOnlyElement(meteredTable.cellSet()), is(equalTo(cell)));
+        assertThat(metricRegistry.timer("metered-table-table-query-iteration").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.timer("metered-table-table-query-time-to-first-element").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.histogram("metered-table-table-query-entities-scanned").getSnapshot().getMax(),
+                is(equalTo(1L)));
+    }
+
+    @Test
+    public void size_is_timed_as_table_query() {
+        when(backingTableMock.size()).thenReturn(3);
+
+        assertThat(meteredTable.size(), is(equalTo(3)));
+        assertThat(metricRegistry.timer("metered-table-table-query-size").getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void rows_of_row_map_are_metered_as_partition_queries() {
+        when(backingTableMock.rowMap()).thenReturn(ImmutableMap.<Float, Map<Long, Integer>>of(ROW_KEY_1, ImmutableMap.of(COLUMN_KEY_1, VALUE_1)));
+
+        assertThat(meteredTable.rowMap().get(ROW_KEY_1).size(), is(equalTo(1)));
+        assertThat(metricRegistry.timer("metered-table-partition-query-size").getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void tables_with_different_prefixes_do_not_share_metrics() {
+        MeteredTable<Float, Long, Integer> first = MeteredTable.create(backingTableMock, metricRegistry, "first");
+        MeteredTable<Float, Long, Integer> second = MeteredTable.create(backingTableMock, metricRegistry, "second");
+
+        first.get(ROW_KEY_1, COLUMN_KEY_1);
+
+        assertThat(metricRegistry.timer("first-get").getCount(), is(equalTo(1L)));
+        assertThat(metricRegistry.timer("second-get").getCount(), is(equalTo(0L)));
+        assertThat(second.getTableMetrics().getMetrics().get("second-get"), is(sameInstance((Metric) metricRegistry.timer("second-get"))));
+    }
+
+    @Test
+    public void errors_and_value_sizes_are_recorded() {
+        MeteredTable<Float, Long, Integer> sizedTable = MeteredTable.create(backingTableMock, metricRegistry, "sized",
+                new Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer input) {
+                        return input * 10;
+                    }
+                });
+        when(backingTableMock.remove(ROW_KEY_1, COLUMN_KEY_1)).thenThrow(new IllegalStateException());
+
+        sizedTable.put(ROW_KEY_1, COLUMN_KEY_1, VALUE_1);
+        try {
+            sizedTable.remove(ROW_KEY_1, COLUMN_KEY_1);
+        } catch (IllegalStateException ignored) {
+            // recorded below
+        }
+
+        assertThat(metricRegistry.histogram("sized-put-value-size").getSnapshot().getMax(), is(equalTo(10L)));
+        assertThat(metricRegistry.meter("sized-remove-errors").getCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void requests_and_bytes_are_counted_per_row_and_column_key() {
+        MeteredTable<Float, Long, Integer> trackedTable = MeteredTable.create(backingTableMock, metricRegistry, "tracked",
+                new Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer input) {
+                        return input * 10;
+                    }
+                }, new HotKeyTracker());
+        when(backingTableMock.row(ROW_KEY_1)).thenReturn(ImmutableMap.of(COLUMN_KEY_1, VALUE_1));
+
+        trackedTable.put(ROW_KEY_1, COLUMN_KEY_1, VALUE_1);
+        trackedTable.row(ROW_KEY_1).get(COLUMN_KEY_1);
+        HotKeys hotKeys = trackedTable.getHotKeyTracker().get().snapshot();
+
+        assertThat(hotKeys.getRowsByRequests().get(0).getKey(), is(equalTo((Object) ROW_KEY_1)));
+        assertThat(hotKeys.getRowsByRequests().get(0).getCount(), is(equalTo(2L)));
+        assertThat(hotKeys.getColumnsByBytes().get(0).getKey(), is(equalTo((Object) COLUMN_KEY_1)));
+        assertThat(hotKeys.getColumnsByBytes().get(0).getCount(), is(equalTo(20L)));
+        assertThat(metricRegistry.getGauges().containsKey("tracked-hot-rows-by-requests"), is(true));
+    }
+
+    @Test
+    public void null_keys_are_looked_up_with_a_tracker() {
+        MeteredTable<Float, Long, Integer> trackedTable = MeteredTable.create(backingTableMock, metricRegistry, "tracked",
+                new HotKeyTracker());
+
+        assertThat(trackedTable.get(null, COLUMN_KEY_1), is(nullValue()));
+        assertThat(trackedTable.contains(ROW_KEY_1, null), is(false));
+        assertThat(metricRegistry.meter("tracked-get-errors").getCount(), is(equalTo(0L)));
+    }
 }
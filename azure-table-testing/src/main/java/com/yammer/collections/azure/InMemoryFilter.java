@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.microsoft.windowsazure.services.table.client.EdmType;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Evaluates the filters of table queries, as generated by {@link TableQuery#generateFilterCondition} and
+ * {@link TableQuery#combineFilters}, against the properties of entities held in memory: comparisons of properties with string,
+ * numeric, boolean, datetime and guid literals, combined with and, or, not and parentheses. As on the service, a comparison with a
+ * property the entity does not have is false.
+ */
+final class InMemoryFilter {
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSSSSS'Z'";
+    private final List<String> tokens;
+    private int position;
+
+    private InMemoryFilter(String filter) {
+        tokens = tokenize(filter);
+    }
+
+    /**
+     * @return a predicate on the properties of entities, keys and timestamp included
+     */
+    static Predicate<Map<String, EntityProperty>> parse(String filter) {
+        if (filter == null || filter.trim().isEmpty()) {
+            return Predicates.alwaysTrue();
+        }
+        InMemoryFilter parser = new InMemoryFilter(filter);
+        Predicate<Map<String, EntityProperty>> predicate = parser.or();
+        if (parser.position != parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected " + parser.tokens.get(parser.position) + " in filter " + filter);
+        }
+        return predicate;
+    }
+
+    private static List<String> tokenize(String filter) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < filter.length()) {
+            char c = filter.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                while (i < filter.length() && !Character.isWhitespace(filter.charAt(i)) && filter.charAt(i) != '(' && filter.charAt(i) != ')') {
+                    if (filter.charAt(i) == '\'') {
+                        i = endOfQuoted(filter, i);
+                    } else {
+                        i++;
+                    }
+                }
+                tokens.add(filter.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    // quotes within literals are doubled
+    private static int endOfQuoted(String filter, int openingQuote) {
+        int i = openingQuote + 1;
+        while (i < filter.length()) {
+            if (filter.charAt(i) == '\'') {
+                if (i + 1 < filter.length() && filter.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated literal in filter " + filter);
+    }
+
+    private String next() {
+        if (position == tokens.size()) {
+            throw new IllegalArgumentException("Incomplete filter " + tokens);
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean nextIs(String token) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private Predicate<Map<String, EntityProperty>> or() {
+        Predicate<Map<String, EntityProperty>> predicate = and();
+        while (nextIs(TableQuery.Operators.OR)) {
+            predicate = Predicates.or(predicate, and());
+        }
+        return predicate;
+    }
+
+    private Predicate<Map<String, EntityProperty>> and() {
+        Predicate<Map<String, EntityProperty>> predicate = unary();
+        while (nextIs(TableQuery.Operators.AND)) {
+            predicate = Predicates.and(predicate, unary());
+        }
+        return predicate;
+    }
+
+    private Predicate<Map<String, EntityProperty>> unary() {
+        if (nextIs(TableQuery.Operators.NOT)) {
+            return Predicates.not(unary());
+        }
+        if (nextIs("(")) {
+            Predicate<Map<String, EntityProperty>> predicate = or();
+            if (!nextIs(")")) {
+                throw new IllegalArgumentException("Missing closing parenthesis in filter " + tokens);
+            }
+            return predicate;
+        }
+        return comparison(next(), next(), literal(next()));
+    }
+
+    private static Object literal(String token) {
+        if (token.startsWith("'")) {
+            return unquote(token);
+        }
+        if (token.startsWith("datetime'")) {
+            try {
+                return dateFormat().parse(unquote(token.substring("datetime".length())));
+            } catch (ParseException e) {
+                throw new IllegalArgumentException("Invalid datetime " + token, e);
+            }
+        }
+        if (token.startsWith("guid'")) {
+            return unquote(token.substring("guid".length()));
+        }
+        if ("true".equals(token) || "false".equals(token)) {
+            return Boolean.valueOf(token);
+        }
+        return new BigDecimal(token.endsWith("L") ? token.substring(0, token.length() - 1) : token);
+    }
+
+    private static String unquote(String quoted) {
+        return quoted.substring(1, quoted.length() - 1).replace("''", "'");
+    }
+
+    private static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    private static Predicate<Map<String, EntityProperty>> comparison(final String property, final String operator, final Object literal) {
+        return new Predicate<Map<String, EntityProperty>>() {
+            @Override
+            public boolean apply(Map<String, EntityProperty> properties) {
+                EntityProperty value = properties.get(property);
+                if (value == null || value.getIsNull()) {
+                    return false;
+                }
+                Integer comparison = compare(value, literal);
+                return comparison != null && matches(operator, comparison);
+            }
+        };
+    }
+
+    // null when the property is not of the type of the literal
+    @SuppressWarnings("ReturnOfNull")
+    private static Integer compare(EntityProperty value, Object literal) {
+        EdmType type = value.getEdmType();
+        if (literal instanceof String && (type == EdmType.STRING || type == EdmType.GUID)) {
+            return value.getValueAsString().compareTo((String) literal);
+        }
+        if (literal instanceof Boolean && type == EdmType.BOOLEAN) {
+            return Boolean.valueOf(value.getValueAsBoolean()).compareTo((Boolean) literal);
+        }
+        if (literal instanceof Date && type == EdmType.DATE_TIME) {
+            return value.getValueAsDate().compareTo((Date) literal);
+        }
+        if (literal instanceof BigDecimal && (type == EdmType.INT32 || type == EdmType.INT64)) {
+            return BigDecimal.valueOf(value.getValueAsLong()).compareTo((BigDecimal) literal);
+        }
+        if (literal instanceof BigDecimal && type == EdmType.DOUBLE) {
+            return BigDecimal.valueOf(value.getValueAsDouble()).compareTo((BigDecimal) literal);
+        }
+        return null;
+    }
+
+    private static boolean matches(String operator, int comparison) {
+        switch (operator) {
+            case TableQuery.QueryComparisons.EQUAL:
+                return comparison == 0;
+            case TableQuery.QueryComparisons.NOT_EQUAL:
+                return comparison != 0;
+            case TableQuery.QueryComparisons.GREATER_THAN:
+                return comparison > 0;
+            case TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL:
+                return comparison >= 0;
+            case TableQuery.QueryComparisons.LESS_THAN:
+                return comparison < 0;
+            case TableQuery.QueryComparisons.LESS_THAN_OR_EQUAL:
+                return comparison <= 0;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operator);
+        }
+    }
+}
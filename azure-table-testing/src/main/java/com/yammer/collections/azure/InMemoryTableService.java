@@ -0,0 +1,681 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RequestResult;
+import com.microsoft.windowsazure.services.core.storage.ResponseReceivedEvent;
+import com.microsoft.windowsazure.services.core.storage.RetryNoRetry;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+import com.microsoft.windowsazure.services.core.storage.SendingRequestEvent;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.EntityProperty;
+import com.microsoft.windowsazure.services.table.client.QueryTableOperation;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
+import com.microsoft.windowsazure.services.table.client.TableConstants;
+import com.microsoft.windowsazure.services.table.client.TableEntity;
+import com.microsoft.windowsazure.services.table.client.TableOperation;
+import com.microsoft.windowsazure.services.table.client.TableQuery;
+import com.microsoft.windowsazure.services.table.client.TableRequestOptions;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An in-memory stand-in for the table service, for tests and benchmarks that need realistic access patterns without a network. It is
+ * kept out of the core artifact, in the package of the core so that it implements the package private {@link TableService}; other
+ * modules create its tables with {@link InMemoryTables}.
+ * <p>
+ * Entities are kept ordered by partition and row key. Entity operations, batches and queries behave as on the service: retrieves of
+ * missing entities return nothing, inserts of existing ones and deletes or replaces of missing ones or with stale etags fail, filters
+ * are evaluated by {@link InMemoryFilter}, queries return pages of at most the page size, or the take count, continuing after the
+ * last key returned, and projections only return the selected properties.
+ * <p>
+ * Every request, each page and retry included, fires the sending and response events of the operation context with a stand-in
+ * {@code HttpURLConnection}, so instrumentation, rate limits and deadlines see it as a real request; as in the SDK, what the listeners
+ * throw fails the request with a translated {@link StorageException} that is not retried. It then takes a latency drawn from
+ * the distribution of its type, or the read timeout of the connection if that is shorter, in which case it fails as timed out.
+ * Requests can be throttled at random or above a rate per partition, and fail at random; failed requests are retried by the retry
+ * policy of the request options or of the service, which does not retry by default. Draws come from a seeded random, so
+ * single-threaded runs are reproducible.
+ */
+final class InMemoryTableService implements TableService {
+    static final int DEFAULT_PAGE_SIZE = 1000;
+    static final int MAX_BATCH_SIZE = 100;
+    private static final int OK = 200;
+    private static final int CREATED = 201;
+    private static final int NO_CONTENT = 204;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int REQUEST_TIMEOUT = 408;
+    private static final int CONFLICT = 409;
+    private static final int PRECONDITION_FAILED = 412;
+    private static final int INTERNAL_ERROR = 500;
+    private static final int SERVER_BUSY = 503;
+    private static final Method GET_OPERATION_TYPE = accessible("getOperationType");
+    private static final Method GET_ENTITY = accessible("getEntity");
+    private final ConcurrentMap<String, NavigableMap<String, NavigableMap<String, StoredEntity>>> tables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> partitionBuckets = new ConcurrentHashMap<>();
+    private final Map<RequestType, LatencyDistribution> latencies;
+    private final double throttlingProbability;
+    private final Optional<Double> partitionRate;
+    private final double failureProbability;
+    private final int pageSize;
+    private final RetryPolicyFactory retryPolicyFactory;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong etags = new AtomicLong();
+
+    private InMemoryTableService(Builder builder) {
+        latencies = new EnumMap<>(builder.latencies);
+        throttlingProbability = builder.throttlingProbability;
+        partitionRate = builder.partitionRate;
+        failureProbability = builder.failureProbability;
+        pageSize = builder.pageSize;
+        retryPolicyFactory = builder.retryPolicyFactory;
+        random = new Random(builder.seed);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    private static Method accessible(String name) {
+        try {
+            Method method = TableOperation.class.getDeclaredMethod(name);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static Object invoke(Method method, TableOperation operation) {
+        try {
+            return method.invoke(operation);
+        } catch (ReflectiveOperationException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    // the operation type of the SDK is not public
+    private static OperationType operationType(TableOperation operation) {
+        return OperationType.valueOf(((Enum<?>) invoke(GET_OPERATION_TYPE, operation)).name());
+    }
+
+    private static StorageException failure(String errorCode, int statusCode, Exception cause) {
+        return new StorageException(errorCode, errorCode, statusCode, null, cause);
+    }
+
+    /**
+     * @return a table backed by this service, as a {@code CloudTableClient} would back it
+     */
+    BaseAzureTable table(String tableName, TableClientOptions options) {
+        return new BaseAzureTable(tableName, client(options), new AzureTableRequestFactory());
+    }
+
+    AzureTableCloudClient client(TableClientOptions options) {
+        return new AzureTableCloudClient(this, options);
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long getThrottledCount() {
+        return throttled.get();
+    }
+
+    int size(String tableName) {
+        NavigableMap<String, NavigableMap<String, StoredEntity>> table = table(tableName);
+        synchronized (table) {
+            int size = 0;
+            for (NavigableMap<String, StoredEntity> partition : table.values()) {
+                size += partition.size();
+            }
+            return size;
+        }
+    }
+
+    private NavigableMap<String, NavigableMap<String, StoredEntity>> table(String tableName) {
+        NavigableMap<String, NavigableMap<String, StoredEntity>> table = tables.get(tableName);
+        if (table == null) {
+            tables.putIfAbsent(tableName, new TreeMap<String, NavigableMap<String, StoredEntity>>());
+            table = tables.get(tableName);
+        }
+        return table;
+    }
+
+    @Override
+    public RetryPolicyFactory getRetryPolicyFactory() {
+        return retryPolicyFactory;
+    }
+
+    @Override
+    public AzureEntity execute(final String tableName, final TableOperation operation, TableRequestOptions requestOptions,
+                               OperationContext operationContext) throws StorageException {
+        final OperationType type = operationType(operation);
+        String partitionKey;
+        String rowKey;
+        if (operation instanceof QueryTableOperation) {
+            partitionKey = ((QueryTableOperation) operation).getPartitionKey();
+            rowKey = ((QueryTableOperation) operation).getRowKey();
+        } else {
+            TableEntity entity = (TableEntity) invoke(GET_ENTITY, operation);
+            partitionKey = entity.getPartitionKey();
+            rowKey = entity.getRowKey();
+        }
+        String method = type == OperationType.RETRIEVE ? "GET" : type == OperationType.DELETE ? "DELETE" : "PUT";
+        RequestType requestType = type == OperationType.RETRIEVE ? RequestType.RETRIEVE
+                : type == OperationType.DELETE ? RequestType.DELETE : RequestType.WRITE;
+        return perform(tableName, requestType, method, entityPath(tableName, partitionKey, rowKey), Optional.of(partitionKey),
+                requestOptions, operationContext, new Action<AzureEntity>() {
+                    @Override
+                    public Response<AzureEntity> apply(OperationContext context) throws StorageException {
+                        NavigableMap<String, NavigableMap<String, StoredEntity>> table = table(tableName);
+                        synchronized (table) {
+                            return applyOperation(table, type, operation, context);
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public List<AzureEntity> execute(final String tableName, final TableBatchOperation batch, TableRequestOptions requestOptions,
+                                     OperationContext operationContext) throws StorageException {
+        checkArgument(!batch.isEmpty() && batch.size() <= MAX_BATCH_SIZE, "A batch holds 1 to %s operations", MAX_BATCH_SIZE);
+        String partitionKey = ((TableEntity) invoke(GET_ENTITY, batch.get(0))).getPartitionKey();
+        return perform(tableName, RequestType.WRITE, "POST", "/$batch", Optional.of(partitionKey), requestOptions, operationContext,
+                new Action<List<AzureEntity>>() {
+                    @Override
+                    public Response<List<AzureEntity>> apply(OperationContext context) throws StorageException {
+                        NavigableMap<String, NavigableMap<String, StoredEntity>> table = table(tableName);
+                        synchronized (table) {
+                            return applyAtomically(table, batch, context);
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Iterable<AzureEntity> execute(final TableQuery<AzureEntity> query, final TableRequestOptions requestOptions,
+                                         final OperationContext operationContext) {
+        final Predicate<Map<String, EntityProperty>> filter = InMemoryFilter.parse(query.getFilterString());
+        final Optional<String> partitionKey = query.getFilterString() == null ? Optional.<String>absent()
+                : RequestRateLimiter.partitionKey(query.getFilterString());
+        final int maxPageSize = query.getTakeCount() == null ? pageSize : Math.min(pageSize, query.getTakeCount());
+        return new Iterable<AzureEntity>() {
+            @Override
+            public Iterator<AzureEntity> iterator() {
+                return new AbstractIterator<AzureEntity>() {
+                    private Iterator<AzureEntity> page;
+                    private Optional<String[]> continuation = Optional.of(new String[0]);
+
+                    @Override
+                    protected AzureEntity computeNext() {
+                        while (page == null || !page.hasNext()) {
+                            if (!continuation.isPresent()) {
+                                return endOfData();
+                            }
+                            try {
+                                page = fetchPage(query, filter, partitionKey, maxPageSize, requestOptions, operationContext).iterator();
+                            } catch (StorageException e) {
+                                // as the iterators of the SDK do
+                                NoSuchElementException failure = new NoSuchElementException(e.getMessage());
+                                failure.initCause(e);
+                                throw failure;
+                            }
+                        }
+                        return page.next();
+                    }
+
+                    private List<AzureEntity> fetchPage(TableQuery<AzureEntity> tableQuery, final Predicate<Map<String, EntityProperty>> predicate,
+                                                        Optional<String> partition, final int limit, TableRequestOptions options,
+                                                        OperationContext context) throws StorageException {
+                        final String tableName = tableQuery.getSourceTableName();
+                        final String[] columns = tableQuery.getColumns();
+                        final String[] from = continuation.get();
+                        return perform(tableName, RequestType.QUERY, "GET", "/" + tableName + "()", partition, options, context,
+                                new Action<List<AzureEntity>>() {
+                                    @Override
+                                    public Response<List<AzureEntity>> apply(OperationContext ignored) {
+                                        NavigableMap<String, NavigableMap<String, StoredEntity>> table = table(tableName);
+                                        synchronized (table) {
+                                            return page(table, predicate, columns, from, limit);
+                                        }
+                                    }
+                                });
+                    }
+
+                    private Response<List<AzureEntity>> page(NavigableMap<String, NavigableMap<String, StoredEntity>> table,
+                                                             Predicate<Map<String, EntityProperty>> predicate, String[] columns,
+                                                             String[] from, int limit) {
+                        List<AzureEntity> entities = new ArrayList<>();
+                        long bytes = 0;
+                        NavigableMap<String, NavigableMap<String, StoredEntity>> partitions = from.length == 0 ? table : table.tailMap(from[0], true);
+                        for (Map.Entry<String, NavigableMap<String, StoredEntity>> partition : partitions.entrySet()) {
+                            NavigableMap<String, StoredEntity> rows = from.length > 0 && partition.getKey().equals(from[0])
+                                    ? partition.getValue().tailMap(from[1], false) : partition.getValue();
+                            for (StoredEntity stored : rows.values()) {
+                                if (entities.size() == limit) {
+                                    // the next page starts after the last entity returned
+                                    AzureEntity last = entities.get(entities.size() - 1);
+                                    continuation = Optional.of(new String[]{last.getPartitionKey(), last.getRowKey()});
+                                    return new Response<>(OK, entities, bytes);
+                                }
+                                // the properties are only copied to be filtered
+                                if (predicate == Predicates.<Map<String, EntityProperty>>alwaysTrue() || predicate.apply(stored.filterableProperties())) {
+                                    entities.add(stored.read(columns));
+                                    bytes += stored.bytes;
+                                }
+                            }
+                        }
+                        continuation = Optional.absent();
+                        return new Response<>(OK, entities, bytes);
+                    }
+                };
+            }
+        };
+    }
+
+    private static String entityPath(String tableName, String partitionKey, String rowKey) {
+        return "/" + tableName + "(PartitionKey='" + partitionKey + "',RowKey='" + rowKey + "')";
+    }
+
+    private Response<AzureEntity> applyOperation(NavigableMap<String, NavigableMap<String, StoredEntity>> table, OperationType type,
+                                        TableOperation operation, OperationContext context) throws StorageException {
+        if (type == OperationType.RETRIEVE) {
+            QueryTableOperation retrieve = (QueryTableOperation) operation;
+            StoredEntity stored = get(table, retrieve.getPartitionKey(), retrieve.getRowKey());
+            return stored == null ? new Response<AzureEntity>(NOT_FOUND, null, 0) : new Response<>(OK, stored.read(null), stored.bytes);
+        }
+        TableEntity entity = (TableEntity) invoke(GET_ENTITY, operation);
+        StoredEntity existing = get(table, entity.getPartitionKey(), entity.getRowKey());
+        if (type == OperationType.INSERT && existing != null) {
+            throw failure("EntityAlreadyExists", CONFLICT, null);
+        }
+        if (type == OperationType.DELETE || type == OperationType.REPLACE || type == OperationType.MERGE) {
+            if (existing == null) {
+                throw failure("ResourceNotFound", NOT_FOUND, null);
+            }
+            String etag = entity.getEtag();
+            if (etag != null && !"*".equals(etag) && !etag.equals(existing.etag)) {
+                throw failure("UpdateConditionNotSatisfied", PRECONDITION_FAILED, null);
+            }
+        }
+        NavigableMap<String, StoredEntity> partition = table.get(entity.getPartitionKey());
+        if (type == OperationType.DELETE) {
+            partition.remove(entity.getRowKey());
+            if (partition.isEmpty()) {
+                table.remove(entity.getPartitionKey());
+            }
+            return new Response<>(NO_CONTENT, (AzureEntity) entity, 0);
+        }
+        HashMap<String, EntityProperty> properties = entity.writeEntity(context);
+        if (existing != null && (type == OperationType.MERGE || type == OperationType.INSERT_OR_MERGE)) {
+            HashMap<String, EntityProperty> merged = new HashMap<>(existing.properties);
+            merged.putAll(properties);
+            properties = merged;
+        }
+        if (partition == null) {
+            partition = new TreeMap<>();
+            table.put(entity.getPartitionKey(), partition);
+        }
+        StoredEntity stored = new StoredEntity(entity.getPartitionKey(), entity.getRowKey(), properties, "W/\"" + etags.incrementAndGet() + "\"");
+        partition.put(entity.getRowKey(), stored);
+        entity.setEtag(stored.etag);
+        entity.setTimestamp(stored.timestamp);
+        return new Response<>(type == OperationType.INSERT ? CREATED : NO_CONTENT, (AzureEntity) entity, 0);
+    }
+
+    // applies all the operations or, if one fails, none of them
+    private Response<List<AzureEntity>> applyAtomically(NavigableMap<String, NavigableMap<String, StoredEntity>> table, TableBatchOperation batch,
+                                                        OperationContext context) throws StorageException {
+        String partitionKey = ((TableEntity) invoke(GET_ENTITY, batch.get(0))).getPartitionKey();
+        NavigableMap<String, StoredEntity> before = table.containsKey(partitionKey) ? new TreeMap<>(table.get(partitionKey)) : null;
+        List<AzureEntity> results = new ArrayList<>(batch.size());
+        long bytes = 0;
+        try {
+            for (TableOperation operation : batch) {
+                TableEntity entity = (TableEntity) invoke(GET_ENTITY, operation);
+                if (!partitionKey.equals(entity.getPartitionKey())) {
+                    throw failure("CommandsInBatchActOnDifferentPartitions", BAD_REQUEST, null);
+                }
+                results.add(applyOperation(table, operationType(operation), operation, context).result);
+                bytes += context == null ? 0 : context.getCurrentOperationByteCount();
+            }
+        } catch (StorageException e) {
+            if (before == null) {
+                table.remove(partitionKey);
+            } else {
+                table.put(partitionKey, before);
+            }
+            throw e;
+        }
+        if (context != null) {
+            context.setCurrentOperationByteCount(bytes);
+        }
+        return new Response<>(OK, results, 0);
+    }
+
+    private static StoredEntity get(NavigableMap<String, NavigableMap<String, StoredEntity>> table, String partitionKey, String rowKey) {
+        NavigableMap<String, StoredEntity> partition = table.get(partitionKey);
+        return partition == null ? null : partition.get(rowKey);
+    }
+
+    // sends the request as the SDK does, retrying it as long as the retry policy says so; like the execution engine of the SDK, anything
+    // else than a StorageException thrown while the request is performed, by the event listeners included, is translated into one and
+    // not retried, while the retry policy is consulted outside of it, so what it throws reaches the caller as is
+    private <T> T perform(String tableName, RequestType type, String method, String path, Optional<String> partitionKey,
+                          TableRequestOptions requestOptions, OperationContext operationContext, Action<T> action) throws StorageException {
+        OperationContext context = operationContext == null ? new OperationContext() : operationContext;
+        RetryPolicyFactory policyFactory = requestOptions != null && requestOptions.getRetryPolicyFactory() != null
+                ? requestOptions.getRetryPolicyFactory() : retryPolicyFactory;
+        RetryPolicy retryPolicy = policyFactory.createInstance(context);
+        for (int attempt = 0; ; attempt++) {
+            requests.incrementAndGet();
+            InMemoryConnection connection = new InMemoryConnection(url(path), method);
+            Attempt<T> outcome;
+            try {
+                outcome = attempt(tableName, type, partitionKey, connection, context, action);
+            } catch (StorageException e) {
+                throw e;
+            } catch (Exception e) {
+                throw StorageException.translateException(connection, e, context);
+            }
+            if (outcome.failure == null) {
+                return outcome.result;
+            }
+            RetryResult retry = retryPolicy.shouldRetry(attempt, outcome.failure.getHttpStatusCode(), outcome.failure, context);
+            if (!retry.isShouldRetry()) {
+                throw outcome.failure;
+            }
+            retry.doSleep();
+        }
+    }
+
+    private <T> Attempt<T> attempt(String tableName, RequestType type, Optional<String> partitionKey, InMemoryConnection connection,
+                                   OperationContext context, Action<T> action) throws StorageException {
+        RequestResult requestResult = new RequestResult();
+        context.getSendingRequestEventHandler().fireEvent(new SendingRequestEvent(context, connection, requestResult));
+
+        StorageException failure = simulateRequest(tableName, type, partitionKey, connection);
+        T result = null;
+        if (failure == null) {
+            try {
+                Response<T> response = action.apply(context);
+                result = response.result;
+                requestResult.setStatusCode(response.statusCode);
+                connection.contentLength = response.bytes;
+            } catch (StorageException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            requestResult.setStatusCode(failure.getHttpStatusCode());
+        }
+        context.getResponseReceivedEventHandler().fireEvent(new ResponseReceivedEvent(context, connection, requestResult));
+        return new Attempt<>(result, failure);
+    }
+
+    // takes the time of the request and decides whether it is throttled, fails or times out
+    private StorageException simulateRequest(String tableName, RequestType type, Optional<String> partitionKey, InMemoryConnection connection) {
+        LatencyDistribution latency = latencies.containsKey(type) ? latencies.get(type) : LatencyDistribution.NONE;
+        long latencyNanos = latency.nextNanos(random);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(connection.getReadTimeout());
+        if (timeoutNanos > 0 && latencyNanos > timeoutNanos) {
+            Uninterruptibles.sleepUninterruptibly(timeoutNanos, TimeUnit.NANOSECONDS);
+            return failure("OperationTimedOut", REQUEST_TIMEOUT, new SocketTimeoutException("Read timed out"));
+        }
+        Uninterruptibles.sleepUninterruptibly(latencyNanos, TimeUnit.NANOSECONDS);
+        if (isThrottled(tableName + "/" + partitionKey.or(""))) {
+            throttled.incrementAndGet();
+            return failure("ServerBusy", SERVER_BUSY, null);
+        }
+        if (failureProbability > 0 && random.nextDouble() < failureProbability) {
+            return failure("InternalError", INTERNAL_ERROR, null);
+        }
+        return null;
+    }
+
+    private boolean isThrottled(String partition) {
+        if (throttlingProbability > 0 && random.nextDouble() < throttlingProbability) {
+            return true;
+        }
+        if (!partitionRate.isPresent()) {
+            return false;
+        }
+        TokenBucket bucket = partitionBuckets.get(partition);
+        if (bucket == null) {
+            partitionBuckets.putIfAbsent(partition, new TokenBucket(partitionRate.get()));
+            bucket = partitionBuckets.get(partition);
+        }
+        return bucket.tryReserve(0) < 0;
+    }
+
+    private static URL url(String path) {
+        try {
+            return new URL("http", "localhost", path);
+        } catch (MalformedURLException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private enum OperationType {
+        INSERT, DELETE, REPLACE, RETRIEVE, MERGE, INSERT_OR_REPLACE, INSERT_OR_MERGE
+    }
+
+    private interface Action<T> {
+        Response<T> apply(OperationContext context) throws StorageException;
+    }
+
+    private static final class Response<T> {
+        private final int statusCode;
+        private final T result;
+        private final long bytes;
+
+        Response(int statusCode, T result, long bytes) {
+            this.statusCode = statusCode;
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    // the outcome of one attempt, the failure it ended with if any
+    private static final class Attempt<T> {
+        private final T result;
+        private final StorageException failure;
+
+        Attempt(T result, StorageException failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    private static final class StoredEntity {
+        private final String partitionKey;
+        private final String rowKey;
+        private final HashMap<String, EntityProperty> properties;
+        private final String etag;
+        private final Date timestamp = new Date();
+        private final long bytes;
+
+        StoredEntity(String partitionKey, String rowKey, HashMap<String, EntityProperty> properties, String etag) {
+            this.partitionKey = partitionKey;
+            this.rowKey = rowKey;
+            this.properties = properties;
+            this.etag = etag;
+            long size = partitionKey.length() + rowKey.length();
+            for (Map.Entry<String, EntityProperty> property : properties.entrySet()) {
+                size += property.getKey().length() + property.getValue().getValueAsString().length();
+            }
+            bytes = size;
+        }
+
+        Map<String, EntityProperty> filterableProperties() {
+            Map<String, EntityProperty> filterable = new HashMap<>(properties);
+            filterable.put(TableConstants.PARTITION_KEY, new EntityProperty(partitionKey));
+            filterable.put(TableConstants.ROW_KEY, new EntityProperty(rowKey));
+            filterable.put(TableConstants.TIMESTAMP, new EntityProperty(timestamp));
+            return filterable;
+        }
+
+        AzureEntity read(String[] columns) {
+            HashMap<String, EntityProperty> selected = properties;
+            if (columns != null) {
+                selected = new HashMap<>();
+                for (String column : Arrays.asList(columns)) {
+                    if (properties.containsKey(column)) {
+                        selected.put(column, properties.get(column));
+                    }
+                }
+            }
+            AzureEntity entity = new AzureEntity();
+            entity.setPartitionKey(partitionKey);
+            entity.setRowKey(rowKey);
+            entity.setEtag(etag);
+            entity.setTimestamp(timestamp);
+            try {
+                entity.readEntity(selected, null);
+            } catch (StorageException e) {
+                throw Throwables.propagate(e);
+            }
+            return entity;
+        }
+    }
+
+    private static final class InMemoryConnection extends HttpURLConnection {
+        private long contentLength = -1;
+
+        InMemoryConnection(URL url, String requestMethod) {
+            super(url);
+            method = requestMethod;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return contentLength;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public void connect() throws IOException {
+        }
+    }
+
+    static final class Builder {
+        private final EnumMap<RequestType, LatencyDistribution> latencies = new EnumMap<>(RequestType.class);
+        private double throttlingProbability;
+        private Optional<Double> partitionRate = Optional.absent();
+        private double failureProbability;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private RetryPolicyFactory retryPolicyFactory = new RetryNoRetry();
+        private long seed;
+
+        private Builder() {
+        }
+
+        Builder withLatency(LatencyDistribution latency) {
+            for (RequestType type : RequestType.values()) {
+                withLatency(type, latency);
+            }
+            return this;
+        }
+
+        Builder withLatency(RequestType type, LatencyDistribution latency) {
+            latencies.put(checkNotNull(type), checkNotNull(latency));
+            return this;
+        }
+
+        Builder throttlingWithProbability(double probability) {
+            throttlingProbability = probability;
+            return this;
+        }
+
+        /**
+         * Throttles requests to a partition, or to the whole table for queries across partitions, above the given rate.
+         */
+        Builder throttlingPartitionsAbove(double requestsPerSecond) {
+            partitionRate = Optional.of(requestsPerSecond);
+            return this;
+        }
+
+        Builder failingWithProbability(double probability) {
+            failureProbability = probability;
+            return this;
+        }
+
+        Builder withPageSize(int entitiesPerPage) {
+            checkArgument(entitiesPerPage > 0, "The page size must be positive");
+            pageSize = entitiesPerPage;
+            return this;
+        }
+
+        Builder withRetryPolicy(RetryPolicyFactory policyFactory) {
+            retryPolicyFactory = checkNotNull(policyFactory);
+            return this;
+        }
+
+        Builder withSeed(long randomSeed) {
+            seed = randomSeed;
+            return this;
+        }
+
+        InMemoryTableService build() {
+            return new InMemoryTableService(this);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tables backed by an in-memory stand-in for the table service, for tests, benchmarks and load tests without an account.
+ * <p>
+ * The tables of an instance share its entities and behave as tables of the service do: point operations, batches and paged queries
+ * included, with latencies drawn from a log-normal distribution, throttling and failures. Nothing is persisted, and instances do not
+ * share entities.
+ */
+public final class InMemoryTables {
+    // the spread of the simulated latencies, the 99th percentile is about three times the median
+    private static final double LATENCY_SIGMA = 0.5;
+    private final InMemoryTableService service;
+
+    private InMemoryTables(InMemoryTableService service) {
+        this.service = service;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public BaseAzureTable table(String tableName, TableClientOptions options) {
+        return service.table(tableName, options);
+    }
+
+    public <R, C, V> TypedAzureTable<R, C, V> typedTable(String tableName, TableClientOptions options,
+                                                         Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                         Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+        return new TypedAzureTable<>(tableName, service.client(options), new AzureTableRequestFactory(),
+                rowClass, columnClass, valueClass, rowCodec, columnCodec, valueCodec, Optional.<PropertyExtractor<V>>absent());
+    }
+
+    /**
+     * @return the requests sent, each page and retry included
+     */
+    public long getRequestCount() {
+        return service.getRequestCount();
+    }
+
+    public long getThrottledCount() {
+        return service.getThrottledCount();
+    }
+
+    /**
+     * @return the entities of the table
+     */
+    public int size(String tableName) {
+        return service.size(tableName);
+    }
+
+    public static final class Builder {
+        private final InMemoryTableService.Builder service = InMemoryTableService.builder();
+
+        private Builder() {
+        }
+
+        /**
+         * @param median the median latency of each request, with a log-normal tail, none by default
+         */
+        public Builder withLatency(long median, TimeUnit unit) {
+            checkArgument(median >= 0, "The latency must not be negative");
+            service.withLatency(median == 0 ? LatencyDistribution.NONE : LatencyDistribution.logNormal(median, LATENCY_SIGMA, unit));
+            return this;
+        }
+
+        public Builder throttlingWithProbability(double probability) {
+            service.throttlingWithProbability(probability);
+            return this;
+        }
+
+        /**
+         * Throttles requests to a partition, or to the whole table for queries across partitions, above the given rate.
+         */
+        public Builder throttlingPartitionsAbove(double requestsPerSecond) {
+            service.throttlingPartitionsAbove(requestsPerSecond);
+            return this;
+        }
+
+        public Builder failingWithProbability(double probability) {
+            service.failingWithProbability(probability);
+            return this;
+        }
+
+        /**
+         * @param entitiesPerPage the most entities a query returns per request, 1000 by default
+         */
+        public Builder withPageSize(int entitiesPerPage) {
+            service.withPageSize(entitiesPerPage);
+            return this;
+        }
+
+        /**
+         * @param policyFactory the retry policy of tables without one of their own, which do not retry by default
+         */
+        public Builder withRetryPolicy(RetryPolicyFactory policyFactory) {
+            service.withRetryPolicy(policyFactory);
+            return this;
+        }
+
+        public Builder withSeed(long randomSeed) {
+            service.withSeed(randomSeed);
+            return this;
+        }
+
+        public InMemoryTables build() {
+            return new InMemoryTables(service.build());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The latency of the requests of an {@link InMemoryTableService}.
+ */
+abstract class LatencyDistribution {
+    static final LatencyDistribution NONE = constant(0, TimeUnit.NANOSECONDS);
+
+    abstract long nextNanos(Random random);
+
+    static LatencyDistribution constant(long latency, TimeUnit unit) {
+        final long nanos = unit.toNanos(latency);
+        return new LatencyDistribution() {
+            @Override
+            long nextNanos(Random random) {
+                return nanos;
+            }
+        };
+    }
+
+    static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+        checkArgument(min <= max, "The minimum cannot exceed the maximum");
+        final long minNanos = unit.toNanos(min);
+        final long rangeNanos = unit.toNanos(max) - minNanos;
+        return new LatencyDistribution() {
+            @Override
+            long nextNanos(Random random) {
+                return minNanos + (long) (random.nextDouble() * rangeNanos);
+            }
+        };
+    }
+
+    /**
+     * Log-normal latencies, typical of services: the median is exp(mu), the 99.9th percentile about median * exp(3.1 * sigma).
+     */
+    static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit) {
+        final double mu = Math.log(unit.toNanos(median));
+        final double sigmaToUse = sigma;
+        return new LatencyDistribution() {
+            @Override
+            long nextNanos(Random random) {
+                return (long) Math.exp(mu + sigmaToUse * random.nextGaussian());
+            }
+        };
+    }
+
+    /**
+     * Takes the latency from the tail with the given probability, e.g. for occasional slow storage nodes.
+     */
+    static LatencyDistribution withTail(final LatencyDistribution body, final double probability, final LatencyDistribution tail) {
+        checkNotNull(body);
+        checkNotNull(tail);
+        return new LatencyDistribution() {
+            @Override
+            long nextNanos(Random random) {
+                return random.nextDouble() < probability ? tail.nextNanos(random) : body.nextNanos(random);
+            }
+        };
+    }
+}
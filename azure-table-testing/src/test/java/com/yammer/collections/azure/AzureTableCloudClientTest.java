@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.microsoft.windowsazure.services.core.storage.OperationContext;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicy;
+import com.microsoft.windowsazure.services.core.storage.RetryPolicyFactory;
+import com.microsoft.windowsazure.services.core.storage.RetryResult;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class AzureTableCloudClientTest {
+    private static final String TABLE_NAME = "scanned_table";
+    private static final int ROWS = 5;
+    private static final int COLUMNS = 2;
+
+    private static Bytes bytes(String string) {
+        return Bytes.of(string.getBytes(Charsets.UTF_8));
+    }
+
+    private static void assertScansRetriedByTheScanClient(TableClientOptions options) {
+        CountingRetryPolicy scanRetryPolicy = new CountingRetryPolicy();
+        // the service of the table does not retry, the one of the scans does
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        InMemoryTableService scanService = InMemoryTableService.builder()
+                .withPageSize(2)
+                .failingWithProbability(0.5)
+                .withSeed(1)
+                .withRetryPolicy(scanRetryPolicy)
+                .build();
+        BaseAzureTable written = scanService.table(TABLE_NAME, TableClientOptions.builder().withRetryPolicy(new ExponentialJitterRetryPolicy(1, 2, 20)).build());
+        Table<Bytes, Bytes, Bytes> expected = HashBasedTable.create();
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                written.put(bytes("row" + row), bytes("column" + column), bytes("value" + row));
+                expected.put(bytes("row" + row), bytes("column" + column), bytes("value" + row));
+            }
+        }
+        BaseAzureTable table = new BaseAzureTable(TABLE_NAME, new AzureTableCloudClient(service, scanService, options),
+                new AzureTableRequestFactory());
+
+        assertThat(HashBasedTable.create(table), is(equalTo(expected)));
+        assertThat(scanRetryPolicy.retries.get(), is(greaterThan(0)));
+    }
+
+    @Test
+    public void scans_under_a_deadline_are_retried_by_the_policy_of_the_scan_client() {
+        assertScansRetriedByTheScanClient(TableClientOptions.builder().withQueryTimeout(10, TimeUnit.SECONDS).build());
+    }
+
+    @Test
+    public void scans_under_a_retry_budget_are_retried_by_the_policy_of_the_scan_client() {
+        assertScansRetriedByTheScanClient(TableClientOptions.builder().withRetryBudget(new RetryBudget(1, 100)).build());
+    }
+
+    private static final class CountingRetryPolicy extends RetryPolicy implements RetryPolicyFactory {
+        private final AtomicInteger retries = new AtomicInteger();
+
+        @Override
+        public RetryPolicy createInstance(OperationContext opContext) {
+            return this;
+        }
+
+        @Override
+        public RetryResult shouldRetry(int currentRetryCount, int statusCode, Exception lastException, OperationContext opContext) {
+            retries.incrementAndGet();
+            return new RetryResult(0, currentRetryCount < 20);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HedgingPolicyTest {
+    private static final String SLOW = "slow";
+    private static final String FAST = "fast";
+
+    @Test
+    public void retrieves_are_hedged_after_the_percentile_of_enough_recent_latencies() {
+        HedgingPolicy policy = HedgingPolicy.builder().afterPercentile(0.95).build();
+
+        for (int i = 1; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertThat(policy.getHedgeDelay(TimeUnit.MILLISECONDS), is(equalTo(-1L)));
+        for (int i = HedgingPolicy.MIN_SAMPLES; i <= 128; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertThat(policy.getHedgeDelay(TimeUnit.MILLISECONDS), is(equalTo(122L)));
+    }
+
+    @Test
+    public void slow_retrieve_is_hedged_and_the_first_result_returned() throws Exception {
+        // the delay leaves the first retrieve time to start before the hedge does
+        HedgingPolicy policy = primed(HedgingPolicy.builder().withMaxHedgeRatio(1).withMinDelay(50, TimeUnit.MILLISECONDS));
+        final CountDownLatch slowRetrieve = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        try {
+            String result = policy.execute(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    if (calls.incrementAndGet() == 1) {
+                        slowRetrieve.await();
+                        return SLOW;
+                    }
+                    return FAST;
+                }
+            });
+
+            assertThat(result, is(equalTo(FAST)));
+            assertThat(policy.getHedgeCount(), is(equalTo(1L)));
+            assertThat(policy.getHedgeWinCount(), is(equalTo(1L)));
+        } finally {
+            slowRetrieve.countDown();
+        }
+    }
+
+    @Test
+    public void hedges_are_limited_to_the_reserve_and_ratio_of_retrieves() throws Exception {
+        HedgingPolicy policy = primed(HedgingPolicy.builder().withMaxHedgeRatio(0));
+        Callable<String> slowRetrieve = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Thread.sleep(10);
+                return SLOW;
+            }
+        };
+
+        for (int i = 0; i <= RetryBudget.DEFAULT_RESERVE; i++) {
+            assertThat(policy.execute(slowRetrieve), is(equalTo(SLOW)));
+        }
+
+        assertThat(policy.getRetrieveCount(), is(equalTo(RetryBudget.DEFAULT_RESERVE + 1L)));
+        assertThat(policy.getHedgeCount(), is(equalTo((long) RetryBudget.DEFAULT_RESERVE)));
+    }
+
+    @Test
+    public void retrieve_rejected_by_the_executor_runs_on_the_calling_thread() throws Exception {
+        ExecutorService shutDown = Executors.newSingleThreadExecutor();
+        shutDown.shutdown();
+        HedgingPolicy policy = primed(HedgingPolicy.builder().withExecutor(shutDown));
+        final Thread caller = Thread.currentThread();
+
+        String result = policy.execute(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread() == caller ? FAST : SLOW;
+            }
+        });
+
+        assertThat(result, is(equalTo(FAST)));
+        assertThat(policy.getHedgeCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void hedge_rejected_by_the_default_executor_is_not_sent() throws Exception {
+        HedgingPolicy policy = primed(HedgingPolicy.builder().withMaxThreads(1).withMaxHedgeRatio(1).withMinDelay(10, TimeUnit.MILLISECONDS));
+        final AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.execute(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                Thread.sleep(100);
+                return SLOW;
+            }
+        });
+
+        assertThat(result, is(equalTo(SLOW)));
+        assertThat(calls.get(), is(equalTo(1)));
+        assertThat(policy.getHedgeCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void interrupted_caller_of_a_hedged_table_stays_interrupted() {
+        HedgingPolicy policy = primed(HedgingPolicy.builder());
+        BaseAzureTable table = InMemoryTableService.builder()
+                .withLatency(LatencyDistribution.constant(1, TimeUnit.SECONDS))
+                .build().table("hedged_table", TableClientOptions.builder().withHedging(policy).build());
+
+        Thread.currentThread().interrupt();
+        try {
+            table.get(Bytes.of(new byte[]{1}), Bytes.of(new byte[]{2}));
+            fail("The interrupted retrieve should have failed");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), is(instanceOf(InterruptedException.class)));
+        } finally {
+            assertThat(Thread.interrupted(), is(true));
+        }
+    }
+
+    private static HedgingPolicy primed(HedgingPolicy.Builder builder) {
+        HedgingPolicy policy = builder.build();
+        for (int i = 0; i < 128; i++) {
+            policy.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return policy;
+    }
+}
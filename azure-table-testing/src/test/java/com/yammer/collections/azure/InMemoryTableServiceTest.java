@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.microsoft.windowsazure.services.core.storage.StorageException;
+import com.microsoft.windowsazure.services.table.client.TableBatchOperation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InMemoryTableServiceTest {
+    private static final String TABLE_NAME = "in_memory_table";
+    private static final Bytes ROW = bytes("row");
+    private static final Bytes COLUMN = bytes("column");
+    private static final Bytes VALUE = bytes("value");
+
+    private static Bytes bytes(String string) {
+        return Bytes.of(string.getBytes(Charsets.UTF_8));
+    }
+
+    @Test
+    public void stores_retrieves_and_removes_values() {
+        BaseAzureTable table = InMemoryTableService.builder().build().table(TABLE_NAME, TableClientOptions.DEFAULT);
+
+        table.put(ROW, COLUMN, VALUE);
+
+        assertThat(table.get(ROW, COLUMN), is(equalTo(VALUE)));
+        assertThat(table.remove(ROW, COLUMN), is(equalTo(VALUE)));
+        assertThat(table.get(ROW, COLUMN), is(nullValue()));
+        assertThat(table.remove(ROW, COLUMN), is(nullValue()));
+    }
+
+    @Test
+    public void queries_return_matching_entities_in_key_order_a_page_per_request() {
+        final AtomicInteger queryPages = new AtomicInteger();
+        TableClientOptions options = TableClientOptions.builder().withRequestListener(new TableRequestListener() {
+            @Override
+            public void requestCompleted(TableRequestEvent event) {
+                if (event.getRequestType() == RequestType.QUERY) {
+                    queryPages.incrementAndGet();
+                }
+            }
+        }).build();
+        BaseAzureTable table = InMemoryTableService.builder().withPageSize(3).build().table(TABLE_NAME, options);
+        List<Bytes> columns = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            columns.add(bytes("column" + i));
+            table.put(ROW, columns.get(i), VALUE);
+        }
+        table.put(bytes("other"), COLUMN, VALUE);
+
+        List<Bytes> queried = new ArrayList<>();
+        for (Bytes column : table.row(ROW).keySet()) {
+            queried.add(column);
+        }
+
+        assertThat(queried, is(equalTo(columns)));
+        assertThat(queryPages.get(), is(equalTo(3)));
+    }
+
+    @Test
+    public void throttled_requests_are_retried_and_reported() {
+        final AtomicInteger throttledRequests = new AtomicInteger();
+        TableClientOptions options = TableClientOptions.builder()
+                .withRetryPolicy(new ExponentialJitterRetryPolicy(1, 2, 30))
+                .withRequestListener(new TableRequestListener() {
+                    @Override
+                    public void requestCompleted(TableRequestEvent event) {
+                        if (event.isThrottled()) {
+                            throttledRequests.incrementAndGet();
+                        }
+                    }
+                }).build();
+        InMemoryTableService service = InMemoryTableService.builder().throttlingWithProbability(0.5).withSeed(1).build();
+        BaseAzureTable table = service.table(TABLE_NAME, options);
+
+        for (int i = 0; i < 20; i++) {
+            table.put(ROW, bytes("column" + i), VALUE);
+        }
+
+        assertThat(service.size(TABLE_NAME), is(equalTo(20)));
+        assertThat(service.getThrottledCount(), is(greaterThan(0L)));
+        assertThat((long) throttledRequests.get(), is(equalTo(service.getThrottledCount())));
+        assertThat(service.getRequestCount(), is(equalTo(20 + service.getThrottledCount())));
+    }
+
+    @Test
+    public void request_slower_than_the_deadline_times_out() {
+        TableClientOptions options = TableClientOptions.builder().withOperationTimeout(20, TimeUnit.MILLISECONDS).build();
+        BaseAzureTable table = InMemoryTableService.builder()
+                .withLatency(RequestType.RETRIEVE, LatencyDistribution.constant(1, TimeUnit.SECONDS))
+                .build().table(TABLE_NAME, options);
+
+        long start = System.nanoTime();
+        try {
+            table.get(ROW, COLUMN);
+            fail("The retrieve should have timed out");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), is(instanceOf(StorageException.class)));
+            assertThat(((StorageException) e.getCause()).getHttpStatusCode(), is(equalTo(408)));
+        }
+        assertThat(System.nanoTime() - start, is(lessThan(TimeUnit.MILLISECONDS.toNanos(500))));
+    }
+
+    @Test
+    public void deadline_passing_while_requests_are_retried_fails_the_operation_with_deadline_exceeded() {
+        TableClientOptions options = TableClientOptions.builder()
+                .withRetryPolicy(new ExponentialJitterRetryPolicy(1, 2, 1000))
+                .withOperationTimeout(50, TimeUnit.MILLISECONDS).build();
+        InMemoryTableService service = InMemoryTableService.builder()
+                .withLatency(LatencyDistribution.constant(5, TimeUnit.MILLISECONDS))
+                .throttlingWithProbability(1).build();
+        BaseAzureTable table = service.table(TABLE_NAME, options);
+
+        long start = System.nanoTime();
+        try {
+            table.put(ROW, COLUMN, VALUE);
+            fail("The put should have exceeded its deadline");
+        } catch (DeadlineExceededException expected) {
+            // the deadline is not reported as a failed request
+        }
+        assertThat(System.nanoTime() - start, is(lessThan(TimeUnit.MILLISECONDS.toNanos(500))));
+    }
+
+    @Test
+    public void query_page_is_not_requested_after_the_deadline() {
+        InMemoryTableService service = InMemoryTableService.builder().withPageSize(1).build();
+        BaseAzureTable table = service.table(TABLE_NAME, TableClientOptions.DEFAULT);
+        for (int i = 0; i < 3; i++) {
+            table.put(ROW, bytes("column" + i), VALUE);
+        }
+        long requests;
+        Iterator<Bytes> columns;
+        try (Deadline.Scope scope = Deadline.after(50, TimeUnit.MILLISECONDS).enter()) {
+            columns = table.row(ROW).keySet().iterator();
+            columns.next();
+            requests = service.getRequestCount();
+        }
+        Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+
+        try {
+            columns.hasNext();
+            fail("The iteration should have exceeded its deadline");
+        } catch (DeadlineExceededException expected) {
+            // the next page is not requested
+        }
+        assertThat(service.getRequestCount(), is(equalTo(requests)));
+    }
+
+    @Test
+    public void exception_thrown_by_a_listener_is_translated_and_not_retried() {
+        final IllegalStateException listenerFailure = new IllegalStateException("listener failed");
+        TableClientOptions options = TableClientOptions.builder()
+                .withRetryPolicy(new ExponentialJitterRetryPolicy(1, 2, 30))
+                .withRequestListener(new TableRequestListener() {
+                    @Override
+                    public void requestCompleted(TableRequestEvent event) {
+                        throw listenerFailure;
+                    }
+                }).build();
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        BaseAzureTable table = service.table(TABLE_NAME, options);
+
+        try {
+            table.put(ROW, COLUMN, VALUE);
+            fail("The put should have failed");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), is(instanceOf(StorageException.class)));
+            assertThat(e.getCause().getCause(), is(sameInstance((Throwable) listenerFailure)));
+        }
+        assertThat(service.getRequestCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void cells_put_in_a_row_are_written_in_batches_of_at_most_one_hundred() {
+        final AtomicInteger writes = new AtomicInteger();
+        TableClientOptions options = TableClientOptions.builder().withRequestListener(new TableRequestListener() {
+            @Override
+            public void requestCompleted(TableRequestEvent event) {
+                if (event.getRequestType() == RequestType.WRITE) {
+                    writes.incrementAndGet();
+                }
+            }
+        }).build();
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        BaseAzureTable table = service.table(TABLE_NAME, options);
+        Map<Bytes, Bytes> values = new LinkedHashMap<>();
+        for (int i = 0; i < 150; i++) {
+            values.put(bytes("column" + i), bytes("value" + i));
+        }
+
+        table.putAllInRow(ROW, values);
+
+        assertThat(writes.get(), is(equalTo(2)));
+        Map<Bytes, Bytes> stored = new HashMap<>(table.row(ROW));
+        assertThat(stored, is(equalTo(values)));
+    }
+
+    @Test
+    public void failed_batch_leaves_the_partition_unchanged() throws StorageException {
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        BaseAzureTable table = service.table(TABLE_NAME, TableClientOptions.DEFAULT);
+        table.put(ROW, COLUMN, VALUE);
+        AzureTableRequestFactory requestFactory = new AzureTableRequestFactory();
+        TableBatchOperation batch = new TableBatchOperation();
+        batch.add(requestFactory.put(AzureEntityUtil.encode(ROW), AzureEntityUtil.encode(bytes("new")), AzureEntityUtil.encode(VALUE)));
+        AzureEntity existing = new AzureEntity(AzureEntityUtil.encode(ROW), AzureEntityUtil.encode(COLUMN), AzureEntityUtil.encode(VALUE));
+        batch.insert(existing);
+
+        try {
+            service.execute(TABLE_NAME, batch, null, null);
+            fail("The batch should have failed");
+        } catch (StorageException e) {
+            assertThat(e.getHttpStatusCode(), is(equalTo(409)));
+        }
+        List<Table.Cell<Bytes, Bytes, Bytes>> cells = new ArrayList<>(table.cellSet());
+        assertThat(cells.size(), is(equalTo(1)));
+        assertThat(cells.get(0).getColumnKey(), is(equalTo(COLUMN)));
+    }
+}
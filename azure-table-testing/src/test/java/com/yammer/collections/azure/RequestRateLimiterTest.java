@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RequestRateLimiterTest {
+    private static final String PARTITION = "a";
+    private static final String OTHER_PARTITION = "b";
+    private static final String TABLE_NAME = "limited_table";
+    private static final Bytes ROW = Bytes.of(new byte[]{1});
+    private static final Bytes COLUMN = Bytes.of(new byte[]{2});
+    private static final Bytes VALUE = Bytes.of(new byte[]{3});
+    // fails the first request, not the second
+    private static final long RETRIED_SEED = 9;
+
+    @Test
+    public void partition_key_is_found_in_filters_and_resource_paths() {
+        assertThat(RequestRateLimiter.partitionKey("(PartitionKey eq 'cm93') and (RowKey ge 'Y')"), is(equalTo(Optional.of("cm93"))));
+        assertThat(RequestRateLimiter.partitionKey("/table(PartitionKey='cm93',RowKey='Y29s')"), is(equalTo(Optional.of("cm93"))));
+        assertThat(RequestRateLimiter.partitionKey("/table(PartitionKey=%27cm93%27,RowKey=%27Y29s%27)"), is(equalTo(Optional.of("cm93"))));
+        assertThat(RequestRateLimiter.partitionKey("PartitionKey ge 'cm93'"), is(equalTo(Optional.<String>absent())));
+    }
+
+    @Test
+    public void partitions_are_limited_separately() {
+        RequestRateLimiter limiter = RequestRateLimiter.builder().withPartitionLimit(1).build();
+
+        assertThat(limiter.tryAcquire(PARTITION), is(true));
+        assertThat(limiter.tryAcquire(PARTITION), is(false));
+        assertThat(limiter.tryAcquire(OTHER_PARTITION), is(true));
+    }
+
+    @Test
+    public void table_limit_applies_to_all_partitions_and_refused_requests_do_not_consume_partition_permits() {
+        RequestRateLimiter limiter = RequestRateLimiter.builder().withPartitionLimit(1).withTableLimit(1).build();
+
+        assertThat(limiter.tryAcquire(PARTITION), is(true));
+        assertThat(limiter.tryAcquire(OTHER_PARTITION), is(false));
+        assertThat(limiter.tryAcquire(OTHER_PARTITION), is(false));
+    }
+
+    @Test(expected = RateLimitExceededException.class)
+    public void request_failing_fast_beyond_the_maximum_wait() {
+        RequestRateLimiter limiter = RequestRateLimiter.builder().withTableLimit(1).waitingAtMost(0, TimeUnit.SECONDS).build();
+
+        limiter.beforeRequest("table", Optional.<String>absent(), 1);
+        limiter.beforeRequest("table", Optional.<String>absent(), 1);
+    }
+
+    @Test
+    public void entity_operation_beyond_the_maximum_wait_fails_before_it_is_sent() {
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        BaseAzureTable table = service.table(TABLE_NAME, limitedToOneRequest());
+        table.put(ROW, COLUMN, VALUE);
+
+        try {
+            table.put(ROW, COLUMN, VALUE);
+            fail("The put should have exceeded the rate limit");
+        } catch (RateLimitExceededException expected) {
+            // rejected before the SDK, which would have translated it
+        }
+        assertThat(service.getRequestCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void query_page_beyond_the_maximum_wait_fails_the_iteration_before_it_is_requested() {
+        InMemoryTableService service = InMemoryTableService.builder().withPageSize(1).build();
+        BaseAzureTable unlimitedTable = service.table(TABLE_NAME, TableClientOptions.DEFAULT);
+        for (int i = 0; i < 3; i++) {
+            unlimitedTable.put(ROW, Bytes.of(new byte[]{(byte) i}), VALUE);
+        }
+        Iterator<Bytes> columns = service.table(TABLE_NAME, limitedToOneRequest()).row(ROW).keySet().iterator();
+        columns.next();
+        long requests = service.getRequestCount();
+
+        try {
+            columns.next();
+            fail("The second page should have exceeded the rate limit");
+        } catch (RateLimitExceededException expected) {
+            // thrown by the iterator rather than within the SDK
+        }
+        assertThat(service.getRequestCount(), is(equalTo(requests)));
+    }
+
+    @Test
+    public void retries_wait_for_their_permit_rather_than_fail() {
+        RequestRateLimiter limiter = RequestRateLimiter.builder().withTableLimit(100).waitingAtMost(0, TimeUnit.SECONDS).build();
+        InMemoryTableService service = InMemoryTableService.builder().failingWithProbability(0.75).withSeed(RETRIED_SEED).build();
+        BaseAzureTable table = service.table(TABLE_NAME, TableClientOptions.builder()
+                .withRetryPolicy(new ExponentialJitterRetryPolicy(1, 2, 30)).withRateLimiter(limiter).build());
+
+        table.put(ROW, COLUMN, VALUE);
+
+        assertThat(service.getRequestCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void batch_takes_a_permit_per_entity() {
+        TokenBucket bucket = new TokenBucket(100, new ManualTicker());
+        InMemoryTableService service = InMemoryTableService.builder().build();
+        BaseAzureTable table = service.table(TABLE_NAME, TableClientOptions.builder()
+                .withRateLimiter(RequestRateLimiter.builder().withSharedLimit(bucket).waitingAtMost(0, TimeUnit.SECONDS).build()).build());
+        Map<Bytes, Bytes> values = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            values.put(Bytes.of(new byte[]{(byte) i}), VALUE);
+        }
+
+        table.putAllInRow(ROW, values);
+
+        assertThat(service.size(TABLE_NAME), is(equalTo(100)));
+        assertThat(bucket.tryReserve(0), is(equalTo(-1L)));
+    }
+
+    @Test
+    public void query_pages_are_charged_for_the_entities_they_return() {
+        TokenBucket bucket = new TokenBucket(10, new ManualTicker());
+        InMemoryTableService service = InMemoryTableService.builder().withPageSize(3).build();
+        BaseAzureTable unlimitedTable = service.table(TABLE_NAME, TableClientOptions.DEFAULT);
+        for (int i = 0; i < 5; i++) {
+            unlimitedTable.put(ROW, Bytes.of(new byte[]{(byte) i}), VALUE);
+        }
+        BaseAzureTable table = service.table(TABLE_NAME, TableClientOptions.builder()
+                .withRateLimiter(RequestRateLimiter.builder().withSharedLimit(bucket).build()).build());
+
+        int columns = 0;
+        for (Bytes column : table.row(ROW).keySet()) {
+            columns++;
+        }
+
+        assertThat(columns, is(equalTo(5)));
+        assertThat(bucket.tryReserve(5, 0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(-1L)));
+    }
+
+    private static TableClientOptions limitedToOneRequest() {
+        return TableClientOptions.builder()
+                .withRateLimiter(RequestRateLimiter.builder().withTableLimit(1).waitingAtMost(0, TimeUnit.SECONDS).build()).build();
+    }
+
+    @Test
+    public void async_acquire_completes_once_permitted() throws Exception {
+        RequestRateLimiter limiter = RequestRateLimiter.builder().withPartitionLimit(20).build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            for (int i = 0; i < 21; i++) {
+                limiter.acquireAsync(PARTITION, scheduler).get(1, TimeUnit.SECONDS);
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void bucket_refills_at_its_rate_up_to_a_second_of_permits() {
+        ManualTicker ticker = new ManualTicker();
+        TokenBucket bucket = new TokenBucket(2, ticker);
+
+        assertThat(bucket.tryReserve(0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(-1L)));
+        assertThat(bucket.tryReserve(Long.MAX_VALUE), is(equalTo(TimeUnit.MILLISECONDS.toNanos(500))));
+        assertThat(bucket.tryReserve(Long.MAX_VALUE), is(equalTo(TimeUnit.MILLISECONDS.toNanos(1000))));
+        ticker.advance(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(bucket.tryReserve(0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(-1L)));
+    }
+
+    @Test
+    public void released_reservation_no_longer_delays_later_callers() {
+        TokenBucket bucket = new TokenBucket(2, new ManualTicker());
+        bucket.tryReserve(2, 0);
+
+        bucket.release(bucket.reserve(1, Long.MAX_VALUE).get());
+        bucket.release(bucket.reserve(1, Long.MAX_VALUE).get());
+
+        assertThat(bucket.tryReserve(Long.MAX_VALUE), is(equalTo(TimeUnit.MILLISECONDS.toNanos(500))));
+    }
+
+    @Test
+    public void released_reservation_stores_its_permits_again() {
+        TokenBucket bucket = new TokenBucket(2, new ManualTicker());
+
+        bucket.release(bucket.reserve(3, Long.MAX_VALUE).get());
+
+        assertThat(bucket.tryReserve(2, 0), is(equalTo(0L)));
+        assertThat(bucket.tryReserve(0), is(equalTo(-1L)));
+    }
+
+    @Test
+    public void encoded_partition_key_of_a_resource_path_is_decoded() {
+        String path = RequestInstrumentation.decodePath("/table(PartitionKey=%27a%2Bb%2F%3D%3D%27,RowKey=%27Y29s%27)");
+
+        assertThat(RequestRateLimiter.partitionKey(path), is(equalTo(Optional.of("a+b/=="))));
+        assertThat(RequestInstrumentation.decodePath("/table(PartitionKey='a+b',RowKey='%')"), is(equalTo("/table(PartitionKey='a+b',RowKey='%')")));
+    }
+
+    private static final class ManualTicker extends Ticker {
+        private long nanos;
+
+        void advance(long nanosToAdvance) {
+            nanos += nanosToAdvance;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.Table;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ScanSegmentTest {
+    private static final String TABLE_NAME = "scanned_table";
+    private static final Bytes VALUE = bytes("value");
+    private static final int ROWS = 200;
+    private static final int COLUMNS = 3;
+    private BaseAzureTable table;
+    private Set<Table.Cell<Bytes, Bytes, Bytes>> allCells;
+
+    private static Bytes bytes(String string) {
+        return Bytes.of(string.getBytes(Charsets.UTF_8));
+    }
+
+    private static List<Table.Cell<Bytes, Bytes, Bytes>> scan(Iterable<Table.Cell<Bytes, Bytes, Bytes>> cells) {
+        List<Table.Cell<Bytes, Bytes, Bytes>> scanned = new ArrayList<>();
+        for (Table.Cell<Bytes, Bytes, Bytes> cell : cells) {
+            scanned.add(cell);
+        }
+        return scanned;
+    }
+
+    @Before
+    public void setUp() {
+        table = InMemoryTableService.builder().withPageSize(7).build().table(TABLE_NAME, TableClientOptions.DEFAULT);
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                table.put(bytes("row" + row), bytes("column" + column), VALUE);
+            }
+        }
+        allCells = new HashSet<>(scan(table.cellSet()));
+    }
+
+    @Test
+    public void segments_of_the_whole_table_cover_every_cell_once() {
+        List<Table.Cell<Bytes, Bytes, Bytes>> scanned = new ArrayList<>();
+        for (ScanSegment segment : ScanSegment.wholeTable(16)) {
+            scanned.addAll(scan(table.query().inSegment(segment).cells()));
+        }
+
+        assertThat(scanned.size(), is(equalTo(allCells.size())));
+        assertThat(new HashSet<>(scanned), is(equalTo(allCells)));
+    }
+
+    @Test
+    public void splitting_a_segment_during_its_scan_hands_over_the_rest_of_it() {
+        ScanSegment segment = ScanSegment.wholeTable();
+        Iterator<Table.Cell<Bytes, Bytes, Bytes>> iterator = table.query().inSegment(segment).cells().iterator();
+        List<Table.Cell<Bytes, Bytes, Bytes>> scanned = new ArrayList<>();
+        List<ScanSegment> splits = new ArrayList<>();
+        while (iterator.hasNext()) {
+            scanned.add(iterator.next());
+            if (scanned.size() % 10 == 1) {
+                Optional<ScanSegment> split = segment.splitRemaining();
+                if (split.isPresent()) {
+                    splits.add(split.get());
+                }
+            }
+        }
+        int scannedBySegment = scanned.size();
+        for (ScanSegment split : splits) {
+            scanned.addAll(scan(table.query().inSegment(split).cells()));
+        }
+
+        assertThat(scannedBySegment, is(lessThan(allCells.size())));
+        assertThat(scanned.size(), is(equalTo(allCells.size())));
+        assertThat(new HashSet<>(scanned), is(equalTo(allCells)));
+    }
+
+    @Test
+    public void finished_segment_is_not_split() {
+        ScanSegment segment = ScanSegment.wholeTable();
+        scan(table.query().inSegment(segment).cells());
+
+        assertThat(segment.isFinished(), is(true));
+        assertThat(segment.splitRemaining(), is(equalTo(Optional.<ScanSegment>absent())));
+        assertThat(segment.getRemainingKeySpace(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void remaining_key_space_is_shared_when_split() {
+        ScanSegment segment = ScanSegment.wholeTable();
+        table.query().inSegment(segment).cells().iterator().next();
+        double remaining = segment.getRemainingKeySpace();
+
+        ScanSegment split = segment.splitRemaining().get();
+
+        assertThat(segment.getRemainingKeySpace() + split.getRemainingKeySpace(), is(closeTo(remaining, 1e-9)));
+        assertThat(split.getRemainingKeySpace(), is(lessThan(remaining)));
+    }
+
+    @Test
+    public void segment_not_scanned_yet_is_not_split() {
+        assertThat(ScanSegment.wholeTable().splitRemaining(), is(equalTo(Optional.<ScanSegment>absent())));
+    }
+
+    @Test
+    public void segment_split_empty_finishes_at_once() {
+        List<ScanSegment> segments = ScanSegment.wholeTable(4);
+        Collections.reverse(segments);
+
+        assertThat(scan(table.query().inSegment(segments.get(0)).cells()).isEmpty(), is(true));
+        assertThat(segments.get(0).isFinished(), is(true));
+    }
+}
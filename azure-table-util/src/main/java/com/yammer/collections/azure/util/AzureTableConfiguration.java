@@ -15,6 +15,7 @@
  */
 package com.yammer.collections.azure.util;
 
+import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonProperty;
 
 public class AzureTableConfiguration {
@@ -25,7 +26,18 @@ public class AzureTableConfiguration {
     private final Integer retryIntervalInMs;
     private final Integer retryAttempts;
     private final String accountConfigurationFilePath;
+    private final Integer maxRetryIntervalInMs;
+    private final Double maxRetryRatio;
+    private final Double circuitBreakerFailureRate;
+    private final Integer circuitBreakerOpenIntervalInMs;
 
+    public AzureTableConfiguration(String accountName, String accountKey, String tableName, Integer connectionTimeoutInMs,
+                                   Integer retryIntervalInMs, Integer retryAttempts, String accountConfigurationFilePath) {
+        this(accountName, accountKey, tableName, connectionTimeoutInMs, retryIntervalInMs, retryAttempts, accountConfigurationFilePath,
+                null, null, null, null);
+    }
+
+    @JsonCreator
     public AzureTableConfiguration(
             @JsonProperty("accountName") String accountName,
             @JsonProperty("accountKey") String accountKey,
@@ -33,7 +45,15 @@ public class AzureTableConfiguration {
             @JsonProperty("connectionTimeout") Integer connectionTimeoutInMs,
             @JsonProperty("retryInterval") Integer retryIntervalInMs,
             @JsonProperty("retryAttempts") Integer retryAttempts,
-            @JsonProperty("accountConfigurationFilePath") String accountConfigurationFilePath) {
+            @JsonProperty("accountConfigurationFilePath") String accountConfigurationFilePath,
+            @JsonProperty("maxRetryInterval") Integer maxRetryIntervalInMs,
+            @JsonProperty("maxRetryRatio") Double maxRetryRatio,
+            @JsonProperty("circuitBreakerFailureRate") Double circuitBreakerFailureRate,
+            @JsonProperty("circuitBreakerOpenInterval") Integer circuitBreakerOpenIntervalInMs) {
+        this.maxRetryIntervalInMs = maxRetryIntervalInMs;
+        this.maxRetryRatio = maxRetryRatio;
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+        this.circuitBreakerOpenIntervalInMs = circuitBreakerOpenIntervalInMs;
         this.accountName = accountName;
         this.accountKey = accountKey;
         this.tableName = tableName;
@@ -70,4 +90,23 @@ public class AzureTableConfiguration {
     public String getAccountConfigurationFilePath() {
         return accountConfigurationFilePath;
     }
+
+    /**
+     * When set, retries back off exponentially from the retry interval up to this one, with jitter, instead of linearly.
+     */
+    public Integer getMaxRetryInterval() {
+        return maxRetryIntervalInMs;
+    }
+
+    public Double getMaxRetryRatio() {
+        return maxRetryRatio;
+    }
+
+    public Double getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public Integer getCircuitBreakerOpenInterval() {
+        return circuitBreakerOpenIntervalInMs;
+    }
 }
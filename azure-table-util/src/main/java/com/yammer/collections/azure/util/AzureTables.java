@@ -15,7 +15,9 @@
  */
 package com.yammer.collections.azure.util;
 
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
@@ -26,15 +28,41 @@ import com.microsoft.windowsazure.services.core.storage.StorageException;
 import com.microsoft.windowsazure.services.table.client.CloudTable;
 import com.microsoft.windowsazure.services.table.client.CloudTableClient;
 import com.yammer.collections.azure.BaseAzureTable;
+import com.yammer.collections.azure.Bulkhead;
 import com.yammer.collections.azure.Bytes;
+import com.yammer.collections.azure.CircuitBreaker;
+import com.yammer.collections.azure.Deadline;
+import com.yammer.collections.azure.ExponentialJitterRetryPolicy;
+import com.yammer.collections.azure.HedgingPolicy;
+import com.yammer.collections.azure.PropertyExtractor;
+import com.yammer.collections.azure.RequestRateLimiter;
+import com.yammer.collections.azure.RetryBudget;
+import com.yammer.collections.azure.SlowOperationLog;
+import com.yammer.collections.azure.TableClientOptions;
+import com.yammer.collections.azure.TableRequestListener;
+import com.yammer.collections.azure.TypedAzureTable;
+import com.yammer.collections.azure.compression.CompressingTable;
+import com.yammer.collections.azure.compression.CompressionCodec;
+import com.yammer.collections.azure.compression.DeflateCodec;
+import com.yammer.collections.azure.serialization.Codec;
+import com.yammer.collections.azure.serialization.json.JsonCodec;
 import com.yammer.collections.azure.serialization.json.JsonSerializingTable;
+import com.yammer.collections.azure.serialization.json.KeyEncoding;
+import com.yammer.collections.azure.serialization.json.SmileSerializingTable;
+import com.yammer.collections.metrics.HedgingMetrics;
+import com.yammer.collections.metrics.MeteredCompressionCodec;
+import com.yammer.collections.metrics.MeteredRequestListener;
 import com.yammer.collections.metrics.MeteredTable;
+import com.yammer.collections.metrics.TableMetrics;
 import com.yammer.collections.transforming.TransformingTable;
 
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 @SuppressWarnings("UnusedDeclaration")
 public final class AzureTables {
@@ -59,14 +87,30 @@ public final class AzureTables {
         Integer retryAttempts = configuration.getRetryAttempts();
         Integer retryInterval = configuration.getRetryInterval();
         if(retryAttempts != null && retryInterval != null) {
-            tableClientBuilder.withLinearReplyPolicy(
-                    configuration.getRetryInterval(),
-                    configuration.getRetryAttempts());
-        } else if(retryAttempts != null || retryInterval != null) {
+            if (configuration.getMaxRetryInterval() != null) {
+                tableClientBuilder.withExponentialJitterRetryPolicy(retryInterval, configuration.getMaxRetryInterval(), retryAttempts);
+            } else {
+                tableClientBuilder.withLinearReplyPolicy(retryInterval, retryAttempts);
+            }
+        } else if(retryAttempts != null || retryInterval != null || configuration.getMaxRetryInterval() != null) {
             throw new IllegalArgumentException("You need to specify both: retryAttempts and retryInterval, or neither");
         }
 
-        return tableClientBuilder.tableWithName(checkNotNull(configuration.getTableName()));
+        TableRefBuilder tableRefBuilder = tableClientBuilder.tableWithName(checkNotNull(configuration.getTableName()));
+
+        // retry budget and circuit breaker if specified
+        if (configuration.getMaxRetryRatio() != null) {
+            tableRefBuilder.clientOptions.withRetryBudget(new RetryBudget(configuration.getMaxRetryRatio()));
+        }
+        Double failureRate = configuration.getCircuitBreakerFailureRate();
+        Integer openInterval = configuration.getCircuitBreakerOpenInterval();
+        if (failureRate != null && openInterval != null) {
+            tableRefBuilder.clientOptions.withCircuitBreaker(new CircuitBreaker(failureRate, openInterval, TimeUnit.MILLISECONDS));
+        } else if (failureRate != null || openInterval != null) {
+            throw new IllegalArgumentException("You need to specify both: circuitBreakerFailureRate and circuitBreakerOpenInterval, or neither");
+        }
+
+        return tableRefBuilder;
     }
 
     public static TableWithClientBuilder tableWithName(String name) {
@@ -104,6 +148,14 @@ public final class AzureTables {
             return this;
         }
 
+        /**
+         * Retries back off exponentially from the base up to the maximum interval, with full jitter, see {@link ExponentialJitterRetryPolicy}.
+         */
+        public AzureTableClientBuilder withExponentialJitterRetryPolicy(int baseRetryIntervalInMs, int maxRetryIntervalInMs, int retryAttempts) {
+            cloudTableClient.setRetryPolicyFactory(new ExponentialJitterRetryPolicy(baseRetryIntervalInMs, maxRetryIntervalInMs, retryAttempts));
+            return this;
+        }
+
         public TableRefBuilder tableWithName(String name) {
             return new TableRefBuilder(name, cloudTableClient);
         }
@@ -117,6 +169,7 @@ public final class AzureTables {
     public static class TableRefBuilder {
         private final String name;
         private final CloudTableClient tableClient;
+        private final TableClientOptions.Builder clientOptions = TableClientOptions.builder();
 
         private TableRefBuilder(String name, CloudTableClient tableClient) {
             this.name = name;
@@ -141,43 +194,191 @@ public final class AzureTables {
 
         public TableBuilder create() throws StorageException {
             cloudTable().create();
-            return new TableBuilder(name, tableClient);
+            return new TableBuilder(name, tableClient, clientOptions);
         }
 
         public TableBuilder createIfDoesNotExist() throws StorageException {
             cloudTable().createIfNotExist();
-            return new TableBuilder(name, tableClient);
+            return new TableBuilder(name, tableClient, clientOptions);
         }
 
         public Optional<TableBuilder> ifExists() throws StorageException {
             if (cloudTable().exists()) {
-                return Optional.of(new TableBuilder(name, tableClient));
+                return Optional.of(new TableBuilder(name, tableClient, clientOptions));
             }
             return Optional.absent();
         }
     }
 
     public static class TableBuilder {
-        private final Table<Bytes, Bytes, Bytes> backingTable;
+        private final String name;
+        private final CloudTableClient tableClient;
+        private final TableClientOptions.Builder clientOptions;
         @SuppressWarnings("InstanceVariableMayNotBeInitialized")
         private Optional<MetricRegistry> metrics = Optional.absent();
+        private Optional<HedgingPolicy> hedgingPolicy = Optional.absent();
+        @SuppressWarnings("InstanceVariableMayNotBeInitialized")
+        private Optional<CompressionCodec> compressionCodec = Optional.absent();
+        private int compressionThresholdInBytes;
+        private KeyEncoding keyEncoding = KeyEncoding.JSON;
 
-        private TableBuilder(String name, CloudTableClient tableClient) {
-            backingTable = BaseAzureTable.create(name, tableClient);
+        private TableBuilder(String name, CloudTableClient tableClient, TableClientOptions.Builder clientOptions) {
+            this.name = name;
+            this.tableClient = tableClient;
+            this.clientOptions = clientOptions;
         }
 
+        /**
+         * The table's metrics are named {@code metered-table-<table name>-<metric>}, see {@link TableMetrics}.
+         */
         public TableBuilder andAddMetrics(MetricRegistry metrics) {
             this.metrics = Optional.fromNullable(metrics);
             return this;
         }
 
+        /**
+         * The listener is notified of every request sent to the table service, retries and query pages included.
+         */
+        public TableBuilder withRequestListener(TableRequestListener listener) {
+            clientOptions.withRequestListener(listener);
+            return this;
+        }
+
+        /**
+         * Records the latency, sizes, statuses, retries and throttling of the requests sent to the table service, see {@link MeteredRequestListener}.
+         */
+        public TableBuilder andAddRequestMetrics(MetricRegistry metrics) {
+            return withRequestListener(new MeteredRequestListener(metrics));
+        }
+
+        /**
+         * Limits the retries of the table's requests to a ratio of its operations, see {@link RetryBudget}.
+         */
+        public TableBuilder withRetryBudget(RetryBudget budget) {
+            clientOptions.withRetryBudget(budget);
+            return this;
+        }
+
+        /**
+         * Fails the table's operations fast while too many of them fail, see {@link CircuitBreaker}.
+         */
+        public TableBuilder withCircuitBreaker(CircuitBreaker breaker) {
+            clientOptions.withCircuitBreaker(breaker);
+            return this;
+        }
+
+        /**
+         * Hedges the slow point reads of the table, see {@link HedgingPolicy}. With metrics, the policy is reported under
+         * {@code metered-table-<table name>-hedging-<metric>}, see {@link HedgingMetrics}.
+         */
+        public TableBuilder withHedging(HedgingPolicy policy) {
+            clientOptions.withHedging(policy);
+            hedgingPolicy = Optional.of(policy);
+            return this;
+        }
+
+        /**
+         * Bounds each entity operation of the table, retries included, unless it is called under an earlier {@link Deadline}.
+         */
+        public TableBuilder withOperationTimeout(long timeout, TimeUnit unit) {
+            clientOptions.withOperationTimeout(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Bounds each iteration over a view of the table, all its pages included, unless it is started under an earlier {@link Deadline}.
+         */
+        public TableBuilder withQueryTimeout(long timeout, TimeUnit unit) {
+            clientOptions.withQueryTimeout(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Limits the concurrent point operations, partition queries and scans of the table separately, see {@link Bulkhead}.
+         */
+        public TableBuilder withBulkhead(Bulkhead bulkhead) {
+            clientOptions.withBulkhead(bulkhead);
+            return this;
+        }
+
+        /**
+         * Holds back the requests of the table to the rates of the limiter, see {@link RequestRateLimiter}.
+         */
+        public TableBuilder withRateLimiter(RequestRateLimiter limiter) {
+            clientOptions.withRateLimiter(limiter);
+            return this;
+        }
+
+        /**
+         * Operations taking longer than the threshold of the log are kept in it and logged, see {@link SlowOperationLog}.
+         */
+        public TableBuilder withSlowOperationLog(SlowOperationLog log) {
+            clientOptions.withSlowOperationLog(log);
+            return this;
+        }
+
+        /**
+         * Values of at least the threshold size are compressed with the given codec. Only use on tables that have always been written with compression.
+         */
+        public TableBuilder withCompression(CompressionCodec codec, int thresholdInBytes) {
+            compressionCodec = Optional.of(codec);
+            compressionThresholdInBytes = thresholdInBytes;
+            return this;
+        }
+
+        public TableBuilder withDeflateCompression(int thresholdInBytes) {
+            return withCompression(new DeflateCodec(), thresholdInBytes);
+        }
+
+        /**
+         * Serialize String, Long, Integer, UUID and byte[] row and column keys with compact, order preserving codecs instead of JSON.
+         * Keys written one way cannot be found the other way, so only use this for tables that are written with it from the start.
+         */
+        public TableBuilder withNativeKeyCodecs() {
+            keyEncoding = KeyEncoding.NATIVE;
+            return this;
+        }
+
         public <R, C, V> Table<R, C, V> buildWithJsonSerialization(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
             return addMetricsIfChosen(
                     JsonSerializingTable.create(
-                            backingTable,
+                            backingTable(),
                             rowClass,
                             columnClass,
-                            valueClass
+                            valueClass,
+                            keyEncoding
+                    )
+            );
+        }
+
+        /**
+         * As {@link #buildWithJsonSerialization(Class, Class, Class)}, using the given mapper, which must not be reconfigured afterwards.
+         */
+        public <R, C, V> Table<R, C, V> buildWithJsonSerialization(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                                   ObjectMapper objectMapper) {
+            return addMetricsIfChosen(
+                    JsonSerializingTable.create(
+                            backingTable(),
+                            rowClass,
+                            columnClass,
+                            valueClass,
+                            objectMapper,
+                            keyEncoding
+                    )
+            );
+        }
+
+        /**
+         * Keys are serialized as JSON and values as Smile. Values already stored as JSON are still read, so a JSON table can be switched over.
+         */
+        public <R, C, V> Table<R, C, V> buildWithSmileSerialization(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
+            return addMetricsIfChosen(
+                    SmileSerializingTable.create(
+                            backingTable(),
+                            rowClass,
+                            columnClass,
+                            valueClass,
+                            keyEncoding
                     )
             );
         }
@@ -192,7 +393,7 @@ public final class AzureTables {
         ) {
             return addMetricsIfChosen(
                     TransformingTable.create(
-                            backingTable,
+                            backingTable(),
                             rowSerializingFunction, rowDeserializingFunction,
                             columnSerializingFunction, columnDeserializingFunction,
                             valueSerializingFunction, valueDeserializingFunction
@@ -200,16 +401,71 @@ public final class AzureTables {
             );
         }
 
+        /**
+         * Builds a table that maps its keys and values straight to entity properties with the given codecs, skipping the intermediate
+         * {@link Bytes} table. Codecs equivalent to serialization functions, e.g. {@link JsonCodec}, read and write the same format.
+         * Compression is not supported by such tables. Only instances of the classes are encoded, other keys are treated as absent.
+         */
+        public <R, C, V> Table<R, C, V> buildUsingCodecs(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                         Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+            checkState(!compressionCodec.isPresent(), "Compression is not supported with codecs");
+            return addMetricsIfChosen(TypedAzureTable.create(name, tableClient, clientOptions.build(), rowClass, columnClass, valueClass,
+                    rowCodec, columnCodec, valueCodec));
+        }
+
+        /**
+         * Builds a table that also stores the properties extracted from each value as native entity properties, so that the cells can be
+         * filtered on the server with {@link TypedAzureTable#cellsWhere} and the like. The table is returned undecorated, as metrics
+         * would hide the queries, so neither metrics nor compression can be chosen.
+         */
+        public <R, C, V> TypedAzureTable<R, C, V> buildQueryableUsingCodecs(Class<R> rowClass, Class<C> columnClass, Class<V> valueClass,
+                                                                         Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec,
+                                                                         PropertyExtractor<V> propertyExtractor) {
+            checkState(!compressionCodec.isPresent(), "Compression is not supported with codecs");
+            checkState(!metrics.isPresent(), "Metrics are not supported for queryable tables");
+            return TypedAzureTable.create(name, tableClient, clientOptions.build(), rowClass, columnClass, valueClass, rowCodec, columnCodec,
+                    valueCodec, propertyExtractor);
+        }
+
         public Table<Bytes, Bytes, Bytes> buildWithNoSerialization() {
-            return addMetricsIfChosen(backingTable);
+            return addMetricsIfChosen(backingTable());
+        }
+
+        private Table<Bytes, Bytes, Bytes> backingTable() {
+            Table<Bytes, Bytes, Bytes> baseTable = BaseAzureTable.create(name, tableClient, clientOptions.build());
+            if (!compressionCodec.isPresent()) {
+                return baseTable;
+            }
+            CompressionCodec codec = compressionCodec.get();
+            if (metrics.isPresent()) {
+                codec = new MeteredCompressionCodec(codec, metrics.get(), metricPrefix());
+            }
+            return CompressingTable.create(baseTable, codec, compressionThresholdInBytes);
+        }
+
+        private String metricPrefix() {
+            return TableMetrics.DEFAULT_PREFIX + "-" + name;
         }
 
         private <R, C, V> Table<R, C, V> addMetricsIfChosen(Table<R, C, V> table) {
             if (metrics.isPresent()) {
-                return MeteredTable.create(table, metrics.get());
+                String prefix = metricPrefix();
+                if (hedgingPolicy.isPresent()) {
+                    registerHedgingMetrics(prefix + "-hedging");
+                }
+                return MeteredTable.create(table, metrics.get(), prefix);
             }
             return table;
         }
+
+        // replaces the gauges of a previous build of the table
+        private void registerHedgingMetrics(String prefix) {
+            for (Map.Entry<String, Metric> metric : new HedgingMetrics(hedgingPolicy.get()).getMetrics().entrySet()) {
+                String metricName = prefix + "-" + metric.getKey();
+                metrics.get().remove(metricName);
+                metrics.get().register(metricName, metric.getValue());
+            }
+        }
     }
 
     // table with client builder
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads cells in the compact binary format described in {@link BinaryCells}, decoding them with the codecs of the table.
+ */
+public final class BinaryCellReader<R, C, V> implements CellReader<R, C, V> {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private final DataInputStream input;
+    private final Codec<R> rowCodec;
+    private final Codec<C> columnCodec;
+    private final Codec<V> valueCodec;
+    // reused for every key and value, the codecs must not keep it
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private BinaryCellReader(InputStream input, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(checkNotNull(input)));
+        this.rowCodec = checkNotNull(rowCodec);
+        this.columnCodec = checkNotNull(columnCodec);
+        this.valueCodec = checkNotNull(valueCodec);
+        byte[] header = new byte[BinaryCells.HEADER.length];
+        this.input.readFully(header);
+        if (!Arrays.equals(header, BinaryCells.HEADER)) {
+            throw new IOException("Not a binary cells stream");
+        }
+    }
+
+    /**
+     * @throws IOException if the input does not start with the header of the format
+     */
+    public static <R, C, V> BinaryCellReader<R, C, V> create(InputStream input, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec)
+            throws IOException {
+        return new BinaryCellReader<>(input, rowCodec, columnCodec, valueCodec);
+    }
+
+    @Override
+    public Table.Cell<R, C, V> read() throws IOException {
+        int first = input.read();
+        if (first < 0) {
+            return null;
+        }
+        try {
+            R row = read(rowCodec, BinaryCells.readLength(input, first));
+            C column = read(columnCodec, BinaryCells.readLength(input));
+            V value = read(valueCodec, BinaryCells.readLength(input));
+            return Tables.immutableCell(row, column, value);
+        } catch (EOFException e) {
+            throw new IOException("Truncated cell at the end of the input", e);
+        }
+    }
+
+    private <T> T read(Codec<T> codec, int length) throws IOException {
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        input.readFully(buffer, 0, length);
+        return codec.decode(buffer, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes cells in the compact binary format described in {@link BinaryCells}, encoding them with the codecs of the table, for
+ * {@link BinaryCellReader} to read back.
+ */
+public final class BinaryCellWriter<R, C, V> implements Closeable, Flushable {
+    private final DataOutputStream output;
+    private final Codec<R> rowCodec;
+    private final Codec<C> columnCodec;
+    private final Codec<V> valueCodec;
+
+    private BinaryCellWriter(OutputStream output, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(checkNotNull(output)));
+        this.rowCodec = checkNotNull(rowCodec);
+        this.columnCodec = checkNotNull(columnCodec);
+        this.valueCodec = checkNotNull(valueCodec);
+        this.output.write(BinaryCells.HEADER);
+    }
+
+    public static <R, C, V> BinaryCellWriter<R, C, V> create(OutputStream output, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec)
+            throws IOException {
+        return new BinaryCellWriter<>(output, rowCodec, columnCodec, valueCodec);
+    }
+
+    public void write(Table.Cell<? extends R, ? extends C, ? extends V> cell) throws IOException {
+        write(rowCodec, cell.getRowKey());
+        write(columnCodec, cell.getColumnKey());
+        write(valueCodec, cell.getValue());
+    }
+
+    private <T> void write(Codec<T> codec, T value) throws IOException {
+        byte[] bytes = codec.encode(checkNotNull(value));
+        BinaryCells.writeLength(output, bytes.length);
+        output.write(bytes);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.yammer.collections.azure.AbstractAzureTable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The compact binary format of cells: a header of the four bytes {@code ATC1}, then for each cell its row key, column key and value,
+ * each as its length in an unsigned LEB128 varint followed by the bytes given by the codec of the table. No key or value is longer than
+ * the largest value a table stores, so longer lengths are rejected as corrupt rather than allocated.
+ */
+final class BinaryCells {
+    static final byte[] HEADER = {'A', 'T', 'C', '1'};
+    static final int MAX_LENGTH = AbstractAzureTable.MAX_VALUE_BYTES;
+
+    private BinaryCells() {
+    }
+
+    static void writeLength(DataOutput output, int length) throws IOException {
+        int remaining = length;
+        while ((remaining & ~0x7f) != 0) {
+            output.writeByte(remaining & 0x7f | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    static int readLength(DataInput input) throws IOException {
+        return readLength(input, input.readUnsignedByte());
+    }
+
+    /**
+     * Reads a length whose first byte has been read already, e.g. to tell the end of the input from the start of a cell.
+     */
+    static int readLength(DataInput input, int firstByte) throws IOException {
+        int length = 0;
+        int next = firstByte;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            length |= (next & 0x7f) << shift;
+            if ((next & 0x80) == 0) {
+                if (length < 0) {
+                    break;
+                }
+                if (length > MAX_LENGTH) {
+                    throw new IOException("Length " + length + " in the cells exceeds the maximum of " + MAX_LENGTH + " bytes");
+                }
+                return length;
+            }
+            next = input.readUnsignedByte();
+        }
+        throw new IOException("Malformed length in the cells");
+    }
+}
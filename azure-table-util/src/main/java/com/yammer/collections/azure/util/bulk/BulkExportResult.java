@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a completed bulk export wrote, and how fast.
+ */
+public final class BulkExportResult {
+    private final long cellsExported;
+    private final int segmentFiles;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+
+    BulkExportResult(long cellsExported, int segmentFiles, long bytesWritten, long elapsedNanos) {
+        this.cellsExported = cellsExported;
+        this.segmentFiles = segmentFiles;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCellsExported() {
+        return cellsExported;
+    }
+
+    /**
+     * @return the files of segments with cells, segments split during the export included
+     */
+    public int getSegmentFiles() {
+        return segmentFiles;
+    }
+
+    /**
+     * @return the size of the segment files, after compression
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getCellsPerSecond() {
+        return elapsedNanos == 0 ? 0 : cellsExported * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d cells exported to %d segment files of %d bytes in %d s (%.1f cells/s)",
+                cellsExported, segmentFiles, bytesWritten, getElapsed(TimeUnit.SECONDS), getCellsPerSecond());
+    }
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.collections.azure.AbstractAzureTable;
+import com.yammer.collections.azure.ScanSegment;
+import com.yammer.collections.azure.serialization.Codec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes a snapshot of a table to a directory, scanning segments of the table in parallel, each into its own file of cells in the
+ * compact binary format of {@link BinaryCellWriter}, optionally gzip compressed. {@link SnapshotCellReader} reads the snapshot back,
+ * e.g. to restore it with a {@link BulkImporter}.
+ * <p>
+ * The table starts split into as many {@link ScanSegment}s as there are workers, and a worker that runs out of segments splits off the
+ * second half of the segment with the most left to scan, so that the workers stay busy whatever the distribution of the row keys.
+ * The table service has no snapshots: cells written or removed during the export may or may not be in it.
+ */
+public final class BulkExporter<R, C, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkExporter.class);
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final long DEFAULT_PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // how long an idle worker waits for the scans in progress to reach a row they can be split at
+    private static final long SPLIT_RETRY_MILLIS = 50;
+    private final AbstractAzureTable<R, C, V> table;
+    private final Codec<R> rowCodec;
+    private final Codec<C> columnCodec;
+    private final Codec<V> valueCodec;
+    private final int parallelism;
+    private final boolean compressed;
+    private final long progressIntervalNanos;
+
+    private BulkExporter(Builder<R, C, V> builder) {
+        table = builder.table;
+        rowCodec = builder.rowCodec;
+        columnCodec = builder.columnCodec;
+        valueCodec = builder.valueCodec;
+        parallelism = builder.parallelism;
+        compressed = builder.compressed;
+        progressIntervalNanos = builder.progressIntervalNanos;
+    }
+
+    public static <R, C, V> Builder<R, C, V> from(AbstractAzureTable<R, C, V> table, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+        return new Builder<>(table, rowCodec, columnCodec, valueCodec);
+    }
+
+    /**
+     * Exports the table into the directory, which is created if it does not exist.
+     *
+     * @throws IOException if the directory already has a snapshot, or a segment file could not be written
+     */
+    public BulkExportResult exportTo(File directory) throws IOException, InterruptedException {
+        checkNotNull(directory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the directory " + directory);
+        }
+        if (!SnapshotFiles.isEmpty(directory)) {
+            throw new IOException("The directory " + directory + " already has a snapshot");
+        }
+        return new Export(directory).run();
+    }
+
+    private final class Export {
+        private final File directory;
+        private final Deque<ScanSegment> pending = new ArrayDeque<>(ScanSegment.wholeTable(parallelism));
+        // guarded by this, like pending
+        private final List<ScanSegment> scanning = new ArrayList<>();
+        private final AtomicInteger segmentNumbers = new AtomicInteger();
+        private final AtomicInteger segmentFiles = new AtomicInteger();
+        private final AtomicLong cellsExported = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Export(File directory) {
+            this.directory = directory;
+        }
+
+        BulkExportResult run() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                    new ThreadFactoryBuilder().setNameFormat("bulk-export-" + table.getTableName() + "-%d").setDaemon(true).build());
+            try {
+                for (int i = 0; i < parallelism; i++) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            exportSegments();
+                        }
+                    });
+                }
+                executor.shutdown();
+                while (!executor.awaitTermination(progressIntervalNanos, TimeUnit.NANOSECONDS)) {
+                    LOG.info("Export of {}: {} cells in {} segment files, {} cells/s", table.getTableName(), cellsExported.get(), segmentFiles.get(),
+                            String.format("%.1f", cellsExported.get() * (double) TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start)));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure.get() != null) {
+                Throwables.propagateIfInstanceOf(failure.get(), IOException.class);
+                Throwables.propagateIfInstanceOf(failure.get(), InterruptedException.class);
+                throw Throwables.propagate(failure.get());
+            }
+            BulkExportResult result = new BulkExportResult(cellsExported.get(), segmentFiles.get(), bytesWritten.get(), System.nanoTime() - start);
+            LOG.info("Export of {} completed: {}", table.getTableName(), result);
+            return result;
+        }
+
+        private void exportSegments() {
+            try {
+                Optional<ScanSegment> segment = nextSegment();
+                while (segment.isPresent() && failure.get() == null) {
+                    try {
+                        export(segment.get());
+                    } finally {
+                        finished(segment.get());
+                    }
+                    segment = nextSegment();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private synchronized Optional<ScanSegment> nextSegment() throws InterruptedException {
+            while (failure.get() == null) {
+                ScanSegment next = pending.poll();
+                if (next != null) {
+                    scanning.add(next);
+                    return Optional.of(next);
+                }
+                if (scanning.isEmpty()) {
+                    break;
+                }
+                Optional<ScanSegment> split = splitWidest();
+                if (split.isPresent()) {
+                    scanning.add(split.get());
+                    return split;
+                }
+                wait(SPLIT_RETRY_MILLIS);
+            }
+            return Optional.absent();
+        }
+
+        private Optional<ScanSegment> splitWidest() {
+            List<ScanSegment> candidates = new ArrayList<>(scanning);
+            while (!candidates.isEmpty()) {
+                ScanSegment widest = candidates.get(0);
+                for (ScanSegment candidate : candidates) {
+                    if (candidate.getRemainingKeySpace() > widest.getRemainingKeySpace()) {
+                        widest = candidate;
+                    }
+                }
+                Optional<ScanSegment> split = widest.splitRemaining();
+                if (split.isPresent()) {
+                    return split;
+                }
+                candidates.remove(widest);
+            }
+            return Optional.absent();
+        }
+
+        private synchronized void finished(ScanSegment segment) {
+            scanning.remove(segment);
+            notifyAll();
+        }
+
+        private void export(ScanSegment segment) throws IOException {
+            File file = SnapshotFiles.segmentFile(directory, segmentNumbers.getAndIncrement(), compressed);
+            File partial = new File(file.getPath() + SnapshotFiles.PARTIAL_SUFFIX);
+            long cells = 0;
+            try (BinaryCellWriter<R, C, V> writer = BinaryCellWriter.create(open(partial), rowCodec, columnCodec, valueCodec)) {
+                for (Table.Cell<R, C, V> cell : table.query().inSegment(segment).cells()) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    writer.write(cell);
+                    cells++;
+                    cellsExported.incrementAndGet();
+                }
+            }
+            if (cells == 0) {
+                Files.delete(partial.toPath());
+                return;
+            }
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            segmentFiles.incrementAndGet();
+            bytesWritten.addAndGet(file.length());
+        }
+
+        private OutputStream open(File file) throws IOException {
+            OutputStream output = new FileOutputStream(file);
+            try {
+                return compressed ? new GZIPOutputStream(output, GZIP_BUFFER_SIZE) : output;
+            } catch (IOException e) {
+                output.close();
+                throw e;
+            }
+        }
+    }
+
+    public static final class Builder<R, C, V> {
+        private final AbstractAzureTable<R, C, V> table;
+        private final Codec<R> rowCodec;
+        private final Codec<C> columnCodec;
+        private final Codec<V> valueCodec;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean compressed;
+        private long progressIntervalNanos = DEFAULT_PROGRESS_INTERVAL_NANOS;
+
+        private Builder(AbstractAzureTable<R, C, V> table, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+            this.table = checkNotNull(table);
+            this.rowCodec = checkNotNull(rowCodec);
+            this.columnCodec = checkNotNull(columnCodec);
+            this.valueCodec = checkNotNull(valueCodec);
+        }
+
+        /**
+         * @param segments the segments scanned at the same time, 4 by default
+         */
+        public Builder<R, C, V> withParallelism(int segments) {
+            checkArgument(segments > 0, "The parallelism must be positive");
+            parallelism = segments;
+            return this;
+        }
+
+        /**
+         * Compresses the segment files with gzip.
+         */
+        public Builder<R, C, V> withCompression() {
+            compressed = true;
+            return this;
+        }
+
+        /**
+         * @param interval how often the progress is logged, 10 seconds by default
+         */
+        public Builder<R, C, V> withProgressInterval(long interval, TimeUnit unit) {
+            checkArgument(interval > 0, "The interval must be positive");
+            progressIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        public BulkExporter<R, C, V> build() {
+            return new BulkExporter<>(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+/**
+ * Thrown when the cells of a bulk import could not all be written. The cells before the checkpoint have been written, running the
+ * import again with the same checkpoint file resumes from there.
+ */
+public class BulkImportException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final long checkpoint;
+
+    public BulkImportException(String message, long checkpoint, Throwable cause) {
+        super(message, cause);
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return the number of cells from the start of the input that have all been written
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a completed bulk import wrote, and how fast.
+ */
+public final class BulkImportResult {
+    private final long cellsWritten;
+    private final long cellsSkipped;
+    private final long batches;
+    private final long elapsedNanos;
+
+    BulkImportResult(long cellsWritten, long cellsSkipped, long batches, long elapsedNanos) {
+        this.cellsWritten = cellsWritten;
+        this.cellsSkipped = cellsSkipped;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCellsWritten() {
+        return cellsWritten;
+    }
+
+    /**
+     * @return the cells skipped as written by the previous run of a resumed import
+     */
+    public long getCellsSkipped() {
+        return cellsSkipped;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getCellsPerSecond() {
+        return elapsedNanos == 0 ? 0 : cellsWritten * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d cells written in %d batches in %d s (%.1f cells/s), %d cells skipped",
+                cellsWritten, batches, getElapsed(TimeUnit.SECONDS), getCellsPerSecond(), cellsSkipped);
+    }
+}
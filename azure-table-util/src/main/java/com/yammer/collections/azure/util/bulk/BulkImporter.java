@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.Table;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.collections.azure.AbstractAzureTable;
+import com.yammer.collections.azure.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes the cells of a {@link CellReader} to a table in batches, streaming them rather than reading the whole input first.
+ * <p>
+ * Cells are grouped by row, i.e. partition, into batches of up to 100 cells, written with {@link AbstractAzureTable#putAllInRow}.
+ * Cells of the same row are grouped as long as they are close enough in the input to be buffered together, so an input sorted by row
+ * takes the fewest requests. A limited number of batches is written in parallel, optionally at a limited rate of cells, which count
+ * against the scalability targets of the service one by one. The batches of a row are written one at a time, in the order of the
+ * input, so that a cell written twice ends up with its last value.
+ * <p>
+ * With a checkpoint file, the number of cells from the start of the input that have all been written is saved as the import
+ * progresses, and when it fails. Importing the same input again skips these cells, and the file is deleted once the import completes.
+ * Cells written after the checkpoint are written again on resuming, which puts the same values.
+ */
+public final class BulkImporter<R, C, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkImporter.class);
+    private static final int BATCH_SIZE = 100;
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_MAX_BUFFERED_CELLS = 10 * BATCH_SIZE;
+    private static final long DEFAULT_PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private final AbstractAzureTable<R, C, V> table;
+    private final int parallelism;
+    private final int maxBufferedCells;
+    private final Optional<Double> maxCellsPerSecond;
+    private final Optional<File> checkpointFile;
+    private final long progressIntervalNanos;
+
+    private BulkImporter(Builder<R, C, V> builder) {
+        table = builder.table;
+        parallelism = builder.parallelism;
+        maxBufferedCells = builder.maxBufferedCells;
+        maxCellsPerSecond = builder.maxCellsPerSecond;
+        checkpointFile = builder.checkpointFile;
+        progressIntervalNanos = builder.progressIntervalNanos;
+    }
+
+    public static <R, C, V> Builder<R, C, V> into(AbstractAzureTable<R, C, V> table) {
+        return new Builder<>(table);
+    }
+
+    /**
+     * Imports the cells of the reader, resuming from the checkpoint if there is one. The reader is not closed.
+     *
+     * @throws BulkImportException if a batch could not be written, after the retries of the table
+     */
+    public BulkImportResult importFrom(CellReader<? extends R, ? extends C, ? extends V> reader) throws IOException, InterruptedException {
+        return new Import(checkNotNull(reader)).run();
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!checkpointFile.isPresent() || !checkpointFile.get().exists()) {
+            return 0;
+        }
+        String checkpoint = new String(Files.readAllBytes(checkpointFile.get().toPath()), Charsets.UTF_8).trim();
+        try {
+            return Long.parseLong(checkpoint);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint " + checkpoint + " in " + checkpointFile.get(), e);
+        }
+    }
+
+    // replaces the file at once, so that a failure while saving leaves the previous checkpoint
+    private void saveCheckpoint(long checkpoint) throws IOException {
+        if (!checkpointFile.isPresent()) {
+            return;
+        }
+        Path file = checkpointFile.get().toPath();
+        Path saving = file.resolveSibling(file.getFileName() + ".saving");
+        Files.write(saving, (checkpoint + "\n").getBytes(Charsets.UTF_8));
+        Files.move(saving, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private final class Batch {
+        private final R row;
+        private final Map<C, V> values = new LinkedHashMap<>();
+        // the positions in the input of the cells of the batch, a cell overwritten by a later one of the same column included
+        private final List<Long> positions = new ArrayList<>();
+
+        Batch(R row) {
+            this.row = row;
+        }
+    }
+
+    private final class Import {
+        private final CellReader<? extends R, ? extends C, ? extends V> reader;
+        private final Optional<TokenBucket> rateLimit;
+        private final ExecutorService executor;
+        private final Semaphore batchesInFlight = new Semaphore(parallelism);
+        private final Map<R, Batch> buffered = new LinkedHashMap<>();
+        // the rows with a batch being written, and the batches of these rows submitted since, written in turn
+        private final Map<R, Queue<Batch>> rowsInFlight = new HashMap<>();
+        // the positions of the cells read and not written yet, the first of them is the checkpoint
+        private final ConcurrentSkipListSet<Long> unwritten = new ConcurrentSkipListSet<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong cellsWritten = new AtomicLong();
+        private final AtomicLong batchesWritten = new AtomicLong();
+        private int bufferedCells;
+        private long position;
+
+        Import(CellReader<? extends R, ? extends C, ? extends V> reader) {
+            this.reader = reader;
+            rateLimit = maxCellsPerSecond.isPresent() ? Optional.of(new TokenBucket(maxCellsPerSecond.get())) : Optional.<TokenBucket>absent();
+            executor = Executors.newFixedThreadPool(parallelism,
+                    new ThreadFactoryBuilder().setNameFormat("bulk-import-" + table.getTableName() + "-%d").setDaemon(true).build());
+        }
+
+        BulkImportResult run() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            long skipped = skip(readCheckpoint());
+            try {
+                long lastProgress = start;
+                Table.Cell<? extends R, ? extends C, ? extends V> cell;
+                while (failure.get() == null && (cell = reader.read()) != null) {
+                    add(cell);
+                    long now = System.nanoTime();
+                    if (now - lastProgress >= progressIntervalNanos) {
+                        saveCheckpoint(checkpoint());
+                        LOG.info("Bulk import into {}: {} cells written, {} cells/s, checkpoint at {}", table.getTableName(), cellsWritten.get(),
+                                String.format("%.1f", cellsWritten.get() * (double) TimeUnit.SECONDS.toNanos(1) / (now - start)), checkpoint());
+                        lastProgress = now;
+                    }
+                }
+                while (failure.get() == null && !buffered.isEmpty()) {
+                    submitEldest();
+                }
+            } finally {
+                batchesInFlight.acquire(parallelism);
+                executor.shutdown();
+                saveCheckpoint(checkpoint());
+            }
+            // a batch that neither wrote its cells nor failed would otherwise be lost with the checkpoint
+            if (failure.get() != null || !unwritten.isEmpty()) {
+                throw new BulkImportException("Bulk import into " + table.getTableName() + " failed, the first " + checkpoint()
+                        + " cells of the input have been written", checkpoint(), failure.get());
+            }
+            if (checkpointFile.isPresent()) {
+                Files.deleteIfExists(checkpointFile.get().toPath());
+            }
+            BulkImportResult result = new BulkImportResult(cellsWritten.get(), skipped, batchesWritten.get(), System.nanoTime() - start);
+            LOG.info("Bulk import into {} completed: {}", table.getTableName(), result);
+            return result;
+        }
+
+        private long skip(long cells) throws IOException {
+            while (position < cells && reader.read() != null) {
+                position++;
+            }
+            return position;
+        }
+
+        private long checkpoint() {
+            Long firstUnwritten = unwritten.isEmpty() ? null : unwritten.first();
+            // read after the set, a cell read in between is unwritten and after the position read before it
+            return firstUnwritten == null ? position : firstUnwritten;
+        }
+
+        private void add(Table.Cell<? extends R, ? extends C, ? extends V> cell) throws InterruptedException {
+            unwritten.add(position);
+            Batch batch = buffered.get(cell.getRowKey());
+            if (batch == null) {
+                batch = new Batch(cell.getRowKey());
+                buffered.put(cell.getRowKey(), batch);
+            }
+            batch.values.put(cell.getColumnKey(), cell.getValue());
+            batch.positions.add(position++);
+            bufferedCells++;
+            if (batch.values.size() == BATCH_SIZE) {
+                submit(buffered.remove(cell.getRowKey()));
+            } else if (bufferedCells > maxBufferedCells) {
+                submitEldest();
+            }
+        }
+
+        private void submitEldest() throws InterruptedException {
+            Iterator<Batch> eldest = buffered.values().iterator();
+            Batch batch = eldest.next();
+            eldest.remove();
+            submit(batch);
+        }
+
+        // a batch waiting for the one of its row holds its permit, so the batches waiting are limited by the parallelism
+        private void submit(Batch batch) throws InterruptedException {
+            bufferedCells -= batch.positions.size();
+            batchesInFlight.acquire();
+            if (rateLimit.isPresent()) {
+                rateLimit.get().acquire(batch.values.size());
+            }
+            synchronized (rowsInFlight) {
+                Queue<Batch> waiting = rowsInFlight.get(batch.row);
+                if (waiting != null) {
+                    waiting.add(batch);
+                    return;
+                }
+                rowsInFlight.put(batch.row, new ArrayDeque<Batch>());
+            }
+            write(batch);
+        }
+
+        private void write(final Batch batch) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        table.putAllInRow(batch.row, batch.values);
+                        unwritten.removeAll(batch.positions);
+                        cellsWritten.addAndGet(batch.positions.size());
+                        batchesWritten.incrementAndGet();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        Batch next;
+                        synchronized (rowsInFlight) {
+                            next = rowsInFlight.get(batch.row).poll();
+                            if (next == null) {
+                                rowsInFlight.remove(batch.row);
+                            }
+                        }
+                        batchesInFlight.release();
+                        if (next != null) {
+                            write(next);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    public static final class Builder<R, C, V> {
+        private final AbstractAzureTable<R, C, V> table;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private int maxBufferedCells = DEFAULT_MAX_BUFFERED_CELLS;
+        private Optional<Double> maxCellsPerSecond = Optional.absent();
+        private Optional<File> checkpointFile = Optional.absent();
+        private long progressIntervalNanos = DEFAULT_PROGRESS_INTERVAL_NANOS;
+
+        private Builder(AbstractAzureTable<R, C, V> table) {
+            this.table = checkNotNull(table);
+        }
+
+        /**
+         * @param batches the batches written at the same time, 4 by default
+         */
+        public Builder<R, C, V> withParallelism(int batches) {
+            checkArgument(batches > 0, "The parallelism must be positive");
+            parallelism = batches;
+            return this;
+        }
+
+        /**
+         * @param cells the cells read ahead to group them by row, 1000 by default
+         */
+        public Builder<R, C, V> withMaxBufferedCells(int cells) {
+            checkArgument(cells > 0, "The buffered cells must be positive");
+            maxBufferedCells = cells;
+            return this;
+        }
+
+        public Builder<R, C, V> withMaxCellsPerSecond(double cellsPerSecond) {
+            checkArgument(cellsPerSecond > 0, "The rate must be positive");
+            maxCellsPerSecond = Optional.of(cellsPerSecond);
+            return this;
+        }
+
+        public Builder<R, C, V> withCheckpoint(File file) {
+            checkpointFile = Optional.of(checkNotNull(file));
+            return this;
+        }
+
+        /**
+         * @param interval how often the progress is logged and the checkpoint saved, 10 seconds by default
+         */
+        public Builder<R, C, V> withProgressInterval(long interval, TimeUnit unit) {
+            checkArgument(interval > 0, "The interval must be positive");
+            progressIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        public BulkImporter<R, C, V> build() {
+            return new BulkImporter<>(this);
+        }
+    }
+}
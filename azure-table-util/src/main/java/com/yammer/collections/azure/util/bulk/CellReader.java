@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Table;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads cells one at a time from a stream, so that inputs larger than memory can be imported.
+ */
+public interface CellReader<R, C, V> extends Closeable {
+    /**
+     * @return the next cell, or null at the end of the input
+     */
+    Table.Cell<R, C, V> read() throws IOException;
+}
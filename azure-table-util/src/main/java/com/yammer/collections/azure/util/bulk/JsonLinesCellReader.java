@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads cells from line-delimited JSON, one object with {@code row}, {@code column} and {@code value} fields per line, mapped to
+ * the given classes with jackson, e.g. {@code {"row": "user1", "column": "profile", "value": {"name": "John Doe"}}}. Blank lines are
+ * skipped.
+ */
+public final class JsonLinesCellReader<R, C, V> implements CellReader<R, C, V> {
+    private final BufferedReader input;
+    private final ObjectMapper objectMapper;
+    private final Class<R> rowClass;
+    private final Class<C> columnClass;
+    private final Class<V> valueClass;
+    private long lineNumber;
+
+    private JsonLinesCellReader(Reader input, ObjectMapper objectMapper, Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
+        this.input = new BufferedReader(checkNotNull(input));
+        this.objectMapper = checkNotNull(objectMapper);
+        this.rowClass = checkNotNull(rowClass);
+        this.columnClass = checkNotNull(columnClass);
+        this.valueClass = checkNotNull(valueClass);
+    }
+
+    public static <R, C, V> JsonLinesCellReader<R, C, V> create(Reader input, Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
+        return create(input, new ObjectMapper(), rowClass, columnClass, valueClass);
+    }
+
+    public static <R, C, V> JsonLinesCellReader<R, C, V> create(Reader input, ObjectMapper objectMapper,
+                                                                Class<R> rowClass, Class<C> columnClass, Class<V> valueClass) {
+        return new JsonLinesCellReader<>(input, objectMapper, rowClass, columnClass, valueClass);
+    }
+
+    @Override
+    public Table.Cell<R, C, V> read() throws IOException {
+        String line;
+        do {
+            line = input.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        JsonNode cell = objectMapper.readTree(line);
+        return Tables.immutableCell(field(cell, "row", rowClass), field(cell, "column", columnClass), field(cell, "value", valueClass));
+    }
+
+    private <T> T field(JsonNode cell, String name, Class<T> clazz) throws IOException {
+        JsonNode field = cell.get(name);
+        if (field == null || field.isNull()) {
+            throw new IOException("No " + name + " in line " + lineNumber);
+        }
+        return objectMapper.treeToValue(field, clazz);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
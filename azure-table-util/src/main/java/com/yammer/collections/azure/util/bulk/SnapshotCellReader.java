@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.serialization.Codec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads the cells of a snapshot written by {@link BulkExporter}, one segment file after the other in a fixed order, so that a
+ * {@link BulkImporter} restoring it can resume from its checkpoint.
+ */
+public final class SnapshotCellReader<R, C, V> implements CellReader<R, C, V> {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private final File[] files;
+    private final Codec<R> rowCodec;
+    private final Codec<C> columnCodec;
+    private final Codec<V> valueCodec;
+    private int nextFile;
+    private BinaryCellReader<R, C, V> current;
+
+    private SnapshotCellReader(File[] files, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec) {
+        this.files = files;
+        this.rowCodec = checkNotNull(rowCodec);
+        this.columnCodec = checkNotNull(columnCodec);
+        this.valueCodec = checkNotNull(valueCodec);
+    }
+
+    /**
+     * @throws IOException if the directory cannot be listed or the snapshot in it is incomplete
+     */
+    public static <R, C, V> SnapshotCellReader<R, C, V> open(File directory, Codec<R> rowCodec, Codec<C> columnCodec, Codec<V> valueCodec)
+            throws IOException {
+        return new SnapshotCellReader<>(SnapshotFiles.list(checkNotNull(directory)), rowCodec, columnCodec, valueCodec);
+    }
+
+    private static InputStream open(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return file.getName().endsWith(SnapshotFiles.COMPRESSED_SUFFIX) ? new GZIPInputStream(input, GZIP_BUFFER_SIZE) : input;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Table.Cell<R, C, V> read() throws IOException {
+        while (true) {
+            if (current != null) {
+                Table.Cell<R, C, V> cell = current.read();
+                if (cell != null) {
+                    return cell;
+                }
+                current.close();
+                current = null;
+            }
+            if (nextFile == files.length) {
+                return null;
+            }
+            InputStream input = open(files[nextFile++]);
+            try {
+                current = BinaryCellReader.create(input, rowCodec, columnCodec, valueCodec);
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
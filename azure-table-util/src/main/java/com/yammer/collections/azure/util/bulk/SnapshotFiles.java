@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * The files of a snapshot: a file of binary cells per segment of the table, named by the number of the segment and optionally gzip
+ * compressed. A segment is written to a partial file, renamed once it is complete.
+ */
+final class SnapshotFiles {
+    static final String PARTIAL_SUFFIX = ".partial";
+    static final String COMPRESSED_SUFFIX = ".gz";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-\\d+\\.cells(\\.gz)?");
+    private static final Pattern PARTIAL_FILE = Pattern.compile("segment-\\d+\\.cells(\\.gz)?\\.partial");
+
+    private SnapshotFiles() {
+    }
+
+    static File segmentFile(File directory, int segment, boolean compressed) {
+        return new File(directory, String.format("segment-%06d.cells%s", segment, compressed ? COMPRESSED_SUFFIX : ""));
+    }
+
+    /**
+     * @return the complete segment files of the snapshot, in order
+     * @throws IOException if the directory cannot be listed or has partial segment files, left by an export that failed
+     */
+    static File[] list(File directory) throws IOException {
+        if (matching(directory, PARTIAL_FILE).length > 0) {
+            throw new IOException("The snapshot in " + directory + " is incomplete, it has partial segment files");
+        }
+        File[] files = matching(directory, SEGMENT_FILE);
+        Arrays.sort(files);
+        return files;
+    }
+
+    static boolean isEmpty(File directory) throws IOException {
+        return matching(directory, SEGMENT_FILE).length == 0 && matching(directory, PARTIAL_FILE).length == 0;
+    }
+
+    private static File[] matching(File directory, final Pattern pattern) throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return pattern.matcher(name).matches();
+            }
+        });
+        if (files == null) {
+            throw new IOException("Cannot list the files of " + directory);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.google.common.primitives.Bytes;
+import com.yammer.collections.azure.serialization.Codecs;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BinaryCellReaderTest {
+    private static final Table.Cell<String, String, String> CELL = Tables.immutableCell("row", "column", "value");
+
+    private static BinaryCellReader<String, String, String> reader(byte[] cells) throws IOException {
+        return BinaryCellReader.create(new ByteArrayInputStream(Bytes.concat(BinaryCells.HEADER, cells)), Codecs.STRING, Codecs.STRING, Codecs.STRING);
+    }
+
+    private static byte[] encoded(Table.Cell<String, String, String> cell) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (String field : Arrays.asList(cell.getRowKey(), cell.getColumnKey(), cell.getValue())) {
+            byte[] encoded = Codecs.STRING.encode(field);
+            BinaryCells.writeLength(output, encoded.length);
+            output.write(encoded);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void cells_written_are_read_back() throws IOException {
+        char[] longValue = new char[300];
+        Arrays.fill(longValue, 'v');
+        Table.Cell<String, String, String> longCell = Tables.immutableCell("row", "column", new String(longValue));
+        BinaryCellReader<String, String, String> reader = reader(Bytes.concat(encoded(CELL), encoded(longCell)));
+
+        assertThat(reader.read(), is(equalTo(CELL)));
+        assertThat(reader.read(), is(equalTo(longCell)));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void input_without_the_header_is_refused() throws IOException {
+        BinaryCellReader.create(new ByteArrayInputStream(new byte[]{'A', 'T', 'C', '2'}), Codecs.STRING, Codecs.STRING, Codecs.STRING);
+    }
+
+    @Test(expected = IOException.class)
+    public void length_of_more_than_five_bytes_is_malformed() throws IOException {
+        reader(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01}).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void length_overflowing_an_int_is_malformed() throws IOException {
+        reader(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f}).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void length_beyond_the_largest_value_is_refused_before_allocating_it() throws IOException {
+        reader(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void length_truncated_by_the_end_of_the_input_is_refused() throws IOException {
+        reader(new byte[]{0x01, 'r', (byte) 0x80}).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void cell_truncated_in_its_value_is_refused() throws IOException {
+        byte[] cell = encoded(CELL);
+        reader(Arrays.copyOf(cell, cell.length - 1)).read();
+    }
+}
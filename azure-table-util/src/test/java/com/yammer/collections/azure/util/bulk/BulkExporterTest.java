@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.yammer.collections.azure.InMemoryTables;
+import com.yammer.collections.azure.TableClientOptions;
+import com.yammer.collections.azure.TypedAzureTable;
+import com.yammer.collections.azure.serialization.Codecs;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkExporterTest {
+    private static final String SOURCE_TABLE = "source_table";
+    private static final String RESTORED_TABLE = "restored_table";
+    private static final int ROWS = 200;
+    private static final int COLUMNS = 5;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final InMemoryTables tables = InMemoryTables.builder().withPageSize(50).build();
+
+    private TypedAzureTable<String, Long, String> table(String tableName) {
+        return tables.typedTable(tableName, TableClientOptions.DEFAULT, String.class, Long.class, String.class,
+                Codecs.STRING, Codecs.LONG, Codecs.STRING);
+    }
+
+    private TypedAzureTable<String, Long, String> filledTable() {
+        TypedAzureTable<String, Long, String> table = table(SOURCE_TABLE);
+        for (int row = 0; row < ROWS; row++) {
+            for (long column = 0; column < COLUMNS; column++) {
+                table.put("row" + row, column, "value" + row + "-" + column);
+            }
+        }
+        return table;
+    }
+
+    private static BulkExporter.Builder<String, Long, String> exporter(TypedAzureTable<String, Long, String> table) {
+        return BulkExporter.from(table, Codecs.STRING, Codecs.LONG, Codecs.STRING).withParallelism(4);
+    }
+
+    private void assertRoundTrip(BulkExporter<String, Long, String> exporter, String suffix) throws IOException, InterruptedException {
+        File directory = folder.newFolder();
+
+        BulkExportResult exported = exporter.exportTo(directory);
+
+        assertThat(exported.getCellsExported(), is(equalTo((long) ROWS * COLUMNS)));
+        File[] files = directory.listFiles();
+        assertThat(files, is(arrayWithSize(exported.getSegmentFiles())));
+        for (File file : files) {
+            assertThat(file.getName(), endsWith(suffix));
+        }
+
+        TypedAzureTable<String, Long, String> restored = table(RESTORED_TABLE);
+        try (SnapshotCellReader<String, Long, String> reader = SnapshotCellReader.open(directory, Codecs.STRING, Codecs.LONG, Codecs.STRING)) {
+            BulkImportResult imported = BulkImporter.into(restored).withParallelism(4).build().importFrom(reader);
+            assertThat(imported.getCellsWritten(), is(equalTo((long) ROWS * COLUMNS)));
+        }
+
+        assertThat(HashBasedTable.create(restored), is(equalTo((Table<String, Long, String>) HashBasedTable.create(table(SOURCE_TABLE)))));
+    }
+
+    @Test
+    public void table_exported_in_parallel_is_restored_by_the_importer() throws IOException, InterruptedException {
+        assertRoundTrip(exporter(filledTable()).build(), ".cells");
+    }
+
+    @Test
+    public void table_exported_with_compression_is_restored_by_the_importer() throws IOException, InterruptedException {
+        assertRoundTrip(exporter(filledTable()).withCompression().build(), ".cells.gz");
+    }
+
+    @Test
+    public void segments_without_cells_leave_no_file() throws IOException, InterruptedException {
+        File directory = folder.newFolder();
+
+        BulkExportResult result = exporter(table(SOURCE_TABLE)).build().exportTo(directory);
+
+        assertThat(result.getSegmentFiles(), is(equalTo(0)));
+        assertThat(directory.listFiles(), is(emptyArray()));
+    }
+
+    @Test
+    public void rows_in_fewer_segments_than_the_workers_leave_files_of_those_segments_only() throws IOException, InterruptedException {
+        TypedAzureTable<String, Long, String> table = table(SOURCE_TABLE);
+        table.put("row", 0L, "value");
+        File directory = folder.newFolder();
+
+        BulkExportResult result = exporter(table).build().exportTo(directory);
+
+        assertThat(result.getSegmentFiles(), is(equalTo(1)));
+        assertThat(directory.listFiles(), is(arrayWithSize(1)));
+    }
+
+    private File directoryWithPartialSegmentFile() throws IOException {
+        File directory = folder.newFolder();
+        assertThat(new File(directory, "segment-000000.cells.partial").createNewFile(), is(true));
+        return directory;
+    }
+
+    @Test
+    public void directory_with_partial_segment_files_is_refused_by_the_export() throws IOException, InterruptedException {
+        File directory = directoryWithPartialSegmentFile();
+
+        try {
+            exporter(filledTable()).build().exportTo(directory);
+            fail("The export should have refused the directory");
+        } catch (IOException expected) {
+            assertThat(directory.listFiles(), is(arrayWithSize(1)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void snapshot_with_partial_segment_files_is_refused_by_the_reader() throws IOException {
+        SnapshotCellReader.open(directoryWithPartialSegmentFile(), Codecs.STRING, Codecs.LONG, Codecs.STRING);
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.microsoft.windowsazure.services.core.storage.RetryLinearRetry;
+import com.yammer.collections.azure.InMemoryTables;
+import com.yammer.collections.azure.TableClientOptions;
+import com.yammer.collections.azure.TypedAzureTable;
+import com.yammer.collections.azure.serialization.Codec;
+import com.yammer.collections.azure.serialization.Codecs;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkImporterTest {
+    private static final String TABLE_NAME = "imported_table";
+    private static final String POISON = "poison";
+    // fails a batch of the import, after the first one
+    private static final long FAILING_SEED = 3;
+    private static final TableClientOptions RETRYING = TableClientOptions.builder().withRetryPolicy(new RetryLinearRetry(0, 10)).build();
+    private static final Codec<String> POISONED_CODEC = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            if (value.equals(POISON)) {
+                throw new AssertionError("Poisoned value");
+            }
+            return Codecs.STRING.encode(value);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return Codecs.STRING.decode(bytes, offset, length);
+        }
+    };
+    private static final String SLOW = "slow";
+    // delays the batch writing the value, so that a later batch of its row would complete first
+    private static final Codec<String> SLOW_CODEC = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            if (value.equals(SLOW)) {
+                Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+            }
+            return Codecs.STRING.encode(value);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return Codecs.STRING.decode(bytes, offset, length);
+        }
+    };
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TypedAzureTable<String, String, String> table(InMemoryTables tables, TableClientOptions options) {
+        return tables.typedTable(TABLE_NAME, options, String.class, String.class, String.class, Codecs.STRING, Codecs.STRING, Codecs.STRING);
+    }
+
+    private static List<Table.Cell<String, String, String>> cells(int rows, int columns) {
+        List<Table.Cell<String, String, String>> cells = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                cells.add(Tables.immutableCell("row" + row, "column" + column, "value" + row + "-" + column));
+            }
+        }
+        return cells;
+    }
+
+    private static CellReader<String, String, String> reader(Iterable<Table.Cell<String, String, String>> cells) {
+        final Iterator<Table.Cell<String, String, String>> iterator = cells.iterator();
+        return new CellReader<String, String, String>() {
+            @Override
+            public Table.Cell<String, String, String> read() {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static Table<String, String, String> expected(Iterable<Table.Cell<String, String, String>> cells) {
+        Table<String, String, String> expected = HashBasedTable.create();
+        for (Table.Cell<String, String, String> cell : cells) {
+            expected.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+        }
+        return expected;
+    }
+
+    @Test
+    public void cells_are_written_in_batches_of_at_most_100_of_a_row() throws IOException, InterruptedException {
+        InMemoryTables tables = InMemoryTables.builder().build();
+        TypedAzureTable<String, String, String> table = table(tables, TableClientOptions.DEFAULT);
+        List<Table.Cell<String, String, String>> cells = cells(3, 250);
+
+        BulkImportResult result = BulkImporter.into(table).withParallelism(2).build().importFrom(reader(cells));
+
+        // the service refuses batches of more than 100 entities, or across partitions
+        assertThat(result.getCellsWritten(), is(equalTo(750L)));
+        assertThat(result.getBatches(), is(equalTo(9L)));
+        assertThat(tables.getRequestCount(), is(equalTo(9L)));
+        assertThat(HashBasedTable.create(table), is(equalTo(expected(cells))));
+    }
+
+    @Test
+    public void batches_of_a_row_are_written_in_turn_so_that_the_last_value_wins() throws IOException, InterruptedException {
+        TypedAzureTable<String, String, String> table = InMemoryTables.builder().build().typedTable(TABLE_NAME, TableClientOptions.DEFAULT,
+                String.class, String.class, String.class, Codecs.STRING, Codecs.STRING, SLOW_CODEC);
+        List<Table.Cell<String, String, String>> cells = cells(1, 99);
+        cells.add(Tables.immutableCell("row0", "column", SLOW));
+        cells.add(Tables.immutableCell("row0", "column", "last"));
+
+        BulkImportResult result = BulkImporter.into(table).build().importFrom(reader(cells));
+
+        assertThat(result.getBatches(), is(equalTo(2L)));
+        assertThat(table.get("row0", "column"), is(equalTo("last")));
+    }
+
+    @Test
+    public void rows_interleaved_beyond_the_buffer_are_written_in_smaller_batches() throws IOException, InterruptedException {
+        InMemoryTables tables = InMemoryTables.builder().build();
+        TypedAzureTable<String, String, String> table = table(tables, TableClientOptions.DEFAULT);
+        List<Table.Cell<String, String, String>> cells = new ArrayList<>();
+        for (int column = 0; column < 20; column++) {
+            for (int row = 0; row < 5; row++) {
+                cells.add(Tables.immutableCell("row" + row, "column" + column, "value"));
+            }
+        }
+
+        BulkImportResult result = BulkImporter.into(table).withMaxBufferedCells(10).build().importFrom(reader(cells));
+
+        assertThat(result.getBatches(), is(greaterThan(5L)));
+        assertThat(tables.size(TABLE_NAME), is(equalTo(100)));
+    }
+
+    @Test
+    public void failed_import_resumes_from_its_checkpoint_without_losing_cells() throws IOException, InterruptedException {
+        InMemoryTables tables = InMemoryTables.builder().failingWithProbability(0.2).withSeed(FAILING_SEED).build();
+        File checkpoint = new File(folder.getRoot(), "checkpoint");
+        List<Table.Cell<String, String, String>> cells = cells(10, 50);
+        long saved = 0;
+
+        try {
+            BulkImporter.into(table(tables, TableClientOptions.DEFAULT)).withParallelism(1).withCheckpoint(checkpoint).build()
+                    .importFrom(reader(cells));
+            fail("The import should have failed");
+        } catch (BulkImportException e) {
+            saved = e.getCheckpoint();
+        }
+
+        assertThat(saved, is(greaterThan(0L)));
+        assertThat(saved, is(lessThan(500L)));
+        assertThat(new String(Files.readAllBytes(checkpoint.toPath()), Charsets.UTF_8).trim(), is(equalTo(Long.toString(saved))));
+
+        TypedAzureTable<String, String, String> table = table(tables, RETRYING);
+        BulkImportResult result = BulkImporter.into(table).withCheckpoint(checkpoint).build().importFrom(reader(cells));
+
+        assertThat(result.getCellsSkipped(), is(equalTo(saved)));
+        assertThat(result.getCellsWritten(), is(equalTo(500 - saved)));
+        assertThat(HashBasedTable.create(table), is(equalTo(expected(cells))));
+    }
+
+    @Test
+    public void checkpoint_is_deleted_once_the_import_completes() throws IOException, InterruptedException {
+        TypedAzureTable<String, String, String> table = table(InMemoryTables.builder().build(), TableClientOptions.DEFAULT);
+        File checkpoint = new File(folder.getRoot(), "checkpoint");
+
+        BulkImporter.into(table).withCheckpoint(checkpoint).withProgressInterval(1, TimeUnit.NANOSECONDS).build()
+                .importFrom(reader(cells(3, 150)));
+
+        assertThat(checkpoint.exists(), is(false));
+        assertThat(new File(folder.getRoot(), "checkpoint.saving").exists(), is(false));
+    }
+
+    @Test
+    public void error_thrown_while_writing_a_batch_fails_the_import_and_keeps_the_checkpoint() throws IOException, InterruptedException {
+        TypedAzureTable<String, String, String> table = InMemoryTables.builder().build().typedTable(TABLE_NAME, TableClientOptions.DEFAULT,
+                String.class, String.class, String.class, Codecs.STRING, Codecs.STRING, POISONED_CODEC);
+        File checkpoint = new File(folder.getRoot(), "checkpoint");
+        List<Table.Cell<String, String, String>> cells = cells(2, 10);
+        cells.add(Tables.immutableCell("row2", "column0", POISON));
+
+        try {
+            BulkImporter.into(table).withParallelism(1).withCheckpoint(checkpoint).build().importFrom(reader(cells));
+            fail("The import should have failed");
+        } catch (BulkImportException e) {
+            assertThat(e.getCause(), is(instanceOf(AssertionError.class)));
+            assertThat(e.getCheckpoint(), is(equalTo(20L)));
+        }
+        assertThat(checkpoint.exists(), is(true));
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * THIS CODE IS PROVIDED *AS IS* BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, EITHER
+ * EXPRESS OR IMPLIED, INCLUDING WITHOUT LIMITATION ANY IMPLIED WARRANTIES OR CONDITIONS
+ * OF TITLE, FITNESS FOR A PARTICULAR PURPOSE, MERCHANTABLITY OR NON-INFRINGEMENT.
+ *
+ * See the Apache Version 2.0 License for specific language governing permissions and limitations under
+ * the License.
+ */
+package com.yammer.collections.azure.util.bulk;
+
+import com.google.common.collect.Tables;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class JsonLinesCellReaderTest {
+    private static JsonLinesCellReader<String, String, Long> reader(String lines) {
+        return JsonLinesCellReader.create(new StringReader(lines), String.class, String.class, Long.class);
+    }
+
+    @Test
+    public void cells_are_read_a_line_at_a_time_skipping_blank_lines() throws IOException {
+        JsonLinesCellReader<String, String, Long> reader = reader("{\"row\":\"a\",\"column\":\"b\",\"value\":1}\n\n  \n{\"value\":2,\"row\":\"c\",\"column\":\"d\"}\n");
+
+        assertThat(reader.read(), is(equalTo(Tables.immutableCell("a", "b", 1L))));
+        assertThat(reader.read(), is(equalTo(Tables.immutableCell("c", "d", 2L))));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
+    @Test
+    public void missing_field_fails_with_its_line_number() throws IOException {
+        JsonLinesCellReader<String, String, Long> reader = reader("{\"row\":\"a\",\"column\":\"b\",\"value\":1}\n\n{\"row\":\"a\",\"value\":2}\n");
+        reader.read();
+
+        try {
+            reader.read();
+            fail("The line without a column should have been refused");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("No column in line 3"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void null_field_is_refused() throws IOException {
+        reader("{\"row\":\"a\",\"column\":\"b\",\"value\":null}").read();
+    }
+
+    @Test(expected = IOException.class)
+    public void field_of_the_wrong_type_is_refused() throws IOException {
+        reader("{\"row\":\"a\",\"column\":\"b\",\"value\":\"not a number\"}").read();
+    }
+}